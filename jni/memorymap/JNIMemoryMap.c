@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+// compile:
+// linux:
+// gcc -O2 -shared -fpic -o libJNIMemoryMap.so -I/usr/lib/jvm/java-8-openjdk/include/ -I/usr/lib/jvm/java-8-openjdk/include/linux JNIMemoryMap.c
+
+#define _GNU_SOURCE
+#include <jni.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <string.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+
+// from linux/mempolicy.h, called through syscall() to not depend on libnuma
+#define MPOL_BIND 2
+#define MAX_NUMA_NODES 1024
+#define BITS_PER_LONG (8 * sizeof(unsigned long))
+
+
+/**
+ * Get the page size of the OS
+ *
+ * @return the page size in bytes
+ */
+JNIEXPORT jlong JNICALL Java_de_hhu_bsinfo_soh_JNIMemoryMap_getPageSize(JNIEnv *p_env, jclass p_class) {
+	return sysconf(_SC_PAGESIZE);
+}
+
+/**
+ * Map a file into memory. The file is closed after mapping, the mapping remains valid.
+ *
+ * @param p_path
+ *         the path of the file to map.
+ * @param p_offset
+ *         the offset within the file (multiple of the page size).
+ * @param p_size
+ *         the size of the mapping.
+ * @param p_private
+ *         true to map privately (copy on write, the file is opened read only), false to map shared.
+ * @return the address of the mapping if successful, -errno otherwise
+ */
+JNIEXPORT jlong JNICALL Java_de_hhu_bsinfo_soh_JNIMemoryMap_map(JNIEnv *p_env, jclass p_class, jstring p_path, jlong p_offset,
+		jlong p_size, jboolean p_private) {
+	const char *path;
+	int fd;
+	void *address;
+	int error;
+
+	path = (*p_env)->GetStringUTFChars(p_env, p_path, NULL);
+	if (path == NULL) {
+		return -ENOMEM;
+	}
+
+	fd = open(path, p_private ? O_RDONLY : O_RDWR);
+	error = errno;
+	(*p_env)->ReleaseStringUTFChars(p_env, p_path, path);
+
+	if (fd < 0) {
+		return -error;
+	}
+
+	address = mmap(NULL, (size_t) p_size, PROT_READ | PROT_WRITE, p_private ? MAP_PRIVATE : MAP_SHARED, fd, (off_t) p_offset);
+	error = errno;
+	close(fd);
+
+	if (address == MAP_FAILED) {
+		return -error;
+	}
+
+	return (jlong) address;
+}
+
+/**
+ * Unmap a mapping created with map().
+ *
+ * @param p_address
+ *         the address of the mapping.
+ * @param p_size
+ *         the size of the mapping.
+ * @return 0 if successful, -errno otherwise
+ */
+JNIEXPORT jint JNICALL Java_de_hhu_bsinfo_soh_JNIMemoryMap_unmap(JNIEnv *p_env, jclass p_class, jlong p_address, jlong p_size) {
+	if (munmap((void *) p_address, (size_t) p_size) != 0) {
+		return -errno;
+	}
+
+	return 0;
+}
+
+/**
+ * Bind the pages of a mapping to a NUMA node. Pages allocated afterwards are placed on the node only.
+ *
+ * @param p_address
+ *         the address of the mapping (multiple of the page size).
+ * @param p_size
+ *         the size of the mapping.
+ * @param p_node
+ *         the NUMA node to bind the pages to.
+ * @return 0 if successful, -errno otherwise
+ */
+JNIEXPORT jint JNICALL Java_de_hhu_bsinfo_soh_JNIMemoryMap_bindToNode(JNIEnv *p_env, jclass p_class, jlong p_address, jlong p_size,
+		jint p_node) {
+	unsigned long nodemask[MAX_NUMA_NODES / BITS_PER_LONG];
+
+	if (p_node < 0 || p_node >= MAX_NUMA_NODES) {
+		return -EINVAL;
+	}
+
+	memset(nodemask, 0, sizeof(nodemask));
+	nodemask[p_node / BITS_PER_LONG] = 1UL << (p_node % BITS_PER_LONG);
+
+	if (syscall(SYS_mbind, (void *) p_address, (unsigned long) p_size, MPOL_BIND, nodemask, (unsigned long) MAX_NUMA_NODES, 0) != 0) {
+		return -errno;
+	}
+
+	return 0;
+}
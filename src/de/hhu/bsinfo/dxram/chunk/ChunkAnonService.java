@@ -17,6 +17,7 @@
 package de.hhu.bsinfo.dxram.chunk;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -47,6 +48,7 @@ import de.hhu.bsinfo.dxram.lookup.LookupRange;
 import de.hhu.bsinfo.dxram.lookup.LookupState;
 import de.hhu.bsinfo.dxram.mem.MemoryManagerComponent;
 import de.hhu.bsinfo.dxram.net.NetworkComponent;
+import de.hhu.bsinfo.dxram.util.ArrayListLong;
 import de.hhu.bsinfo.dxram.util.NodeRole;
 import de.hhu.bsinfo.dxutils.stats.StatisticsManager;
 import de.hhu.bsinfo.dxutils.stats.ThroughputPool;
@@ -77,6 +79,7 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
     // component dependencies
     private AbstractBootComponent m_boot;
     private BackupComponent m_backup;
+    private ChunkComponent m_chunk;
     private MemoryManagerComponent m_memoryManager;
     private NetworkComponent m_network;
     private LookupComponent m_lookup;
@@ -112,6 +115,7 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
 
         // sort by local and remote data first
         Map<Short, ArrayList<Integer>> remoteChunkIDsByPeers = new TreeMap<>();
+        ArrayList<Integer> nonLocalChunkIDIndexes = new ArrayList<>();
 
         try {
             m_memoryManager.lockAccess();
@@ -124,32 +128,29 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
                     p_ret[i].setState(ChunkState.OK);
                     numChunks++;
                 } else {
-                    // remote or migrated, figure out location and sort by peers
-                    LookupRange lookupRange;
-
-                    lookupRange = m_lookup.getLookupRange(p_chunkIDs[i]);
-                    while (lookupRange.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
-                        try {
-                            Thread.sleep(100);
-                        } catch (final InterruptedException ignore) {
-                        }
-                        lookupRange = m_lookup.getLookupRange(p_chunkIDs[i]);
-                    }
-
-                    if (lookupRange.getState() == LookupState.OK) {
-                        short peer = lookupRange.getPrimaryPeer();
-
-                        ArrayList<Integer> remoteChunkIDsOfPeer = remoteChunkIDsByPeers.computeIfAbsent(peer,
-                                a -> new ArrayList<>());
-                        // Add the index in ChunkID array not the ChunkID itself
-                        remoteChunkIDsOfPeer.add(i);
-                    }
+                    // remote or migrated
+                    nonLocalChunkIDIndexes.add(i);
                 }
             }
         } finally {
             m_memoryManager.unlockAccess();
         }
 
+        // figure out location and sort by peers without holding the access lock, waiting for a range in recovery
+        // must not block the memory manager
+        for (int i : nonLocalChunkIDIndexes) {
+            LookupRange lookupRange = m_lookup.waitForLookupRange(p_chunkIDs[i]);
+
+            if (lookupRange.getState() == LookupState.OK) {
+                short peer = lookupRange.getPrimaryPeer();
+
+                ArrayList<Integer> remoteChunkIDsOfPeer = remoteChunkIDsByPeers.computeIfAbsent(peer,
+                        a -> new ArrayList<>());
+                // Add the index in ChunkID array not the ChunkID itself
+                remoteChunkIDsOfPeer.add(i);
+            }
+        }
+
         // go for remote ones by each peer
         for (final Map.Entry<Short, ArrayList<Integer>> peerWithChunks : remoteChunkIDsByPeers.entrySet()) {
             short peer = peerWithChunks.getKey();
@@ -315,6 +316,8 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
 
         Map<Short, ArrayList<ChunkAnon>> remoteChunksByPeers = new TreeMap<>();
         Map<BackupRange, ArrayList<ChunkAnon>> remoteChunksByBackupRange = new TreeMap<>();
+        ArrayList<ChunkAnon> nonLocalChunks = new ArrayList<>();
+        ArrayListLong localChunkIDs = new ArrayListLong();
 
         // sort by local/remote chunks
         try {
@@ -330,6 +333,7 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
                 if (m_memoryManager.put(p_chunks[i + p_offset].getID(), p_chunks[i + p_offset].getData())) {
                     chunksPut++;
                     p_chunks[i + p_offset].setState(ChunkState.OK);
+                    localChunkIDs.add(p_chunks[i + p_offset].getID());
 
                     // unlock chunk as well
                     if (p_chunkUnlockOperation != ChunkLockOperation.NO_LOCK_OPERATION) {
@@ -348,62 +352,73 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
                         remoteChunksOfBackupRange.add(p_chunks[i + p_offset]);
                     }
                 } else {
-                    // remote or migrated, figure out location and sort by peers
-                    LookupRange location = m_lookup.getLookupRange(p_chunks[i + p_offset].getID());
-                    while (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
-                        try {
-                            Thread.sleep(100);
-                        } catch (final InterruptedException ignore) {
-                        }
-                        location = m_lookup.getLookupRange(p_chunks[i + p_offset].getID());
-                    }
-
-                    if (location.getState() == LookupState.OK) {
-                        // currently undefined because we still have to get it from remote
-                        p_chunks[i + p_offset].setState(ChunkState.UNDEFINED);
-                        short peer = location.getPrimaryPeer();
-
-                        ArrayList<ChunkAnon> remoteChunksOfPeer = remoteChunksByPeers.computeIfAbsent(peer,
-                                a -> new ArrayList<>());
-                        remoteChunksOfPeer.add(p_chunks[i + p_offset]);
-                    } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
-                        p_chunks[i + p_offset].setState(ChunkState.DOES_NOT_EXIST);
-                    } else if (location.getState() == LookupState.DATA_LOST) {
-                        p_chunks[i + p_offset].setState(ChunkState.DATA_LOST);
-                    }
+                    // remote or migrated
+                    nonLocalChunks.add(p_chunks[i + p_offset]);
                 }
             }
         } finally {
             m_memoryManager.unlockAccess();
         }
 
+        m_chunk.invalidateNearCaches(Arrays.copyOf(localChunkIDs.getArray(), localChunkIDs.getSize()));
+
+        // figure out location and sort by peers without holding the access lock, waiting for a range in recovery
+        // must not block the memory manager
+        for (ChunkAnon chunk : nonLocalChunks) {
+            LookupRange location = m_lookup.waitForLookupRange(chunk.getID());
+
+            if (location.getState() == LookupState.OK) {
+                // currently undefined because we still have to get it from remote
+                chunk.setState(ChunkState.UNDEFINED);
+                short peer = location.getPrimaryPeer();
+
+                ArrayList<ChunkAnon> remoteChunksOfPeer = remoteChunksByPeers.computeIfAbsent(peer,
+                        a -> new ArrayList<>());
+                remoteChunksOfPeer.add(chunk);
+            } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
+                chunk.setState(ChunkState.DOES_NOT_EXIST);
+            } else if (location.getState() == LookupState.DATA_LOST) {
+                chunk.setState(ChunkState.DATA_LOST);
+            } else if (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+                chunk.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
+            }
+        }
+
         // go for remote chunks
         for (Map.Entry<Short, ArrayList<ChunkAnon>> entry : remoteChunksByPeers.entrySet()) {
             short peer = entry.getKey();
 
             if (peer == m_boot.getNodeID()) {
                 // local put, migrated data to current node
+                ArrayListLong migratedChunkIDs = new ArrayListLong();
+
                 try {
                     m_memoryManager.lockAccess();
                     for (final ChunkAnon chunk : entry.getValue()) {
                         if (m_memoryManager.put(chunk.getID(), chunk.getData())) {
                             chunksPut++;
                             chunk.setState(ChunkState.OK);
+                            migratedChunkIDs.add(chunk.getID());
                         }
                         // else: put failed, state for chunk set by memory manager
                     }
                 } finally {
                     m_memoryManager.unlockAccess();
                 }
+
+                m_chunk.invalidateNearCaches(Arrays.copyOf(migratedChunkIDs.getArray(), migratedChunkIDs.getSize()));
             } else {
-                // Remote put
+                // Remote put, don't get overwritten by older async puts buffered for the peer
                 ArrayList<ChunkAnon> chunksToPut = entry.getValue();
+                m_chunk.flushWriteCombiner(peer);
                 PutAnonRequest request = new PutAnonRequest(peer, p_chunkUnlockOperation, chunksToPut.toArray(
                         new ChunkAnon[chunksToPut.size()]));
 
                 try {
                     m_network.sendSync(request);
                 } catch (final NetworkException e) {
+                    evictFromNearCache(chunksToPut);
+
                     if (m_backup.isActive()) {
                         for (ChunkAnon chunk : chunksToPut) {
                             chunk.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
@@ -421,6 +436,9 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
                     continue;
                 }
 
+                // the chunks might be cached by ChunkService.get, don't read the old data after the put
+                evictFromNearCache(chunksToPut);
+
                 PutAnonResponse response = request.getResponse(PutAnonResponse.class);
 
                 byte[] statusCodes = response.getStatusCodes();
@@ -523,6 +541,7 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
     protected void resolveComponentDependencies(final DXRAMComponentAccessor p_componentAccessor) {
         m_boot = p_componentAccessor.getComponent(AbstractBootComponent.class);
         m_backup = p_componentAccessor.getComponent(BackupComponent.class);
+        m_chunk = p_componentAccessor.getComponent(ChunkComponent.class);
         m_memoryManager = p_componentAccessor.getComponent(MemoryManagerComponent.class);
         m_network = p_componentAccessor.getComponent(NetworkComponent.class);
         m_lookup = p_componentAccessor.getComponent(LookupComponent.class);
@@ -553,6 +572,22 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
 
     // -----------------------------------------------------------------------------------
 
+    /**
+     * Evict remote chunks written from the near cache of this node
+     *
+     * @param p_chunks
+     *         Remote chunks written
+     */
+    private void evictFromNearCache(final ArrayList<ChunkAnon> p_chunks) {
+        long[] chunkIDs = new long[p_chunks.size()];
+
+        for (int i = 0; i < chunkIDs.length; i++) {
+            chunkIDs[i] = p_chunks.get(i).getID();
+        }
+
+        m_chunk.evictFromNearCache(chunkIDs);
+    }
+
     /**
      * Register network messages we use in here.
      */
@@ -639,6 +674,7 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
         // #endif /* STATISTICS */
 
         Map<BackupRange, ArrayList<ChunkAnon>> remoteChunksByBackupRange = new TreeMap<>();
+        ArrayListLong putChunkIDs = new ArrayListLong(chunkIDs.length);
 
         try {
             m_memoryManager.lockAccess();
@@ -651,6 +687,7 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
                 } else {
                     // put successful
                     statusChunks[i] = (byte) ChunkState.OK.ordinal();
+                    putChunkIDs.add(chunkIDs[i]);
                 }
 
                 if (m_backup.isActive()) {
@@ -665,6 +702,8 @@ public class ChunkAnonService extends AbstractDXRAMService<ChunkAnonServiceConfi
             m_memoryManager.unlockAccess();
         }
 
+        m_chunk.invalidateNearCaches(Arrays.copyOf(putChunkIDs.getArray(), putChunkIDs.getSize()));
+
         // unlock chunks
         if (p_request.getUnlockOperation() != ChunkLockOperation.NO_LOCK_OPERATION) {
             boolean writeLock = false;
@@ -69,6 +69,10 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
     private NetworkComponent m_network;
     private LookupComponent m_lookup;
     private AbstractLockComponent m_lock;
+    private ChunkComponent m_chunk;
+
+    // null if write combining is disabled
+    private WriteCombiner m_writeCombiner;
 
     /**
      * Constructor
@@ -118,6 +122,7 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
         // #endif /* STATISTICS */
 
         Map<Short, ArrayList<DataStructure>> remoteChunksByPeers = new TreeMap<>();
+        ArrayList<DataStructure> nonLocalChunks = new ArrayList<>();
 
         // sort by local/remote chunks
         m_memoryManager.lockAccess();
@@ -140,38 +145,46 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
                     m_lock.unlock(dataStructure.getID(), m_boot.getNodeID(), writeLock);
                 }
             } else {
-                // remote or migrated, figure out location and sort by peers
-                LookupRange location = m_lookup.getLookupRange(dataStructure.getID());
-                while (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
-                    try {
-                        Thread.sleep(100);
-                    } catch (final InterruptedException ignore) {
-                    }
-                    location = m_lookup.getLookupRange(dataStructure.getID());
-                }
-
-                if (location.getState() == LookupState.OK) {
-                    // currently undefined because we still have to get it from remote
-                    dataStructure.setState(ChunkState.UNDEFINED);
-                    short peer = location.getPrimaryPeer();
-
-                    ArrayList<DataStructure> remoteChunksOfPeer =
-                            remoteChunksByPeers.computeIfAbsent(peer, a -> new ArrayList<>());
-                    remoteChunksOfPeer.add(dataStructure);
-                } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
-                    dataStructure.setState(ChunkState.DOES_NOT_EXIST);
-                } else if (location.getState() == LookupState.DATA_LOST) {
-                    dataStructure.setState(ChunkState.DATA_LOST);
-                }
+                // remote or migrated
+                nonLocalChunks.add(dataStructure);
             }
         }
 
         m_memoryManager.unlockAccess();
 
+        // figure out location and sort by peers without holding the access lock, waiting for a range in recovery
+        // must not block the memory manager
+        for (DataStructure dataStructure : nonLocalChunks) {
+            LookupRange location = m_lookup.waitForLookupRange(dataStructure.getID());
+
+            if (location.getState() == LookupState.OK) {
+                // currently undefined because we still have to get it from remote
+                dataStructure.setState(ChunkState.UNDEFINED);
+                short peer = location.getPrimaryPeer();
+
+                ArrayList<DataStructure> remoteChunksOfPeer =
+                        remoteChunksByPeers.computeIfAbsent(peer, a -> new ArrayList<>());
+                remoteChunksOfPeer.add(dataStructure);
+            } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
+                dataStructure.setState(ChunkState.DOES_NOT_EXIST);
+            } else if (location.getState() == LookupState.DATA_LOST) {
+                dataStructure.setState(ChunkState.DATA_LOST);
+            } else if (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+                dataStructure.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
+            }
+        }
+
+        m_chunk.invalidateNearCaches(p_dataStructures, 0, p_dataStructures.length);
+
         // go for remote chunks
         for (Entry<Short, ArrayList<DataStructure>> entry : remoteChunksByPeers.entrySet()) {
             short peer = entry.getKey();
 
+            if (peer != m_boot.getNodeID()) {
+                // the chunks might be cached by ChunkService.get, don't read the old data after the put
+                m_chunk.evictFromNearCache(entry.getValue());
+            }
+
             if (peer == m_boot.getNodeID()) {
                 // local put, migrated data to current node
                 m_memoryManager.lockAccess();
@@ -183,7 +196,23 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
                     }
                 }
                 m_memoryManager.unlockAccess();
+
+                m_chunk.invalidateNearCaches(entry.getValue().toArray(new DataStructure[entry.getValue().size()]), 0,
+                        entry.getValue().size());
+            } else if (m_writeCombiner != null &&
+                    p_chunkUnlockOperation == ChunkLockOperation.NO_LOCK_OPERATION) {
+                // Remote put, combined with other puts to the same peer
+                for (DataStructure dataStructure : entry.getValue()) {
+                    m_writeCombiner.put(peer, dataStructure);
+                }
+
+                chunksPut += entry.getValue().size();
             } else {
+                if (m_writeCombiner != null) {
+                    // don't overtake buffered puts to the same peer
+                    m_writeCombiner.flush(peer);
+                }
+
                 // Remote put
                 ArrayList<DataStructure> chunksToPut = entry.getValue();
                 PutMessage message = new PutMessage(peer, p_chunkUnlockOperation,
@@ -224,6 +253,16 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
         return chunksPut;
     }
 
+    /**
+     * Send all puts buffered for write combining right away (see ChunkAsyncServiceConfig).
+     * Nothing happens if write combining is disabled.
+     */
+    public void flush() {
+        if (m_writeCombiner != null) {
+            m_writeCombiner.flushAll();
+        }
+    }
+
     @Override
     public void onIncomingMessage(final Message p_message) {
         // #if LOGGER == TRACE
@@ -264,6 +303,7 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
         m_network = p_componentAccessor.getComponent(NetworkComponent.class);
         m_lookup = p_componentAccessor.getComponent(LookupComponent.class);
         m_lock = p_componentAccessor.getComponent(AbstractLockComponent.class);
+        m_chunk = p_componentAccessor.getComponent(ChunkComponent.class);
     }
 
     @Override
@@ -271,11 +311,24 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
         registerNetworkMessages();
         registerNetworkMessageListener();
 
+        if (getConfig().isWriteCombining()) {
+            m_writeCombiner = new WriteCombiner(m_network, m_lookup, getConfig().getWriteCombiningWindow().getNs(),
+                    (int) getConfig().getWriteCombiningBufferSize().getBytes());
+            m_writeCombiner.start();
+            m_chunk.setWriteCombiner(m_writeCombiner);
+        }
+
         return true;
     }
 
     @Override
     protected boolean shutdownService() {
+        if (m_writeCombiner != null) {
+            m_chunk.setWriteCombiner(null);
+            m_writeCombiner.shutdown();
+            m_writeCombiner = null;
+        }
+
         return true;
     }
 
@@ -325,6 +378,8 @@ public class ChunkAsyncService extends AbstractDXRAMService<ChunkAsyncServiceCon
             m_memoryManager.unlockAccess();
         }
 
+        m_chunk.invalidateNearCaches(chunkIDs);
+
         // unlock chunks
         if (p_request.getUnlockOperation() != ChunkLockOperation.NO_LOCK_OPERATION) {
             boolean writeLock = false;
@@ -1,7 +1,11 @@
 package de.hhu.bsinfo.dxram.chunk;
 
+import com.google.gson.annotations.Expose;
+
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMServiceConfig;
+import de.hhu.bsinfo.dxutils.unit.StorageUnit;
+import de.hhu.bsinfo.dxutils.unit.TimeUnit;
 
 /**
  * Config for the ChunkAsyncService
@@ -9,6 +13,15 @@ import de.hhu.bsinfo.dxram.engine.AbstractDXRAMServiceConfig;
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 24.05.2017
  */
 public class ChunkAsyncServiceConfig extends AbstractDXRAMServiceConfig {
+    @Expose
+    private boolean m_writeCombining = false;
+
+    @Expose
+    private TimeUnit m_writeCombiningWindow = new TimeUnit(1, TimeUnit.MS);
+
+    @Expose
+    private StorageUnit m_writeCombiningBufferSize = new StorageUnit(64, StorageUnit.KB);
+
     /**
      * Constructor
      */
@@ -16,8 +29,36 @@ public class ChunkAsyncServiceConfig extends AbstractDXRAMServiceConfig {
         super(ChunkAsyncService.class, false, true);
     }
 
+    /**
+     * Buffer async puts to remote peers and send them combined (fewer messages, higher latency)
+     */
+    public boolean isWriteCombining() {
+        return m_writeCombining;
+    }
+
+    /**
+     * Max time a put is buffered before it is sent (write combining)
+     */
+    public TimeUnit getWriteCombiningWindow() {
+        return m_writeCombiningWindow;
+    }
+
+    /**
+     * Max amount of chunk data buffered per peer before it is sent (write combining)
+     */
+    public StorageUnit getWriteCombiningBufferSize() {
+        return m_writeCombiningBufferSize;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
+        if (m_writeCombiningBufferSize.getBytes() < 1 || m_writeCombiningBufferSize.getBytes() > Integer.MAX_VALUE) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%s) for m_writeCombiningBufferSize", m_writeCombiningBufferSize);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
         return true;
     }
 }
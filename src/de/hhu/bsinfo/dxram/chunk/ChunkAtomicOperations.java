@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk;
+
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxram.data.ChunkState;
+import de.hhu.bsinfo.dxram.mem.AtomicOperation;
+
+/**
+ * Batch of atomic operations on int/long fields of chunks, executed with ChunkMemoryService.atomics().
+ * The operations are executed by the nodes storing the chunks: all operations on chunks of the same node cost
+ * a single request. After execution, every operation has a state and the previous value of the field accessed.
+ * Operations are identified by the index returned when adding them. A batch can be reused after clear().
+ */
+public final class ChunkAtomicOperations {
+    private int m_count;
+    private byte[] m_operations;
+    private long[] m_chunkIDs;
+    private int[] m_offsets;
+    private long[] m_operands;
+    private long[] m_expected;
+
+    private byte[] m_states;
+    private long[] m_results;
+
+    /**
+     * Constructor
+     */
+    public ChunkAtomicOperations() {
+        this(8);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_capacity
+     *         Initial number of operations (grows if exceeded)
+     */
+    public ChunkAtomicOperations(final int p_capacity) {
+        int capacity = Math.max(p_capacity, 1);
+
+        m_operations = new byte[capacity];
+        m_chunkIDs = new long[capacity];
+        m_offsets = new int[capacity];
+        m_operands = new long[capacity];
+        m_expected = new long[capacity];
+        m_states = new byte[capacity];
+        m_results = new long[capacity];
+    }
+
+    /**
+     * Add a compare and swap operation on an int field
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_expected
+     *         Expected value of the field
+     * @param p_value
+     *         Value to set if the field has the expected value
+     * @return Index of the operation
+     */
+    public int compareAndSwapInt(final long p_chunkID, final int p_offset, final int p_expected, final int p_value) {
+        return add(AtomicOperation.COMPARE_AND_SWAP_INT, p_chunkID, p_offset, p_value, p_expected);
+    }
+
+    /**
+     * Add a compare and swap operation on a long field
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_expected
+     *         Expected value of the field
+     * @param p_value
+     *         Value to set if the field has the expected value
+     * @return Index of the operation
+     */
+    public int compareAndSwapLong(final long p_chunkID, final int p_offset, final long p_expected,
+            final long p_value) {
+        return add(AtomicOperation.COMPARE_AND_SWAP_LONG, p_chunkID, p_offset, p_value, p_expected);
+    }
+
+    /**
+     * Add a fetch and add operation on an int field
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_delta
+     *         Value to add
+     * @return Index of the operation
+     */
+    public int fetchAndAddInt(final long p_chunkID, final int p_offset, final int p_delta) {
+        return add(AtomicOperation.FETCH_AND_ADD_INT, p_chunkID, p_offset, p_delta, 0);
+    }
+
+    /**
+     * Add a fetch and add operation on a long field
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_delta
+     *         Value to add
+     * @return Index of the operation
+     */
+    public int fetchAndAddLong(final long p_chunkID, final int p_offset, final long p_delta) {
+        return add(AtomicOperation.FETCH_AND_ADD_LONG, p_chunkID, p_offset, p_delta, 0);
+    }
+
+    /**
+     * Add a get and set operation on an int field
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_value
+     *         Value to set
+     * @return Index of the operation
+     */
+    public int getAndSetInt(final long p_chunkID, final int p_offset, final int p_value) {
+        return add(AtomicOperation.GET_AND_SET_INT, p_chunkID, p_offset, p_value, 0);
+    }
+
+    /**
+     * Add a get and set operation on a long field
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_value
+     *         Value to set
+     * @return Index of the operation
+     */
+    public int getAndSetLong(final long p_chunkID, final int p_offset, final long p_value) {
+        return add(AtomicOperation.GET_AND_SET_LONG, p_chunkID, p_offset, p_value, 0);
+    }
+
+    /**
+     * Get the number of operations
+     *
+     * @return Number of operations
+     */
+    public int size() {
+        return m_count;
+    }
+
+    /**
+     * Get the state of an executed operation
+     *
+     * @param p_index
+     *         Index of the operation
+     * @return ChunkState.OK if the operation was executed, the reason of the failure otherwise
+     */
+    public ChunkState getState(final int p_index) {
+        checkIndex(p_index);
+        return ChunkState.values()[m_states[p_index]];
+    }
+
+    /**
+     * Get the value of the field before an operation was executed
+     *
+     * @param p_index
+     *         Index of the operation
+     * @return Previous value (int fields are sign extended)
+     */
+    public long getPrevious(final int p_index) {
+        checkIndex(p_index);
+        return m_results[p_index];
+    }
+
+    /**
+     * Check if a compare and swap operation set the field
+     *
+     * @param p_index
+     *         Index of the operation
+     * @return True if the operation was executed and the field had the expected value
+     */
+    public boolean isSwapped(final int p_index) {
+        checkIndex(p_index);
+
+        if (m_states[p_index] != ChunkState.OK.ordinal()) {
+            return false;
+        }
+
+        if (m_operations[p_index] == AtomicOperation.COMPARE_AND_SWAP_INT.ordinal()) {
+            return (int) m_results[p_index] == (int) m_expected[p_index];
+        }
+
+        return m_results[p_index] == m_expected[p_index];
+    }
+
+    /**
+     * Remove all operations to reuse the batch
+     */
+    public void clear() {
+        m_count = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkAtomicOperations[" + m_count + ']';
+    }
+
+    byte[] getOperations() {
+        return m_operations;
+    }
+
+    long[] getChunkIDs() {
+        return m_chunkIDs;
+    }
+
+    int[] getOffsets() {
+        return m_offsets;
+    }
+
+    long[] getOperands() {
+        return m_operands;
+    }
+
+    long[] getExpected() {
+        return m_expected;
+    }
+
+    byte[] getStates() {
+        return m_states;
+    }
+
+    long[] getResults() {
+        return m_results;
+    }
+
+    /**
+     * Add an operation
+     *
+     * @param p_operation
+     *         Operation
+     * @param p_chunkID
+     *         Chunk id of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_operand
+     *         Operand
+     * @param p_expected
+     *         Expected value (compare and swap only)
+     * @return Index of the operation
+     */
+    private int add(final AtomicOperation p_operation, final long p_chunkID, final int p_offset,
+            final long p_operand, final long p_expected) {
+        if (m_count == m_operations.length) {
+            int capacity = m_count * 2;
+
+            m_operations = Arrays.copyOf(m_operations, capacity);
+            m_chunkIDs = Arrays.copyOf(m_chunkIDs, capacity);
+            m_offsets = Arrays.copyOf(m_offsets, capacity);
+            m_operands = Arrays.copyOf(m_operands, capacity);
+            m_expected = Arrays.copyOf(m_expected, capacity);
+            m_states = Arrays.copyOf(m_states, capacity);
+            m_results = Arrays.copyOf(m_results, capacity);
+        }
+
+        m_operations[m_count] = (byte) p_operation.ordinal();
+        m_chunkIDs[m_count] = p_chunkID;
+        m_offsets[m_count] = p_offset;
+        m_operands[m_count] = p_operand;
+        m_expected[m_count] = p_expected;
+        m_states[m_count] = (byte) ChunkState.UNDEFINED.ordinal();
+        m_results[m_count] = 0;
+
+        return m_count++;
+    }
+
+    /**
+     * Check if an index refers to an added operation
+     *
+     * @param p_index
+     *         Index to check
+     */
+    private void checkIndex(final int p_index) {
+        if (p_index < 0 || p_index >= m_count) {
+            throw new IndexOutOfBoundsException("Index " + p_index + ", size " + m_count);
+        }
+    }
+}
@@ -226,11 +226,11 @@ public class ChunkBackupComponent extends AbstractDXRAMComponent<ChunkBackupComp
     }
 
     public void startBlockRecovery() {
-        m_memoryManager.lockManage();
+        m_memoryManager.lockExclusive();
     }
 
     public void stopBlockRecovery() {
-        m_memoryManager.unlockManage();
+        m_memoryManager.unlockExclusive();
     }
 
     @Override
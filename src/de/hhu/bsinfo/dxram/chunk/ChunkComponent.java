@@ -16,13 +16,20 @@
 
 package de.hhu.bsinfo.dxram.chunk;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
 import de.hhu.bsinfo.dxnet.core.NetworkException;
 import de.hhu.bsinfo.dxram.DXRAMComponentOrder;
 import de.hhu.bsinfo.dxram.backup.BackupComponent;
 import de.hhu.bsinfo.dxram.backup.BackupPeer;
 import de.hhu.bsinfo.dxram.backup.BackupRange;
 import de.hhu.bsinfo.dxram.boot.AbstractBootComponent;
+import de.hhu.bsinfo.dxram.chunk.messages.NearCacheInvalidateMessage;
 import de.hhu.bsinfo.dxram.data.ChunkID;
+import de.hhu.bsinfo.dxram.data.ChunkState;
 import de.hhu.bsinfo.dxram.data.DataStructure;
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMComponent;
 import de.hhu.bsinfo.dxram.engine.DXRAMComponentAccessor;
@@ -30,6 +37,7 @@ import de.hhu.bsinfo.dxram.engine.DXRAMContext;
 import de.hhu.bsinfo.dxram.log.messages.LogMessage;
 import de.hhu.bsinfo.dxram.mem.MemoryManagerComponent;
 import de.hhu.bsinfo.dxram.net.NetworkComponent;
+import de.hhu.bsinfo.dxram.util.ArrayListLong;
 import de.hhu.bsinfo.dxutils.NodeID;
 
 /**
@@ -44,6 +52,12 @@ public class ChunkComponent extends AbstractDXRAMComponent<ChunkComponentConfig>
     private MemoryManagerComponent m_memoryManager;
     private NetworkComponent m_network;
 
+    // peers caching chunks stored on this node (near cache) by chunk ID
+    private final ConcurrentHashMap<Long, short[]> m_nearCacheReaders = new ConcurrentHashMap<>();
+    // cache for remote chunks on this node, null if disabled
+    private volatile NearCache m_nearCache;
+    private volatile WriteCombiner m_writeCombiner;
+
     /**
      * Constructor
      */
@@ -101,6 +115,19 @@ public class ChunkComponent extends AbstractDXRAMComponent<ChunkComponentConfig>
             return false;
         }
 
+        invalidateNearCaches(p_dataStructure.getID());
+        logToBackup(p_dataStructure);
+
+        return true;
+    }
+
+    /**
+     * Send the current data of a local chunk to its backup peers (if backup is active)
+     *
+     * @param p_dataStructure
+     *         Data structure with the data of the chunk
+     */
+    public void logToBackup(final DataStructure p_dataStructure) {
         if (m_backup.isActive()) {
             BackupRange backupRange = m_backup.getBackupRange(p_dataStructure.getID());
             BackupPeer[] backupPeers = backupRange.getBackupPeers();
@@ -121,8 +148,161 @@ public class ChunkComponent extends AbstractDXRAMComponent<ChunkComponentConfig>
                 }
             }
         }
+    }
 
-        return true;
+    /**
+     * Register a peer caching chunks stored on this node (near cache). The peer is notified once as soon as one of
+     * the chunks is modified or removed (see invalidateNearCaches()). If the max number of tracked chunks is reached,
+     * further chunks are not tracked and the peer relies on the time to live of its cache entries.
+     *
+     * @param p_peer
+     *         Peer caching the chunks
+     * @param p_chunkIDs
+     *         IDs of the chunks cached
+     */
+    public void registerNearCacheReader(final short p_peer, final long[] p_chunkIDs) {
+        for (long chunkID : p_chunkIDs) {
+            if (m_nearCacheReaders.size() >= getConfig().getNearCacheMaxTrackedChunks() &&
+                    !m_nearCacheReaders.containsKey(chunkID)) {
+                continue;
+            }
+
+            m_nearCacheReaders.compute(chunkID, (p_chunkID, p_readers) -> {
+                if (p_readers == null) {
+                    return new short[] {p_peer};
+                }
+
+                for (short reader : p_readers) {
+                    if (reader == p_peer) {
+                        return p_readers;
+                    }
+                }
+
+                short[] readers = new short[p_readers.length + 1];
+                System.arraycopy(p_readers, 0, readers, 0, p_readers.length);
+                readers[p_readers.length] = p_peer;
+
+                return readers;
+            });
+        }
+    }
+
+    /**
+     * Notify all peers caching one of the chunks (near cache) that the chunks were modified or removed.
+     * Every write of a local chunk (put, partial write, view, atomic operation) and every remove has to call this
+     * after the chunk was modified, otherwise remote near caches serve stale data until their entries expire.
+     *
+     * @param p_chunkIDs
+     *         IDs of the chunks modified or removed
+     */
+    public void invalidateNearCaches(final long... p_chunkIDs) {
+        if (m_nearCacheReaders.isEmpty()) {
+            return;
+        }
+
+        Map<Short, ArrayListLong> chunksByReaders = new TreeMap<>();
+        for (long chunkID : p_chunkIDs) {
+            addNearCacheReaders(chunkID, chunksByReaders);
+        }
+
+        sendNearCacheInvalidations(chunksByReaders);
+    }
+
+    /**
+     * Notify all peers caching one of the chunks (near cache) that the chunks were modified
+     *
+     * @param p_chunks
+     *         Chunks put, chunks that were not put successfully (state not OK) are ignored
+     * @param p_offset
+     *         Start offset within the array
+     * @param p_count
+     *         Number of chunks
+     */
+    public void invalidateNearCaches(final DataStructure[] p_chunks, final int p_offset, final int p_count) {
+        if (m_nearCacheReaders.isEmpty()) {
+            return;
+        }
+
+        Map<Short, ArrayListLong> chunksByReaders = new TreeMap<>();
+        for (int i = p_offset; i < p_offset + p_count; i++) {
+            if (p_chunks[i] != null && p_chunks[i].getState() == ChunkState.OK) {
+                addNearCacheReaders(p_chunks[i].getID(), chunksByReaders);
+            }
+        }
+
+        sendNearCacheInvalidations(chunksByReaders);
+    }
+
+    /**
+     * Evict remote chunks from the near cache of this node. Has to be called for every write of a remote chunk
+     * to read the written data on subsequent gets (instead of the cached data until the owner's invalidation
+     * arrives).
+     *
+     * @param p_chunkIDs
+     *         IDs of the remote chunks written
+     */
+    public void evictFromNearCache(final long... p_chunkIDs) {
+        NearCache nearCache = m_nearCache;
+
+        if (nearCache != null) {
+            nearCache.invalidate(p_chunkIDs);
+        }
+    }
+
+    /**
+     * Evict remote chunks from the near cache of this node (see evictFromNearCache(long...))
+     *
+     * @param p_chunks
+     *         Remote chunks written. Null values are ignored.
+     */
+    public void evictFromNearCache(final Collection<? extends DataStructure> p_chunks) {
+        NearCache nearCache = m_nearCache;
+
+        if (nearCache != null) {
+            long[] chunkIDs = new long[p_chunks.size()];
+            int i = 0;
+
+            for (DataStructure chunk : p_chunks) {
+                chunkIDs[i++] = chunk != null ? chunk.getID() : ChunkID.INVALID_ID;
+            }
+
+            nearCache.invalidate(chunkIDs);
+        }
+    }
+
+    /**
+     * Send the async puts buffered for a peer by the write combiner (see ChunkAsyncService). Call this before
+     * sending any other put, write or remove to the peer, otherwise the buffered puts arrive later and overwrite it.
+     *
+     * @param p_peer
+     *         Peer to send the buffered puts to
+     */
+    public void flushWriteCombiner(final short p_peer) {
+        WriteCombiner writeCombiner = m_writeCombiner;
+
+        if (writeCombiner != null) {
+            writeCombiner.flush(p_peer);
+        }
+    }
+
+    /**
+     * Set the write combiner of this node (managed by the ChunkAsyncService)
+     *
+     * @param p_writeCombiner
+     *         Write combiner or null if disabled
+     */
+    void setWriteCombiner(final WriteCombiner p_writeCombiner) {
+        m_writeCombiner = p_writeCombiner;
+    }
+
+    /**
+     * Set the near cache of this node (managed by the ChunkService)
+     *
+     * @param p_nearCache
+     *         Near cache or null if disabled
+     */
+    void setNearCache(final NearCache p_nearCache) {
+        m_nearCache = p_nearCache;
     }
 
     @Override
@@ -153,4 +333,41 @@ public class ChunkComponent extends AbstractDXRAMComponent<ChunkComponentConfig>
         return true;
     }
 
+    /**
+     * Stop tracking the readers of a chunk and sort the chunk by its readers
+     *
+     * @param p_chunkID
+     *         ID of the chunk
+     * @param p_chunksByReaders
+     *         Map to add the chunk to
+     */
+    private void addNearCacheReaders(final long p_chunkID, final Map<Short, ArrayListLong> p_chunksByReaders) {
+        short[] readers = m_nearCacheReaders.remove(p_chunkID);
+
+        if (readers != null) {
+            for (short reader : readers) {
+                p_chunksByReaders.computeIfAbsent(reader, p_reader -> new ArrayListLong()).add(p_chunkID);
+            }
+        }
+    }
+
+    /**
+     * Send the invalidations to the peers caching the chunks
+     *
+     * @param p_chunksByReaders
+     *         Chunks to invalidate by peers caching them
+     */
+    private void sendNearCacheInvalidations(final Map<Short, ArrayListLong> p_chunksByReaders) {
+        for (Map.Entry<Short, ArrayListLong> entry : p_chunksByReaders.entrySet()) {
+            try {
+                m_network.sendMessage(new NearCacheInvalidateMessage(entry.getKey(), entry.getValue()));
+            } catch (final NetworkException e) {
+                // #if LOGGER >= DEBUG
+                LOGGER.debug("Sending near cache invalidation to %s failed: %s", NodeID.toHexString(entry.getKey()),
+                        e);
+                // #endif /* LOGGER >= DEBUG */
+            }
+        }
+    }
+
 }
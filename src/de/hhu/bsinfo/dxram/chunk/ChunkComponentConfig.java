@@ -1,5 +1,7 @@
 package de.hhu.bsinfo.dxram.chunk;
 
+import com.google.gson.annotations.Expose;
+
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMComponentConfig;
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
 
@@ -9,6 +11,9 @@ import de.hhu.bsinfo.dxram.engine.DXRAMContext;
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 24.05.2017
  */
 public class ChunkComponentConfig extends AbstractDXRAMComponentConfig {
+    @Expose
+    private int m_nearCacheMaxTrackedChunks = 1000000;
+
     /**
      * Constructor
      */
@@ -16,8 +21,22 @@ public class ChunkComponentConfig extends AbstractDXRAMComponentConfig {
         super(ChunkComponent.class, false, true);
     }
 
+    /**
+     * Max number of chunks stored on this node for which peers caching them (near cache) are tracked
+     */
+    public int getNearCacheMaxTrackedChunks() {
+        return m_nearCacheMaxTrackedChunks;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
+        if (m_nearCacheMaxTrackedChunks < 0) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%d) for m_nearCacheMaxTrackedChunks", m_nearCacheMaxTrackedChunks);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
         return true;
     }
 }
@@ -59,7 +59,7 @@ public class ChunkDebugService extends AbstractDXRAMService<ChunkDebugServiceCon
         // #endif /* LOGGER >= INFO */
 
         try {
-            m_memoryManager.lockManage();
+            m_memoryManager.lockExclusive();
 
             // #if LOGGER >= INFO
             LOGGER.info("Dumping chunk memory to %s...", p_fileName);
@@ -67,7 +67,7 @@ public class ChunkDebugService extends AbstractDXRAMService<ChunkDebugServiceCon
 
             m_memoryManager.dumpMemory(p_fileName);
         } finally {
-            m_memoryManager.unlockManage();
+            m_memoryManager.unlockExclusive();
         }
 
         // #if LOGGER >= INFO
@@ -115,7 +115,7 @@ public class ChunkDebugService extends AbstractDXRAMService<ChunkDebugServiceCon
         LOGGER.warn("FULL chunk memory reset/wipe...");
         // #endif /* LOGGER >= WARN */
 
-        m_memoryManager.lockManage();
+        m_memoryManager.lockExclusive();
         m_memoryManager.reset();
 
         // re-init nameservice
@@ -246,7 +246,7 @@ public class ChunkDebugService extends AbstractDXRAMService<ChunkDebugServiceCon
         // don't block message handler, this might take a few seconds depending on the memory size
         new Thread(() -> {
             try {
-                m_memoryManager.lockManage();
+                m_memoryManager.lockExclusive();
 
                 // #if LOGGER >= INFO
                 LOGGER.info("Dumping chunk memory to %s...", p_message.getFileName());
@@ -254,7 +254,7 @@ public class ChunkDebugService extends AbstractDXRAMService<ChunkDebugServiceCon
 
                 m_memoryManager.dumpMemory(p_message.getFileName());
             } finally {
-                m_memoryManager.unlockManage();
+                m_memoryManager.unlockExclusive();
             }
 
             // #if LOGGER >= INFO
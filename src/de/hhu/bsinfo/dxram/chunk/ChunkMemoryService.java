@@ -16,12 +16,45 @@
 
 package de.hhu.bsinfo.dxram.chunk;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import de.hhu.bsinfo.dxnet.MessageReceiver;
+import de.hhu.bsinfo.dxnet.core.Message;
+import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxram.backup.BackupComponent;
 import de.hhu.bsinfo.dxram.boot.AbstractBootComponent;
+import de.hhu.bsinfo.dxram.chunk.messages.AtomicRequest;
+import de.hhu.bsinfo.dxram.chunk.messages.AtomicResponse;
+import de.hhu.bsinfo.dxram.chunk.messages.ChunkMessages;
+import de.hhu.bsinfo.dxram.chunk.messages.GetRangeRequest;
+import de.hhu.bsinfo.dxram.chunk.messages.GetRangeResponse;
+import de.hhu.bsinfo.dxram.chunk.messages.PutRangeRequest;
+import de.hhu.bsinfo.dxram.chunk.messages.PutRangeResponse;
 import de.hhu.bsinfo.dxram.data.ChunkID;
+import de.hhu.bsinfo.dxram.data.ChunkState;
+import de.hhu.bsinfo.dxram.data.DSByteArray;
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMService;
 import de.hhu.bsinfo.dxram.engine.DXRAMComponentAccessor;
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
+import de.hhu.bsinfo.dxram.lookup.LookupComponent;
+import de.hhu.bsinfo.dxram.lookup.LookupRange;
+import de.hhu.bsinfo.dxram.lookup.LookupState;
+import de.hhu.bsinfo.dxram.mem.AtomicOperation;
+import de.hhu.bsinfo.dxram.mem.ChunkView;
 import de.hhu.bsinfo.dxram.mem.MemoryManagerComponent;
+import de.hhu.bsinfo.dxram.net.NetworkComponent;
+import de.hhu.bsinfo.dxram.util.ArrayListLong;
+import de.hhu.bsinfo.dxutils.NodeID;
 
 /**
  * This service extends the normal ChunkService with "direct" memory access methods.
@@ -31,14 +64,31 @@ import de.hhu.bsinfo.dxram.mem.MemoryManagerComponent;
  * redirection of read/write requests to remote nodes because this is meant to optimize
  * algorithms that are already aware of their data locality.
  * We also don't have batch methods i.e. combining multiple read/write requests to
- * multiple chunks. Use it wisely if accessing many chunks this way.
+ * multiple chunks. Use it wisely if accessing many chunks this way. To scan many chunks,
+ * use views (openView/visit) which access the chunk's memory in place without copying.
+ * To access parts of chunks regardless of their location, use getRange/putRange and the get/put methods for
+ * primitives. Remote chunks are accessed by a small request served by the owner, i.e. a few bytes of a huge
+ * chunk are read/written without transferring the whole chunk. Primitives are encoded in the native byte
+ * order like on the heap (all nodes are expected to have the same byte order).
+ * Contended fields (e.g. counters) can be updated with atomic operations (compare and swap, fetch and add,
+ * get and set) executed by the owner of the chunk, batched with ChunkAtomicOperations.
  *
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 14.06.2016
  */
-public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceConfig> {
+public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceConfig> implements MessageReceiver {
+    // buffer to encode/decode primitives accessed with get/put (heap byte order)
+    private static final ThreadLocal<ByteBuffer> PRIMITIVE_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder()));
+
     // component dependencies
     private AbstractBootComponent m_boot;
+    private BackupComponent m_backup;
+    private ChunkComponent m_chunk;
+    private LookupComponent m_lookup;
     private MemoryManagerComponent m_memoryManager;
+    private NetworkComponent m_network;
+
+    private int m_maxChunkSize;
 
     /**
      * Constructor
@@ -156,6 +206,11 @@ public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceC
         m_memoryManager.lockAccess();
         boolean ret = m_memoryManager.writeByte(p_chunkID, p_offset, p_value);
         m_memoryManager.unlockAccess();
+
+        if (ret) {
+            m_chunk.invalidateNearCaches(p_chunkID);
+        }
+
         return ret;
     }
 
@@ -180,6 +235,11 @@ public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceC
         m_memoryManager.lockAccess();
         boolean ret = m_memoryManager.writeShort(p_chunkID, p_offset, p_value);
         m_memoryManager.unlockAccess();
+
+        if (ret) {
+            m_chunk.invalidateNearCaches(p_chunkID);
+        }
+
         return ret;
     }
 
@@ -204,6 +264,11 @@ public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceC
         m_memoryManager.lockAccess();
         boolean ret = m_memoryManager.writeInt(p_chunkID, p_offset, p_value);
         m_memoryManager.unlockAccess();
+
+        if (ret) {
+            m_chunk.invalidateNearCaches(p_chunkID);
+        }
+
         return ret;
     }
 
@@ -228,9 +293,622 @@ public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceC
         m_memoryManager.lockAccess();
         boolean ret = m_memoryManager.writeLong(p_chunkID, p_offset, p_value);
         m_memoryManager.unlockAccess();
+
+        if (ret) {
+            m_chunk.invalidateNearCaches(p_chunkID);
+        }
+
         return ret;
     }
 
+    /**
+     * Open a view on a local chunk to read/write its payload in place without copying it (see ChunkView).
+     * Reuse the view for multiple chunks to avoid allocating objects. The view must be closed using closeView()
+     * as soon as possible: the chunk can't be removed while the view is open. Until the view is closed, the
+     * thread must not access the memory otherwise (e.g. open another view, get, create or remove chunks) which
+     * throws an IllegalStateException.
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to open the view on.
+     * @param p_view
+     *         View to open.
+     * @return True if the view was opened, false if the chunk is not stored locally.
+     */
+    public boolean openView(final long p_chunkID, final ChunkView p_view) {
+        m_memoryManager.lockAccess();
+
+        if (!m_memoryManager.openView(p_chunkID, p_view)) {
+            m_memoryManager.unlockAccess();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Close a view opened with openView().
+     *
+     * @param p_view
+     *         View to close.
+     */
+    public void closeView(final ChunkView p_view) {
+        if (p_view.isOpen()) {
+            long chunkID = p_view.getID();
+            boolean modified = p_view.isModified();
+
+            m_memoryManager.closeView(p_view);
+            m_memoryManager.unlockAccess();
+
+            if (modified) {
+                m_chunk.invalidateNearCaches(chunkID);
+            }
+        }
+    }
+
+    /**
+     * Visit multiple local chunks with a single view: the view is opened on each chunk and passed to the
+     * visitor. Chunks not stored locally are skipped.
+     *
+     * @param p_chunkIDs
+     *         Chunk ids of the chunks to visit.
+     * @param p_view
+     *         View to use (must not be open).
+     * @param p_visitor
+     *         Visitor called with the view opened on each chunk. The view must not be closed by the visitor
+     *         and the visitor must not access the memory otherwise (see openView()).
+     * @return Number of chunks visited.
+     */
+    public int visit(final long[] p_chunkIDs, final ChunkView p_view, final Consumer<ChunkView> p_visitor) {
+        int visited = 0;
+        ArrayListLong modified = new ArrayListLong();
+
+        m_memoryManager.lockAccess();
+
+        try {
+            for (long chunkID : p_chunkIDs) {
+                if (m_memoryManager.openView(chunkID, p_view)) {
+                    try {
+                        p_visitor.accept(p_view);
+                        visited++;
+
+                        if (p_view.isModified()) {
+                            modified.add(chunkID);
+                        }
+                    } finally {
+                        m_memoryManager.closeView(p_view);
+                    }
+                }
+            }
+        } finally {
+            m_memoryManager.unlockAccess();
+
+            m_chunk.invalidateNearCaches(Arrays.copyOf(modified.getArray(), modified.getSize()));
+        }
+
+        return visited;
+    }
+
+    /**
+     * Read a range of a chunk's payload. The chunk can be stored locally or on a remote node. Remote chunks are
+     * read by the owner, only the range is transferred.
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to start reading at.
+     * @param p_buffer
+     *         Buffer to read into.
+     * @param p_bufferOffset
+     *         Offset within the buffer.
+     * @param p_length
+     *         Number of bytes to read.
+     * @return ChunkState.OK if successful, the reason of the failure otherwise (e.g. OUT_OF_BOUNDS if the range
+     * exceeds the chunk).
+     */
+    public ChunkState getRange(final long p_chunkID, final int p_offset, final byte[] p_buffer,
+            final int p_bufferOffset, final int p_length) {
+        ChunkState state;
+
+        checkBufferBounds(p_buffer, p_bufferOffset, p_length);
+
+        m_memoryManager.lockAccess();
+        try {
+            state = m_memoryManager.getRange(p_chunkID, p_offset, p_buffer, p_bufferOffset, p_length);
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        if (state != ChunkState.DOES_NOT_EXIST) {
+            return state;
+        }
+
+        // remote or migrated
+        LookupRange location = m_lookup.waitForLookupRange(p_chunkID);
+
+        if (location.getState() != LookupState.OK) {
+            return ChunkState.valueOf(location.getState().name());
+        }
+
+        if (location.getPrimaryPeer() == m_boot.getNodeID()) {
+            return ChunkState.DOES_NOT_EXIST;
+        }
+
+        GetRangeRequest request = new GetRangeRequest(location.getPrimaryPeer(), p_chunkID, p_offset, p_buffer,
+                p_bufferOffset, p_length);
+
+        try {
+            m_network.sendSync(request);
+        } catch (final NetworkException e) {
+            return handleRequestFailure(p_chunkID, location.getPrimaryPeer(), e);
+        }
+
+        state = request.getResponse(GetRangeResponse.class).getStatus();
+
+        if (state == ChunkState.DOES_NOT_EXIST) {
+            m_lookup.invalidateRange(p_chunkID);
+        }
+
+        return state;
+    }
+
+    /**
+     * Write a range of a chunk's payload. The chunk can be stored locally or on a remote node. Remote chunks are
+     * written by the owner, only the range is transferred.
+     * Note: Like put, this does NOT take care of data races with other threads writing the same chunk.
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to write.
+     * @param p_offset
+     *         Offset within the chunk to start writing at.
+     * @param p_data
+     *         Buffer with the data to write.
+     * @param p_dataOffset
+     *         Offset within the buffer.
+     * @param p_length
+     *         Number of bytes to write.
+     * @return ChunkState.OK if successful, the reason of the failure otherwise (e.g. OUT_OF_BOUNDS if the range
+     * exceeds the chunk).
+     */
+    public ChunkState putRange(final long p_chunkID, final int p_offset, final byte[] p_data, final int p_dataOffset,
+            final int p_length) {
+        ChunkState state;
+
+        checkBufferBounds(p_data, p_dataOffset, p_length);
+
+        m_memoryManager.lockAccess();
+        try {
+            state = m_memoryManager.putRange(p_chunkID, p_offset, p_data, p_dataOffset, p_length);
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        if (state == ChunkState.OK) {
+            chunkModified(p_chunkID);
+        }
+
+        if (state != ChunkState.DOES_NOT_EXIST) {
+            return state;
+        }
+
+        // remote or migrated
+        LookupRange location = m_lookup.waitForLookupRange(p_chunkID);
+
+        if (location.getState() != LookupState.OK) {
+            return ChunkState.valueOf(location.getState().name());
+        }
+
+        if (location.getPrimaryPeer() == m_boot.getNodeID()) {
+            return ChunkState.DOES_NOT_EXIST;
+        }
+
+        // don't get overwritten by older async puts buffered for the peer
+        m_chunk.flushWriteCombiner(location.getPrimaryPeer());
+
+        PutRangeRequest request = new PutRangeRequest(location.getPrimaryPeer(), p_chunkID, p_offset, p_data,
+                p_dataOffset, p_length);
+
+        try {
+            m_network.sendSync(request);
+        } catch (final NetworkException e) {
+            m_chunk.evictFromNearCache(p_chunkID);
+            return handleRequestFailure(p_chunkID, location.getPrimaryPeer(), e);
+        }
+
+        // the chunk might be cached by ChunkService.get, don't read the old data after the write
+        m_chunk.evictFromNearCache(p_chunkID);
+
+        state = request.getResponse(PutRangeResponse.class).getStatus();
+
+        if (state == ChunkState.DOES_NOT_EXIST) {
+            m_lookup.invalidateRange(p_chunkID);
+        }
+
+        return state;
+    }
+
+    /**
+     * Read a single byte from a local or remote chunk (see getRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to read.
+     * @return The value read at the offset of the chunk or -1 on failure (use getRange() to get the reason).
+     */
+    public byte getByte(final long p_chunkID, final int p_offset) {
+        ByteBuffer buffer = getPrimitive(p_chunkID, p_offset, Byte.BYTES);
+        return buffer != null ? buffer.get(0) : -1;
+    }
+
+    /**
+     * Read a single short from a local or remote chunk (see getRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to read.
+     * @return The value read at the offset of the chunk or -1 on failure (use getRange() to get the reason).
+     */
+    public short getShort(final long p_chunkID, final int p_offset) {
+        ByteBuffer buffer = getPrimitive(p_chunkID, p_offset, Short.BYTES);
+        return buffer != null ? buffer.getShort(0) : -1;
+    }
+
+    /**
+     * Read a single int from a local or remote chunk (see getRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to read.
+     * @return The value read at the offset of the chunk or -1 on failure (use getRange() to get the reason).
+     */
+    public int getInt(final long p_chunkID, final int p_offset) {
+        ByteBuffer buffer = getPrimitive(p_chunkID, p_offset, Integer.BYTES);
+        return buffer != null ? buffer.getInt(0) : -1;
+    }
+
+    /**
+     * Read a single long from a local or remote chunk (see getRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to read.
+     * @return The value read at the offset of the chunk or -1 on failure (use getRange() to get the reason).
+     */
+    public long getLong(final long p_chunkID, final int p_offset) {
+        ByteBuffer buffer = getPrimitive(p_chunkID, p_offset, Long.BYTES);
+        return buffer != null ? buffer.getLong(0) : -1;
+    }
+
+    /**
+     * Write a single byte to a local or remote chunk (see putRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to write.
+     * @param p_offset
+     *         Offset within the chunk to write.
+     * @param p_value
+     *         Value to write.
+     * @return True if writing chunk was successful, false otherwise.
+     */
+    public boolean putByte(final long p_chunkID, final int p_offset, final byte p_value) {
+        ByteBuffer buffer = PRIMITIVE_BUFFER.get();
+        buffer.put(0, p_value);
+        return putRange(p_chunkID, p_offset, buffer.array(), 0, Byte.BYTES) == ChunkState.OK;
+    }
+
+    /**
+     * Write a single short to a local or remote chunk (see putRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to write.
+     * @param p_offset
+     *         Offset within the chunk to write.
+     * @param p_value
+     *         Value to write.
+     * @return True if writing chunk was successful, false otherwise.
+     */
+    public boolean putShort(final long p_chunkID, final int p_offset, final short p_value) {
+        ByteBuffer buffer = PRIMITIVE_BUFFER.get();
+        buffer.putShort(0, p_value);
+        return putRange(p_chunkID, p_offset, buffer.array(), 0, Short.BYTES) == ChunkState.OK;
+    }
+
+    /**
+     * Write a single int to a local or remote chunk (see putRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to write.
+     * @param p_offset
+     *         Offset within the chunk to write.
+     * @param p_value
+     *         Value to write.
+     * @return True if writing chunk was successful, false otherwise.
+     */
+    public boolean putInt(final long p_chunkID, final int p_offset, final int p_value) {
+        ByteBuffer buffer = PRIMITIVE_BUFFER.get();
+        buffer.putInt(0, p_value);
+        return putRange(p_chunkID, p_offset, buffer.array(), 0, Integer.BYTES) == ChunkState.OK;
+    }
+
+    /**
+     * Write a single long to a local or remote chunk (see putRange()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to write.
+     * @param p_offset
+     *         Offset within the chunk to write.
+     * @param p_value
+     *         Value to write.
+     * @return True if writing chunk was successful, false otherwise.
+     */
+    public boolean putLong(final long p_chunkID, final int p_offset, final long p_value) {
+        ByteBuffer buffer = PRIMITIVE_BUFFER.get();
+        buffer.putLong(0, p_value);
+        return putRange(p_chunkID, p_offset, buffer.array(), 0, Long.BYTES) == ChunkState.OK;
+    }
+
+    /**
+     * Execute a batch of atomic operations on int/long fields of local or remote chunks (see
+     * ChunkAtomicOperations). Operations on remote chunks are executed by the owners, all operations on chunks of
+     * the same owner with a single request. The requests to different owners are sent concurrently.
+     * Atomic operations on the same chunk are serialized by the owner, i.e. they are atomic with respect to each
+     * other but NOT with respect to concurrent puts or writes of the same field.
+     *
+     * @param p_operations
+     *         Operations to execute. The state and previous value of every operation are written to the batch.
+     * @return Number of operations executed successfully
+     */
+    public int atomics(final ChunkAtomicOperations p_operations) {
+        int count = p_operations.size();
+        byte[] operations = p_operations.getOperations();
+        long[] chunkIDs = p_operations.getChunkIDs();
+        int[] offsets = p_operations.getOffsets();
+        long[] operands = p_operations.getOperands();
+        long[] expected = p_operations.getExpected();
+        byte[] states = p_operations.getStates();
+        long[] results = p_operations.getResults();
+        int successful;
+
+        if (count == 0) {
+            return 0;
+        }
+
+        m_memoryManager.lockAccess();
+        try {
+            successful = m_memoryManager.atomics(operations, chunkIDs, offsets, operands, expected, count, states,
+                    results);
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        if (successful > 0) {
+            chunksModified(operations, chunkIDs, expected, count, states, results);
+        }
+
+        if (successful == count) {
+            return successful;
+        }
+
+        // remote or migrated chunks, sort operations by owner
+        Map<Short, ArrayList<Integer>> remoteOperationsByPeers = new TreeMap<>();
+
+        for (int i = 0; i < count; i++) {
+            if (states[i] != ChunkState.DOES_NOT_EXIST.ordinal()) {
+                continue;
+            }
+
+            LookupRange location = m_lookup.waitForLookupRange(chunkIDs[i]);
+
+            if (location.getState() != LookupState.OK) {
+                states[i] = (byte) ChunkState.valueOf(location.getState().name()).ordinal();
+            } else if (location.getPrimaryPeer() != m_boot.getNodeID()) {
+                remoteOperationsByPeers.computeIfAbsent(location.getPrimaryPeer(), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if (remoteOperationsByPeers.isEmpty()) {
+            return successful;
+        }
+
+        AtomicRequest[] requests = new AtomicRequest[remoteOperationsByPeers.size()];
+        int requestIndex = 0;
+        for (Entry<Short, ArrayList<Integer>> entry : remoteOperationsByPeers.entrySet()) {
+            ArrayList<Integer> indices = entry.getValue();
+            byte[] remoteOperations = new byte[indices.size()];
+            long[] remoteChunkIDs = new long[indices.size()];
+            int[] remoteOffsets = new int[indices.size()];
+            long[] remoteOperands = new long[indices.size()];
+            long[] remoteExpected = new long[indices.size()];
+
+            for (int i = 0; i < indices.size(); i++) {
+                int index = indices.get(i);
+
+                remoteOperations[i] = operations[index];
+                remoteChunkIDs[i] = chunkIDs[index];
+                remoteOffsets[i] = offsets[index];
+                remoteOperands[i] = operands[index];
+                remoteExpected[i] = expected[index];
+            }
+
+            // operate on the latest data, not on data overwritten by older async puts buffered for the peer
+            m_chunk.flushWriteCombiner(entry.getKey());
+            requests[requestIndex++] = new AtomicRequest(entry.getKey(), remoteOperations, remoteChunkIDs,
+                    remoteOffsets, remoteOperands, remoteExpected);
+        }
+
+        NetworkException[] requestErrors = m_network.sendSyncAll(requests);
+
+        // the chunks might be cached by ChunkService.get, don't read the old data after the operations
+        for (AtomicRequest request : requests) {
+            m_chunk.evictFromNearCache(request.getChunkIDs());
+        }
+
+        requestIndex = 0;
+        for (Entry<Short, ArrayList<Integer>> entry : remoteOperationsByPeers.entrySet()) {
+            ArrayList<Integer> indices = entry.getValue();
+
+            if (requestErrors[requestIndex] != null) {
+                for (int index : indices) {
+                    states[index] = (byte) handleRequestFailure(chunkIDs[index], entry.getKey(),
+                            requestErrors[requestIndex]).ordinal();
+                }
+            } else {
+                AtomicResponse response = requests[requestIndex].getResponse(AtomicResponse.class);
+
+                for (int i = 0; i < indices.size(); i++) {
+                    int index = indices.get(i);
+
+                    states[index] = response.getStates()[i];
+                    results[index] = response.getResults()[i];
+
+                    if (states[index] == ChunkState.OK.ordinal()) {
+                        successful++;
+                    } else if (states[index] == ChunkState.DOES_NOT_EXIST.ordinal()) {
+                        m_lookup.invalidateRange(chunkIDs[index]);
+                    }
+                }
+            }
+
+            requestIndex++;
+        }
+
+        return successful;
+    }
+
+    /**
+     * Atomically set an int field of a local or remote chunk if it has the expected value (see atomics()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk.
+     * @param p_offset
+     *         Offset of the field within the chunk.
+     * @param p_expected
+     *         Expected value of the field.
+     * @param p_value
+     *         Value to set.
+     * @return True if the field had the expected value and was set, false otherwise
+     */
+    public boolean compareAndSwapInt(final long p_chunkID, final int p_offset, final int p_expected,
+            final int p_value) {
+        ChunkAtomicOperations operations = new ChunkAtomicOperations(1);
+        operations.compareAndSwapInt(p_chunkID, p_offset, p_expected, p_value);
+        atomics(operations);
+        return operations.isSwapped(0);
+    }
+
+    /**
+     * Atomically set a long field of a local or remote chunk if it has the expected value (see atomics()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk.
+     * @param p_offset
+     *         Offset of the field within the chunk.
+     * @param p_expected
+     *         Expected value of the field.
+     * @param p_value
+     *         Value to set.
+     * @return True if the field had the expected value and was set, false otherwise
+     */
+    public boolean compareAndSwapLong(final long p_chunkID, final int p_offset, final long p_expected,
+            final long p_value) {
+        ChunkAtomicOperations operations = new ChunkAtomicOperations(1);
+        operations.compareAndSwapLong(p_chunkID, p_offset, p_expected, p_value);
+        atomics(operations);
+        return operations.isSwapped(0);
+    }
+
+    /**
+     * Atomically add to an int field of a local or remote chunk (see atomics()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk.
+     * @param p_offset
+     *         Offset of the field within the chunk.
+     * @param p_delta
+     *         Value to add.
+     * @return Previous value of the field or -1 on failure (use atomics() to get the reason).
+     */
+    public int fetchAndAddInt(final long p_chunkID, final int p_offset, final int p_delta) {
+        ChunkAtomicOperations operations = new ChunkAtomicOperations(1);
+        operations.fetchAndAddInt(p_chunkID, p_offset, p_delta);
+        return (int) executeSingleAtomic(operations);
+    }
+
+    /**
+     * Atomically add to a long field of a local or remote chunk (see atomics()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk.
+     * @param p_offset
+     *         Offset of the field within the chunk.
+     * @param p_delta
+     *         Value to add.
+     * @return Previous value of the field or -1 on failure (use atomics() to get the reason).
+     */
+    public long fetchAndAddLong(final long p_chunkID, final int p_offset, final long p_delta) {
+        ChunkAtomicOperations operations = new ChunkAtomicOperations(1);
+        operations.fetchAndAddLong(p_chunkID, p_offset, p_delta);
+        return executeSingleAtomic(operations);
+    }
+
+    /**
+     * Atomically set an int field of a local or remote chunk (see atomics()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk.
+     * @param p_offset
+     *         Offset of the field within the chunk.
+     * @param p_value
+     *         Value to set.
+     * @return Previous value of the field or -1 on failure (use atomics() to get the reason).
+     */
+    public int getAndSetInt(final long p_chunkID, final int p_offset, final int p_value) {
+        ChunkAtomicOperations operations = new ChunkAtomicOperations(1);
+        operations.getAndSetInt(p_chunkID, p_offset, p_value);
+        return (int) executeSingleAtomic(operations);
+    }
+
+    /**
+     * Atomically set a long field of a local or remote chunk (see atomics()).
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk.
+     * @param p_offset
+     *         Offset of the field within the chunk.
+     * @param p_value
+     *         Value to set.
+     * @return Previous value of the field or -1 on failure (use atomics() to get the reason).
+     */
+    public long getAndSetLong(final long p_chunkID, final int p_offset, final long p_value) {
+        ChunkAtomicOperations operations = new ChunkAtomicOperations(1);
+        operations.getAndSetLong(p_chunkID, p_offset, p_value);
+        return executeSingleAtomic(operations);
+    }
+
+    @Override
+    public void onIncomingMessage(final Message p_message) {
+        if (p_message != null) {
+            if (p_message.getType() == DXRAMMessageTypes.CHUNK_MESSAGES_TYPE) {
+                switch (p_message.getSubtype()) {
+                    case ChunkMessages.SUBTYPE_GET_RANGE_REQUEST:
+                        incomingGetRangeRequest((GetRangeRequest) p_message);
+                        break;
+                    case ChunkMessages.SUBTYPE_PUT_RANGE_REQUEST:
+                        incomingPutRangeRequest((PutRangeRequest) p_message);
+                        break;
+                    case ChunkMessages.SUBTYPE_ATOMIC_REQUEST:
+                        incomingAtomicRequest((AtomicRequest) p_message);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
     @Override
     protected boolean supportsSuperpeer() {
         return false;
@@ -244,11 +922,34 @@ public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceC
     @Override
     protected void resolveComponentDependencies(final DXRAMComponentAccessor p_componentAccessor) {
         m_boot = p_componentAccessor.getComponent(AbstractBootComponent.class);
+        m_backup = p_componentAccessor.getComponent(BackupComponent.class);
+        m_chunk = p_componentAccessor.getComponent(ChunkComponent.class);
+        m_lookup = p_componentAccessor.getComponent(LookupComponent.class);
         m_memoryManager = p_componentAccessor.getComponent(MemoryManagerComponent.class);
+        m_network = p_componentAccessor.getComponent(NetworkComponent.class);
     }
 
     @Override
     protected boolean startService(final DXRAMContext.Config p_config) {
+        m_maxChunkSize = (int) m_memoryManager.getStatus().getMaxChunkSize().getBytes();
+
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_GET_RANGE_REQUEST,
+                GetRangeRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_GET_RANGE_RESPONSE,
+                GetRangeResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_PUT_RANGE_REQUEST,
+                PutRangeRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_PUT_RANGE_RESPONSE,
+                PutRangeResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_ATOMIC_REQUEST,
+                AtomicRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_ATOMIC_RESPONSE,
+                AtomicResponse.class);
+
+        m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_GET_RANGE_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_PUT_RANGE_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_ATOMIC_REQUEST, this);
+
         return true;
     }
 
@@ -256,4 +957,255 @@ public class ChunkMemoryService extends AbstractDXRAMService<ChunkMemoryServiceC
     protected boolean shutdownService() {
         return true;
     }
+
+    /**
+     * Check if a range is within the bounds of a buffer. Accessing the heap with an invalid buffer range
+     * corrupts memory.
+     *
+     * @param p_buffer
+     *         Buffer
+     * @param p_offset
+     *         Offset within the buffer
+     * @param p_length
+     *         Length of the range
+     */
+    private static void checkBufferBounds(final byte[] p_buffer, final int p_offset, final int p_length) {
+        if (p_offset < 0 || p_length < 0 || p_offset > p_buffer.length - p_length) {
+            throw new IndexOutOfBoundsException("Range (offset " + p_offset + ", length " + p_length +
+                    ") out of bounds of buffer with length " + p_buffer.length);
+        }
+    }
+
+    /**
+     * Read a primitive of a local or remote chunk
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to read.
+     * @param p_size
+     *         Size of the primitive
+     * @return Buffer with the primitive at index 0 or null on failure
+     */
+    private ByteBuffer getPrimitive(final long p_chunkID, final int p_offset, final int p_size) {
+        ByteBuffer buffer = PRIMITIVE_BUFFER.get();
+
+        if (getRange(p_chunkID, p_offset, buffer.array(), 0, p_size) != ChunkState.OK) {
+            return null;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Execute a batch with a single atomic operation
+     *
+     * @param p_operations
+     *         Batch with a single operation
+     * @return Previous value of the field or -1 on failure
+     */
+    private long executeSingleAtomic(final ChunkAtomicOperations p_operations) {
+        atomics(p_operations);
+
+        if (p_operations.getState(0) != ChunkState.OK) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Atomic operation on chunk %s failed: %s", ChunkID.toHexString(
+                    p_operations.getChunkIDs()[0]), p_operations.getState(0));
+            // #endif /* LOGGER >= ERROR */
+
+            return -1;
+        }
+
+        return p_operations.getPrevious(0);
+    }
+
+    /**
+     * Propagate atomic operations executed on local chunks (see chunkModified()). Every chunk modified is
+     * propagated once, failed compare and swap operations don't modify the chunk.
+     *
+     * @param p_operations
+     *         Operations (ordinals of AtomicOperation)
+     * @param p_chunkIDs
+     *         Chunk ids of the chunks accessed
+     * @param p_expected
+     *         Expected values of compare and swap operations
+     * @param p_count
+     *         Number of operations
+     * @param p_states
+     *         States of the operations
+     * @param p_results
+     *         Previous values of the fields accessed
+     */
+    private void chunksModified(final byte[] p_operations, final long[] p_chunkIDs, final long[] p_expected,
+            final int p_count, final byte[] p_states, final long[] p_results) {
+        Set<Long> modified = new HashSet<>();
+
+        for (int i = 0; i < p_count; i++) {
+            if (p_states[i] != ChunkState.OK.ordinal()) {
+                continue;
+            }
+
+            if (p_operations[i] == AtomicOperation.COMPARE_AND_SWAP_INT.ordinal() &&
+                    (int) p_results[i] != (int) p_expected[i] ||
+                    p_operations[i] == AtomicOperation.COMPARE_AND_SWAP_LONG.ordinal() &&
+                            p_results[i] != p_expected[i]) {
+                continue;
+            }
+
+            if (modified.add(p_chunkIDs[i])) {
+                chunkModified(p_chunkIDs[i]);
+            }
+        }
+    }
+
+    /**
+     * Handle a failed request to the owner of a chunk
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk accessed
+     * @param p_peer
+     *         Owner of the chunk
+     * @param p_e
+     *         Exception thrown on sending the request
+     * @return State of the chunk
+     */
+    private ChunkState handleRequestFailure(final long p_chunkID, final short p_peer, final NetworkException p_e) {
+        // #if LOGGER >= ERROR
+        LOGGER.error("Accessing chunk %s on peer %s failed: %s", ChunkID.toHexString(p_chunkID),
+                NodeID.toHexString(p_peer), p_e);
+        // #endif /* LOGGER >= ERROR */
+
+        m_lookup.invalidate(p_chunkID);
+
+        if (m_backup.isActive()) {
+            return ChunkState.DATA_TEMPORARY_UNAVAILABLE;
+        } else {
+            return ChunkState.DATA_LOST;
+        }
+    }
+
+    /**
+     * Propagate a partial write of a local chunk: notify peers caching the chunk and log the chunk to
+     * the backup peers
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk written
+     */
+    private void chunkModified(final long p_chunkID) {
+        m_chunk.invalidateNearCaches(p_chunkID);
+
+        if (m_backup.isActive()) {
+            byte[] data;
+
+            m_memoryManager.lockAccess();
+            try {
+                data = m_memoryManager.get(p_chunkID);
+            } finally {
+                m_memoryManager.unlockAccess();
+            }
+
+            if (data != null) {
+                m_chunk.logToBackup(new DSByteArray(p_chunkID, data));
+            }
+        }
+    }
+
+    /**
+     * Handles an incoming GetRangeRequest
+     *
+     * @param p_request
+     *         the GetRangeRequest
+     */
+    private void incomingGetRangeRequest(final GetRangeRequest p_request) {
+        ChunkState state;
+        byte[] data = null;
+
+        if (p_request.getLength() < 0 || p_request.getLength() > m_maxChunkSize) {
+            state = ChunkState.OUT_OF_BOUNDS;
+        } else {
+            data = new byte[p_request.getLength()];
+
+            m_memoryManager.lockAccess();
+            try {
+                state = m_memoryManager.getRange(p_request.getChunkID(), p_request.getOffset(), data, 0,
+                        data.length);
+            } finally {
+                m_memoryManager.unlockAccess();
+            }
+        }
+
+        try {
+            m_network.sendMessage(new GetRangeResponse(p_request, state, data));
+        } catch (final NetworkException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Sending GetRangeResponse for chunk %s failed: %s", ChunkID.toHexString(
+                    p_request.getChunkID()), e);
+            // #endif /* LOGGER >= ERROR */
+        }
+    }
+
+    /**
+     * Handles an incoming PutRangeRequest
+     *
+     * @param p_request
+     *         the PutRangeRequest
+     */
+    private void incomingPutRangeRequest(final PutRangeRequest p_request) {
+        ChunkState state;
+
+        m_memoryManager.lockAccess();
+        try {
+            state = m_memoryManager.putRange(p_request.getChunkID(), p_request.getOffset(), p_request.getData(), 0,
+                    p_request.getLength());
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        if (state == ChunkState.OK) {
+            chunkModified(p_request.getChunkID());
+        }
+
+        try {
+            m_network.sendMessage(new PutRangeResponse(p_request, state));
+        } catch (final NetworkException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Sending PutRangeResponse for chunk %s failed: %s", ChunkID.toHexString(
+                    p_request.getChunkID()), e);
+            // #endif /* LOGGER >= ERROR */
+        }
+    }
+
+    /**
+     * Handles an incoming AtomicRequest
+     *
+     * @param p_request
+     *         the AtomicRequest
+     */
+    private void incomingAtomicRequest(final AtomicRequest p_request) {
+        int count = p_request.getOperations().length;
+        byte[] states = new byte[count];
+        long[] results = new long[count];
+        int successful;
+
+        m_memoryManager.lockAccess();
+        try {
+            successful = m_memoryManager.atomics(p_request.getOperations(), p_request.getChunkIDs(),
+                    p_request.getOffsets(), p_request.getOperands(), p_request.getExpected(), count, states, results);
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        if (successful > 0) {
+            chunksModified(p_request.getOperations(), p_request.getChunkIDs(), p_request.getExpected(), count, states,
+                    results);
+        }
+
+        try {
+            m_network.sendMessage(new AtomicResponse(p_request, states, results));
+        } catch (final NetworkException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Sending AtomicResponse for %d operations failed: %s", count, e);
+            // #endif /* LOGGER >= ERROR */
+        }
+    }
 }
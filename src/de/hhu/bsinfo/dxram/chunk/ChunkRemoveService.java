@@ -1,8 +1,12 @@
 package de.hhu.bsinfo.dxram.chunk;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -47,7 +51,7 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
         StatisticsManager.get().registerOperation(ChunkRemoveService.class, SOP_REMOVE_TIME);
         StatisticsManager.get().registerOperation(ChunkRemoveService.class, SOP_INCOMING_REMOVE_TIME);
         StatisticsManager.get().registerOperation(ChunkRemoveService.class, SOP_REMOVE);
-        StatisticsManager.get().registerOperation(ChunkRemoveService.class, SOP_INCOMING_REMOVE_TIME);
+        StatisticsManager.get().registerOperation(ChunkRemoveService.class, SOP_INCOMING_REMOVE);
     }
 
     // component dependencies
@@ -56,8 +60,11 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
     private MemoryManagerComponent m_memoryManager;
     private NetworkComponent m_network;
     private LookupComponent m_lookup;
+    private ChunkComponent m_chunk;
 
     private ChunkRemover m_remover;
+    // executes async removes one after another (removes are serialized by the memory manager anyway)
+    private ExecutorService m_asyncRemoveExecutor;
 
     /**
      * Constructor
@@ -82,6 +89,18 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
         return remove(chunkIDs);
     }
 
+    /**
+     * Remove chunks/data structures from the storage (by handle/ID) without blocking the caller.
+     * All async removes are executed one after another by a single thread of this service.
+     *
+     * @param p_chunkIDs
+     *         ChunkIDs/Handles of the data structures to remove. Invalid values are ignored.
+     * @return Future completed with the number of successfully removed data structures
+     */
+    public CompletableFuture<Integer> removeAsync(final long... p_chunkIDs) {
+        return CompletableFuture.supplyAsync(() -> remove(p_chunkIDs), m_asyncRemoveExecutor);
+    }
+
     /**
      * Remove chunks/data structures from the storage (by handle/ID).
      *
@@ -110,6 +129,7 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
         Map<Short, ArrayListLong> remoteChunksByPeers = new TreeMap<>();
         Map<Long, ArrayListLong> remoteChunksByBackupPeers = new TreeMap<>();
         ArrayListLong localChunks = new ArrayListLong();
+        ArrayListLong nonLocalChunks = new ArrayListLong();
         Map<Short, ArrayListLong> reuseChunkIDsByPeers = new TreeMap<>();
 
         try {
@@ -139,29 +159,28 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
                         remoteChunkIDsOfBackupPeers.add(p_chunkIDs[i]);
                     }
                 } else {
-                    // remote or migrated, figure out location and sort by peers
-                    LookupRange location = m_lookup.getLookupRange(p_chunkIDs[i]);
-                    while (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
-                        try {
-                            Thread.sleep(100);
-                        } catch (final InterruptedException ignore) {
-                        }
-                        location = m_lookup.getLookupRange(p_chunkIDs[i]);
-                    }
-
-                    if (location.getState() == LookupState.OK) {
-                        short peer = location.getPrimaryPeer();
-
-                        ArrayListLong remoteChunksOfPeer = remoteChunksByPeers.computeIfAbsent(peer,
-                                a -> new ArrayListLong());
-                        remoteChunksOfPeer.add(p_chunkIDs[i]);
-                    }
+                    // remote or migrated
+                    nonLocalChunks.add(p_chunkIDs[i]);
                 }
             }
         } finally {
             m_memoryManager.unlockAccess();
         }
 
+        // figure out location and sort by peers without holding the access lock, waiting for a range in recovery
+        // must not block the memory manager
+        for (int i = 0; i < nonLocalChunks.getSize(); i++) {
+            LookupRange location = m_lookup.waitForLookupRange(nonLocalChunks.get(i));
+
+            if (location.getState() == LookupState.OK) {
+                short peer = location.getPrimaryPeer();
+
+                ArrayListLong remoteChunksOfPeer = remoteChunksByPeers.computeIfAbsent(peer,
+                        a -> new ArrayListLong());
+                remoteChunksOfPeer.add(nonLocalChunks.get(i));
+            }
+        }
+
         // remove local chunks from superpeer overlay first, so cannot be found before being deleted
         m_lookup.removeChunkIDs(localChunks);
 
@@ -183,6 +202,8 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
             m_memoryManager.unlockManage();
         }
 
+        m_chunk.invalidateNearCaches(Arrays.copyOf(localChunks.getArray(), localChunks.getSize()));
+
         // send message to initial creator of locally stored but migrated removed chunks to allow re-use of chunk ID,
         // otherwise chunk ID gets lost here
         for (final Map.Entry<Short, ArrayListLong> reuseChunkIDs : reuseChunkIDsByPeers.entrySet()) {
@@ -213,10 +234,10 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
                 try {
                     m_memoryManager.lockManage();
                     for (int i = 0; i < remoteChunks.getSize(); i++) {
-                        size = m_memoryManager.remove(localChunks.get(i), false);
+                        size = m_memoryManager.remove(remoteChunks.get(i), false);
                         if (size > 0) {
                             chunksRemoved++;
-                            m_backup.deregisterChunk(localChunks.get(i), size);
+                            m_backup.deregisterChunk(remoteChunks.get(i), size);
                         } else {
                             // #if LOGGER >= ERROR
                             LOGGER.error("Removing chunk ID 0x%X failed, does not exist", remoteChunks.get(i));
@@ -226,8 +247,11 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
                 } finally {
                     m_memoryManager.unlockManage();
                 }
+
+                m_chunk.invalidateNearCaches(Arrays.copyOf(remoteChunks.getArray(), remoteChunks.getSize()));
             } else {
-                // Remote remove from specified peer
+                // Remote remove from specified peer, buffered async puts must not arrive after the remove
+                m_chunk.flushWriteCombiner(peer);
                 RemoveMessage message = new RemoveMessage(peer, remoteChunks);
                 try {
                     m_network.sendMessage(message);
@@ -319,13 +343,20 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
         m_memoryManager = p_componentAccessor.getComponent(MemoryManagerComponent.class);
         m_network = p_componentAccessor.getComponent(NetworkComponent.class);
         m_lookup = p_componentAccessor.getComponent(LookupComponent.class);
+        m_chunk = p_componentAccessor.getComponent(ChunkComponent.class);
     }
 
     @Override
     protected boolean startService(final DXRAMContext.Config p_config) {
-        m_remover = new ChunkRemover(getConfig().getRemoverQueueSize());
+        m_remover = new ChunkRemover(getConfig().getRemoverQueueSize(), getConfig().getRemoverBatchSize());
         m_remover.start();
 
+        m_asyncRemoveExecutor = Executors.newSingleThreadExecutor(p_runnable -> {
+            Thread thread = new Thread(p_runnable, "AsyncRemove");
+            thread.setDaemon(true);
+            return thread;
+        });
+
         m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_REMOVE_MESSAGE,
                 RemoveMessage.class);
         m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_REUSE_ID_MESSAGE,
@@ -342,6 +373,9 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
         m_remover.shutdown();
         m_remover = null;
 
+        m_asyncRemoveExecutor.shutdown();
+        m_asyncRemoveExecutor = null;
+
         return true;
     }
 
@@ -352,16 +386,10 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
      *         the RemoveMessage
      */
     private void incomingRemoveMessage(final RemoveMessage p_message) {
-        while (!m_remover.push(p_message.getChunkIDs())) {
-            // #if LOGGER == WARN
-            LOGGER.warn("Remover queue full, delaying remove and retry...");
-            // #endif /* LOGGER == WARN */
-
-            try {
-                Thread.sleep(50);
-            } catch (final InterruptedException ignored) {
-
-            }
+        if (!m_remover.push(p_message.getChunkIDs())) {
+            // #if LOGGER >= WARN
+            LOGGER.warn("Remover shut down, dropping remove of %d chunks", p_message.getChunkIDs().length);
+            // #endif /* LOGGER >= WARN */
         }
     }
 
@@ -384,36 +412,50 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
     }
 
     /**
-     * Separate remover thread to avoid blocking of message handlers
+     * Separate remover thread to avoid blocking of message handlers. Chunk IDs of multiple remove messages are
+     * removed with a single batch, i.e. the manage lock is acquired once per batch and the backup peers and
+     * creators of migrated chunks get one message per batch. The queue is bounded: if it is full, pushing blocks
+     * the message handler until the remover caught up (back pressure).
      */
     private class ChunkRemover extends Thread {
-        private int m_queueMaxSize;
+        private final int m_queueMaxSize;
+        private final int m_batchSize;
         private volatile boolean m_run = true;
-        private ArrayDeque<long[]> m_queue = new ArrayDeque<>();
-        private ReentrantLock m_lock = new ReentrantLock(false);
-        private ReentrantLock m_condLock = new ReentrantLock(false);
-        private Condition m_cond;
+        private final ArrayDeque<long[]> m_queue = new ArrayDeque<>();
+        // number of chunk IDs in the queue
+        private int m_queueSize;
+        private final ReentrantLock m_lock = new ReentrantLock(false);
+        private final Condition m_notEmpty = m_lock.newCondition();
+        private final Condition m_notFull = m_lock.newCondition();
 
         /**
          * Constructor
          *
          * @param p_queueMaxSize
-         *         Max queue size for remove jobs
+         *         Max number of chunk IDs in the queue
+         * @param p_batchSize
+         *         Max number of chunk IDs removed with a single batch
          */
-        public ChunkRemover(final int p_queueMaxSize) {
+        public ChunkRemover(final int p_queueMaxSize, final int p_batchSize) {
+            super("ChunkRemover");
+
             m_queueMaxSize = p_queueMaxSize;
-            m_cond = m_condLock.newCondition();
+            m_batchSize = p_batchSize;
         }
 
         /**
-         * Shut down the remover thread
+         * Shut down the remover thread. Chunk IDs still queued are not removed.
          */
         public void shutdown() {
             m_run = false;
 
-            m_condLock.lock();
-            m_cond.signalAll();
-            m_condLock.unlock();
+            m_lock.lock();
+            try {
+                m_notEmpty.signalAll();
+                m_notFull.signalAll();
+            } finally {
+                m_lock.unlock();
+            }
 
             try {
                 join();
@@ -422,57 +464,67 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
         }
 
         /**
-         * Push one or multiple chunk IDs to the queue to schedule remove jobs
+         * Push one or multiple chunk IDs to the queue to schedule remove jobs. Blocks while the queue is full.
          *
          * @param p_chunkIds
          *         Chunk IDs to remove
-         * @return True if pushing to queue successful, false if not enough space in queue to add all IDs
+         * @return True if pushing to queue successful, false if the remover was shut down
          */
         public boolean push(final long[] p_chunkIds) {
-            boolean ret;
-
             m_lock.lock();
+            try {
+                // accept more IDs than the queue can take if the queue is empty, otherwise they are never accepted
+                while (m_run && m_queueSize > 0 && m_queueSize + p_chunkIds.length > m_queueMaxSize) {
+                    m_notFull.awaitUninterruptibly();
+                }
 
-            if (m_queue.size() + 1 >= m_queueMaxSize) {
-                m_cond.signalAll();
-                return false;
-            }
-
-            ret = m_queue.offer(p_chunkIds);
-            m_lock.unlock();
+                if (!m_run) {
+                    return false;
+                }
 
-            m_condLock.lock();
-            m_cond.signalAll();
-            m_condLock.unlock();
+                m_queue.offer(p_chunkIds);
+                m_queueSize += p_chunkIds.length;
+                m_notEmpty.signal();
+            } finally {
+                m_lock.unlock();
+            }
 
-            return ret;
+            return true;
         }
 
         @Override
         public void run() {
+            ArrayListLong batch = new ArrayListLong(m_batchSize);
+
             while (m_run) {
-                m_condLock.lock();
+                m_lock.lock();
                 try {
-                    m_cond.await();
-                } catch (final InterruptedException e) {
-                    e.printStackTrace();
-                }
-                m_condLock.unlock();
+                    while (m_run && m_queue.isEmpty()) {
+                        m_notEmpty.awaitUninterruptibly();
+                    }
 
-                m_lock.lock();
+                    // take whole remove jobs until the batch is full
+                    while (!m_queue.isEmpty() && (batch.isEmpty() ||
+                            batch.getSize() + m_queue.peek().length <= m_batchSize)) {
+                        long[] chunkIDs = m_queue.poll();
 
-                long[] elem;
-                while (true) {
-                    elem = m_queue.poll();
+                        for (long chunkID : chunkIDs) {
+                            batch.add(chunkID);
+                        }
 
-                    if (elem == null) {
-                        break;
+                        m_queueSize -= chunkIDs.length;
                     }
 
-                    remove(elem);
+                    m_notFull.signalAll();
+                } finally {
+                    m_lock.unlock();
                 }
 
-                m_lock.unlock();
+                // remove without holding the queue lock, message handlers can push in the meantime
+                if (!batch.isEmpty()) {
+                    remove(Arrays.copyOf(batch.getArray(), batch.getSize()));
+                    batch = new ArrayListLong(m_batchSize);
+                }
             }
         }
 
@@ -530,6 +582,8 @@ public class ChunkRemoveService extends AbstractDXRAMService<ChunkRemoveServiceC
                 m_memoryManager.unlockManage();
             }
 
+            m_chunk.invalidateNearCaches(p_chunkIDs);
+
             // send message to initial creator of locally stored but migrated removed chunks to allow re-use of chunk
             // ID, otherwise chunk ID gets lost here
             for (final Map.Entry<Short, ArrayListLong> reuseChunkIDs : reuseChunkIDsByPeers.entrySet()) {
@@ -14,6 +14,9 @@ public class ChunkRemoveServiceConfig extends AbstractDXRAMServiceConfig {
     @Expose
     private int m_removerQueueSize = 100000;
 
+    @Expose
+    private int m_removerBatchSize = 10000;
+
     /**
      * Constructor
      */
@@ -22,12 +25,20 @@ public class ChunkRemoveServiceConfig extends AbstractDXRAMServiceConfig {
     }
 
     /**
-     * Size of the queue that stores the remove requests to be processed asynchronously
+     * Max number of chunk IDs in the queue that stores the remove requests to be processed asynchronously
+     * (message handlers block if the queue is full)
      */
     public int getRemoverQueueSize() {
         return m_removerQueueSize;
     }
 
+    /**
+     * Max number of queued chunk IDs removed with a single batch (i.e. holding the manage lock once)
+     */
+    public int getRemoverBatchSize() {
+        return m_removerBatchSize;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
         if (m_removerQueueSize < 1) {
@@ -37,6 +48,13 @@ public class ChunkRemoveServiceConfig extends AbstractDXRAMServiceConfig {
             return false;
         }
 
+        if (m_removerBatchSize < 1) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%d) for m_removerBatchSize", m_removerBatchSize);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
         return true;
     }
 }
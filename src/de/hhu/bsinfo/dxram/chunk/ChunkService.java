@@ -17,9 +17,11 @@
 package de.hhu.bsinfo.dxram.chunk;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.Message;
@@ -30,6 +32,8 @@ import de.hhu.bsinfo.dxram.backup.BackupPeer;
 import de.hhu.bsinfo.dxram.backup.BackupRange;
 import de.hhu.bsinfo.dxram.boot.AbstractBootComponent;
 import de.hhu.bsinfo.dxram.chunk.messages.ChunkMessages;
+import de.hhu.bsinfo.dxram.chunk.messages.CreateAndPutRequest;
+import de.hhu.bsinfo.dxram.chunk.messages.CreateAndPutResponse;
 import de.hhu.bsinfo.dxram.chunk.messages.CreateRequest;
 import de.hhu.bsinfo.dxram.chunk.messages.CreateResponse;
 import de.hhu.bsinfo.dxram.chunk.messages.GetLocalChunkIDRangesRequest;
@@ -38,6 +42,7 @@ import de.hhu.bsinfo.dxram.chunk.messages.GetMigratedChunkIDRangesRequest;
 import de.hhu.bsinfo.dxram.chunk.messages.GetMigratedChunkIDRangesResponse;
 import de.hhu.bsinfo.dxram.chunk.messages.GetRequest;
 import de.hhu.bsinfo.dxram.chunk.messages.GetResponse;
+import de.hhu.bsinfo.dxram.chunk.messages.NearCacheInvalidateMessage;
 import de.hhu.bsinfo.dxram.chunk.messages.PutRequest;
 import de.hhu.bsinfo.dxram.chunk.messages.PutResponse;
 import de.hhu.bsinfo.dxram.chunk.messages.StatusRequest;
@@ -55,8 +60,10 @@ import de.hhu.bsinfo.dxram.engine.DXRAMRuntimeException;
 import de.hhu.bsinfo.dxram.lock.AbstractLockComponent;
 import de.hhu.bsinfo.dxram.log.messages.LogMessage;
 import de.hhu.bsinfo.dxram.lookup.LookupComponent;
+import de.hhu.bsinfo.dxram.lookup.LookupInvalidationListener;
 import de.hhu.bsinfo.dxram.lookup.LookupRange;
 import de.hhu.bsinfo.dxram.lookup.LookupState;
+import de.hhu.bsinfo.dxram.mem.LockedChunks;
 import de.hhu.bsinfo.dxram.mem.MemoryManagerComponent;
 import de.hhu.bsinfo.dxram.net.NetworkComponent;
 import de.hhu.bsinfo.dxram.util.NodeRole;
@@ -64,13 +71,15 @@ import de.hhu.bsinfo.dxutils.NodeID;
 import de.hhu.bsinfo.dxutils.stats.StatisticsManager;
 import de.hhu.bsinfo.dxutils.stats.ThroughputPool;
 import de.hhu.bsinfo.dxutils.stats.Value;
+import de.hhu.bsinfo.dxutils.stats.ValuePool;
 
 /**
  * This service provides access to the backend storage system.
  *
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 03.02.2016
  */
-public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> implements MessageReceiver {
+public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig>
+        implements MessageReceiver, LookupInvalidationListener {
     private static final ThroughputPool SOP_CREATE = new ThroughputPool(ChunkAnonService.class, "Create",
             Value.Base.B_10);
     private static final ThroughputPool SOP_REMOTE_CREATE = new ThroughputPool(ChunkAnonService.class, "RemoteCreate",
@@ -79,6 +88,12 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
             Value.Base.B_10);
     private static final ThroughputPool SOP_PUT = new ThroughputPool(ChunkAnonService.class, "Put",
             Value.Base.B_10);
+    private static final ThroughputPool SOP_GET_ASYNC = new ThroughputPool(ChunkService.class, "GetAsync",
+            Value.Base.B_10);
+    private static final ThroughputPool SOP_PUT_ASYNC = new ThroughputPool(ChunkService.class, "PutAsync",
+            Value.Base.B_10);
+    private static final ValuePool SOP_NEAR_CACHE_HIT = new ValuePool(ChunkService.class, "NearCacheHit");
+    private static final ValuePool SOP_NEAR_CACHE_MISS = new ValuePool(ChunkService.class, "NearCacheMiss");
     private static final ThroughputPool SOP_INCOMING_CREATE = new ThroughputPool(ChunkAnonService.class,
             "IncomingCreate", Value.Base.B_10);
     private static final ThroughputPool SOP_INCOMING_GET = new ThroughputPool(ChunkAnonService.class, "IncomingGet",
@@ -91,6 +106,10 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         StatisticsManager.get().registerOperation(ChunkService.class, SOP_REMOTE_CREATE);
         StatisticsManager.get().registerOperation(ChunkService.class, SOP_GET);
         StatisticsManager.get().registerOperation(ChunkService.class, SOP_PUT);
+        StatisticsManager.get().registerOperation(ChunkService.class, SOP_GET_ASYNC);
+        StatisticsManager.get().registerOperation(ChunkService.class, SOP_PUT_ASYNC);
+        StatisticsManager.get().registerOperation(ChunkService.class, SOP_NEAR_CACHE_HIT);
+        StatisticsManager.get().registerOperation(ChunkService.class, SOP_NEAR_CACHE_MISS);
         StatisticsManager.get().registerOperation(ChunkService.class, SOP_INCOMING_CREATE);
         StatisticsManager.get().registerOperation(ChunkService.class, SOP_INCOMING_GET);
         StatisticsManager.get().registerOperation(ChunkService.class, SOP_INCOMING_PUT);
@@ -103,6 +122,10 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
     private NetworkComponent m_network;
     private LookupComponent m_lookup;
     private AbstractLockComponent m_lock;
+    private ChunkComponent m_chunk;
+
+    // read cache for remote chunks, null if disabled
+    private NearCache m_nearCache;
 
     /**
      * Constructor
@@ -234,14 +257,14 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         if (p_count == 1) {
             long chunkId;
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkId = m_memoryManager.create(p_size);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunk(chunkId, p_size);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
 
             if (chunkId != ChunkID.INVALID_ID) {
@@ -249,14 +272,14 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
             }
         } else {
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkIDs = m_memoryManager.createMulti(p_size, p_count, p_consecutive);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunks(chunkIDs, p_size);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
         }
 
@@ -311,27 +334,27 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         if (p_dataStructures.length == 1) {
             long chunkID;
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkID = m_memoryManager.create(p_dataStructures[0].sizeofObject());
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunk(chunkID, p_dataStructures[0].sizeofObject());
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
 
             p_dataStructures[0].setID(chunkID);
         } else {
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 m_memoryManager.createMulti(p_consecutive, p_dataStructures);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunks(p_dataStructures);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
         }
 
@@ -383,25 +406,25 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
 
         if (p_sizes.length == 1) {
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkIDs[0] = m_memoryManager.create(p_sizes[0]);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunk(chunkIDs[0], p_sizes[0]);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
         } else {
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkIDs = m_memoryManager.createMultiSizes(p_consecutive, p_sizes);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunks(chunkIDs, p_sizes);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
         }
 
@@ -510,6 +533,199 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         return chunkIDs;
     }
 
+    /**
+     * Create chunks on another node without waiting for the response. Creating chunks on the current node does not
+     * involve the network and is executed right away.
+     *
+     * @param p_peer
+     *         NodeID of the peer to create the chunks on.
+     * @param p_sizes
+     *         Sizes to create chunks of.
+     * @return Future completed with the ChunkIDs/Handles identifying the created chunks (null if remote is
+     * unreachable). The future is completed on a callback thread of the NetworkComponent, keep callbacks short or
+     * hand them over to another executor
+     */
+    public CompletableFuture<long[]> createAsync(final short p_peer, final int... p_sizes) {
+        if (p_sizes.length == 0) {
+            return CompletableFuture.completedFuture(new long[0]);
+        }
+
+        if (p_peer == m_boot.getNodeID()) {
+            return CompletableFuture.completedFuture(createSizes(p_sizes));
+        }
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("createAsync[peer %s, sizes(%d) %d, ...]", NodeID.toHexString(p_peer), p_sizes.length,
+                p_sizes[0]);
+        // #endif /* LOGGER == TRACE */
+
+        // check if remote node is a peer
+        NodeRole role = m_boot.getNodeRole(p_peer);
+        if (role == null) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Remote node %s does not exist for remote create", NodeID.toHexString(p_peer));
+            // #endif /* LOGGER >= ERROR */
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return m_network.sendAsync(new CreateRequest(p_peer, p_sizes), CreateResponse.class).handle(
+                (p_response, p_error) -> {
+                    if (p_error != null) {
+                        // #if LOGGER >= ERROR
+                        LOGGER.error("Sending chunk create request to peer %s failed: %s", NodeID.toHexString(p_peer),
+                                p_error);
+                        // #endif /* LOGGER >= ERROR */
+
+                        return null;
+                    }
+
+                    return p_response.getChunkIDs();
+                });
+    }
+
+    /**
+     * Create chunks for the data structures provided and put their contents with a single operation, i.e. the
+     * chunks are allocated and written holding the memory lock once and logged to the backup peers. Sets the IDs
+     * and the states of the data structures.
+     *
+     * @param p_dataStructures
+     *         Data structures to create chunks for and with the data to put.
+     * @return Number of successfully created chunks.
+     */
+    public int createAndPut(final DataStructure... p_dataStructures) {
+        return createAndPut(m_boot.getNodeID(), p_dataStructures);
+    }
+
+    /**
+     * Create chunks for the data structures provided on a peer and put their contents with a single operation.
+     * Creating chunks on another peer takes a single request instead of createRemote() followed by put().
+     * Sets the IDs and the states of the data structures (ChunkID.INVALID_ID and DATA_LOST if creating failed).
+     *
+     * @param p_peer
+     *         NodeID of the peer to create the chunks on.
+     * @param p_dataStructures
+     *         Data structures to create chunks for and with the data to put.
+     * @return Number of successfully created chunks.
+     */
+    public int createAndPut(final short p_peer, final DataStructure... p_dataStructures) {
+        int chunksCreated = 0;
+        long[] chunkIDs = null;
+
+        if (p_dataStructures.length == 0) {
+            return chunksCreated;
+        }
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("createAndPut[peer %s, dataStructures(%d) ...]", NodeID.toHexString(p_peer),
+                p_dataStructures.length);
+        // #endif /* LOGGER == TRACE */
+
+        if (p_peer == m_boot.getNodeID()) {
+            int[] sizes = new int[p_dataStructures.length];
+
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = p_dataStructures[i].sizeofObject();
+            }
+
+            // #ifdef STATISTICS
+            SOP_CREATE.start(p_dataStructures.length);
+            // #endif /* STATISTICS */
+
+            try {
+                lockCreate();
+                chunkIDs = m_memoryManager.createMultiSizes(sizes);
+
+                if (chunkIDs != null) {
+                    // Initialize a new backup range every e.g. 256 MB and inform superpeer
+                    // Must be locked together with create call to memory manager
+                    m_backup.registerChunks(chunkIDs, sizes);
+
+                    for (int i = 0; i < chunkIDs.length; i++) {
+                        p_dataStructures[i].setID(chunkIDs[i]);
+                    }
+
+                    // the memory is locked for accessing in any case
+                    m_memoryManager.put(p_dataStructures, 0, p_dataStructures.length);
+                }
+            } finally {
+                unlockCreate();
+            }
+
+            // #ifdef STATISTICS
+            SOP_CREATE.stop();
+            // #endif /* STATISTICS */
+
+            if (chunkIDs != null && m_backup.isActive()) {
+                Map<BackupRange, ArrayList<DataStructure>> chunksByBackupRange = new TreeMap<>();
+
+                for (DataStructure dataStructure : p_dataStructures) {
+                    if (dataStructure.getState() == ChunkState.OK) {
+                        chunksByBackupRange.computeIfAbsent(m_backup.getBackupRange(dataStructure.getID()),
+                                a -> new ArrayList<>()).add(dataStructure);
+                    }
+                }
+
+                logChunksToBackup(chunksByBackupRange);
+            }
+        } else {
+            // check if remote node is a peer
+            NodeRole role = m_boot.getNodeRole(p_peer);
+            if (role == null) {
+                // #if LOGGER >= ERROR
+                LOGGER.error("Remote node %s does not exist for remote create", NodeID.toHexString(p_peer));
+                // #endif /* LOGGER >= ERROR */
+            } else {
+                // #ifdef STATISTICS
+                SOP_REMOTE_CREATE.start(p_dataStructures.length);
+                // #endif /* STATISTICS */
+
+                CreateAndPutRequest request = new CreateAndPutRequest(p_peer, p_dataStructures);
+                try {
+                    m_network.sendSync(request);
+
+                    chunkIDs = request.getResponse(CreateAndPutResponse.class).getChunkIDs();
+                } catch (final NetworkException e) {
+                    // #if LOGGER >= ERROR
+                    LOGGER.error("Sending chunk create and put request to peer %s failed: %s",
+                            NodeID.toHexString(p_peer), e);
+                    // #endif /* LOGGER >= ERROR */
+                }
+
+                // #ifdef STATISTICS
+                SOP_REMOTE_CREATE.stop();
+                // #endif /* STATISTICS */
+
+                if (chunkIDs != null) {
+                    for (int i = 0; i < chunkIDs.length; i++) {
+                        p_dataStructures[i].setID(chunkIDs[i]);
+                        p_dataStructures[i].setState(
+                                chunkIDs[i] != ChunkID.INVALID_ID ? ChunkState.OK : ChunkState.DATA_LOST);
+                    }
+                }
+            }
+        }
+
+        if (chunkIDs == null) {
+            for (DataStructure dataStructure : p_dataStructures) {
+                dataStructure.setID(ChunkID.INVALID_ID);
+                dataStructure.setState(ChunkState.DATA_LOST);
+            }
+        } else {
+            for (DataStructure dataStructure : p_dataStructures) {
+                if (dataStructure.getState() == ChunkState.OK) {
+                    chunksCreated++;
+                }
+            }
+        }
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("createAndPut[peer %s, dataStructures(%d) ...] -> %d", NodeID.toHexString(p_peer),
+                p_dataStructures.length, chunksCreated);
+        // #endif /* LOGGER == TRACE */
+
+        return chunksCreated;
+    }
+
     /**
      * Put/Update the contents of the key-value memory with the data of the provided chunks.
      *
@@ -566,168 +782,108 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         Map<Short, ArrayList<DataStructure>> remoteChunksByPeers = new TreeMap<>();
         Map<BackupRange, ArrayList<DataStructure>> remoteChunksByBackupRange = new TreeMap<>();
 
-        // sort by local/remote chunks
-        try {
-            m_memoryManager.lockAccess();
-            for (int i = 0; i < p_count; i++) {
-                // filter null values
-                if (p_chunks[i + p_offset] == null || p_chunks[i + p_offset].getID() == ChunkID.INVALID_ID) {
-                    continue;
-                }
+        totalChunksPut = putLocalAndSortRemote(p_chunkUnlockOperation, p_chunks, p_offset, p_count,
+                remoteChunksByPeers, remoteChunksByBackupRange);
 
-                // try to put every chunk locally, returns false if it does not exist
-                // and saves us an additional check
-                if (m_memoryManager.put(p_chunks[i + p_offset])) {
-                    totalChunksPut++;
-                    p_chunks[i + p_offset].setState(ChunkState.OK);
-
-                    // unlock chunk as well
-                    if (p_chunkUnlockOperation != ChunkLockOperation.NO_LOCK_OPERATION) {
-                        boolean writeLock = false;
-                        if (p_chunkUnlockOperation == ChunkLockOperation.WRITE_LOCK) {
-                            writeLock = true;
-                        }
-                        m_lock.unlock(p_chunks[i + p_offset].getID(), m_boot.getNodeID(), writeLock);
-                    }
+        // go for remote chunks, send the requests to all peers concurrently
+        PutRequest[] requests = new PutRequest[remoteChunksByPeers.size()];
+        int requestIndex = 0;
+        for (Entry<Short, ArrayList<DataStructure>> entry : remoteChunksByPeers.entrySet()) {
+            ArrayList<DataStructure> chunksToPut = entry.getValue();
+            // don't get overwritten by older async puts buffered for the peer
+            m_chunk.flushWriteCombiner(entry.getKey());
+            requests[requestIndex++] = new PutRequest(entry.getKey(), p_chunkUnlockOperation,
+                    chunksToPut.toArray(new DataStructure[chunksToPut.size()]));
+        }
 
-                    if (m_backup.isActive()) {
-                        // sort by backup peers
-                        BackupRange backupRange = m_backup.getBackupRange(p_chunks[i + p_offset].getID());
-                        ArrayList<DataStructure> remoteChunksOfBackupRange =
-                                remoteChunksByBackupRange.computeIfAbsent(backupRange, a -> new ArrayList<>());
-                        remoteChunksOfBackupRange.add(p_chunks[i + p_offset]);
-                    }
-                } else {
-                    // remote or migrated, figure out location and sort by peers
-                    LookupRange location = m_lookup.getLookupRange(p_chunks[i + p_offset].getID());
-                    while (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
-                        try {
-                            Thread.sleep(100);
-                        } catch (final InterruptedException ignore) {
-                        }
-                        location = m_lookup.getLookupRange(p_chunks[i + p_offset].getID());
-                    }
+        NetworkException[] requestErrors = m_network.sendSyncAll(requests);
 
-                    if (location.getState() == LookupState.OK) {
-                        // currently undefined because we still have to get it from remote
-                        p_chunks[i + p_offset].setState(ChunkState.UNDEFINED);
-                        short peer = location.getPrimaryPeer();
-
-                        ArrayList<DataStructure> remoteChunksOfPeer =
-                                remoteChunksByPeers.computeIfAbsent(peer, a -> new ArrayList<>());
-                        remoteChunksOfPeer.add(p_chunks[i + p_offset]);
-                    } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
-                        p_chunks[i + p_offset].setState(ChunkState.DOES_NOT_EXIST);
-                    } else if (location.getState() == LookupState.DATA_LOST) {
-                        p_chunks[i + p_offset].setState(ChunkState.DATA_LOST);
-                    }
-                }
-            }
-        } finally {
-            m_memoryManager.unlockAccess();
+        requestIndex = 0;
+        for (ArrayList<DataStructure> chunksToPut : remoteChunksByPeers.values()) {
+            totalChunksPut += evaluatePutResponse(chunksToPut, requests[requestIndex],
+                    requestErrors[requestIndex] != null);
+            requestIndex++;
         }
 
-        // go for remote chunks
-        for (Entry<Short, ArrayList<DataStructure>> entry : remoteChunksByPeers.entrySet()) {
-            short peer = entry.getKey();
-
-            if (peer == m_boot.getNodeID()) {
-                // local put, migrated data to current node
-                try {
-                    m_memoryManager.lockAccess();
-                    for (DataStructure dataStructure : entry.getValue()) {
-                        if (m_memoryManager.put(dataStructure)) {
-                            totalChunksPut++;
-                        }
-                        // else: put failed, state for chunk set by memory manager
-                    }
-                } finally {
-                    m_memoryManager.unlockAccess();
-                }
-            } else {
-                // Remote put
-                ArrayList<DataStructure> chunksToPut = entry.getValue();
-                PutRequest request = new PutRequest(peer, p_chunkUnlockOperation,
-                        chunksToPut.toArray(new DataStructure[chunksToPut.size()]));
+        logChunksToBackup(remoteChunksByBackupRange);
 
-                try {
-                    m_network.sendSync(request);
-                } catch (final NetworkException e) {
-                    if (m_backup.isActive()) {
-                        for (DataStructure ds : chunksToPut) {
-                            ds.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
-                            m_lookup.invalidate(ds.getID());
-                        }
-                    } else {
-                        for (DataStructure ds : chunksToPut) {
-                            ds.setState(ChunkState.DATA_LOST);
-                            m_lookup.invalidate(ds.getID());
-                        }
-                    }
-                    continue;
-                }
+        // #ifdef STATISTICS
+        SOP_PUT.stop();
+        // #endif /* STATISTICS */
 
-                PutResponse response = request.getResponse(PutResponse.class);
+        // #if LOGGER == TRACE
+        LOGGER.trace("put[unlockOp %s, dataStructures(%d) ...] -> %d", p_chunkUnlockOperation, p_chunks.length,
+                totalChunksPut);
+        // #endif /* LOGGER == TRACE */
 
-                byte[] statusCodes = response.getStatusCodes();
+        return totalChunksPut;
+    }
 
-                // try short cut, i.e. all puts successful
-                if (statusCodes.length == 1 && statusCodes[0] == ChunkState.OK.ordinal()) {
-                    totalChunksPut += chunksToPut.size();
+    /**
+     * Put/Update the contents of the key-value memory with the data of the provided chunks without waiting
+     * for remote peers.
+     *
+     * @param p_chunks
+     *         Chunks to put/update. Null values or chunks with invalid IDs are ignored.
+     * @return Future completed with the number of successfully updated data structures (see putAsync(
+     * ChunkLockOperation, DataStructure[], int, int))
+     */
+    public CompletableFuture<Integer> putAsync(final DataStructure... p_chunks) {
+        return putAsync(ChunkLockOperation.NO_LOCK_OPERATION, p_chunks, 0, p_chunks.length);
+    }
 
-                    for (DataStructure ds : chunksToPut) {
-                        ds.setState(ChunkState.OK);
-                    }
-                } else {
-                    for (int i = 0; i < statusCodes.length; i++) {
-                        chunksToPut.get(i).setState(ChunkState.values()[statusCodes[i]]);
-                        if (statusCodes[i] == ChunkState.OK.ordinal()) {
-                            totalChunksPut++;
-                        } else {
-                            m_lookup.invalidateRange(chunksToPut.get(i).getID());
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Put/Update the contents of the provided data structures in the backend storage without waiting for
+     * remote peers. Local chunks are put before returning, remote chunks are sent to their peers and the future
+     * completes once all peers responded. The future is completed on a callback thread of the NetworkComponent
+     * (or immediately if all chunks are local), keep callbacks short or hand them over to another executor.
+     * Don't modify the data structures before the future completed.
+     *
+     * @param p_chunkUnlockOperation
+     *         Unlock operation to execute right after the put operation.
+     * @param p_chunks
+     *         Chunks to put/update. Null values or chunks with invalid IDs are ignored.
+     * @param p_offset
+     *         Start offset within the array.
+     * @param p_count
+     *         Number of items to put.
+     * @return Future completed with the number of successfully updated data structures
+     */
+    public CompletableFuture<Integer> putAsync(final ChunkLockOperation p_chunkUnlockOperation,
+            final DataStructure[] p_chunks, final int p_offset, final int p_count) {
+        // #if LOGGER == TRACE
+        LOGGER.trace("putAsync[unlockOp %s, dataStructures(%d) ...]", p_chunkUnlockOperation, p_count);
+        // #endif /* LOGGER == TRACE */
 
-        // Send backups
-        if (m_backup.isActive()) {
-            BackupRange backupRange;
-            BackupPeer[] backupPeers;
-            DataStructure[] dataStructures;
-            for (Entry<BackupRange, ArrayList<DataStructure>> entry : remoteChunksByBackupRange.entrySet()) {
-                backupRange = entry.getKey();
-                dataStructures = entry.getValue().toArray(new DataStructure[entry.getValue().size()]);
+        // #ifdef STATISTICS
+        SOP_PUT_ASYNC.start(p_count);
+        // #endif /* STATISTICS */
 
-                backupPeers = backupRange.getBackupPeers();
-                for (BackupPeer backupPeer : backupPeers) {
-                    if (backupPeer != null) {
-                        // #if LOGGER == TRACE
-                        LOGGER.trace("Logging %d chunks to 0x%X", dataStructures.length, backupPeer.getNodeID());
-                        // #endif /* LOGGER == TRACE */
+        Map<Short, ArrayList<DataStructure>> remoteChunksByPeers = new TreeMap<>();
+        Map<BackupRange, ArrayList<DataStructure>> remoteChunksByBackupRange = new TreeMap<>();
 
-                        try {
-                            m_network.sendMessage(new LogMessage(backupPeer.getNodeID(), backupRange.getRangeID(),
-                                    dataStructures));
-                        } catch (final NetworkException ignore) {
+        int localChunksPut = putLocalAndSortRemote(p_chunkUnlockOperation, p_chunks, p_offset, p_count,
+                remoteChunksByPeers, remoteChunksByBackupRange);
 
-                        }
-                    }
-                }
-            }
+        CompletableFuture<Integer> result = CompletableFuture.completedFuture(localChunksPut);
+        for (Entry<Short, ArrayList<DataStructure>> entry : remoteChunksByPeers.entrySet()) {
+            ArrayList<DataStructure> chunksToPut = entry.getValue();
+            m_chunk.flushWriteCombiner(entry.getKey());
+            PutRequest request = new PutRequest(entry.getKey(), p_chunkUnlockOperation,
+                    chunksToPut.toArray(new DataStructure[chunksToPut.size()]));
+
+            result = result.thenCombine(m_network.sendAsync(request, PutResponse.class).handle(
+                    (p_response, p_error) -> evaluatePutResponse(chunksToPut, request, p_error != null)),
+                    Integer::sum);
         }
 
+        logChunksToBackup(remoteChunksByBackupRange);
+
         // #ifdef STATISTICS
-        SOP_PUT.stop();
+        SOP_PUT_ASYNC.stop();
         // #endif /* STATISTICS */
 
-        // #if LOGGER == TRACE
-        LOGGER.trace("put[unlockOp %s, dataStructures(%d) ...] -> %d", p_chunkUnlockOperation, p_chunks.length,
-                totalChunksPut);
-        // #endif /* LOGGER == TRACE */
-
-        return totalChunksPut;
+        return result;
     }
 
     /**
@@ -753,7 +909,7 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
      * @return Number of successfully read data structures.
      */
     public int get(final DataStructure[] p_chunks, final int p_offset, final int p_count) {
-        int totalChunksGot = 0;
+        int totalChunksGot;
 
         assert p_offset >= 0 && p_count >= 0;
 
@@ -765,109 +921,30 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         SOP_GET.start(p_count);
         // #endif /* STATISTICS */
 
+        // before sending any request: data invalidated after this point is not cached
+        long nearCacheEpoch = m_nearCache != null ? m_nearCache.getEpoch() : 0;
+
         // sort by local and remote data first
         Map<Short, ArrayList<DataStructure>> remoteChunksByPeers = new TreeMap<>();
 
-        try {
-            m_memoryManager.lockAccess();
-            for (int i = 0; i < p_count; i++) {
-                // filter null values
-                if (p_chunks[i + p_offset] == null) {
-                    continue;
-                }
-
-                if (p_chunks[i + p_offset].getID() == ChunkID.INVALID_ID) {
-                    p_chunks[i + p_offset].setState(ChunkState.INVALID_ID);
-                }
-
-                // try to get locally, will check first if it exists
-                if (m_memoryManager.get(p_chunks[i + p_offset])) {
-                    totalChunksGot++;
-                    p_chunks[i + p_offset].setState(ChunkState.OK);
-                } else {
-                    // remote or migrated, figure out location and sort by peers
-                    LookupRange location = m_lookup.getLookupRange(p_chunks[i + p_offset].getID());
-                    while (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
-                        try {
-                            Thread.sleep(100);
-                        } catch (final InterruptedException ignore) {
-                        }
-                        location = m_lookup.getLookupRange(p_chunks[i + p_offset].getID());
-                    }
-
-                    if (location.getState() == LookupState.OK) {
-                        // currently undefined because we still have to get it from remote
-                        p_chunks[i + p_offset].setState(ChunkState.UNDEFINED);
-                        short peer = location.getPrimaryPeer();
-
-                        ArrayList<DataStructure> remoteChunksOfPeer =
-                                remoteChunksByPeers.computeIfAbsent(peer, a -> new ArrayList<>());
-                        remoteChunksOfPeer.add(p_chunks[i + p_offset]);
-                    } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
-                        p_chunks[i + p_offset].setState(ChunkState.DOES_NOT_EXIST);
-                    } else if (location.getState() == LookupState.DATA_LOST) {
-                        p_chunks[i + p_offset].setState(ChunkState.DATA_LOST);
-                    }
-                }
-            }
-        } finally {
-            m_memoryManager.unlockAccess();
-        }
+        totalChunksGot = getLocalAndSortRemote(p_chunks, p_offset, p_count, remoteChunksByPeers);
 
-        // go for remote ones by each peer
+        // go for remote ones, send the requests to all peers concurrently
+        GetRequest[] requests = new GetRequest[remoteChunksByPeers.size()];
+        int requestIndex = 0;
         for (final Entry<Short, ArrayList<DataStructure>> peerWithChunks : remoteChunksByPeers.entrySet()) {
-            short peer = peerWithChunks.getKey();
             ArrayList<DataStructure> remoteChunks = peerWithChunks.getValue();
+            requests[requestIndex++] = new GetRequest(peerWithChunks.getKey(), m_nearCache != null,
+                    remoteChunks.toArray(new DataStructure[remoteChunks.size()]));
+        }
 
-            if (peer == m_boot.getNodeID()) {
-                // local get, migrated data to current node
-                try {
-                    m_memoryManager.lockAccess();
-                    for (DataStructure chunk : remoteChunks) {
-                        if (m_memoryManager.get(chunk)) {
-                            totalChunksGot++;
-                            chunk.setState(ChunkState.OK);
-                        } else {
-                            chunk.setState(ChunkState.DOES_NOT_EXIST);
-                        }
-                    }
-                } finally {
-                    m_memoryManager.unlockAccess();
-                }
-            } else {
-                // Remote get from specified peer
-                GetRequest request = new GetRequest(peer, remoteChunks.toArray(new DataStructure[remoteChunks.size()]));
-
-                try {
-                    m_network.sendSync(request);
-                } catch (final NetworkException e) {
-                    if (m_backup.isActive()) {
-                        for (DataStructure chunk : remoteChunks) {
-                            chunk.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
-                            m_lookup.invalidate(chunk.getID());
-                        }
-                    } else {
-                        for (DataStructure chunk : remoteChunks) {
-                            chunk.setState(ChunkState.DATA_LOST);
-                            m_lookup.invalidate(chunk.getID());
-                        }
-                    }
-                    continue;
-                }
-
-                GetResponse response = request.getResponse(GetResponse.class);
-                totalChunksGot += response.getTotalSuccessful();
-
-                if (response.getTotalSuccessful() != remoteChunks.size()) {
-                    for (DataStructure chunk : remoteChunks) {
-                        if (chunk.getState() != ChunkState.OK) {
-                            m_lookup.invalidateRange(chunk.getID());
-                        }
-                    }
-                }
+        NetworkException[] requestErrors = m_network.sendSyncAll(requests);
 
-                // Chunk data is written directly to the provided data structure on receive
-            }
+        requestIndex = 0;
+        for (ArrayList<DataStructure> remoteChunks : remoteChunksByPeers.values()) {
+            totalChunksGot += evaluateGetResponse(remoteChunks, requests[requestIndex],
+                    requestErrors[requestIndex] != null, nearCacheEpoch);
+            requestIndex++;
         }
 
         // #ifdef STATISTICS
@@ -882,22 +959,87 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
     }
 
     /**
-     * Special local only get version. Use this if you already delegate tasks with non local
-     * chunks to the remote owning them. This speeds up access to local only chunks a lot.
-     * Get/Read the data stored in the backend storage into the provided chunks.
+     * Get/Read the data stored in the backend storage into the provided chunk objects without waiting for
+     * remote peers.
      *
      * @param p_chunks
      *         Chunks to read the stored data into. Null values or invalid IDs are ignored.
-     * @return Number of successfully read data structures.
+     * @return Future completed with the number of successfully read data structures (see getAsync(DataStructure[],
+     * int, int))
      */
-    public int getLocal(final DataStructure... p_chunks) {
-        return getLocal(p_chunks, 0, p_chunks.length);
+    public CompletableFuture<Integer> getAsync(final DataStructure... p_chunks) {
+        return getAsync(p_chunks, 0, p_chunks.length);
     }
 
     /**
-     * Special local only get version. Use this if you already delegate tasks with non local
-     * chunks to the remote owning them. This speeds up access to local only chunks a lot.
-     * Get/Read the data stored in the backend storage into the provided chunks.
+     * Get/Read the data stored in the backend storage into the provided chunk objects without waiting for
+     * remote peers. Local chunks are read before returning, requests for remote chunks are sent to their peers
+     * and the future completes once all peers responded. The future is completed on a callback thread of the
+     * NetworkComponent (or immediately if all chunks are local), keep callbacks short or hand them over to another
+     * executor. Don't access the data structures before the future completed.
+     *
+     * @param p_chunks
+     *         Chunks to read the stored data into. Null values or invalid IDs are ignored.
+     * @param p_offset
+     *         Start offset within the array.
+     * @param p_count
+     *         Number of items to get.
+     * @return Future completed with the number of successfully read data structures
+     */
+    public CompletableFuture<Integer> getAsync(final DataStructure[] p_chunks, final int p_offset,
+            final int p_count) {
+        assert p_offset >= 0 && p_count >= 0;
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("getAsync[dataStructures(%d) ...]", p_count);
+        // #endif /* LOGGER == TRACE */
+
+        // #ifdef STATISTICS
+        SOP_GET_ASYNC.start(p_count);
+        // #endif /* STATISTICS */
+
+        long nearCacheEpoch = m_nearCache != null ? m_nearCache.getEpoch() : 0;
+
+        Map<Short, ArrayList<DataStructure>> remoteChunksByPeers = new TreeMap<>();
+
+        int localChunksGot = getLocalAndSortRemote(p_chunks, p_offset, p_count, remoteChunksByPeers);
+
+        CompletableFuture<Integer> result = CompletableFuture.completedFuture(localChunksGot);
+        for (Entry<Short, ArrayList<DataStructure>> entry : remoteChunksByPeers.entrySet()) {
+            ArrayList<DataStructure> remoteChunks = entry.getValue();
+            GetRequest request = new GetRequest(entry.getKey(), m_nearCache != null,
+                    remoteChunks.toArray(new DataStructure[remoteChunks.size()]));
+
+            result = result.thenCombine(m_network.sendAsync(request, GetResponse.class).handle(
+                    (p_response, p_error) -> evaluateGetResponse(remoteChunks, request, p_error != null,
+                            nearCacheEpoch)),
+                    Integer::sum);
+        }
+
+        // #ifdef STATISTICS
+        SOP_GET_ASYNC.stop();
+        // #endif /* STATISTICS */
+
+        return result;
+    }
+
+    /**
+     * Special local only get version. Use this if you already delegate tasks with non local
+     * chunks to the remote owning them. This speeds up access to local only chunks a lot.
+     * Get/Read the data stored in the backend storage into the provided chunks.
+     *
+     * @param p_chunks
+     *         Chunks to read the stored data into. Null values or invalid IDs are ignored.
+     * @return Number of successfully read data structures.
+     */
+    public int getLocal(final DataStructure... p_chunks) {
+        return getLocal(p_chunks, 0, p_chunks.length);
+    }
+
+    /**
+     * Special local only get version. Use this if you already delegate tasks with non local
+     * chunks to the remote owning them. This speeds up access to local only chunks a lot.
+     * Get/Read the data stored in the backend storage into the provided chunks.
      *
      * @param p_chunks
      *         Array with chunks to read the stored data to. Null values or invalid IDs are ignored.
@@ -926,22 +1068,8 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
 
         try {
             m_memoryManager.lockAccess();
-            for (int i = 0; i < p_count; i++) {
-                // filter null values
-                if (p_chunks[i + p_offset] == null) {
-                    continue;
-                }
-
-                if (p_chunks[i + p_offset].getID() == ChunkID.INVALID_ID) {
-                    p_chunks[i + p_offset].setState(ChunkState.INVALID_ID);
-                }
-
-                // try to get locally, will check first if it exists and
-                // returns false if it doesn't exist
-                if (m_memoryManager.get(p_chunks[i + p_offset])) {
-                    totalChunksGot++;
-                }
-            }
+            // null values are ignored, non existing chunks are marked
+            totalChunksGot = m_memoryManager.get(p_chunks, p_offset, p_count);
         } finally {
             m_memoryManager.unlockAccess();
         }
@@ -1061,6 +1189,9 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
                     case ChunkMessages.SUBTYPE_CREATE_REQUEST:
                         incomingCreateRequest((CreateRequest) p_message);
                         break;
+                    case ChunkMessages.SUBTYPE_CREATE_AND_PUT_REQUEST:
+                        incomingCreateAndPutRequest((CreateAndPutRequest) p_message);
+                        break;
                     case ChunkMessages.SUBTYPE_STATUS_REQUEST:
                         incomingStatusRequest((StatusRequest) p_message);
                         break;
@@ -1070,6 +1201,9 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
                     case ChunkMessages.SUBTYPE_GET_MIGRATED_CHUNKID_RANGES_REQUEST:
                         incomingGetMigratedChunkIDRangesRequest((GetMigratedChunkIDRangesRequest) p_message);
                         break;
+                    case ChunkMessages.SUBTYPE_NEAR_CACHE_INVALIDATE_MESSAGE:
+                        incomingNearCacheInvalidateMessage((NearCacheInvalidateMessage) p_message);
+                        break;
                     default:
                         break;
                 }
@@ -1081,6 +1215,14 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         // #endif /* LOGGER == TRACE */
     }
 
+    @Override
+    public void chunkInvalidated(final long p_chunkID) {
+        // location of the chunk changed or the chunk was removed
+        if (m_nearCache != null) {
+            m_nearCache.invalidate(p_chunkID);
+        }
+    }
+
     @Override
     protected boolean supportsSuperpeer() {
         return false;
@@ -1099,6 +1241,7 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         m_network = p_componentAccessor.getComponent(NetworkComponent.class);
         m_lookup = p_componentAccessor.getComponent(LookupComponent.class);
         m_lock = p_componentAccessor.getComponent(AbstractLockComponent.class);
+        m_chunk = p_componentAccessor.getComponent(ChunkComponent.class);
     }
 
     @Override
@@ -1115,16 +1258,53 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
             }
         }
 
+        if (getConfig().getNearCacheSize().getBytes() > 0) {
+            m_nearCache = new NearCache(getConfig().getNearCacheSize().getBytes(),
+                    getConfig().getNearCacheTTL().getNs());
+            m_chunk.setNearCache(m_nearCache);
+            m_lookup.registerInvalidationListener(this);
+        }
+
         return true;
     }
 
     @Override
     protected boolean shutdownService() {
+        if (m_nearCache != null) {
+            m_lookup.unregisterInvalidationListener(this);
+            m_chunk.setNearCache(null);
+            m_nearCache = null;
+        }
+
         return true;
     }
 
     // -----------------------------------------------------------------------------------
 
+    /**
+     * Lock the memory for creating chunks. Creating and registering chunks for backup must be atomic, creates are
+     * serialized if backup is active. Otherwise, creates of multiple threads run in parallel (allocating from
+     * the threads' arenas).
+     */
+    private void lockCreate() {
+        if (m_backup.isActive()) {
+            m_memoryManager.lockManage();
+        } else {
+            m_memoryManager.lockAccess();
+        }
+    }
+
+    /**
+     * Unlock the memory after creating chunks.
+     */
+    private void unlockCreate() {
+        if (m_backup.isActive()) {
+            m_memoryManager.unlockManage();
+        } else {
+            m_memoryManager.unlockAccess();
+        }
+    }
+
     /**
      * Register network messages we use in here.
      */
@@ -1141,6 +1321,10 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
                 CreateRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_CREATE_RESPONSE,
                 CreateResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
+                ChunkMessages.SUBTYPE_CREATE_AND_PUT_REQUEST, CreateAndPutRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
+                ChunkMessages.SUBTYPE_CREATE_AND_PUT_RESPONSE, CreateAndPutResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_STATUS_REQUEST,
                 StatusRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_STATUS_RESPONSE,
@@ -1157,6 +1341,8 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
                 ChunkMessages.SUBTYPE_GET_MIGRATED_CHUNKID_RANGES_RESPONSE,
                 GetMigratedChunkIDRangesResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
+                ChunkMessages.SUBTYPE_NEAR_CACHE_INVALIDATE_MESSAGE, NearCacheInvalidateMessage.class);
     }
 
     /**
@@ -1166,15 +1352,388 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_GET_REQUEST, this);
         m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_PUT_REQUEST, this);
         m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_CREATE_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_CREATE_AND_PUT_REQUEST, this);
         m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_STATUS_REQUEST, this);
         m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
                 ChunkMessages.SUBTYPE_GET_LOCAL_CHUNKID_RANGES_REQUEST, this);
         m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
                 ChunkMessages.SUBTYPE_GET_MIGRATED_CHUNKID_RANGES_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.CHUNK_MESSAGES_TYPE,
+                ChunkMessages.SUBTYPE_NEAR_CACHE_INVALIDATE_MESSAGE, this);
     }
 
     // -----------------------------------------------------------------------------------
 
+    /**
+     * Put all local chunks with a single batch and sort the remaining ones by the peers storing them
+     *
+     * @param p_chunkUnlockOperation
+     *         Unlock operation to execute right after the put operation.
+     * @param p_chunks
+     *         Chunks to put/update. Null values or chunks with invalid IDs are ignored.
+     * @param p_offset
+     *         Start offset within the array.
+     * @param p_count
+     *         Number of items to put.
+     * @param p_remoteChunksByPeers
+     *         Map to add the remote chunks to
+     * @param p_remoteChunksByBackupRange
+     *         Map to add the chunks put locally to (sorted by backup range), if backup is active
+     * @return Number of chunks put locally
+     */
+    private int putLocalAndSortRemote(final ChunkLockOperation p_chunkUnlockOperation, final DataStructure[] p_chunks,
+            final int p_offset, final int p_count, final Map<Short, ArrayList<DataStructure>> p_remoteChunksByPeers,
+            final Map<BackupRange, ArrayList<DataStructure>> p_remoteChunksByBackupRange) {
+        int chunksPut;
+
+        // sort by local/remote chunks
+        try {
+            m_memoryManager.lockAccess();
+
+            // try to put every chunk locally with a single batch, chunks which don't exist
+            // locally are marked and saves us an additional check
+            chunksPut = m_memoryManager.put(p_chunks, p_offset, p_count);
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        // look up remote chunks without holding the access lock, waiting for a range in recovery must not
+        // block the memory manager
+        for (int i = 0; i < p_count; i++) {
+            // filter null values
+            if (p_chunks[i + p_offset] == null || p_chunks[i + p_offset].getID() == ChunkID.INVALID_ID) {
+                continue;
+            }
+
+            if (p_chunks[i + p_offset].getState() == ChunkState.OK) {
+                // unlock chunk as well
+                if (p_chunkUnlockOperation != ChunkLockOperation.NO_LOCK_OPERATION) {
+                    boolean writeLock = false;
+                    if (p_chunkUnlockOperation == ChunkLockOperation.WRITE_LOCK) {
+                        writeLock = true;
+                    }
+                    m_lock.unlock(p_chunks[i + p_offset].getID(), m_boot.getNodeID(), writeLock);
+                }
+
+                if (m_backup.isActive()) {
+                    // sort by backup peers
+                    BackupRange backupRange = m_backup.getBackupRange(p_chunks[i + p_offset].getID());
+                    ArrayList<DataStructure> remoteChunksOfBackupRange =
+                            p_remoteChunksByBackupRange.computeIfAbsent(backupRange, a -> new ArrayList<>());
+                    remoteChunksOfBackupRange.add(p_chunks[i + p_offset]);
+                }
+            } else {
+                // remote or migrated, figure out location and sort by peers
+                LookupRange location = m_lookup.waitForLookupRange(p_chunks[i + p_offset].getID());
+
+                if (location.getState() == LookupState.OK) {
+                    // currently undefined because we still have to get it from remote
+                    p_chunks[i + p_offset].setState(ChunkState.UNDEFINED);
+                    short peer = location.getPrimaryPeer();
+
+                    m_chunk.evictFromNearCache(p_chunks[i + p_offset].getID());
+
+                    ArrayList<DataStructure> remoteChunksOfPeer =
+                            p_remoteChunksByPeers.computeIfAbsent(peer, a -> new ArrayList<>());
+                    remoteChunksOfPeer.add(p_chunks[i + p_offset]);
+                } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
+                    p_chunks[i + p_offset].setState(ChunkState.DOES_NOT_EXIST);
+                } else if (location.getState() == LookupState.DATA_LOST) {
+                    p_chunks[i + p_offset].setState(ChunkState.DATA_LOST);
+                } else if (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+                    p_chunks[i + p_offset].setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
+                }
+            }
+        }
+
+        m_chunk.invalidateNearCaches(p_chunks, p_offset, p_count);
+
+        // local put, migrated data to current node
+        ArrayList<DataStructure> migratedChunks = p_remoteChunksByPeers.remove(m_boot.getNodeID());
+        if (migratedChunks != null) {
+            DataStructure[] chunks = migratedChunks.toArray(new DataStructure[migratedChunks.size()]);
+            try {
+                m_memoryManager.lockAccess();
+                // state of chunks which failed set by memory manager
+                chunksPut += m_memoryManager.put(chunks, 0, chunks.length);
+            } finally {
+                m_memoryManager.unlockAccess();
+            }
+
+            m_chunk.invalidateNearCaches(chunks, 0, chunks.length);
+        }
+
+        return chunksPut;
+    }
+
+    /**
+     * Evaluate the response of a PutRequest and set the states of the chunks
+     *
+     * @param p_chunksToPut
+     *         Chunks of the request
+     * @param p_request
+     *         The request sent
+     * @param p_failed
+     *         True if sending the request or receiving the response failed
+     * @return Number of chunks put successfully
+     */
+    private int evaluatePutResponse(final ArrayList<DataStructure> p_chunksToPut, final PutRequest p_request,
+            final boolean p_failed) {
+        int chunksPut = 0;
+
+        if (p_failed) {
+            if (m_backup.isActive()) {
+                for (DataStructure ds : p_chunksToPut) {
+                    ds.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
+                    m_lookup.invalidate(ds.getID());
+                }
+            } else {
+                for (DataStructure ds : p_chunksToPut) {
+                    ds.setState(ChunkState.DATA_LOST);
+                    m_lookup.invalidate(ds.getID());
+                }
+            }
+
+            return chunksPut;
+        }
+
+        PutResponse response = p_request.getResponse(PutResponse.class);
+
+        byte[] statusCodes = response.getStatusCodes();
+
+        // try short cut, i.e. all puts successful
+        if (statusCodes.length == 1 && statusCodes[0] == ChunkState.OK.ordinal()) {
+            chunksPut += p_chunksToPut.size();
+
+            for (DataStructure ds : p_chunksToPut) {
+                ds.setState(ChunkState.OK);
+            }
+        } else {
+            for (int i = 0; i < statusCodes.length; i++) {
+                p_chunksToPut.get(i).setState(ChunkState.values()[statusCodes[i]]);
+                if (statusCodes[i] == ChunkState.OK.ordinal()) {
+                    chunksPut++;
+                } else {
+                    m_lookup.invalidateRange(p_chunksToPut.get(i).getID());
+                }
+            }
+        }
+
+        return chunksPut;
+    }
+
+    /**
+     * Send the chunks put locally to their backup peers
+     *
+     * @param p_chunksByBackupRange
+     *         Chunks sorted by backup range
+     */
+    private void logChunksToBackup(final Map<BackupRange, ArrayList<DataStructure>> p_chunksByBackupRange) {
+        if (m_backup.isActive()) {
+            BackupRange backupRange;
+            BackupPeer[] backupPeers;
+            DataStructure[] dataStructures;
+            for (Entry<BackupRange, ArrayList<DataStructure>> entry : p_chunksByBackupRange.entrySet()) {
+                backupRange = entry.getKey();
+                dataStructures = entry.getValue().toArray(new DataStructure[entry.getValue().size()]);
+
+                backupPeers = backupRange.getBackupPeers();
+                for (BackupPeer backupPeer : backupPeers) {
+                    if (backupPeer != null) {
+                        // #if LOGGER == TRACE
+                        LOGGER.trace("Logging %d chunks to 0x%X", dataStructures.length, backupPeer.getNodeID());
+                        // #endif /* LOGGER == TRACE */
+
+                        try {
+                            m_network.sendMessage(new LogMessage(backupPeer.getNodeID(), backupRange.getRangeID(),
+                                    dataStructures));
+                        } catch (final NetworkException ignore) {
+
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get all local chunks with a single batch and sort the remaining ones by the peers storing them
+     *
+     * @param p_chunks
+     *         Chunks to read the stored data into. Null values or invalid IDs are ignored.
+     * @param p_offset
+     *         Start offset within the array.
+     * @param p_count
+     *         Number of items to get.
+     * @param p_remoteChunksByPeers
+     *         Map to add the remote chunks to
+     * @return Number of chunks read locally
+     */
+    private int getLocalAndSortRemote(final DataStructure[] p_chunks, final int p_offset, final int p_count,
+            final Map<Short, ArrayList<DataStructure>> p_remoteChunksByPeers) {
+        int chunksGot;
+        int nearCacheHits = 0;
+        int nearCacheMisses = 0;
+
+        try {
+            m_memoryManager.lockAccess();
+
+            // try to get locally with a single batch, marks invalid and non existing chunks
+            chunksGot = m_memoryManager.get(p_chunks, p_offset, p_count);
+        } finally {
+            m_memoryManager.unlockAccess();
+        }
+
+        // look up remote chunks without holding the access lock, waiting for a range in recovery must not
+        // block the memory manager
+        int remoteCount = 0;
+        for (int i = 0; i < p_count; i++) {
+            if (isRemoteAfterLocalGet(p_chunks[i + p_offset])) {
+                remoteCount++;
+            }
+        }
+
+        if (remoteCount == 0) {
+            return chunksGot;
+        }
+
+        // resolve the locations of all remote chunks at once, cache misses cost one request per superpeer
+        // instead of one per chunk
+        long[] remoteChunkIDs = new long[remoteCount];
+        int remoteIndex = 0;
+        for (int i = 0; i < p_count; i++) {
+            if (isRemoteAfterLocalGet(p_chunks[i + p_offset])) {
+                remoteChunkIDs[remoteIndex++] = p_chunks[i + p_offset].getID();
+            }
+        }
+
+        LookupRange[] locations = m_lookup.waitForLookupRanges(remoteChunkIDs);
+
+        remoteIndex = 0;
+        for (int i = 0; i < p_count; i++) {
+            // filter null values and chunks got locally
+            if (!isRemoteAfterLocalGet(p_chunks[i + p_offset])) {
+                continue;
+            }
+
+            // remote or migrated, sort by peers
+            LookupRange location = locations[remoteIndex++];
+
+            if (location.getState() == LookupState.OK) {
+                short peer = location.getPrimaryPeer();
+
+                if (m_nearCache != null && peer != m_boot.getNodeID()) {
+                    if (m_nearCache.get(p_chunks[i + p_offset])) {
+                        p_chunks[i + p_offset].setState(ChunkState.OK);
+                        chunksGot++;
+                        nearCacheHits++;
+                        continue;
+                    }
+
+                    nearCacheMisses++;
+                }
+
+                // currently undefined because we still have to get it from remote
+                p_chunks[i + p_offset].setState(ChunkState.UNDEFINED);
+
+                ArrayList<DataStructure> remoteChunksOfPeer =
+                        p_remoteChunksByPeers.computeIfAbsent(peer, a -> new ArrayList<>());
+                remoteChunksOfPeer.add(p_chunks[i + p_offset]);
+            } else if (location.getState() == LookupState.DOES_NOT_EXIST) {
+                p_chunks[i + p_offset].setState(ChunkState.DOES_NOT_EXIST);
+            } else if (location.getState() == LookupState.DATA_LOST) {
+                p_chunks[i + p_offset].setState(ChunkState.DATA_LOST);
+            } else if (location.getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+                p_chunks[i + p_offset].setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
+            }
+        }
+
+        // #ifdef STATISTICS
+        if (m_nearCache != null) {
+            SOP_NEAR_CACHE_HIT.add(nearCacheHits);
+            SOP_NEAR_CACHE_MISS.add(nearCacheMisses);
+        }
+        // #endif /* STATISTICS */
+
+        // local get, migrated data to current node
+        ArrayList<DataStructure> migratedChunks = p_remoteChunksByPeers.remove(m_boot.getNodeID());
+        if (migratedChunks != null) {
+            try {
+                m_memoryManager.lockAccess();
+                chunksGot += m_memoryManager.get(migratedChunks.toArray(new DataStructure[migratedChunks.size()]), 0,
+                        migratedChunks.size());
+            } finally {
+                m_memoryManager.unlockAccess();
+            }
+        }
+
+        return chunksGot;
+    }
+
+    /**
+     * Check if a chunk was not found locally by a batch get and has to be looked up
+     *
+     * @param p_chunk
+     *         Chunk of the batch (might be null)
+     * @return True if the chunk is remote or migrated
+     */
+    private static boolean isRemoteAfterLocalGet(final DataStructure p_chunk) {
+        return p_chunk != null && p_chunk.getState() != ChunkState.OK && p_chunk.getState() != ChunkState.INVALID_ID;
+    }
+
+    /**
+     * Evaluate the response of a GetRequest. The data of the chunks was already written to the data structures
+     * when the response was received.
+     *
+     * @param p_remoteChunks
+     *         Chunks of the request
+     * @param p_request
+     *         The request sent
+     * @param p_failed
+     *         True if sending the request or receiving the response failed
+     * @param p_nearCacheEpoch
+     *         Epoch of the near cache read before sending the request
+     * @return Number of chunks read successfully
+     */
+    private int evaluateGetResponse(final ArrayList<DataStructure> p_remoteChunks, final GetRequest p_request,
+            final boolean p_failed, final long p_nearCacheEpoch) {
+        if (p_failed) {
+            if (m_backup.isActive()) {
+                for (DataStructure chunk : p_remoteChunks) {
+                    chunk.setState(ChunkState.DATA_TEMPORARY_UNAVAILABLE);
+                    m_lookup.invalidate(chunk.getID());
+                }
+            } else {
+                for (DataStructure chunk : p_remoteChunks) {
+                    chunk.setState(ChunkState.DATA_LOST);
+                    m_lookup.invalidate(chunk.getID());
+                }
+            }
+
+            return 0;
+        }
+
+        GetResponse response = p_request.getResponse(GetResponse.class);
+
+        if (response.getTotalSuccessful() != p_remoteChunks.size()) {
+            for (DataStructure chunk : p_remoteChunks) {
+                if (chunk.getState() != ChunkState.OK) {
+                    m_lookup.invalidateRange(chunk.getID());
+                }
+            }
+        }
+
+        if (m_nearCache != null) {
+            for (DataStructure chunk : p_remoteChunks) {
+                if (chunk.getState() == ChunkState.OK) {
+                    m_nearCache.put(chunk, p_nearCacheEpoch);
+                }
+            }
+        }
+
+        return response.getTotalSuccessful();
+    }
+
     /**
      * Handles an incoming GetRequest
      *
@@ -1183,34 +1742,36 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
      */
     private void incomingGetRequest(final GetRequest p_request) {
         long[] chunkIDs = p_request.getChunkIDs();
-        byte[][] data = new byte[chunkIDs.length][];
-        int numChunksGot = 0;
+        LockedChunks chunks = null;
 
         // #ifdef STATISTICS
         SOP_INCOMING_GET.start(p_request.getChunkIDs().length);
         // #endif /* STATISTICS */
 
-        try {
-            m_memoryManager.lockAccess();
-            for (int i = 0; i < data.length; i++) {
-                // also does exist check
-                data[i] = m_memoryManager.get(chunkIDs[i]);
+        // register the reader before reading: any put from now on notifies the reader
+        if (p_request.isNearCache()) {
+            m_chunk.registerNearCacheReader(p_request.getSource(), chunkIDs);
+        }
 
-                if (data[i] != null) {
-                    numChunksGot++;
-                }
-            }
+        // copy the payloads to a single buffer under the locks (instead of a byte[] per chunk), sending might block
+        m_memoryManager.lockAccess();
+        try {
+            // also does exist check
+            chunks = m_memoryManager.lockChunks(chunkIDs);
+            chunks.detach();
         } finally {
+            if (chunks != null) {
+                m_memoryManager.unlockChunks(chunks);
+            }
+
             m_memoryManager.unlockAccess();
         }
 
-        GetResponse response = new GetResponse(p_request, data, numChunksGot);
-
         try {
-            m_network.sendMessage(response);
+            m_network.sendMessage(new GetResponse(p_request, chunks));
         } catch (final NetworkException e) {
             // #if LOGGER >= ERROR
-            LOGGER.error("Sending GetResponse for %d chunks failed: %s", numChunksGot, e);
+            LOGGER.error("Sending GetResponse for %d chunks failed: %s", chunks.getTotalSuccessful(), e);
             // #endif /* LOGGER >= ERROR */
         }
 
@@ -1227,7 +1788,7 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
      */
     private void incomingPutRequest(final PutRequest p_request) {
         long[] chunkIDs = p_request.getChunkIDs();
-        byte[][] data = p_request.getChunkData();
+        byte[] data = p_request.getChunkData();
 
         byte[] statusChunks = new byte[chunkIDs.length];
         boolean allSuccessful = true;
@@ -1241,14 +1802,18 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         try {
             m_memoryManager.lockAccess();
             for (int i = 0; i < chunkIDs.length; i++) {
-                if (!m_memoryManager.put(chunkIDs[i], data[i])) {
-                    // does not exist (anymore)
-                    statusChunks[i] = (byte) ChunkState.DOES_NOT_EXIST.ordinal();
+                int offset = p_request.getChunkOffset(i);
+                int size = p_request.getChunkSize(i);
+
+                // the data of all chunks is stored in one buffer: the range is checked against the size of the
+                // stored chunk, i.e. an oversized chunk is rejected instead of overwriting the next block
+                ChunkState state = m_memoryManager.putRange(chunkIDs[i], 0, data, offset, size);
+                statusChunks[i] = (byte) state.ordinal();
 
+                if (state != ChunkState.OK) {
+                    // does not exist (anymore) or does not fit
                     allSuccessful = false;
-                } else {
-                    // put successful
-                    statusChunks[i] = (byte) ChunkState.OK.ordinal();
+                    continue;
                 }
 
                 if (m_backup.isActive()) {
@@ -1256,13 +1821,16 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
                     BackupRange backupRange = m_backup.getBackupRange(chunkIDs[i]);
                     ArrayList<DataStructure> remoteChunksOfBackupRange =
                             remoteChunksByBackupRange.computeIfAbsent(backupRange, k -> new ArrayList<>());
-                    remoteChunksOfBackupRange.add(new DSByteArray(chunkIDs[i], data[i]));
+                    remoteChunksOfBackupRange.add(
+                            new DSByteArray(chunkIDs[i], Arrays.copyOfRange(data, offset, offset + size)));
                 }
             }
         } finally {
             m_memoryManager.unlockAccess();
         }
 
+        m_chunk.invalidateNearCaches(chunkIDs);
+
         // unlock chunks
         if (p_request.getUnlockOperation() != ChunkLockOperation.NO_LOCK_OPERATION) {
             boolean writeLock = false;
@@ -1324,6 +1892,18 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         // #endif /* STATISTICS */
     }
 
+    /**
+     * Handles an incoming NearCacheInvalidateMessage
+     *
+     * @param p_message
+     *         the NearCacheInvalidateMessage
+     */
+    private void incomingNearCacheInvalidateMessage(final NearCacheInvalidateMessage p_message) {
+        if (m_nearCache != null) {
+            m_nearCache.invalidate(p_message.getChunkIDs());
+        }
+    }
+
     /**
      * Handle incoming create requests.
      *
@@ -1341,25 +1921,25 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
 
         if (sizes.length == 1) {
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkIDs[0] = m_memoryManager.create(sizes[0]);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunk(chunkIDs[0], sizes[0]);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
         } else {
             try {
-                m_memoryManager.lockManage();
+                lockCreate();
                 chunkIDs = m_memoryManager.createMultiSizes(sizes);
 
                 // Initialize a new backup range every e.g. 256 MB and inform superpeer
                 // Must be locked together with create call to memory manager
                 m_backup.registerChunks(chunkIDs, sizes);
             } finally {
-                m_memoryManager.unlockManage();
+                unlockCreate();
             }
 
             if (chunkIDs == null) {
@@ -1388,6 +1968,91 @@ public class ChunkService extends AbstractDXRAMService<ChunkServiceConfig> imple
         // #endif /* STATISTICS */
     }
 
+    /**
+     * Handle incoming create and put requests.
+     *
+     * @param p_request
+     *         Request to handle
+     */
+    private void incomingCreateAndPutRequest(final CreateAndPutRequest p_request) {
+        // #ifdef STATISTICS
+        SOP_INCOMING_CREATE.start(p_request.getSizes().length);
+        // #endif /* STATISTICS */
+
+        int[] sizes = p_request.getSizes();
+        byte[] data = p_request.getChunkData();
+        long[] chunkIDs;
+
+        try {
+            lockCreate();
+            chunkIDs = m_memoryManager.createMultiSizes(sizes);
+
+            if (chunkIDs != null) {
+                // Initialize a new backup range every e.g. 256 MB and inform superpeer
+                // Must be locked together with create call to memory manager
+                m_backup.registerChunks(chunkIDs, sizes);
+
+                // the memory is locked for accessing in any case
+                for (int i = 0; i < chunkIDs.length; i++) {
+                    if (m_memoryManager.putRange(chunkIDs[i], 0, data, p_request.getChunkOffset(i), sizes[i]) !=
+                            ChunkState.OK) {
+                        // #if LOGGER >= ERROR
+                        LOGGER.error("Putting data of created chunk 0x%X failed", chunkIDs[i]);
+                        // #endif /* LOGGER >= ERROR */
+
+                        // don't hand out a chunk with undefined content
+                        if (m_memoryManager.remove(chunkIDs[i], false) > 0) {
+                            m_backup.deregisterChunk(chunkIDs[i], sizes[i]);
+                        }
+
+                        chunkIDs[i] = ChunkID.INVALID_ID;
+                    }
+                }
+            }
+        } finally {
+            unlockCreate();
+        }
+
+        if (chunkIDs == null) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Multi create chunks failed");
+            // #endif /* LOGGER >= ERROR */
+
+            chunkIDs = new long[sizes.length];
+            Arrays.fill(chunkIDs, ChunkID.INVALID_ID);
+        }
+
+        CreateAndPutResponse response = new CreateAndPutResponse(p_request, chunkIDs);
+        try {
+            m_network.sendMessage(response);
+        } catch (final NetworkException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Sending chunk create and put respond to request %s failed: %s", p_request, e);
+            // #endif /* LOGGER >= ERROR */
+        }
+
+        // Send backups
+        if (m_backup.isActive()) {
+            Map<BackupRange, ArrayList<DataStructure>> chunksByBackupRange = new TreeMap<>();
+
+            for (int i = 0; i < chunkIDs.length; i++) {
+                if (chunkIDs[i] != ChunkID.INVALID_ID) {
+                    int offset = p_request.getChunkOffset(i);
+
+                    chunksByBackupRange.computeIfAbsent(m_backup.getBackupRange(chunkIDs[i]),
+                            a -> new ArrayList<>()).add(
+                            new DSByteArray(chunkIDs[i], Arrays.copyOfRange(data, offset, offset + sizes[i])));
+                }
+            }
+
+            logChunksToBackup(chunksByBackupRange);
+        }
+
+        // #ifdef STATISTICS
+        SOP_INCOMING_CREATE.stop();
+        // #endif /* STATISTICS */
+    }
+
     /**
      * Handle incoming status requests.
      *
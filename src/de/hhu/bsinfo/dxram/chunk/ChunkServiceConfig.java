@@ -1,7 +1,11 @@
 package de.hhu.bsinfo.dxram.chunk;
 
+import com.google.gson.annotations.Expose;
+
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMServiceConfig;
+import de.hhu.bsinfo.dxutils.unit.StorageUnit;
+import de.hhu.bsinfo.dxutils.unit.TimeUnit;
 
 /**
  * Config for the ChunkService
@@ -9,6 +13,12 @@ import de.hhu.bsinfo.dxram.engine.AbstractDXRAMServiceConfig;
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 24.05.2017
  */
 public class ChunkServiceConfig extends AbstractDXRAMServiceConfig {
+    @Expose
+    private StorageUnit m_nearCacheSize = new StorageUnit(0, StorageUnit.MB);
+
+    @Expose
+    private TimeUnit m_nearCacheTTL = new TimeUnit(1, TimeUnit.SEC);
+
     /**
      * Constructor
      */
@@ -16,8 +26,29 @@ public class ChunkServiceConfig extends AbstractDXRAMServiceConfig {
         super(ChunkService.class, false, true);
     }
 
+    /**
+     * Max amount of remote chunk data cached on this peer (near cache), 0 to disable the near cache
+     */
+    public StorageUnit getNearCacheSize() {
+        return m_nearCacheSize;
+    }
+
+    /**
+     * Max time a remote chunk is served from the near cache (if no invalidation arrives before)
+     */
+    public TimeUnit getNearCacheTTL() {
+        return m_nearCacheTTL;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
+        if (m_nearCacheSize.getBytes() < 0) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%s) for m_nearCacheSize", m_nearCacheSize);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
         return true;
     }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.hhu.bsinfo.dxram.data.DataStructure;
+import de.hhu.bsinfo.dxutils.serialization.ByteBufferImExporter;
+
+/**
+ * Peer-local read cache for remote chunks. Copies of the chunks' data are kept in least recently used order,
+ * bounded by the total size of the cached data. Every entry expires after a fixed time to live.
+ * To avoid caching data which was invalidated while a get was in flight, every invalidation increments an epoch.
+ * A get reads the epoch before sending its request and its result is only cached if the epoch is still unchanged
+ * when the response arrives.
+ */
+final class NearCache {
+    private final long m_maxSize;
+    private final long m_ttlNs;
+
+    private final LinkedHashMap<Long, Entry> m_entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long m_size;
+    private volatile long m_epoch;
+
+    /**
+     * Constructor
+     *
+     * @param p_maxSize
+     *         Max total size of the cached data in bytes
+     * @param p_ttlNs
+     *         Time to live of an entry in ns
+     */
+    NearCache(final long p_maxSize, final long p_ttlNs) {
+        m_maxSize = p_maxSize;
+        m_ttlNs = p_ttlNs;
+    }
+
+    /**
+     * Get the current invalidation epoch, call before sending a request for chunks to cache
+     *
+     * @return Current epoch
+     */
+    long getEpoch() {
+        return m_epoch;
+    }
+
+    /**
+     * Read a chunk from the cache into a data structure
+     *
+     * @param p_dataStructure
+     *         Data structure with the ID of the chunk to read
+     * @return True if the chunk was cached and read, false otherwise
+     */
+    boolean get(final DataStructure p_dataStructure) {
+        byte[] data;
+
+        synchronized (this) {
+            Entry entry = m_entries.get(p_dataStructure.getID());
+
+            if (entry == null) {
+                return false;
+            }
+
+            if (System.nanoTime() - entry.m_expires > 0) {
+                remove(p_dataStructure.getID());
+                return false;
+            }
+
+            data = entry.m_data;
+        }
+
+        // cached data is never modified, import without holding the lock
+        new ByteBufferImExporter(ByteBuffer.wrap(data)).importObject(p_dataStructure);
+
+        return true;
+    }
+
+    /**
+     * Cache a copy of a chunk's data
+     *
+     * @param p_dataStructure
+     *         Data structure with the chunk's data
+     * @param p_epoch
+     *         Epoch read before requesting the chunk (see getEpoch())
+     */
+    void put(final DataStructure p_dataStructure, final long p_epoch) {
+        int size = p_dataStructure.sizeofObject();
+
+        if (size > m_maxSize || p_epoch != m_epoch) {
+            return;
+        }
+
+        byte[] data = new byte[size];
+        new ByteBufferImExporter(ByteBuffer.wrap(data)).exportObject(p_dataStructure);
+
+        synchronized (this) {
+            // re-check, invalidations increment the epoch while holding the lock
+            if (p_epoch != m_epoch) {
+                return;
+            }
+
+            remove(p_dataStructure.getID());
+
+            m_entries.put(p_dataStructure.getID(), new Entry(data, System.nanoTime() + m_ttlNs));
+            m_size += size;
+
+            // evict least recently used entries
+            Iterator<Map.Entry<Long, Entry>> it = m_entries.entrySet().iterator();
+            while (m_size > m_maxSize && it.hasNext()) {
+                m_size -= it.next().getValue().m_data.length;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Invalidate cached chunks
+     *
+     * @param p_chunkIDs
+     *         IDs of the chunks to invalidate
+     */
+    synchronized void invalidate(final long... p_chunkIDs) {
+        m_epoch++;
+
+        for (long chunkID : p_chunkIDs) {
+            remove(chunkID);
+        }
+    }
+
+    /**
+     * Remove an entry (caller has to hold the lock)
+     *
+     * @param p_chunkID
+     *         ID of the chunk
+     */
+    private void remove(final long p_chunkID) {
+        Entry entry = m_entries.remove(p_chunkID);
+
+        if (entry != null) {
+            m_size -= entry.m_data.length;
+        }
+    }
+
+    /**
+     * Cached copy of a chunk
+     */
+    private static final class Entry {
+        private final byte[] m_data;
+        private final long m_expires;
+
+        /**
+         * Constructor
+         *
+         * @param p_data
+         *         Copy of the chunk's data
+         * @param p_expires
+         *         Point in time (System.nanoTime()) the entry expires
+         */
+        private Entry(final byte[] p_data, final long p_expires) {
+            m_data = p_data;
+            m_expires = p_expires;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxram.chunk.messages.PutMessage;
+import de.hhu.bsinfo.dxram.data.ChunkLockOperation;
+import de.hhu.bsinfo.dxram.data.DSByteArray;
+import de.hhu.bsinfo.dxram.data.DataStructure;
+import de.hhu.bsinfo.dxram.lookup.LookupComponent;
+import de.hhu.bsinfo.dxram.net.NetworkComponent;
+import de.hhu.bsinfo.dxutils.NodeID;
+import de.hhu.bsinfo.dxutils.serialization.ByteBufferImExporter;
+
+/**
+ * Write combining for async puts to remote peers. Puts are buffered per peer and sent as a single PutMessage
+ * once the buffered data exceeds the buffer size or the oldest buffered put exceeds the time window.
+ * Repeated puts to the same chunk are collapsed (last one wins). The data is copied when buffering the put,
+ * i.e. callers can modify their data structures right after the put returned.
+ * Any other write or remove sent to a peer flushes the peer's buffer first (see ChunkComponent.flushWriteCombiner()).
+ */
+final class WriteCombiner extends Thread {
+    private static final Logger LOGGER = LogManager.getFormatterLogger(WriteCombiner.class.getSimpleName());
+
+    private final NetworkComponent m_network;
+    private final LookupComponent m_lookup;
+    private final long m_windowNs;
+    private final int m_bufferSize;
+
+    private final ConcurrentHashMap<Short, PeerBuffer> m_buffers = new ConcurrentHashMap<>();
+    private volatile boolean m_running = true;
+
+    /**
+     * Constructor
+     *
+     * @param p_network
+     *         NetworkComponent to send the combined puts
+     * @param p_lookup
+     *         LookupComponent to invalidate the locations of chunks that could not be sent
+     * @param p_windowNs
+     *         Max time in ns a put is buffered
+     * @param p_bufferSize
+     *         Max amount of data buffered per peer
+     */
+    WriteCombiner(final NetworkComponent p_network, final LookupComponent p_lookup, final long p_windowNs,
+            final int p_bufferSize) {
+        super("WriteCombiner");
+        setDaemon(true);
+
+        m_network = p_network;
+        m_lookup = p_lookup;
+        m_windowNs = p_windowNs;
+        m_bufferSize = p_bufferSize;
+    }
+
+    /**
+     * Buffer a put to a remote peer
+     *
+     * @param p_peer
+     *         Peer storing the chunk
+     * @param p_dataStructure
+     *         Data structure to put
+     */
+    void put(final short p_peer, final DataStructure p_dataStructure) {
+        byte[] data = new byte[p_dataStructure.sizeofObject()];
+        new ByteBufferImExporter(ByteBuffer.wrap(data)).exportObject(p_dataStructure);
+
+        m_buffers.computeIfAbsent(p_peer, PeerBuffer::new).add(new DSByteArray(p_dataStructure.getID(), data));
+    }
+
+    /**
+     * Send the buffered puts to a peer now, e.g. before sending a put to the peer which can't be combined.
+     *
+     * @param p_peer
+     *         Peer to flush the buffer of
+     */
+    void flush(final short p_peer) {
+        PeerBuffer buffer = m_buffers.get(p_peer);
+
+        if (buffer != null) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * Send the buffered puts to all peers now
+     */
+    void flushAll() {
+        for (PeerBuffer buffer : m_buffers.values()) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * Flush all buffers and stop the thread
+     */
+    void shutdown() {
+        m_running = false;
+        LockSupport.unpark(this);
+
+        try {
+            join();
+        } catch (final InterruptedException ignored) {
+        }
+
+        flushAll();
+    }
+
+    @Override
+    public void run() {
+        while (m_running) {
+            long now = System.nanoTime();
+            long sleepNs = m_windowNs;
+
+            for (PeerBuffer buffer : m_buffers.values()) {
+                long remaining = buffer.flushIfExpired(now);
+
+                if (remaining < sleepNs) {
+                    sleepNs = remaining;
+                }
+            }
+
+            LockSupport.parkNanos(this, sleepNs);
+        }
+    }
+
+    /**
+     * Buffered puts to a single peer
+     */
+    private final class PeerBuffer {
+        private final short m_peer;
+        private LinkedHashMap<Long, DSByteArray> m_chunks = new LinkedHashMap<>();
+        private int m_size;
+        private long m_firstPutTime;
+
+        /**
+         * Constructor
+         *
+         * @param p_peer
+         *         Peer to send the buffered puts to
+         */
+        private PeerBuffer(final short p_peer) {
+            m_peer = p_peer;
+        }
+
+        /**
+         * Add a put, sends the buffer if it's full
+         *
+         * @param p_chunk
+         *         Copy of the data to put
+         */
+        private synchronized void add(final DSByteArray p_chunk) {
+            if (m_chunks.isEmpty()) {
+                m_firstPutTime = System.nanoTime();
+            }
+
+            DSByteArray previous = m_chunks.put(p_chunk.getID(), p_chunk);
+            if (previous != null) {
+                m_size -= previous.getData().length;
+            }
+
+            m_size += p_chunk.getData().length;
+
+            if (m_size >= m_bufferSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Send the buffer if the oldest put exceeded the time window
+         *
+         * @param p_now
+         *         Current time (System.nanoTime())
+         * @return Time in ns until the buffer has to be sent
+         */
+        private synchronized long flushIfExpired(final long p_now) {
+            if (m_chunks.isEmpty()) {
+                return m_windowNs;
+            }
+
+            long remaining = m_firstPutTime + m_windowNs - p_now;
+            if (remaining <= 0) {
+                flush();
+                return m_windowNs;
+            }
+
+            return remaining;
+        }
+
+        /**
+         * Send all buffered puts as a single message. Sending while holding the lock keeps the order of
+         * subsequent flushes to the same peer.
+         */
+        private synchronized void flush() {
+            if (m_chunks.isEmpty()) {
+                return;
+            }
+
+            DataStructure[] chunks = m_chunks.values().toArray(new DataStructure[m_chunks.size()]);
+            m_chunks = new LinkedHashMap<>();
+            m_size = 0;
+
+            try {
+                m_network.sendMessage(new PutMessage(m_peer, ChunkLockOperation.NO_LOCK_OPERATION, chunks));
+            } catch (final NetworkException e) {
+                // #if LOGGER >= ERROR
+                LOGGER.error("Sending combined put message to peer %s failed: %s", NodeID.toHexString(m_peer), e);
+                // #endif /* LOGGER >= ERROR */
+
+                for (DataStructure ds : chunks) {
+                    m_lookup.invalidate(ds.getID());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.annotations.Expose;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.hhu.bsinfo.dxram.chunk.ChunkAnonService;
+import de.hhu.bsinfo.dxram.chunk.ChunkRemoveService;
+import de.hhu.bsinfo.dxram.chunk.ChunkService;
+import de.hhu.bsinfo.dxram.data.ChunkAnon;
+import de.hhu.bsinfo.dxram.data.ChunkIDRanges;
+import de.hhu.bsinfo.dxram.data.ChunkLockOperation;
+import de.hhu.bsinfo.dxram.data.ChunkState;
+import de.hhu.bsinfo.dxram.ms.Signal;
+import de.hhu.bsinfo.dxram.ms.Task;
+import de.hhu.bsinfo.dxram.ms.TaskContext;
+import de.hhu.bsinfo.dxutils.eval.Stopwatch;
+import de.hhu.bsinfo.dxutils.serialization.Exporter;
+import de.hhu.bsinfo.dxutils.serialization.Importer;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Task to measure the lock contention of the local memory: Multiple threads get (and put) random local chunks
+ * while further threads continuously create and remove chunks on the same node. Compare the access throughput
+ * with and without manage threads (m_numManageThreads = 0) to see how much management tasks stall accesses.
+ */
+public class ChunkLockContentionTask implements Task {
+    private static final Logger LOGGER = LogManager.getFormatterLogger(ChunkLockContentionTask.class.getSimpleName());
+
+    @Expose
+    private int m_numThreads = 1;
+    @Expose
+    private long m_opCount = 100000;
+    @Expose
+    private int m_chunkBatch = 10;
+    @Expose
+    private boolean m_doPut = false;
+    @Expose
+    private int m_numManageThreads = 1;
+    @Expose
+    private int m_manageBatch = 1000;
+    @Expose
+    private int m_manageChunkSize = 64;
+
+    @Override
+    public int execute(final TaskContext p_ctx) {
+        ChunkService chunkService = p_ctx.getDXRAMServiceAccessor().getService(ChunkService.class);
+        ChunkAnonService chunkAnonService = p_ctx.getDXRAMServiceAccessor().getService(ChunkAnonService.class);
+        ChunkRemoveService chunkRemoveService = p_ctx.getDXRAMServiceAccessor().getService(ChunkRemoveService.class);
+
+        ChunkIDRanges allChunkRanges = ChunkTaskUtils.getChunkRangesForTestPattern(ChunkTaskUtils.PATTERN_LOCAL_ONLY,
+                p_ctx, chunkService);
+
+        if (allChunkRanges.isEmpty()) {
+            System.out.println("No local chunks available, create chunks before running this task");
+            return -1;
+        }
+
+        long[] chunkCountsPerThread = ChunkTaskUtils.distributeChunkCountsToThreads(
+                allChunkRanges.getTotalChunkIDsOfRanges(), m_numThreads);
+        ChunkIDRanges[] chunkRangesPerThread = ChunkTaskUtils.distributeChunkRangesToThreads(chunkCountsPerThread,
+                allChunkRanges);
+        long[] operationsPerThread = ChunkTaskUtils.distributeChunkCountsToThreads(m_opCount, m_numThreads);
+
+        Thread[] threads = new Thread[m_numThreads];
+        Stopwatch[] time = new Stopwatch[m_numThreads];
+        for (int i = 0; i < time.length; i++) {
+            time[i] = new Stopwatch();
+        }
+
+        Thread[] manageThreads = new Thread[m_numManageThreads];
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong manageOps = new AtomicLong(0);
+
+        System.out.printf("Accessing (put %d) %d random local chunks in batches of %d chunk(s) with %d thread(s), " +
+                        "%d manage thread(s) creating/removing %d chunk(s) of %d bytes per batch...\n", m_doPut ? 1 : 0,
+                m_opCount, m_chunkBatch, m_numThreads, m_numManageThreads, m_manageBatch, m_manageChunkSize);
+
+        for (int i = 0; i < manageThreads.length; i++) {
+            manageThreads[i] = new Thread(() -> {
+                while (running.get()) {
+                    long[] chunkIds = chunkService.create(m_manageChunkSize, m_manageBatch);
+
+                    if (chunkIds == null) {
+                        LOGGER.error("Creating chunks failed");
+                        break;
+                    }
+
+                    if (chunkRemoveService.remove(chunkIds) != chunkIds.length) {
+                        LOGGER.error("Removing chunks failed");
+                    }
+
+                    manageOps.addAndGet(chunkIds.length * 2);
+                }
+            });
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            int threadIdx = i;
+            threads[i] = new Thread(() -> {
+                long[] chunkIds = new long[m_chunkBatch];
+                ChunkAnon[] chunks = new ChunkAnon[m_chunkBatch];
+                long operations = operationsPerThread[threadIdx];
+                ChunkIDRanges chunkRanges = chunkRangesPerThread[threadIdx];
+
+                // happens if there are less chunks than threads
+                if (chunkRanges.isEmpty()) {
+                    return;
+                }
+
+                while (operations > 0) {
+                    int batchCnt = 0;
+
+                    while (operations > 0 && batchCnt < chunkIds.length) {
+                        chunkIds[batchCnt] = chunkRanges.getRandomChunkIdOfRanges();
+
+                        operations--;
+                        batchCnt++;
+                    }
+
+                    // the last batch might be partial, don't access the stale IDs of the previous batch
+                    long[] batchIds = batchCnt == chunkIds.length ? chunkIds : Arrays.copyOf(chunkIds, batchCnt);
+
+                    time[threadIdx].start();
+                    int ret = chunkAnonService.getLocal(chunks, batchIds);
+
+                    if (m_doPut && ret == batchCnt) {
+                        ret = chunkAnonService.put(ChunkLockOperation.NO_LOCK_OPERATION, chunks, 0, batchCnt);
+                    }
+                    time[threadIdx].stopAndAccumulate();
+
+                    if (ret != batchCnt) {
+                        for (int j = 0; j < batchCnt; j++) {
+                            if (chunks[j] != null && chunks[j].getState() != ChunkState.OK) {
+                                LOGGER.error("Error accessing chunk %s\n", chunks[j]);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : manageThreads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        boolean threadJoinFailed = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                LOGGER.error("Joining thread failed", e);
+                threadJoinFailed = true;
+            }
+        }
+
+        running.set(false);
+
+        for (Thread thread : manageThreads) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                LOGGER.error("Joining manage thread failed", e);
+                threadJoinFailed = true;
+            }
+        }
+
+        if (threadJoinFailed) {
+            return -2;
+        }
+
+        System.out.print("Times per thread:");
+        for (int i = 0; i < m_numThreads; i++) {
+            System.out.printf("\nThread-%d: %f sec", i, time[i].getAccumulatedTimeAsUnit().getSecDouble());
+        }
+        System.out.println();
+
+        // total time is measured by the slowest thread
+        long totalTime = 0;
+        for (int i = 0; i < m_numThreads; i++) {
+            long t = time[i].getAccumulatedTime();
+            if (t > totalTime) {
+                totalTime = t;
+            }
+        }
+
+        System.out.printf("Total time: %f sec\n", totalTime / 1000.0 / 1000.0 / 1000.0);
+        System.out.printf("Access throughput: %f chunks/sec\n",
+                1000.0 * 1000.0 * 1000.0 / ((double) totalTime / m_opCount));
+        System.out.printf("Concurrent manage operations (create + remove): %d\n", manageOps.get());
+
+        return 0;
+    }
+
+    @Override
+    public void handleSignal(final Signal p_signal) {
+
+    }
+
+    @Override
+    public void exportObject(final Exporter p_exporter) {
+        p_exporter.writeInt(m_numThreads);
+        p_exporter.writeLong(m_opCount);
+        p_exporter.writeInt(m_chunkBatch);
+        p_exporter.writeBoolean(m_doPut);
+        p_exporter.writeInt(m_numManageThreads);
+        p_exporter.writeInt(m_manageBatch);
+        p_exporter.writeInt(m_manageChunkSize);
+    }
+
+    @Override
+    public void importObject(final Importer p_importer) {
+        m_numThreads = p_importer.readInt(m_numThreads);
+        m_opCount = p_importer.readLong(m_opCount);
+        m_chunkBatch = p_importer.readInt(m_chunkBatch);
+        m_doPut = p_importer.readBoolean(m_doPut);
+        m_numManageThreads = p_importer.readInt(m_numManageThreads);
+        m_manageBatch = p_importer.readInt(m_manageBatch);
+        m_manageChunkSize = p_importer.readInt(m_manageChunkSize);
+    }
+
+    @Override
+    public int sizeofObject() {
+        return Integer.BYTES * 5 + ObjectSizeUtil.sizeofBoolean() + Long.BYTES;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Request to execute atomic operations on fields of chunks stored on a remote node (see AtomicOperation)
+ */
+public class AtomicRequest extends Request {
+
+    private byte[] m_operations;
+    private long[] m_chunkIDs;
+    private int[] m_offsets;
+    private long[] m_operands;
+    private long[] m_expected;
+
+    /**
+     * Creates an instance of AtomicRequest.
+     * This constructor is used when receiving this message.
+     */
+    public AtomicRequest() {
+        super();
+    }
+
+    /**
+     * Creates an instance of AtomicRequest.
+     * This constructor is used when sending this message.
+     *
+     * @param p_destination
+     *         the destination node id.
+     * @param p_operations
+     *         Operations (ordinals of AtomicOperation)
+     * @param p_chunkIDs
+     *         Chunk ids of the chunks to access
+     * @param p_offsets
+     *         Offsets of the fields within the chunks
+     * @param p_operands
+     *         Operands of the operations
+     * @param p_expected
+     *         Expected values (compare and swap only)
+     */
+    public AtomicRequest(final short p_destination, final byte[] p_operations, final long[] p_chunkIDs,
+            final int[] p_offsets, final long[] p_operands, final long[] p_expected) {
+        super(p_destination, DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_ATOMIC_REQUEST);
+
+        m_operations = p_operations;
+        m_chunkIDs = p_chunkIDs;
+        m_offsets = p_offsets;
+        m_operands = p_operands;
+        m_expected = p_expected;
+    }
+
+    /**
+     * Get the operations
+     *
+     * @return Operations (ordinals of AtomicOperation)
+     */
+    public byte[] getOperations() {
+        return m_operations;
+    }
+
+    /**
+     * Get the chunk ids of the chunks to access
+     *
+     * @return Chunk ids
+     */
+    public long[] getChunkIDs() {
+        return m_chunkIDs;
+    }
+
+    /**
+     * Get the offsets of the fields within the chunks
+     *
+     * @return Offsets
+     */
+    public int[] getOffsets() {
+        return m_offsets;
+    }
+
+    /**
+     * Get the operands of the operations
+     *
+     * @return Operands
+     */
+    public long[] getOperands() {
+        return m_operands;
+    }
+
+    /**
+     * Get the expected values (compare and swap only)
+     *
+     * @return Expected values
+     */
+    public long[] getExpected() {
+        return m_expected;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(m_operations) + ObjectSizeUtil.sizeofLongArray(m_chunkIDs) +
+                ObjectSizeUtil.sizeofIntArray(m_offsets) + ObjectSizeUtil.sizeofLongArray(m_operands) +
+                ObjectSizeUtil.sizeofLongArray(m_expected);
+    }
+
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeByteArray(m_operations);
+        p_exporter.writeLongArray(m_chunkIDs);
+        p_exporter.writeIntArray(m_offsets);
+        p_exporter.writeLongArray(m_operands);
+        p_exporter.writeLongArray(m_expected);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_operations = p_importer.readByteArray(m_operations);
+        m_chunkIDs = p_importer.readLongArray(m_chunkIDs);
+        m_offsets = p_importer.readIntArray(m_offsets);
+        m_operands = p_importer.readLongArray(m_operands);
+        m_expected = p_importer.readLongArray(m_expected);
+    }
+}
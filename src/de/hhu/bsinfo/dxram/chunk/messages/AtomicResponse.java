@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to an AtomicRequest
+ */
+public class AtomicResponse extends Response {
+
+    private byte[] m_states;
+    private long[] m_results;
+
+    /**
+     * Creates an instance of AtomicResponse.
+     * This constructor is used when receiving this message.
+     */
+    public AtomicResponse() {
+        super();
+    }
+
+    /**
+     * Creates an instance of AtomicResponse.
+     * This constructor is used when sending this message.
+     *
+     * @param p_request
+     *         the corresponding AtomicRequest
+     * @param p_states
+     *         State (ordinal of ChunkState) of every operation
+     * @param p_results
+     *         Previous value of every field accessed
+     */
+    public AtomicResponse(final AtomicRequest p_request, final byte[] p_states, final long[] p_results) {
+        super(p_request, ChunkMessages.SUBTYPE_ATOMIC_RESPONSE);
+
+        m_states = p_states;
+        m_results = p_results;
+    }
+
+    /**
+     * Get the states of the operations
+     *
+     * @return States (ordinals of ChunkState)
+     */
+    public byte[] getStates() {
+        return m_states;
+    }
+
+    /**
+     * Get the previous values of the fields accessed
+     *
+     * @return Previous values
+     */
+    public long[] getResults() {
+        return m_results;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(m_states) + ObjectSizeUtil.sizeofLongArray(m_results);
+    }
+
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeByteArray(m_states);
+        p_exporter.writeLongArray(m_results);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_states = p_importer.readByteArray(m_states);
+        m_results = p_importer.readLongArray(m_results);
+    }
+}
@@ -44,6 +44,15 @@ public final class ChunkMessages {
     public static final byte SUBTYPE_GET_MIGRATED_CHUNKID_RANGES_RESPONSE = 20;
     public static final byte SUBTYPE_DUMP_MEMORY_MESSAGE = 21;
     public static final byte SUBTYPE_RESET_MEMORY_MESSAGE = 22;
+    public static final byte SUBTYPE_NEAR_CACHE_INVALIDATE_MESSAGE = 23;
+    public static final byte SUBTYPE_GET_RANGE_REQUEST = 24;
+    public static final byte SUBTYPE_GET_RANGE_RESPONSE = 25;
+    public static final byte SUBTYPE_PUT_RANGE_REQUEST = 26;
+    public static final byte SUBTYPE_PUT_RANGE_RESPONSE = 27;
+    public static final byte SUBTYPE_ATOMIC_REQUEST = 28;
+    public static final byte SUBTYPE_ATOMIC_RESPONSE = 29;
+    public static final byte SUBTYPE_CREATE_AND_PUT_REQUEST = 30;
+    public static final byte SUBTYPE_CREATE_AND_PUT_RESPONSE = 31;
 
     /**
      * Static class
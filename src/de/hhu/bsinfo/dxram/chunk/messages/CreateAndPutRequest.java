@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxram.data.DataStructure;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Request for creating chunks on a remote node and putting their contents with a single request
+ */
+public class CreateAndPutRequest extends Request {
+
+    // DataStructures used when sending the request
+    private DataStructure[] m_dataStructures;
+
+    // Variables used when receiving the request. The data of all chunks is received into a single buffer
+    private int[] m_sizes;
+    private int[] m_offsets;
+    private byte[] m_data;
+
+    /**
+     * Creates an instance of CreateAndPutRequest.
+     * This constructor is used when receiving this message.
+     */
+    public CreateAndPutRequest() {
+        super();
+    }
+
+    /**
+     * Creates an instance of CreateAndPutRequest.
+     * This constructor is used when sending this message.
+     *
+     * @param p_destination
+     *         the destination node id.
+     * @param p_dataStructures
+     *         Data structures to create chunks for (sizes) and with the data to put.
+     */
+    public CreateAndPutRequest(final short p_destination, final DataStructure... p_dataStructures) {
+        super(p_destination, DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_CREATE_AND_PUT_REQUEST);
+
+        m_dataStructures = p_dataStructures;
+    }
+
+    /**
+     * Get the sizes of the chunks to create when this request is received.
+     *
+     * @return Sizes of the chunks
+     */
+    public int[] getSizes() {
+        return m_sizes;
+    }
+
+    /**
+     * Get the data of all chunks when this request is received. Use getChunkOffset() and getSizes() to locate the
+     * data of a single chunk
+     *
+     * @return Buffer with the data of all chunks
+     */
+    public byte[] getChunkData() {
+        return m_data;
+    }
+
+    /**
+     * Get the offset of a chunk's data in the buffer returned by getChunkData() when this request is received
+     *
+     * @param p_index
+     *         Index of the chunk
+     * @return Offset of the chunk's data
+     */
+    public int getChunkOffset(final int p_index) {
+        return m_offsets[p_index];
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        int size = 0;
+
+        if (m_dataStructures != null) {
+            int totalSize = 0;
+
+            size += ObjectSizeUtil.sizeofCompactedNumber(m_dataStructures.length);
+
+            for (DataStructure dataStructure : m_dataStructures) {
+                int tmp = dataStructure.sizeofObject();
+
+                size += ObjectSizeUtil.sizeofCompactedNumber(tmp);
+                totalSize += tmp;
+            }
+
+            size += ObjectSizeUtil.sizeofCompactedNumber(totalSize) + totalSize;
+        } else {
+            size += ObjectSizeUtil.sizeofCompactedNumber(m_sizes.length);
+
+            for (int i = 0; i < m_sizes.length; i++) {
+                size += ObjectSizeUtil.sizeofCompactedNumber(m_sizes[i]);
+            }
+
+            size += ObjectSizeUtil.sizeofCompactedNumber(m_data.length) + m_data.length;
+        }
+
+        return size;
+    }
+
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeCompactNumber(m_dataStructures.length);
+
+        // total size first, the receiver allocates a single buffer for all chunks
+        int totalSize = 0;
+        for (DataStructure dataStructure : m_dataStructures) {
+            totalSize += dataStructure.sizeofObject();
+        }
+        p_exporter.writeCompactNumber(totalSize);
+
+        for (DataStructure dataStructure : m_dataStructures) {
+            p_exporter.writeCompactNumber(dataStructure.sizeofObject());
+            p_exporter.exportObject(dataStructure);
+        }
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        int length = p_importer.readCompactNumber(0);
+        int totalSize = p_importer.readCompactNumber(0);
+        if (m_sizes == null) {
+            // Do not overwrite existing arrays
+            m_sizes = new int[length];
+            m_offsets = new int[length];
+            m_data = new byte[totalSize];
+        }
+
+        int offset = 0;
+        for (int i = 0; i < m_sizes.length; i++) {
+            m_sizes[i] = p_importer.readCompactNumber(m_sizes[i]);
+            m_offsets[i] = offset;
+            p_importer.readBytes(m_data, offset, m_sizes[i]);
+            offset += m_sizes[i];
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxram.data.ChunkState;
+
+/**
+ * Response to a GetRangeRequest
+ */
+public class GetRangeResponse extends Response {
+
+    private byte m_status;
+    // sender only, when the response is received, the data is written to the buffer of the request
+    private byte[] m_data;
+
+    /**
+     * Creates an instance of GetRangeResponse.
+     * This constructor is used when receiving this message.
+     */
+    public GetRangeResponse() {
+        super();
+    }
+
+    /**
+     * Creates an instance of GetRangeResponse.
+     * This constructor is used when sending this message.
+     *
+     * @param p_request
+     *         the corresponding GetRangeRequest
+     * @param p_status
+     *         Result of the read
+     * @param p_data
+     *         Data read (ignored if the status is not OK)
+     */
+    public GetRangeResponse(final GetRangeRequest p_request, final ChunkState p_status, final byte[] p_data) {
+        super(p_request, ChunkMessages.SUBTYPE_GET_RANGE_RESPONSE);
+
+        m_status = (byte) p_status.ordinal();
+        m_data = p_data;
+    }
+
+    /**
+     * Get the result of the read. If OK, the data was written to the buffer of the request
+     *
+     * @return Status
+     */
+    public ChunkState getStatus() {
+        return ChunkState.values()[m_status];
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        if (m_status != ChunkState.OK.ordinal()) {
+            return Byte.BYTES;
+        }
+
+        if (m_data != null) {
+            return Byte.BYTES + m_data.length;
+        } else {
+            return Byte.BYTES + ((GetRangeRequest) getCorrespondingRequest()).getLength();
+        }
+    }
+
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeByte(m_status);
+
+        if (m_status == ChunkState.OK.ordinal()) {
+            p_exporter.writeBytes(m_data);
+        }
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_status = p_importer.readByte(m_status);
+
+        if (m_status == ChunkState.OK.ordinal()) {
+            // the length is known from the request, read straight into the buffer provided by the caller
+            GetRangeRequest request = (GetRangeRequest) getCorrespondingRequest();
+            p_importer.readBytes(request.getBuffer(), request.getBufferOffset(), request.getLength());
+        }
+    }
+}
@@ -37,6 +37,8 @@ public class GetRequest extends Request {
     private DataStructure[] m_chunks;
     // this is only used when receiving the request
     private long[] m_chunkIDs;
+    // the requesting peer caches the chunks (near cache) and wants to be notified on modifications
+    private boolean m_nearCache;
 
     /**
      * Creates an instance of GetRequest.
@@ -56,8 +58,24 @@ public class GetRequest extends Request {
      *         Chunks with the ID of the chunk data to get.
      */
     public GetRequest(final short p_destination, final DataStructure... p_chunks) {
+        this(p_destination, false, p_chunks);
+    }
+
+    /**
+     * Creates an instance of GetRequest.
+     * This constructor is used when sending this message.
+     *
+     * @param p_destination
+     *         the destination node id.
+     * @param p_nearCache
+     *         True if the chunks are cached by the requesting peer (near cache)
+     * @param p_chunks
+     *         Chunks with the ID of the chunk data to get.
+     */
+    public GetRequest(final short p_destination, final boolean p_nearCache, final DataStructure... p_chunks) {
         super(p_destination, DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_GET_REQUEST);
         m_chunks = p_chunks;
+        m_nearCache = p_nearCache;
     }
 
     /**
@@ -69,6 +87,15 @@ public class GetRequest extends Request {
         return m_chunkIDs;
     }
 
+    /**
+     * Check if the requesting peer caches the chunks (near cache)
+     *
+     * @return True if the chunks are cached
+     */
+    public boolean isNearCache() {
+        return m_nearCache;
+    }
+
     /**
      * Get the chunks stored with this request.
      * This is used to write the received data to the provided object to avoid
@@ -83,14 +110,16 @@ public class GetRequest extends Request {
     @Override
     protected final int getPayloadLength() {
         if (m_chunks != null) {
-            return ObjectSizeUtil.sizeofCompactedNumber(m_chunks.length) + Long.BYTES * m_chunks.length;
+            return Byte.BYTES + ObjectSizeUtil.sizeofCompactedNumber(m_chunks.length) + Long.BYTES * m_chunks.length;
         } else {
-            return ObjectSizeUtil.sizeofCompactedNumber(m_chunkIDs.length) + Long.BYTES * m_chunkIDs.length;
+            return Byte.BYTES + ObjectSizeUtil.sizeofCompactedNumber(m_chunkIDs.length) +
+                    Long.BYTES * m_chunkIDs.length;
         }
     }
 
     @Override
     protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeBoolean(m_nearCache);
         p_exporter.writeCompactNumber(m_chunks.length);
         for (DataStructure chunk : m_chunks) {
             p_exporter.writeLong(chunk.getID());
@@ -99,6 +128,7 @@ public class GetRequest extends Request {
 
     @Override
     protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_nearCache = p_importer.readBoolean(m_nearCache);
         m_chunkIDs = p_importer.readLongArray(m_chunkIDs);
     }
 }
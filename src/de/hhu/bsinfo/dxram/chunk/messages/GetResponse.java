@@ -21,6 +21,7 @@ import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
 import de.hhu.bsinfo.dxnet.core.Response;
 import de.hhu.bsinfo.dxram.data.ChunkState;
 import de.hhu.bsinfo.dxram.data.DataStructure;
+import de.hhu.bsinfo.dxram.mem.LockedChunks;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 
 /**
@@ -35,6 +36,8 @@ public class GetResponse extends Response {
     // when the response is received, the chunk objects from the request are
     // used to directly write the data to them and avoiding further copying
     private byte[][] m_dataChunks;
+    // alternatively, the data is exported straight from the heap
+    private LockedChunks m_lockedChunks;
     private int m_totalSuccessful;
 
     /**
@@ -64,6 +67,23 @@ public class GetResponse extends Response {
         m_dataChunks = p_dataChunks;
     }
 
+    /**
+     * Creates an instance of GetResponse.
+     * This constructor is used when sending this message.
+     * The data of the chunks is written straight from the heap to the outgoing buffer. The chunks must stay
+     * locked until the message is sent or be detached (LockedChunks.detach()).
+     *
+     * @param p_request
+     *         the corresponding GetRequest
+     * @param p_lockedChunks
+     *         Chunks of the request (same order) locked on the heap
+     */
+    public GetResponse(final GetRequest p_request, final LockedChunks p_lockedChunks) {
+        super(p_request, ChunkMessages.SUBTYPE_GET_RESPONSE);
+        m_totalSuccessful = p_lockedChunks.getTotalSuccessful();
+        m_lockedChunks = p_lockedChunks;
+    }
+
     /**
      * Get the total number of successful chunk gets
      *
@@ -78,7 +98,15 @@ public class GetResponse extends Response {
         int size = ObjectSizeUtil.sizeofCompactedNumber(m_totalSuccessful);
 
         // when writing payload
-        if (m_dataChunks != null) {
+        if (m_lockedChunks != null) {
+            size += m_lockedChunks.getCount() * Byte.BYTES;
+
+            for (int i = 0; i < m_lockedChunks.getCount(); i++) {
+                if (m_lockedChunks.exists(i)) {
+                    size += m_lockedChunks.getSize(i);
+                }
+            }
+        } else if (m_dataChunks != null) {
             size += m_dataChunks.length * Byte.BYTES;
 
             for (int i = 0; i < m_dataChunks.length; i++) {
@@ -105,6 +133,20 @@ public class GetResponse extends Response {
     @Override
     protected final void writePayload(final AbstractMessageExporter p_exporter) {
         p_exporter.writeCompactNumber(m_totalSuccessful);
+
+        if (m_lockedChunks != null) {
+            for (int i = 0; i < m_lockedChunks.getCount(); i++) {
+                if (m_lockedChunks.exists(i)) {
+                    p_exporter.writeByte((byte) ChunkState.OK.ordinal());
+                    m_lockedChunks.exportChunk(i, p_exporter);
+                } else {
+                    p_exporter.writeByte((byte) ChunkState.DOES_NOT_EXIST.ordinal());
+                }
+            }
+
+            return;
+        }
+
         for (int i = 0; i < m_dataChunks.length; i++) {
             if (m_dataChunks[i] == null) {
                 // indicate no data available
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Request to write a range of a chunk's payload on a remote node
+ */
+public class PutRangeRequest extends Request {
+
+    private long m_chunkID;
+    private int m_offset;
+    private byte[] m_data;
+    private int m_dataOffset;
+    private int m_length;
+
+    /**
+     * Creates an instance of PutRangeRequest.
+     * This constructor is used when receiving this message.
+     */
+    public PutRangeRequest() {
+        super();
+    }
+
+    /**
+     * Creates an instance of PutRangeRequest.
+     * This constructor is used when sending this message.
+     *
+     * @param p_destination
+     *         the destination node id.
+     * @param p_chunkID
+     *         Chunk id of the chunk to write
+     * @param p_offset
+     *         Offset within the chunk to start writing at
+     * @param p_data
+     *         Buffer with the data to write
+     * @param p_dataOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of bytes to write
+     */
+    public PutRangeRequest(final short p_destination, final long p_chunkID, final int p_offset, final byte[] p_data,
+            final int p_dataOffset, final int p_length) {
+        super(p_destination, DXRAMMessageTypes.CHUNK_MESSAGES_TYPE, ChunkMessages.SUBTYPE_PUT_RANGE_REQUEST);
+
+        m_chunkID = p_chunkID;
+        m_offset = p_offset;
+        m_data = p_data;
+        m_dataOffset = p_dataOffset;
+        m_length = p_length;
+    }
+
+    /**
+     * Get the chunk id of the chunk to write
+     *
+     * @return Chunk id
+     */
+    public long getChunkID() {
+        return m_chunkID;
+    }
+
+    /**
+     * Get the offset within the chunk to start writing at
+     *
+     * @return Offset
+     */
+    public int getOffset() {
+        return m_offset;
+    }
+
+    /**
+     * Get the data to write (starting at index 0 when this request is received)
+     *
+     * @return Data
+     */
+    public byte[] getData() {
+        return m_data;
+    }
+
+    /**
+     * Get the number of bytes to write
+     *
+     * @return Length
+     */
+    public int getLength() {
+        return m_length;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return Long.BYTES + Integer.BYTES + ObjectSizeUtil.sizeofCompactedNumber(m_length) + m_length;
+    }
+
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeLong(m_chunkID);
+        p_exporter.writeInt(m_offset);
+        p_exporter.writeCompactNumber(m_length);
+        p_exporter.writeBytes(m_data, m_dataOffset, m_length);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_chunkID = p_importer.readLong(m_chunkID);
+        m_offset = p_importer.readInt(m_offset);
+        m_length = p_importer.readCompactNumber(m_length);
+
+        if (m_data == null) {
+            m_data = new byte[m_length];
+        }
+
+        p_importer.readBytes(m_data, 0, m_length);
+    }
+}
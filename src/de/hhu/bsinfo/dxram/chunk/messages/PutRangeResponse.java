@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.chunk.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxram.data.ChunkState;
+
+/**
+ * Response to a PutRangeRequest
+ */
+public class PutRangeResponse extends Response {
+
+    private byte m_status;
+
+    /**
+     * Creates an instance of PutRangeResponse.
+     * This constructor is used when receiving this message.
+     */
+    public PutRangeResponse() {
+        super();
+    }
+
+    /**
+     * Creates an instance of PutRangeResponse.
+     * This constructor is used when sending this message.
+     *
+     * @param p_request
+     *         the corresponding PutRangeRequest
+     * @param p_status
+     *         Result of the write
+     */
+    public PutRangeResponse(final PutRangeRequest p_request, final ChunkState p_status) {
+        super(p_request, ChunkMessages.SUBTYPE_PUT_RANGE_RESPONSE);
+
+        m_status = (byte) p_status.ordinal();
+    }
+
+    /**
+     * Get the result of the write
+     *
+     * @return Status
+     */
+    public ChunkState getStatus() {
+        return ChunkState.values()[m_status];
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return Byte.BYTES;
+    }
+
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeByte(m_status);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_status = p_importer.readByte(m_status);
+    }
+}
@@ -37,9 +37,12 @@ public class PutRequest extends Request {
 
     private byte m_lockCode;
 
-    // Variables used when receiving the request
+    // Variables used when receiving the request. The data of all chunks is received into a single buffer
+    // instead of one byte[] per chunk
     private long[] m_chunkIDs;
-    private byte[][] m_data;
+    private int[] m_sizes;
+    private int[] m_offsets;
+    private byte[] m_data;
 
     /**
      * Creates an instance of PutRequest.
@@ -88,14 +91,37 @@ public class PutRequest extends Request {
     }
 
     /**
-     * Get the data of the chunks to put when this request is received
+     * Get the data of all chunks to put when this request is received. Use getChunkOffset() and getChunkSize()
+     * to locate the data of a single chunk
      *
-     * @return Array of byte[] of chunk data to put
+     * @return Buffer with the data of all chunks
      */
-    public byte[][] getChunkData() {
+    public byte[] getChunkData() {
         return m_data;
     }
 
+    /**
+     * Get the offset of a chunk's data in the buffer returned by getChunkData() when this request is received
+     *
+     * @param p_index
+     *         Index of the chunk
+     * @return Offset of the chunk's data
+     */
+    public int getChunkOffset(final int p_index) {
+        return m_offsets[p_index];
+    }
+
+    /**
+     * Get the size of a chunk's data when this request is received
+     *
+     * @param p_index
+     *         Index of the chunk
+     * @return Size of the chunk's data
+     */
+    public int getChunkSize(final int p_index) {
+        return m_sizes[p_index];
+    }
+
     /**
      * Get the unlock operation to execute after the put.
      *
@@ -116,6 +142,8 @@ public class PutRequest extends Request {
         int size = Byte.BYTES;
 
         if (m_dataStructures != null) {
+            int totalSize = 0;
+
             size += ObjectSizeUtil.sizeofCompactedNumber(m_dataStructures.length);
             size += m_dataStructures.length * Long.BYTES;
 
@@ -123,15 +151,19 @@ public class PutRequest extends Request {
                 int tmp = dataStructure.sizeofObject();
 
                 size += ObjectSizeUtil.sizeofCompactedNumber(tmp);
-                size += tmp;
+                totalSize += tmp;
             }
+
+            size += ObjectSizeUtil.sizeofCompactedNumber(totalSize) + totalSize;
         } else {
             size += ObjectSizeUtil.sizeofCompactedNumber(m_chunkIDs.length);
             size += m_chunkIDs.length * Long.BYTES;
 
-            for (int i = 0; i < m_data.length; i++) {
-                size += ObjectSizeUtil.sizeofByteArray(m_data[i]);
+            for (int i = 0; i < m_sizes.length; i++) {
+                size += ObjectSizeUtil.sizeofCompactedNumber(m_sizes[i]);
             }
+
+            size += ObjectSizeUtil.sizeofCompactedNumber(m_data.length) + m_data.length;
         }
 
         return size;
@@ -143,6 +175,14 @@ public class PutRequest extends Request {
         p_exporter.writeByte(m_lockCode);
 
         p_exporter.writeCompactNumber(m_dataStructures.length);
+
+        // total size first, the receiver allocates a single buffer for all chunks
+        int totalSize = 0;
+        for (DataStructure dataStructure : m_dataStructures) {
+            totalSize += dataStructure.sizeofObject();
+        }
+        p_exporter.writeCompactNumber(totalSize);
+
         for (DataStructure dataStructure : m_dataStructures) {
             int size = dataStructure.sizeofObject();
 
@@ -157,15 +197,22 @@ public class PutRequest extends Request {
         m_lockCode = p_importer.readByte(m_lockCode);
 
         int length = p_importer.readCompactNumber(0);
+        int totalSize = p_importer.readCompactNumber(0);
         if (m_chunkIDs == null) {
             // Do not overwrite existing arrays
             m_chunkIDs = new long[length];
-            m_data = new byte[length][];
+            m_sizes = new int[length];
+            m_offsets = new int[length];
+            m_data = new byte[totalSize];
         }
 
+        int offset = 0;
         for (int i = 0; i < m_chunkIDs.length; i++) {
             m_chunkIDs[i] = p_importer.readLong(m_chunkIDs[i]);
-            m_data[i] = p_importer.readByteArray(m_data[i]);
+            m_sizes[i] = p_importer.readCompactNumber(m_sizes[i]);
+            m_offsets[i] = offset;
+            p_importer.readBytes(m_data, offset, m_sizes[i]);
+            offset += m_sizes[i];
         }
     }
 }
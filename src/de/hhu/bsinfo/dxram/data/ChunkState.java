@@ -52,4 +52,14 @@ public enum ChunkState {
      * Data for the chunk/data structure is lost due to node failure and disabled backup/recovery
      */
     DATA_LOST,
+
+    /**
+     * The offset/length of a partial access to the chunk/data structure exceeded the bounds of the chunk
+     */
+    OUT_OF_BOUNDS,
+
+    /**
+     * The operation requested on the chunk is unknown (e.g. an invalid atomic operation received from a peer)
+     */
+    INVALID_OPERATION,
 }
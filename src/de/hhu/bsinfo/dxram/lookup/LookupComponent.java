@@ -18,6 +18,7 @@ package de.hhu.bsinfo.dxram.lookup;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import de.hhu.bsinfo.dxram.DXRAMComponentOrder;
 import de.hhu.bsinfo.dxram.backup.BackupComponent;
@@ -36,6 +37,7 @@ import de.hhu.bsinfo.dxram.event.EventComponent;
 import de.hhu.bsinfo.dxram.event.EventListener;
 import de.hhu.bsinfo.dxram.failure.events.NodeFailureEvent;
 import de.hhu.bsinfo.dxram.lookup.events.NameserviceCacheEntryUpdateEvent;
+import de.hhu.bsinfo.dxram.lookup.events.NodeJoinEvent;
 import de.hhu.bsinfo.dxram.lookup.overlay.OverlayPeer;
 import de.hhu.bsinfo.dxram.lookup.overlay.OverlaySuperpeer;
 import de.hhu.bsinfo.dxram.lookup.overlay.cache.CacheTree;
@@ -59,8 +61,6 @@ import de.hhu.bsinfo.dxutils.unit.IPV4Unit;
  * @author Kevin Beineke, kevin.beineke@hhu.de, 30.03.2016
  */
 public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfig> implements EventListener<AbstractEvent> {
-    private static final short ORDER = 10;
-
     // component dependencies
     private BackupComponent m_backup;
     private AbstractBootComponent m_boot;
@@ -73,6 +73,14 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
     private CacheTree m_chunkIDCacheTree;
     private Cache<Integer, Long> m_applicationIDCache;
 
+    private final CopyOnWriteArrayList<LookupInvalidationListener> m_invalidationListeners =
+            new CopyOnWriteArrayList<>();
+
+    // waiters for temporarily unavailable ranges, the generation is incremented whenever a range might have become
+    // available again
+    private final Object m_availabilityMonitor = new Object();
+    private long m_availabilityGeneration;
+
     /**
      * Creates the lookup component
      */
@@ -170,6 +178,199 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
         return ret;
     }
 
+    /**
+     * Get the corresponding LookupRanges for many ChunkIDs at once. ChunkIDs missing in the cache are resolved with
+     * one request per responsible superpeer instead of one request per ChunkID.
+     *
+     * @param p_chunkIDs
+     *         the ChunkIDs
+     * @return one LookupRange per ChunkID (same order), null entries if there is no responsible superpeer
+     */
+    public LookupRange[] getLookupRanges(final long[] p_chunkIDs) {
+        LookupRange[] ret;
+
+        // #ifdef ASSERT_NODE_ROLE
+        if (m_boot.getNodeRole() == NodeRole.SUPERPEER) {
+            throw new InvalidNodeRoleException(m_boot.getNodeRole());
+        }
+        // #endif /* ASSERT_NODE_ROLE */
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Entering getLookupRanges with: p_chunkIDs=%d", p_chunkIDs.length);
+        // #endif /* LOGGER == TRACE */
+
+        if (getConfig().cachesEnabled()) {
+            int misses = 0;
+
+            // Read from cache
+            ret = new LookupRange[p_chunkIDs.length];
+            for (int i = 0; i < p_chunkIDs.length; i++) {
+                ret[i] = m_chunkIDCacheTree.getMetadata(p_chunkIDs[i]);
+                if (ret[i] == null) {
+                    misses++;
+                }
+            }
+
+            if (misses > 0) {
+                // Cache misses -> get LookupRanges from superpeers
+                long[] missingChunkIDs = new long[misses];
+                int[] missingIndices = new int[misses];
+                int index = 0;
+
+                for (int i = 0; i < p_chunkIDs.length; i++) {
+                    if (ret[i] == null) {
+                        missingChunkIDs[index] = p_chunkIDs[i];
+                        missingIndices[index] = i;
+                        index++;
+                    }
+                }
+
+                LookupRange[] lookupRanges = m_peer.getLookupRanges(missingChunkIDs);
+
+                for (int i = 0; i < misses; i++) {
+                    LookupRange lookupRange = lookupRanges[i];
+
+                    // Add response to cache
+                    if (lookupRange != null && lookupRange.getState() == LookupState.OK) {
+                        cacheLookupRange(ChunkID.getCreatorID(missingChunkIDs[i]), lookupRange);
+                    }
+
+                    ret[missingIndices[i]] = lookupRange;
+                }
+            }
+        } else {
+            ret = m_peer.getLookupRanges(p_chunkIDs);
+        }
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Exiting getLookupRanges");
+        // #endif /* LOGGER == TRACE */
+        return ret;
+    }
+
+    /**
+     * Pull all ranges of a creator from its responsible superpeer into the cache. Call this before reading many
+     * chunks of a creator to avoid cache misses on the first accesses.
+     *
+     * @param p_creatorID
+     *         the creator
+     * @return the number of ranges cached, -1 if the ranges could not be retrieved or caches are disabled
+     */
+    public int warmUpCache(final short p_creatorID) {
+        LookupRange[] lookupRanges;
+        int ret = 0;
+
+        // #ifdef ASSERT_NODE_ROLE
+        if (m_boot.getNodeRole() == NodeRole.SUPERPEER) {
+            throw new InvalidNodeRoleException(m_boot.getNodeRole());
+        }
+        // #endif /* ASSERT_NODE_ROLE */
+
+        if (!getConfig().cachesEnabled()) {
+            return -1;
+        }
+
+        lookupRanges = m_peer.getAllLookupRanges(p_creatorID);
+        if (lookupRanges == null) {
+            return -1;
+        }
+
+        for (LookupRange lookupRange : lookupRanges) {
+            // Ranges which are not OK (e.g. in recovery) are resolved on access
+            if (lookupRange.getState() == LookupState.OK) {
+                cacheLookupRange(p_creatorID, lookupRange);
+                ret++;
+            }
+        }
+
+        if (ret == 0 && lookupRanges.length > 0) {
+            // #if LOGGER >= WARN
+            LOGGER.warn("Warming up cache for 0x%X failed: %s", p_creatorID, lookupRanges[0].getState());
+            // #endif /* LOGGER >= WARN */
+
+            return -1;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get the corresponding LookupRange for the given ChunkID and wait if the range is temporarily unavailable
+     * (e.g. the owner failed and the range is in recovery). The lookup is retried with an exponential backoff.
+     * Waiting threads are woken up early as soon as one of them finds a range available again or the overlay
+     * changes (node joined or failed). Don't call this while holding a lock other threads depend on (e.g. the
+     * memory manager's access lock).
+     *
+     * @param p_chunkID
+     *         the ChunkID
+     * @return the current location and the range borders or DATA_TEMPORARY_UNAVAILABLE if the range did not become
+     * available within the configured timeout
+     */
+    public LookupRange waitForLookupRange(final long p_chunkID) {
+        LookupRange ret;
+        long generation;
+        long backoff;
+        long deadline;
+
+        generation = getAvailabilityGeneration();
+        ret = getLookupRange(p_chunkID);
+        if (ret.getState() != LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+            return ret;
+        }
+
+        backoff = getConfig().getUnavailableRetryTime().getMs();
+        deadline = System.currentTimeMillis() + getConfig().getUnavailableTimeout().getMs();
+
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                // #if LOGGER >= WARN
+                LOGGER.warn("Range of chunk 0x%X still unavailable after %d ms", p_chunkID,
+                        getConfig().getUnavailableTimeout().getMs());
+                // #endif /* LOGGER >= WARN */
+
+                return ret;
+            }
+
+            if (!awaitAvailabilityChange(generation, Math.min(backoff, remaining))) {
+                // interrupted
+                return ret;
+            }
+
+            backoff = Math.min(backoff * 2, getConfig().getUnavailableMaxRetryTime().getMs());
+
+            generation = getAvailabilityGeneration();
+            ret = getLookupRange(p_chunkID);
+            if (ret.getState() != LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+                // other threads are likely waiting for the same range
+                signalAvailabilityChange();
+
+                return ret;
+            }
+        }
+    }
+
+    /**
+     * Get the corresponding LookupRanges for many ChunkIDs at once (see getLookupRanges) and wait for the ranges
+     * which are temporarily unavailable (see waitForLookupRange)
+     *
+     * @param p_chunkIDs
+     *         the ChunkIDs
+     * @return one LookupRange per ChunkID (same order)
+     */
+    public LookupRange[] waitForLookupRanges(final long[] p_chunkIDs) {
+        LookupRange[] ret;
+
+        ret = getLookupRanges(p_chunkIDs);
+        for (int i = 0; i < ret.length; i++) {
+            if (ret[i] == null || ret[i].getState() == LookupState.DATA_TEMPORARY_UNAVAILABLE) {
+                ret[i] = waitForLookupRange(p_chunkIDs[i]);
+            }
+        }
+
+        return ret;
+    }
+
     /**
      * Remove the ChunkIDs from range after deletion of that chunks
      *
@@ -265,8 +466,10 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
 
                 ret = m_peer.getChunkIDForNameserviceEntry(p_id, p_timeoutMs);
 
-                // Cache response
-                m_applicationIDCache.put(p_id, ret);
+                // Cache response (but not a missing entry, it might be inserted later)
+                if (ret != ChunkID.INVALID_ID) {
+                    m_applicationIDCache.put(p_id, ret);
+                }
             } else {
                 ret = chunkID;
             }
@@ -281,6 +484,61 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
         return ret;
     }
 
+    /**
+     * Insert multiple nameservice entries with arbitrary names
+     *
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @param p_chunkIDs
+     *         the ChunkIDs (same order)
+     */
+    public void insertNameserviceStringEntries(final byte[][] p_names, final long[] p_chunkIDs) {
+        // #ifdef ASSERT_NODE_ROLE
+        if (m_boot.getNodeRole() == NodeRole.SUPERPEER) {
+            throw new InvalidNodeRoleException(m_boot.getNodeRole());
+        }
+        // #endif /* ASSERT_NODE_ROLE */
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Entering insertNameserviceStringEntries with: %d entries", p_names.length);
+        // #endif /* LOGGER == TRACE */
+
+        m_peer.insertNameserviceStringEntries(p_names, p_chunkIDs);
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Exiting insertNameserviceStringEntries");
+        // #endif /* LOGGER == TRACE */
+    }
+
+    /**
+     * Get the ChunkIDs of multiple nameservice entries with arbitrary names
+     *
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @return the ChunkIDs (same order), ChunkID.INVALID_ID for names not registered
+     */
+    public long[] getChunkIDsForNameserviceStringEntries(final byte[][] p_names) {
+        long[] ret;
+
+        // #ifdef ASSERT_NODE_ROLE
+        if (m_boot.getNodeRole() == NodeRole.SUPERPEER) {
+            throw new InvalidNodeRoleException(m_boot.getNodeRole());
+        }
+        // #endif /* ASSERT_NODE_ROLE */
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Entering getChunkIDsForNameserviceStringEntries with: %d entries", p_names.length);
+        // #endif /* LOGGER == TRACE */
+
+        ret = m_peer.getChunkIDsForNameserviceStringEntries(p_names);
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Exiting getChunkIDsForNameserviceStringEntries");
+        // #endif /* LOGGER == TRACE */
+
+        return ret;
+    }
+
     /**
      * Store migration of given ChunkID to a new location
      *
@@ -424,6 +682,12 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
                 m_chunkIDCacheTree.invalidateChunkID(chunkID);
             }
         }
+
+        if (!m_invalidationListeners.isEmpty()) {
+            for (long chunkID : p_chunkIDs) {
+                notifyInvalidationListeners(chunkID);
+            }
+        }
     }
 
     /**
@@ -439,6 +703,12 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
                 m_chunkIDCacheTree.invalidateChunkID(p_chunkIDs.get(i));
             }
         }
+
+        if (!m_invalidationListeners.isEmpty()) {
+            for (int i = 0; i < p_chunkIDs.getSize(); i++) {
+                notifyInvalidationListeners(p_chunkIDs.get(i));
+            }
+        }
     }
 
     /**
@@ -452,6 +722,28 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
             assert p_chunkID != ChunkID.INVALID_ID;
             m_chunkIDCacheTree.invalidateRange(p_chunkID);
         }
+
+        notifyInvalidationListeners(p_chunkID);
+    }
+
+    /**
+     * Register a listener to get notified about invalidated chunk locations
+     *
+     * @param p_listener
+     *         Listener to register
+     */
+    public void registerInvalidationListener(final LookupInvalidationListener p_listener) {
+        m_invalidationListeners.add(p_listener);
+    }
+
+    /**
+     * Unregister a listener registered with registerInvalidationListener()
+     *
+     * @param p_listener
+     *         Listener to unregister
+     */
+    public void unregisterInvalidationListener(final LookupInvalidationListener p_listener) {
+        m_invalidationListeners.remove(p_listener);
     }
 
     /**
@@ -793,6 +1085,14 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
                 }
             }
 
+            // e.g. another superpeer is responsible now, retry waiting lookups
+            signalAvailabilityChange();
+
+        } else if (p_event instanceof NodeJoinEvent) {
+
+            // e.g. a recovered peer is available again, retry waiting lookups
+            signalAvailabilityChange();
+
         } else if (p_event instanceof NameserviceCacheEntryUpdateEvent) {
 
             NameserviceCacheEntryUpdateEvent event = (NameserviceCacheEntryUpdateEvent) p_event;
@@ -840,7 +1140,7 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
         BackupRange.setBackupRangeSize(p_config.getComponentConfig(BackupComponentConfig.class).getBackupRangeSize().getBytes());
 
         if (getConfig().cachesEnabled()) {
-            m_chunkIDCacheTree = new CacheTree(ORDER, getConfig().getCacheTtl().getMs(), getConfig().getMaxCacheEntries());
+            m_chunkIDCacheTree = new CacheTree(getConfig().getCacheTtl().getMs(), getConfig().getMaxCacheEntries());
 
             // TODO: Check cache! If number of entries is smaller than number of entries in nameservice, bg won't terminate.
             m_applicationIDCache = new Cache<>(p_config.getComponentConfig(NameserviceComponentConfig.class).getNameserviceCacheEntries());
@@ -858,6 +1158,10 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
         } else {
             m_peer = new OverlayPeer(m_boot.getNodeID(), m_boot.getNodeIDBootstrap(), m_boot.getNumberOfAvailableSuperpeers(), m_boot, m_network, m_event);
             m_event.registerListener(this, NameserviceCacheEntryUpdateEvent.class);
+            m_event.registerListener(this, NodeJoinEvent.class);
+            if (!getConfig().cachesEnabled()) {
+                m_event.registerListener(this, NodeFailureEvent.class);
+            }
         }
 
         return true;
@@ -942,6 +1246,19 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
         return ret;
     }
 
+    /**
+     * Adds a LookupRange returned by a superpeer to the cache
+     *
+     * @param p_creatorID
+     *         the creator of the range
+     * @param p_lookupRange
+     *         the LookupRange (LocalIDs)
+     */
+    private void cacheLookupRange(final short p_creatorID, final LookupRange p_lookupRange) {
+        m_chunkIDCacheTree.cacheRange(((long) p_creatorID << 48) + p_lookupRange.getRange()[0],
+                ((long) p_creatorID << 48) + p_lookupRange.getRange()[1], p_lookupRange.getPrimaryPeer());
+    }
+
     // --------------------------------------------------------------------------------
 
     /**
@@ -1003,13 +1320,76 @@ public class LookupComponent extends AbstractDXRAMComponent<LookupComponentConfi
         }
     }
 
+    /**
+     * Get the current generation of range availability (see waitForLookupRange())
+     *
+     * @return the generation
+     */
+    private long getAvailabilityGeneration() {
+        synchronized (m_availabilityMonitor) {
+            return m_availabilityGeneration;
+        }
+    }
+
+    /**
+     * Wait until ranges might have become available again (see signalAvailabilityChange()) or the timeout expired
+     *
+     * @param p_generation
+     *         the generation read before the last lookup
+     * @param p_timeoutMs
+     *         the maximum time to wait
+     * @return false if the thread was interrupted, true otherwise
+     */
+    private boolean awaitAvailabilityChange(final long p_generation, final long p_timeoutMs) {
+        long deadline = System.currentTimeMillis() + p_timeoutMs;
+
+        synchronized (m_availabilityMonitor) {
+            long remaining = p_timeoutMs;
+
+            while (m_availabilityGeneration == p_generation && remaining > 0) {
+                try {
+                    m_availabilityMonitor.wait(remaining);
+                } catch (final InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Wake up all threads waiting for temporarily unavailable ranges to retry their lookup
+     */
+    private void signalAvailabilityChange() {
+        synchronized (m_availabilityMonitor) {
+            m_availabilityGeneration++;
+            m_availabilityMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Notify all invalidation listeners about an invalidated chunk location
+     *
+     * @param p_chunkID
+     *         ID of the chunk
+     */
+    private void notifyInvalidationListeners(final long p_chunkID) {
+        for (LookupInvalidationListener listener : m_invalidationListeners) {
+            listener.chunkInvalidated(p_chunkID);
+        }
+    }
+
     /**
      * Clear the cache
      */
     @SuppressWarnings("unused")
     private void clear() {
         if (getConfig().cachesEnabled()) {
-            m_chunkIDCacheTree = new CacheTree(ORDER, getConfig().getCacheTtl().getMs(), getConfig().getMaxCacheEntries());
+            m_chunkIDCacheTree = new CacheTree(getConfig().getCacheTtl().getMs(), getConfig().getMaxCacheEntries());
             m_applicationIDCache.clear();
         }
     }
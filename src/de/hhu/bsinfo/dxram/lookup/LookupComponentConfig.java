@@ -24,6 +24,15 @@ public class LookupComponentConfig extends AbstractDXRAMComponentConfig {
     @Expose
     private TimeUnit m_stabilizationBreakTime = new TimeUnit(1, TimeUnit.SEC);
 
+    @Expose
+    private TimeUnit m_unavailableRetryTime = new TimeUnit(10, TimeUnit.MS);
+
+    @Expose
+    private TimeUnit m_unavailableMaxRetryTime = new TimeUnit(1, TimeUnit.SEC);
+
+    @Expose
+    private TimeUnit m_unavailableTimeout = new TimeUnit(30, TimeUnit.SEC);
+
     /**
      * Constructor
      */
@@ -39,14 +48,14 @@ public class LookupComponentConfig extends AbstractDXRAMComponentConfig {
     }
 
     /**
-     * Maximum number of entries in cache tree. Currently unused!
+     * Maximum number of ranges in the lookup cache (0 for no limit), further ranges evict rarely used ones
      */
     public long getMaxCacheEntries() {
         return m_maxCacheEntries;
     }
 
     /**
-     * Time to live for btree nodes in cache tree.
+     * Time to live for ranges in the lookup cache (0 to never expire ranges).
      */
     public TimeUnit getCacheTtl() {
         return m_cacheTtl;
@@ -59,10 +68,39 @@ public class LookupComponentConfig extends AbstractDXRAMComponentConfig {
         return m_stabilizationBreakTime.getMs();
     }
 
+    /**
+     * Initial time to wait before looking up a range again which is temporarily unavailable (e.g. in recovery).
+     * Doubled with every retry.
+     */
+    public TimeUnit getUnavailableRetryTime() {
+        return m_unavailableRetryTime;
+    }
+
+    /**
+     * Maximum time to wait before looking up a range again which is temporarily unavailable.
+     */
+    public TimeUnit getUnavailableMaxRetryTime() {
+        return m_unavailableMaxRetryTime;
+    }
+
+    /**
+     * Maximum time to wait for a temporarily unavailable range before giving up.
+     */
+    public TimeUnit getUnavailableTimeout() {
+        return m_unavailableTimeout;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
 
-        if (m_cacheTtl.getMs() < 1000L) {
+        if (m_maxCacheEntries < 0) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%d) for m_maxCacheEntries", m_maxCacheEntries);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_cacheTtl.getMs() > 0 && m_cacheTtl.getMs() < 1000L) {
             // #if LOGGER >= WARN
             LOGGER.warn("A high effort is needed to satisfy TTL!");
             // #endif /* LOGGER >= WARN */
@@ -78,6 +116,14 @@ public class LookupComponentConfig extends AbstractDXRAMComponentConfig {
             // #endif /* LOGGER >= WARN */
         }
 
+        if (m_unavailableRetryTime.getMs() < 1 || m_unavailableMaxRetryTime.getMs() < m_unavailableRetryTime.getMs()) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid values (%s, %s) for m_unavailableRetryTime and m_unavailableMaxRetryTime",
+                    m_unavailableRetryTime, m_unavailableMaxRetryTime);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
         return true;
     }
 }
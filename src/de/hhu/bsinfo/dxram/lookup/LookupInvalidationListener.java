@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.lookup;
+
+/**
+ * Listener interface to get notified when the location of chunks is invalidated (see LookupComponent.invalidate()
+ * and invalidateRange()), e.g. because a chunk was migrated, removed or its peer failed.
+ */
+public interface LookupInvalidationListener {
+    /**
+     * Called by the LookupComponent when the location of a chunk was invalidated. Called by the thread
+     * invalidating, keep it short.
+     *
+     * @param p_chunkID
+     *         ID of the chunk (for ranges: any chunk of the range)
+     */
+    void chunkInvalidated(long p_chunkID);
+}
@@ -100,6 +100,28 @@ public class LookupService extends AbstractDXRAMService<LookupServiceConfig> imp
         return m_lookup.getLookupRange(p_chunkID);
     }
 
+    /**
+     * Get the corresponding LookupRanges for many ChunkIDs with one request per responsible superpeer
+     *
+     * @param p_chunkIDs
+     *         the ChunkIDs
+     * @return one LookupRange per ChunkID (same order)
+     */
+    public LookupRange[] getLookupRanges(final long... p_chunkIDs) {
+        return m_lookup.getLookupRanges(p_chunkIDs);
+    }
+
+    /**
+     * Pull all ranges of a creator into the lookup cache, e.g. before reading many of its chunks
+     *
+     * @param p_creatorID
+     *         the creator
+     * @return the number of ranges cached, -1 on failure or if caches are disabled
+     */
+    public int warmUpCache(final short p_creatorID) {
+        return m_lookup.warmUpCache(p_creatorID);
+    }
+
     /**
      * Returns the responsible superpeer for given peer
      *
@@ -22,7 +22,9 @@ import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
 import de.hhu.bsinfo.dxnet.core.Request;
 
 /**
- * Request for getting the ChunkID to corresponding id on a remote node
+ * Request for getting the ChunkID to corresponding id on a remote node. If the requester watches the id and the entry
+ * does not exist, yet, the superpeer notifies the requester as soon as the entry is inserted
+ * (NameserviceUpdatePeerCachesMessage).
  *
  * @author Florian Klein, florian.klein@hhu.de, 09.03.2012
  */
@@ -30,6 +32,7 @@ public class GetChunkIDForNameserviceEntryRequest extends Request {
 
     // Attributes
     private int m_id;
+    private boolean m_watch;
 
     // Constructors
 
@@ -40,6 +43,7 @@ public class GetChunkIDForNameserviceEntryRequest extends Request {
         super();
 
         m_id = -1;
+        m_watch = false;
     }
 
     /**
@@ -51,9 +55,24 @@ public class GetChunkIDForNameserviceEntryRequest extends Request {
      *         the id
      */
     public GetChunkIDForNameserviceEntryRequest(final short p_destination, final int p_id) {
+        this(p_destination, p_id, false);
+    }
+
+    /**
+     * Creates an instance of GetChunkIDRequest
+     *
+     * @param p_destination
+     *         the destination
+     * @param p_id
+     *         the id
+     * @param p_watch
+     *         whether the requester wants to be notified when the entry is inserted (if it does not exist, yet)
+     */
+    public GetChunkIDForNameserviceEntryRequest(final short p_destination, final int p_id, final boolean p_watch) {
         super(p_destination, DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKID_FOR_NAMESERVICE_ENTRY_REQUEST);
 
         m_id = p_id;
+        m_watch = p_watch;
     }
 
     // Getters
@@ -67,20 +86,31 @@ public class GetChunkIDForNameserviceEntryRequest extends Request {
         return m_id;
     }
 
+    /**
+     * Check if the requester wants to be notified when the entry is inserted
+     *
+     * @return true if the id is watched
+     */
+    public final boolean isWatch() {
+        return m_watch;
+    }
+
     @Override
     protected final int getPayloadLength() {
-        return Integer.BYTES;
+        return Integer.BYTES + Byte.BYTES;
     }
 
     // Methods
     @Override
     protected final void writePayload(final AbstractMessageExporter p_exporter) {
         p_exporter.writeInt(m_id);
+        p_exporter.writeBoolean(m_watch);
     }
 
     @Override
     protected final void readPayload(final AbstractMessageImporter p_importer) {
         m_id = p_importer.readInt(m_id);
+        m_watch = p_importer.readBoolean(m_watch);
     }
 
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.messages;
+
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Request for getting the ChunkIDs of multiple nameservice entries with arbitrary names on a remote node
+ */
+public class GetChunkIDsForNameserviceStringEntriesRequest extends Request {
+
+    // Attributes
+    private byte[][] m_names;
+
+    // Constructors
+
+    /**
+     * Creates an instance of GetChunkIDsForNameserviceStringEntriesRequest
+     */
+    public GetChunkIDsForNameserviceStringEntriesRequest() {
+        super();
+
+        m_names = null;
+    }
+
+    /**
+     * Creates an instance of GetChunkIDsForNameserviceStringEntriesRequest
+     *
+     * @param p_destination
+     *         the destination
+     * @param p_names
+     *         the UTF-8 encoded names
+     */
+    public GetChunkIDsForNameserviceStringEntriesRequest(final short p_destination, final byte[][] p_names) {
+        super(p_destination, DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST);
+
+        m_names = p_names;
+    }
+
+    // Getters
+
+    /**
+     * Get the names
+     *
+     * @return the UTF-8 encoded names
+     */
+    public final byte[][] getNames() {
+        return m_names;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        int ret = ObjectSizeUtil.sizeofCompactedNumber(m_names.length);
+
+        for (byte[] name : m_names) {
+            ret += ObjectSizeUtil.sizeofByteArray(name);
+        }
+
+        return ret;
+    }
+
+    // Methods
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeCompactNumber(m_names.length);
+        for (byte[] name : m_names) {
+            p_exporter.writeByteArray(name);
+        }
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        int length = p_importer.readCompactNumber(0);
+        if (m_names == null) {
+            m_names = new byte[length][];
+        }
+        for (int i = 0; i < m_names.length; i++) {
+            m_names[i] = p_importer.readByteArray(m_names[i]);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to a GetChunkIDsForNameserviceStringEntriesRequest
+ */
+public class GetChunkIDsForNameserviceStringEntriesResponse extends Response {
+
+    // Attributes
+    private long[] m_chunkIDs;
+    private byte[] m_responsible;
+
+    // Constructors
+
+    /**
+     * Creates an instance of GetChunkIDsForNameserviceStringEntriesResponse
+     */
+    public GetChunkIDsForNameserviceStringEntriesResponse() {
+        super();
+
+        m_chunkIDs = null;
+        m_responsible = null;
+    }
+
+    /**
+     * Creates an instance of GetChunkIDsForNameserviceStringEntriesResponse
+     *
+     * @param p_request
+     *         the corresponding GetChunkIDsForNameserviceStringEntriesRequest
+     * @param p_chunkIDs
+     *         one ChunkID per requested name (same order), ChunkID.INVALID_ID if not registered
+     * @param p_responsible
+     *         one flag per requested name (same order): 1 if the superpeer is responsible, 0 otherwise
+     */
+    public GetChunkIDsForNameserviceStringEntriesResponse(final GetChunkIDsForNameserviceStringEntriesRequest p_request, final long[] p_chunkIDs,
+            final byte[] p_responsible) {
+        super(p_request, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_RESPONSE);
+
+        m_chunkIDs = p_chunkIDs;
+        m_responsible = p_responsible;
+    }
+
+    // Getters
+
+    /**
+     * Get the ChunkIDs
+     *
+     * @return the ChunkIDs
+     */
+    public final long[] getChunkIDs() {
+        return m_chunkIDs;
+    }
+
+    /**
+     * Get the flags of the names the superpeer is responsible for
+     *
+     * @return 1 for every name the superpeer is responsible for, 0 otherwise
+     */
+    public final byte[] getResponsible() {
+        return m_responsible;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofLongArray(m_chunkIDs) + ObjectSizeUtil.sizeofByteArray(m_responsible);
+    }
+
+    // Methods
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeLongArray(m_chunkIDs);
+        p_exporter.writeByteArray(m_responsible);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_chunkIDs = p_importer.readLongArray(m_chunkIDs);
+        m_responsible = p_importer.readByteArray(m_responsible);
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.messages;
+
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxutils.NodeID;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Request to resolve the lookup ranges of many ChunkIDs or of the whole ChunkID space of a creator at once
+ */
+public class GetLookupRangesRequest extends Request {
+
+    // Attributes
+    private short m_creatorID;
+    private long[] m_chunkIDs;
+
+    // Constructors
+
+    /**
+     * Creates an instance of GetLookupRangesRequest
+     */
+    public GetLookupRangesRequest() {
+        super();
+
+        m_creatorID = NodeID.INVALID_ID;
+        m_chunkIDs = null;
+    }
+
+    /**
+     * Creates an instance of GetLookupRangesRequest to resolve the ranges of the given ChunkIDs
+     *
+     * @param p_destination
+     *         the destination
+     * @param p_chunkIDs
+     *         the ChunkIDs of the requested objects
+     */
+    public GetLookupRangesRequest(final short p_destination, final long[] p_chunkIDs) {
+        super(p_destination, DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_REQUEST);
+
+        assert p_chunkIDs != null;
+
+        m_creatorID = NodeID.INVALID_ID;
+        m_chunkIDs = p_chunkIDs;
+    }
+
+    /**
+     * Creates an instance of GetLookupRangesRequest to get all ranges of a creator
+     *
+     * @param p_destination
+     *         the destination
+     * @param p_creatorID
+     *         the creator whose ChunkID space is requested
+     */
+    public GetLookupRangesRequest(final short p_destination, final short p_creatorID) {
+        super(p_destination, DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_REQUEST);
+
+        assert p_creatorID != NodeID.INVALID_ID;
+
+        m_creatorID = p_creatorID;
+        m_chunkIDs = new long[0];
+    }
+
+    // Getters
+
+    /**
+     * Get the creator whose ranges are requested
+     *
+     * @return the creator or NodeID.INVALID_ID if the ranges of single ChunkIDs are requested
+     */
+    public final short getCreatorID() {
+        return m_creatorID;
+    }
+
+    /**
+     * Get the ChunkIDs
+     *
+     * @return the ChunkIDs (empty if all ranges of a creator are requested)
+     */
+    public final long[] getChunkIDs() {
+        return m_chunkIDs;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return Short.BYTES + ObjectSizeUtil.sizeofLongArray(m_chunkIDs);
+    }
+
+    // Methods
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeShort(m_creatorID);
+        p_exporter.writeLongArray(m_chunkIDs);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_creatorID = p_importer.readShort(m_creatorID);
+        m_chunkIDs = p_importer.readLongArray(m_chunkIDs);
+    }
+
+}
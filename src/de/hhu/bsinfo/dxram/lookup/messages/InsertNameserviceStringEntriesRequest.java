@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.messages;
+
+import de.hhu.bsinfo.dxram.DXRAMMessageTypes;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Request for inserting multiple nameservice entries with arbitrary names on a remote node
+ */
+public class InsertNameserviceStringEntriesRequest extends Request {
+
+    // Attributes
+    private byte[][] m_names;
+    private long[] m_chunkIDs;
+    private boolean m_isBackup;
+
+    // Constructors
+
+    /**
+     * Creates an instance of InsertNameserviceStringEntriesRequest
+     */
+    public InsertNameserviceStringEntriesRequest() {
+        super();
+
+        m_names = null;
+        m_chunkIDs = null;
+        m_isBackup = false;
+    }
+
+    /**
+     * Creates an instance of InsertNameserviceStringEntriesRequest
+     *
+     * @param p_destination
+     *         the destination
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @param p_chunkIDs
+     *         the ChunkIDs (same order)
+     * @param p_isBackup
+     *         whether this is a backup message or not
+     */
+    public InsertNameserviceStringEntriesRequest(final short p_destination, final byte[][] p_names, final long[] p_chunkIDs,
+            final boolean p_isBackup) {
+        super(p_destination, DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST);
+
+        m_names = p_names;
+        m_chunkIDs = p_chunkIDs;
+        m_isBackup = p_isBackup;
+    }
+
+    // Getters
+
+    /**
+     * Get the names
+     *
+     * @return the UTF-8 encoded names
+     */
+    public final byte[][] getNames() {
+        return m_names;
+    }
+
+    /**
+     * Get the ChunkIDs
+     *
+     * @return the ChunkIDs
+     */
+    public final long[] getChunkIDs() {
+        return m_chunkIDs;
+    }
+
+    /**
+     * Returns whether this is a backup message or not
+     *
+     * @return whether this is a backup message or not
+     */
+    public final boolean isBackup() {
+        return m_isBackup;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        int ret = ObjectSizeUtil.sizeofCompactedNumber(m_names.length) + ObjectSizeUtil.sizeofLongArray(m_chunkIDs) + Byte.BYTES;
+
+        for (byte[] name : m_names) {
+            ret += ObjectSizeUtil.sizeofByteArray(name);
+        }
+
+        return ret;
+    }
+
+    // Methods
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeCompactNumber(m_names.length);
+        for (byte[] name : m_names) {
+            p_exporter.writeByteArray(name);
+        }
+        p_exporter.writeLongArray(m_chunkIDs);
+        p_exporter.writeBoolean(m_isBackup);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        int length = p_importer.readCompactNumber(0);
+        if (m_names == null) {
+            m_names = new byte[length][];
+        }
+        for (int i = 0; i < m_names.length; i++) {
+            m_names[i] = p_importer.readByteArray(m_names[i]);
+        }
+        m_chunkIDs = p_importer.readLongArray(m_chunkIDs);
+        m_isBackup = p_importer.readBoolean(m_isBackup);
+    }
+
+}
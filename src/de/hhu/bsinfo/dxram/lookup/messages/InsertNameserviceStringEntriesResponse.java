@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.messages;
+
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to a InsertNameserviceStringEntriesRequest
+ */
+public class InsertNameserviceStringEntriesResponse extends Response {
+
+    // Attributes
+    private byte[] m_stored;
+    private short[] m_backupSuperpeers;
+
+    // Constructors
+
+    /**
+     * Creates an instance of InsertNameserviceStringEntriesResponse
+     */
+    public InsertNameserviceStringEntriesResponse() {
+        super();
+
+        m_stored = null;
+        m_backupSuperpeers = null;
+    }
+
+    /**
+     * Creates an instance of InsertNameserviceStringEntriesResponse
+     *
+     * @param p_request
+     *         the request
+     * @param p_stored
+     *         one flag per requested entry (same order): 1 if stored, 0 if the superpeer is not responsible
+     * @param p_backupSuperpeers
+     *         the backup superpeers (empty for backup requests)
+     */
+    public InsertNameserviceStringEntriesResponse(final InsertNameserviceStringEntriesRequest p_request, final byte[] p_stored,
+            final short[] p_backupSuperpeers) {
+        super(p_request, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_RESPONSE);
+
+        m_stored = p_stored;
+        m_backupSuperpeers = p_backupSuperpeers;
+    }
+
+    // Getters
+
+    /**
+     * Get the flags of the stored entries
+     *
+     * @return 1 for every stored entry, 0 otherwise
+     */
+    public final byte[] getStored() {
+        return m_stored;
+    }
+
+    /**
+     * Get the backup superpeers
+     *
+     * @return the backup superpeers
+     */
+    public final short[] getBackupSuperpeers() {
+        return m_backupSuperpeers;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(m_stored) + ObjectSizeUtil.sizeofShortArray(m_backupSuperpeers);
+    }
+
+    // Methods
+    @Override
+    protected final void writePayload(final AbstractMessageExporter p_exporter) {
+        p_exporter.writeByteArray(m_stored);
+        p_exporter.writeShortArray(m_backupSuperpeers);
+    }
+
+    @Override
+    protected final void readPayload(final AbstractMessageImporter p_importer) {
+        m_stored = p_importer.readByteArray(m_stored);
+        m_backupSuperpeers = p_importer.readShortArray(m_backupSuperpeers);
+    }
+
+}
@@ -97,6 +97,14 @@ public final class LookupMessages {
     public static final byte SUBTYPE_GET_METADATA_SUMMARY_REQUEST = 66;
     public static final byte SUBTYPE_GET_METADATA_SUMMARY_RESPONSE = 67;
 
+    public static final byte SUBTYPE_GET_LOOKUP_RANGES_REQUEST = 68;
+    public static final byte SUBTYPE_GET_LOOKUP_RANGES_RESPONSE = 69;
+
+    public static final byte SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST = 70;
+    public static final byte SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_RESPONSE = 71;
+    public static final byte SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST = 72;
+    public static final byte SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_RESPONSE = 73;
+
     /**
      * Hidden constructor
      */
@@ -18,7 +18,16 @@ package de.hhu.bsinfo.dxram.lookup.overlay;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
@@ -56,8 +65,12 @@ import de.hhu.bsinfo.dxram.lookup.messages.GetAllBackupRangesRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetAllBackupRangesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDForNameserviceEntryRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDForNameserviceEntryResponse;
+import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDsForNameserviceStringEntriesRequest;
+import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDsForNameserviceStringEntriesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangeRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangeResponse;
+import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangesRequest;
+import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetNameserviceEntriesRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetNameserviceEntriesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetNameserviceEntryCountRequest;
@@ -66,6 +79,8 @@ import de.hhu.bsinfo.dxram.lookup.messages.InitRangeRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.InitRangeResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceEntriesRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceEntriesResponse;
+import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceStringEntriesRequest;
+import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceStringEntriesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.JoinRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.JoinResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.LookupMessages;
@@ -100,6 +115,7 @@ import de.hhu.bsinfo.dxram.lookup.overlay.storage.BarrierID;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.BarrierStatus;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.NameserviceEntry;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.NameserviceHashTable;
+import de.hhu.bsinfo.dxram.lookup.overlay.storage.NameserviceStringTable;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.SuperpeerStorage;
 import de.hhu.bsinfo.dxram.net.NetworkComponent;
 import de.hhu.bsinfo.dxram.util.ArrayListLong;
@@ -116,6 +132,11 @@ public class OverlayPeer implements MessageReceiver {
     private static final Logger LOGGER = LogManager.getFormatterLogger(OverlayPeer.class.getSimpleName());
 
     private static final int MSG_TIMEOUT_MS = 100;
+    // Watches on nameservice entries are renewed in this interval in case the notification got lost
+    // (e.g. the responsible superpeer failed)
+    private static final int NAMESERVICE_WATCH_RENEWAL_MS = 1000;
+    // Max number of nameservice string entries sent to a superpeer in one request
+    private static final int NAMESERVICE_STRING_BATCH_SIZE = 1000;
 
     // Attributes
     private AbstractBootComponent m_boot;
@@ -128,6 +149,9 @@ public class OverlayPeer implements MessageReceiver {
     private int m_initialNumberOfSuperpeers;
     private ReentrantReadWriteLock m_overlayLock;
 
+    // Threads waiting for nameservice entries to be inserted (nameservice id -> ChunkID to be completed)
+    private ConcurrentHashMap<Integer, CompletableFuture<Long>> m_nameserviceWatches;
+
     /**
      * Creates an instance of OverlayPeer
      *
@@ -154,6 +178,8 @@ public class OverlayPeer implements MessageReceiver {
 
         m_nodeID = p_nodeID;
 
+        m_nameserviceWatches = new ConcurrentHashMap<>();
+
         registerNetworkMessages();
         registerNetworkMessageListener();
 
@@ -289,6 +315,119 @@ public class OverlayPeer implements MessageReceiver {
         return ret;
     }
 
+    /**
+     * Get the corresponding LookupRanges for many ChunkIDs. One request is sent to every responsible superpeer
+     * and all requests are sent concurrently.
+     *
+     * @param p_chunkIDs
+     *         the ChunkIDs
+     * @return one LookupRange per ChunkID (same order), null if there is no responsible superpeer
+     */
+    public LookupRange[] getLookupRanges(final long[] p_chunkIDs) {
+        LookupRange[] ret;
+        boolean check = false;
+        Map<Short, ArrayList<Integer>> chunkIDsBySuperpeers = new TreeMap<>();
+
+        ret = new LookupRange[p_chunkIDs.length];
+
+        m_overlayLock.readLock().lock();
+        if (!OverlayHelper.isOverlayStable(m_initialNumberOfSuperpeers, m_superpeers.size())) {
+            check = true;
+        }
+        short lastCreator = NodeID.INVALID_ID;
+        short responsibleSuperpeer = NodeID.INVALID_ID;
+        for (int i = 0; i < p_chunkIDs.length; i++) {
+            short creator = ChunkID.getCreatorID(p_chunkIDs[i]);
+
+            // ChunkIDs of a batch are mostly of the same creator -> determine the superpeer once per creator run
+            if (creator != lastCreator) {
+                responsibleSuperpeer = getResponsibleSuperpeer(creator, check);
+                lastCreator = creator;
+            }
+
+            if (responsibleSuperpeer != NodeID.INVALID_ID) {
+                chunkIDsBySuperpeers.computeIfAbsent(responsibleSuperpeer, key -> new ArrayList<>()).add(i);
+            }
+        }
+        m_overlayLock.readLock().unlock();
+
+        if (chunkIDsBySuperpeers.isEmpty()) {
+            return ret;
+        }
+
+        GetLookupRangesRequest[] requests = new GetLookupRangesRequest[chunkIDsBySuperpeers.size()];
+        int requestIndex = 0;
+        for (Entry<Short, ArrayList<Integer>> entry : chunkIDsBySuperpeers.entrySet()) {
+            ArrayList<Integer> indices = entry.getValue();
+            long[] chunkIDs = new long[indices.size()];
+
+            for (int i = 0; i < chunkIDs.length; i++) {
+                chunkIDs[i] = p_chunkIDs[indices.get(i)];
+            }
+
+            requests[requestIndex++] = new GetLookupRangesRequest(entry.getKey(), chunkIDs);
+        }
+
+        NetworkException[] requestErrors = m_network.sendSyncAll(requests);
+
+        requestIndex = 0;
+        for (Entry<Short, ArrayList<Integer>> entry : chunkIDsBySuperpeers.entrySet()) {
+            ArrayList<Integer> indices = entry.getValue();
+
+            if (requestErrors[requestIndex] != null) {
+                // Responsible superpeer is not available
+                for (int index : indices) {
+                    ret[index] = new LookupRange(LookupState.DATA_TEMPORARY_UNAVAILABLE);
+                }
+            } else {
+                LookupRange[] lookupRanges = requests[requestIndex].getResponse(GetLookupRangesResponse.class).getLookupRanges();
+
+                for (int i = 0; i < indices.size(); i++) {
+                    ret[indices.get(i)] = lookupRanges[i];
+                }
+            }
+
+            requestIndex++;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get all LookupRanges of a creator's ChunkID space from the responsible superpeer
+     *
+     * @param p_creatorID
+     *         the creator
+     * @return the LookupRanges in ascending order, null if there is no responsible superpeer
+     */
+    public LookupRange[] getAllLookupRanges(final short p_creatorID) {
+        short responsibleSuperpeer;
+        boolean check = false;
+
+        GetLookupRangesRequest request;
+
+        m_overlayLock.readLock().lock();
+        if (!OverlayHelper.isOverlayStable(m_initialNumberOfSuperpeers, m_superpeers.size())) {
+            check = true;
+        }
+        responsibleSuperpeer = getResponsibleSuperpeer(p_creatorID, check);
+        m_overlayLock.readLock().unlock();
+
+        if (responsibleSuperpeer == NodeID.INVALID_ID) {
+            return null;
+        }
+
+        request = new GetLookupRangesRequest(responsibleSuperpeer, p_creatorID);
+        try {
+            m_network.sendSync(request);
+        } catch (final NetworkException e) {
+            // Responsible superpeer is not available
+            return new LookupRange[] {new LookupRange(LookupState.DATA_TEMPORARY_UNAVAILABLE)};
+        }
+
+        return request.getResponse(GetLookupRangesResponse.class).getLookupRanges();
+    }
+
     /**
      * Returns the responsible superpeer for given peer
      *
@@ -436,6 +575,8 @@ public class OverlayPeer implements MessageReceiver {
     /**
      * Get ChunkID for give nameservice id. Use this if you assume
      * that your entry has to exist.
+     * If the entry does not exist, yet, the responsible superpeer is asked to notify this peer as soon as the entry
+     * is inserted, i.e. the caller waits for the notification instead of polling the superpeer.
      *
      * @param p_id
      *         the nameservice id
@@ -449,6 +590,7 @@ public class OverlayPeer implements MessageReceiver {
         short responsibleSuperpeer;
         boolean check = false;
         GetChunkIDForNameserviceEntryRequest request;
+        CompletableFuture<Long> watch = null;
 
         // Resolve ChunkID <-> ApplicationID mapping to return corresponding ChunkID
         m_overlayLock.readLock().lock();
@@ -461,7 +603,12 @@ public class OverlayPeer implements MessageReceiver {
         long start = System.currentTimeMillis();
         do {
             if (responsibleSuperpeer != NodeID.INVALID_ID) {
-                request = new GetChunkIDForNameserviceEntryRequest(responsibleSuperpeer, p_id);
+                // make sure to register the watch BEFORE sending the request to not miss the notification
+                if (p_timeoutMs != 0) {
+                    watch = m_nameserviceWatches.computeIfAbsent(p_id, k -> new CompletableFuture<>());
+                }
+
+                request = new GetChunkIDForNameserviceEntryRequest(responsibleSuperpeer, p_id, watch != null);
                 try {
                     m_network.sendSync(request);
                 } catch (final NetworkException e) {
@@ -483,10 +630,35 @@ public class OverlayPeer implements MessageReceiver {
                 // 0 is considered invalid, but outside of this scope, we always consider -1 as invalid
                 if (ret == 0) {
                     ret = ChunkID.INVALID_ID;
-                } else {
+                } else if (ret != ChunkID.INVALID_ID) {
                     // valid, we are done
                     break;
                 }
+
+                if (watch != null) {
+                    // Wait for the superpeer's notification (or renew the watch after a while)
+                    long waitMs = NAMESERVICE_WATCH_RENEWAL_MS;
+                    if (p_timeoutMs != -1) {
+                        waitMs = Math.min(waitMs, p_timeoutMs - (System.currentTimeMillis() - start));
+                    }
+
+                    if (waitMs > 0) {
+                        try {
+                            ret = watch.get(waitMs, TimeUnit.MILLISECONDS);
+                            break;
+                        } catch (final TimeoutException | ExecutionException ignored) {
+                            ret = ChunkID.INVALID_ID;
+                        } catch (final InterruptedException ignored) {
+                            ret = ChunkID.INVALID_ID;
+                            break;
+                        }
+                    }
+                }
+            } else {
+                try {
+                    Thread.sleep(MSG_TIMEOUT_MS);
+                } catch (final InterruptedException ignored) {
+                }
             }
 
             m_overlayLock.readLock().lock();
@@ -494,6 +666,154 @@ public class OverlayPeer implements MessageReceiver {
             m_overlayLock.readLock().unlock();
         } while (p_timeoutMs == -1 || System.currentTimeMillis() - start < p_timeoutMs);
 
+        if (watch != null && !watch.isDone()) {
+            // Nobody waits for this entry anymore (other waiting threads register the watch again on renewal)
+            m_nameserviceWatches.remove(p_id, watch);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Insert multiple nameservice entries with arbitrary names. Returns once all entries are stored on their
+     * responsible superpeers (backups are sent afterwards).
+     *
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @param p_chunkIDs
+     *         the ChunkIDs (same order)
+     */
+    public void insertNameserviceStringEntries(final byte[][] p_names, final long[] p_chunkIDs) {
+        long[] keys = hashNames(p_names);
+        ArrayList<Integer> pending = new ArrayList<>(p_names.length);
+
+        for (int i = 0; i < p_names.length; i++) {
+            pending.add(i);
+        }
+
+        while (true) {
+            ArrayList<Integer> unassigned = new ArrayList<>();
+            ArrayList<NameserviceStringBatch> batches = groupNamesBySuperpeers(keys, pending, unassigned);
+            pending = unassigned;
+
+            InsertNameserviceStringEntriesRequest[] requests = new InsertNameserviceStringEntriesRequest[batches.size()];
+            for (int i = 0; i < requests.length; i++) {
+                NameserviceStringBatch batch = batches.get(i);
+                requests[i] = new InsertNameserviceStringEntriesRequest(batch.m_superpeer, batch.getNames(p_names), batch.getChunkIDs(p_chunkIDs),
+                        false);
+            }
+
+            NetworkException[] requestErrors = requests.length > 0 ? m_network.sendSyncAll(requests) : new NetworkException[0];
+
+            for (int i = 0; i < requests.length; i++) {
+                NameserviceStringBatch batch = batches.get(i);
+
+                if (requestErrors[i] != null) {
+                    // Responsible superpeer is not available, try again (superpeers will be updated
+                    // automatically by network thread)
+                    batch.addIndicesTo(pending);
+                    continue;
+                }
+
+                InsertNameserviceStringEntriesResponse response = requests[i].getResponse(InsertNameserviceStringEntriesResponse.class);
+                byte[] stored = response.getStored();
+                ArrayList<Integer> storedIndices = new ArrayList<>(stored.length);
+                for (int j = 0; j < stored.length; j++) {
+                    if (stored[j] == 1) {
+                        storedIndices.add(batch.m_indices[j]);
+                    } else {
+                        // Superpeer is not responsible (anymore), try again
+                        pending.add(batch.m_indices[j]);
+                    }
+                }
+
+                short[] backupSuperpeers = response.getBackupSuperpeers();
+                if (!storedIndices.isEmpty() && backupSuperpeers.length > 0 && backupSuperpeers[0] != NodeID.INVALID_ID) {
+                    NameserviceStringBatch storedBatch = new NameserviceStringBatch(batch.m_superpeer, storedIndices);
+                    byte[][] names = storedBatch.getNames(p_names);
+                    long[] chunkIDs = storedBatch.getChunkIDs(p_chunkIDs);
+
+                    // Send backups
+                    for (short backupSuperpeer : backupSuperpeers) {
+                        try {
+                            m_network.sendSync(new InsertNameserviceStringEntriesRequest(backupSuperpeer, names, chunkIDs, true));
+                        } catch (final NetworkException e) {
+                            // Ignore superpeer failure, own superpeer will fix this
+                        }
+                    }
+                }
+            }
+
+            if (pending.isEmpty()) {
+                break;
+            }
+
+            try {
+                Thread.sleep(MSG_TIMEOUT_MS);
+            } catch (final InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Get the ChunkIDs of multiple nameservice entries with arbitrary names
+     *
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @return the ChunkIDs (same order), ChunkID.INVALID_ID for names not registered or if the responsible
+     * superpeer is not available
+     */
+    public long[] getChunkIDsForNameserviceStringEntries(final byte[][] p_names) {
+        long[] ret = new long[p_names.length];
+        long[] keys = hashNames(p_names);
+        ArrayList<Integer> pending = new ArrayList<>(p_names.length);
+
+        for (int i = 0; i < p_names.length; i++) {
+            ret[i] = ChunkID.INVALID_ID;
+            pending.add(i);
+        }
+
+        while (true) {
+            ArrayList<NameserviceStringBatch> batches = groupNamesBySuperpeers(keys, pending, null);
+            pending = new ArrayList<>();
+
+            GetChunkIDsForNameserviceStringEntriesRequest[] requests = new GetChunkIDsForNameserviceStringEntriesRequest[batches.size()];
+            for (int i = 0; i < requests.length; i++) {
+                NameserviceStringBatch batch = batches.get(i);
+                requests[i] = new GetChunkIDsForNameserviceStringEntriesRequest(batch.m_superpeer, batch.getNames(p_names));
+            }
+
+            NetworkException[] requestErrors = requests.length > 0 ? m_network.sendSyncAll(requests) : new NetworkException[0];
+
+            for (int i = 0; i < requests.length; i++) {
+                if (requestErrors[i] == null) {
+                    int[] batchIndices = batches.get(i).m_indices;
+                    GetChunkIDsForNameserviceStringEntriesResponse response =
+                            requests[i].getResponse(GetChunkIDsForNameserviceStringEntriesResponse.class);
+                    long[] chunkIDs = response.getChunkIDs();
+                    byte[] responsible = response.getResponsible();
+
+                    for (int j = 0; j < batchIndices.length; j++) {
+                        if (responsible[j] == 1) {
+                            ret[batchIndices[j]] = chunkIDs[j];
+                        } else {
+                            // Superpeer is not responsible (anymore), try again
+                            pending.add(batchIndices[j]);
+                        }
+                    }
+                }
+            }
+
+            if (pending.isEmpty()) {
+                break;
+            }
+
+            try {
+                Thread.sleep(MSG_TIMEOUT_MS);
+            } catch (final InterruptedException ignored) {
+            }
+        }
+
         return ret;
     }
 
@@ -1546,6 +1866,11 @@ public class OverlayPeer implements MessageReceiver {
      *         the NameserviceUpdatePeerCachesMessage
      */
     private void incomingNameserviceUpdatePeerCachesMessage(final NameserviceUpdatePeerCachesMessage p_message) {
+        CompletableFuture<Long> watch = m_nameserviceWatches.remove(p_message.getID());
+        if (watch != null) {
+            watch.complete(p_message.getChunkID());
+        }
+
         m_event.fireEvent(new NameserviceCacheEntryUpdateEvent(getClass().getSimpleName(), p_message.getID(), p_message.getChunkID()));
     }
 
@@ -1584,6 +1909,8 @@ public class OverlayPeer implements MessageReceiver {
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_FINISHED_STARTUP_MESSAGE, FinishedStartupMessage.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGE_REQUEST, GetLookupRangeRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGE_RESPONSE, GetLookupRangeResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_REQUEST, GetLookupRangesRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_RESPONSE, GetLookupRangesResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_REMOVE_CHUNKIDS_REQUEST, RemoveChunkIDsRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_REMOVE_CHUNKIDS_RESPONSE, RemoveChunkIDsResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_ENTRIES_REQUEST,
@@ -1594,6 +1921,14 @@ public class OverlayPeer implements MessageReceiver {
                 GetChunkIDForNameserviceEntryRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKID_FOR_NAMESERVICE_ENTRY_RESPONSE,
                 GetChunkIDForNameserviceEntryResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST,
+                InsertNameserviceStringEntriesRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_RESPONSE,
+                InsertNameserviceStringEntriesResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST,
+                GetChunkIDsForNameserviceStringEntriesRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_RESPONSE,
+                GetChunkIDsForNameserviceStringEntriesResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRY_COUNT_REQUEST,
                 GetNameserviceEntryCountRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRY_COUNT_RESPONSE,
@@ -1680,4 +2015,134 @@ public class OverlayPeer implements MessageReceiver {
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_NODE_JOIN_EVENT_REQUEST, this);
     }
 
+
+    /**
+     * Hashes all names to the keys of the nameservice string table
+     *
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @return the keys
+     */
+    private static long[] hashNames(final byte[][] p_names) {
+        long[] ret = new long[p_names.length];
+
+        for (int i = 0; i < p_names.length; i++) {
+            ret[i] = NameserviceStringTable.hash(p_names[i]);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Groups the given names by their responsible superpeers and splits them into batches
+     *
+     * @param p_keys
+     *         the keys of all names
+     * @param p_indices
+     *         the indices of the names to group
+     * @param p_unassigned
+     *         list to add the indices of names without an available superpeer to (may be null)
+     * @return the batches
+     */
+    private ArrayList<NameserviceStringBatch> groupNamesBySuperpeers(final long[] p_keys, final ArrayList<Integer> p_indices,
+            final ArrayList<Integer> p_unassigned) {
+        ArrayList<NameserviceStringBatch> ret = new ArrayList<>();
+        boolean check = false;
+        Map<Short, ArrayList<Integer>> indicesBySuperpeers = new TreeMap<>();
+
+        m_overlayLock.readLock().lock();
+        if (!OverlayHelper.isOverlayStable(m_initialNumberOfSuperpeers, m_superpeers.size())) {
+            check = true;
+        }
+        for (int index : p_indices) {
+            short responsibleSuperpeer = getResponsibleSuperpeer(NameserviceStringTable.getSuperpeerHash(p_keys[index]), check);
+            if (responsibleSuperpeer != NodeID.INVALID_ID) {
+                indicesBySuperpeers.computeIfAbsent(responsibleSuperpeer, key -> new ArrayList<>()).add(index);
+            } else if (p_unassigned != null) {
+                p_unassigned.add(index);
+            }
+        }
+        m_overlayLock.readLock().unlock();
+
+        for (Entry<Short, ArrayList<Integer>> entry : indicesBySuperpeers.entrySet()) {
+            ArrayList<Integer> indices = entry.getValue();
+
+            for (int i = 0; i < indices.size(); i += NAMESERVICE_STRING_BATCH_SIZE) {
+                ret.add(new NameserviceStringBatch(entry.getKey(), indices.subList(i, Math.min(i + NAMESERVICE_STRING_BATCH_SIZE, indices.size()))));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Nameservice string entries sent to one superpeer in one request
+     */
+    private static final class NameserviceStringBatch {
+
+        private final short m_superpeer;
+        private final int[] m_indices;
+
+        /**
+         * Creates an instance of NameserviceStringBatch
+         *
+         * @param p_superpeer
+         *         the responsible superpeer
+         * @param p_indices
+         *         the indices of the entries in the caller's arrays
+         */
+        private NameserviceStringBatch(final short p_superpeer, final List<Integer> p_indices) {
+            m_superpeer = p_superpeer;
+            m_indices = new int[p_indices.size()];
+            for (int i = 0; i < m_indices.length; i++) {
+                m_indices[i] = p_indices.get(i);
+            }
+        }
+
+        /**
+         * Get the names of this batch
+         *
+         * @param p_names
+         *         all names
+         * @return the names of this batch
+         */
+        private byte[][] getNames(final byte[][] p_names) {
+            byte[][] ret = new byte[m_indices.length][];
+
+            for (int i = 0; i < m_indices.length; i++) {
+                ret[i] = p_names[m_indices[i]];
+            }
+
+            return ret;
+        }
+
+        /**
+         * Get the ChunkIDs of this batch
+         *
+         * @param p_chunkIDs
+         *         all ChunkIDs
+         * @return the ChunkIDs of this batch
+         */
+        private long[] getChunkIDs(final long[] p_chunkIDs) {
+            long[] ret = new long[m_indices.length];
+
+            for (int i = 0; i < m_indices.length; i++) {
+                ret[i] = p_chunkIDs[m_indices[i]];
+            }
+
+            return ret;
+        }
+
+        /**
+         * Add the indices of this batch to given list
+         *
+         * @param p_list
+         *         the list
+         */
+        private void addIndicesTo(final ArrayList<Integer> p_list) {
+            for (int index : m_indices) {
+                p_list.add(index);
+            }
+        }
+    }
 }
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
@@ -65,8 +66,12 @@ import de.hhu.bsinfo.dxram.lookup.messages.GetAllBackupRangesRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetAllBackupRangesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDForNameserviceEntryRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDForNameserviceEntryResponse;
+import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDsForNameserviceStringEntriesRequest;
+import de.hhu.bsinfo.dxram.lookup.messages.GetChunkIDsForNameserviceStringEntriesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangeRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangeResponse;
+import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangesRequest;
+import de.hhu.bsinfo.dxram.lookup.messages.GetLookupRangesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetMetadataSummaryRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.GetMetadataSummaryResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.GetNameserviceEntriesRequest;
@@ -77,6 +82,8 @@ import de.hhu.bsinfo.dxram.lookup.messages.InitRangeRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.InitRangeResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceEntriesRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceEntriesResponse;
+import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceStringEntriesRequest;
+import de.hhu.bsinfo.dxram.lookup.messages.InsertNameserviceStringEntriesResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.JoinRequest;
 import de.hhu.bsinfo.dxram.lookup.messages.JoinResponse;
 import de.hhu.bsinfo.dxram.lookup.messages.LookupMessages;
@@ -116,6 +123,7 @@ import de.hhu.bsinfo.dxram.lookup.overlay.storage.BarriersTable;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.LookupTree;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.MetadataHandler;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.NameserviceHashTable;
+import de.hhu.bsinfo.dxram.lookup.overlay.storage.NameserviceStringTable;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.PeerHandler;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.PeerState;
 import de.hhu.bsinfo.dxram.lookup.overlay.storage.SuperpeerStorage;
@@ -140,6 +148,9 @@ public class OverlaySuperpeer implements MessageReceiver {
 
     private static final Logger LOGGER = LogManager.getFormatterLogger(OverlaySuperpeer.class.getSimpleName());
 
+    // Watches on nameservice entries expire if the watching peer does not renew them (every second, see OverlayPeer)
+    private static final int NAMESERVICE_WATCH_TIMEOUT_MS = 5000;
+
     // Attributes
     private NetworkComponent m_network;
     private AbstractBootComponent m_boot;
@@ -167,6 +178,11 @@ public class OverlaySuperpeer implements MessageReceiver {
 
     private MetadataHandler m_metadata;
 
+    // Peers waiting for a nameservice entry to be inserted (nameservice id -> watching peer -> deadline). Watches are
+    // not replicated: If the responsibility changes, the waiting peers renew their watches on the new superpeer.
+    // The inner maps are only modified within compute methods of the outer map
+    private ConcurrentHashMap<Integer, HashMap<Short, Long>> m_nameserviceWatchers;
+
     private SuperpeerStabilizationThread m_stabilizationThread;
 
     private ReentrantReadWriteLock m_overlayLock;
@@ -212,8 +228,9 @@ public class OverlaySuperpeer implements MessageReceiver {
         m_assignedPeersIncludingBackups = new ArrayList<>();
 
         m_metadata = new MetadataHandler(new PeerHandler[NodeID.MAX_ID], new NameserviceHashTable(1000, 0.9f),
-                new SuperpeerStorage(p_storageMaxNumEntries, p_storageMaxSizeBytes), new BarriersTable(p_maxNumOfBarriers, m_nodeID),
-                m_assignedPeersIncludingBackups);
+                new NameserviceStringTable(1024, 0.75f), new SuperpeerStorage(p_storageMaxNumEntries, p_storageMaxSizeBytes),
+                new BarriersTable(p_maxNumOfBarriers, m_nodeID), m_assignedPeersIncludingBackups);
+        m_nameserviceWatchers = new ConcurrentHashMap<>();
 
         m_overlayLock = new ReentrantReadWriteLock(false);
 
@@ -324,6 +341,9 @@ public class OverlaySuperpeer implements MessageReceiver {
                     case LookupMessages.SUBTYPE_GET_LOOKUP_RANGE_REQUEST:
                         incomingGetLookupRangeRequest((GetLookupRangeRequest) p_message);
                         break;
+                    case LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_REQUEST:
+                        incomingGetLookupRangesRequest((GetLookupRangesRequest) p_message);
+                        break;
                     case LookupMessages.SUBTYPE_REMOVE_CHUNKIDS_REQUEST:
                         incomingRemoveChunkIDsRequest((RemoveChunkIDsRequest) p_message);
                         break;
@@ -333,6 +353,12 @@ public class OverlaySuperpeer implements MessageReceiver {
                     case LookupMessages.SUBTYPE_GET_CHUNKID_FOR_NAMESERVICE_ENTRY_REQUEST:
                         incomingGetChunkIDForNameserviceEntryRequest((GetChunkIDForNameserviceEntryRequest) p_message);
                         break;
+                    case LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST:
+                        incomingInsertNameserviceStringEntriesRequest((InsertNameserviceStringEntriesRequest) p_message);
+                        break;
+                    case LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST:
+                        incomingGetChunkIDsForNameserviceStringEntriesRequest((GetChunkIDsForNameserviceStringEntriesRequest) p_message);
+                        break;
                     case LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRY_COUNT_REQUEST:
                         incomingGetNameserviceEntryCountRequest((GetNameserviceEntryCountRequest) p_message);
                         break;
@@ -432,6 +458,9 @@ public class OverlaySuperpeer implements MessageReceiver {
         if (m_predecessor != m_successor) {
             OverlayHelper.insertSuperpeer(m_predecessor, m_superpeers);
         }
+
+        // a new predecessor took over a part of the responsible area
+        pruneNameserviceWatchers();
     }
 
     /**
@@ -602,6 +631,26 @@ public class OverlaySuperpeer implements MessageReceiver {
         }
     }
 
+    /**
+     * Removes expired watches on nameservice entries and all watches on entries this superpeer is not responsible for
+     *
+     * @lock overlay lock must be read-locked
+     */
+    void pruneNameserviceWatchers() {
+        long now = System.currentTimeMillis();
+
+        for (Integer id : m_nameserviceWatchers.keySet()) {
+            if (OverlayHelper.isHashInSuperpeerRange(CRC16.hash(id), m_predecessor, m_nodeID)) {
+                m_nameserviceWatchers.computeIfPresent(id, (k, watchers) -> {
+                    watchers.values().removeIf(deadline -> deadline < now);
+                    return watchers.isEmpty() ? null : watchers;
+                });
+            } else {
+                m_nameserviceWatchers.remove(id);
+            }
+        }
+    }
+
     /**
      * Takes over failed superpeers peers
      *
@@ -847,6 +896,14 @@ public class OverlaySuperpeer implements MessageReceiver {
             m_boot.singleNodeCleanup(p_failedNode, NodeRole.PEER);
         }
 
+        // The failed peer does not wait for any nameservice entries anymore
+        for (Integer id : m_nameserviceWatchers.keySet()) {
+            m_nameserviceWatchers.computeIfPresent(id, (k, watchers) -> {
+                watchers.remove(p_failedNode);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+
         // #if LOGGER >= INFO
         LOGGER.info("Informing all other peers about failed node 0x%X", p_failedNode);
         // #endif /* LOGGER >= INFO */
@@ -1535,6 +1592,41 @@ public class OverlaySuperpeer implements MessageReceiver {
         }
     }
 
+    /**
+     * Handles an incoming GetLookupRangesRequest
+     *
+     * @param p_getLookupRangesRequest
+     *         the GetLookupRangesRequest
+     */
+    private void incomingGetLookupRangesRequest(final GetLookupRangesRequest p_getLookupRangesRequest) {
+        short creatorID;
+        long[] chunkIDs;
+        LookupRange[] result;
+
+        creatorID = p_getLookupRangesRequest.getCreatorID();
+        chunkIDs = p_getLookupRangesRequest.getChunkIDs();
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Got request: GET_LOOKUP_RANGES_REQUEST 0x%X creator: 0x%X, chunkIDs: %d", p_getLookupRangesRequest.getSource(), creatorID,
+                chunkIDs.length);
+        // #endif /* LOGGER == TRACE */
+
+        if (creatorID != NodeID.INVALID_ID) {
+            result = m_metadata.getAllLookupRangesFromLookupTree(creatorID, m_backupActive);
+        } else {
+            result = new LookupRange[chunkIDs.length];
+            for (int i = 0; i < chunkIDs.length; i++) {
+                result[i] = m_metadata.getLookupRangeFromLookupTree(chunkIDs[i], m_backupActive);
+            }
+        }
+
+        try {
+            m_network.sendMessage(new GetLookupRangesResponse(p_getLookupRangesRequest, result));
+        } catch (final NetworkException e) {
+            // Requesting peer is not available anymore, ignore it
+        }
+    }
+
     /**
      * Handles an incoming RemoveChunkIDsRequest
      *
@@ -1643,6 +1735,27 @@ public class OverlaySuperpeer implements MessageReceiver {
                     // peer is not available anymore, ignore it
                 }
             }
+
+            // notify all other peers waiting for this entry (the entry was put before removing the watchers,
+            // see incomingGetChunkIDForNameserviceEntryRequest)
+            HashMap<Short, Long> watchers = m_nameserviceWatchers.remove(id);
+            if (watchers != null) {
+                long now = System.currentTimeMillis();
+                for (Map.Entry<Short, Long> watcher : watchers.entrySet()) {
+                    short peer = watcher.getKey();
+                    if (watcher.getValue() < now || peers.contains(peer)) {
+                        // expired or already notified
+                        continue;
+                    }
+
+                    NameserviceUpdatePeerCachesMessage message = new NameserviceUpdatePeerCachesMessage(peer, id, p_insertIDRequest.getChunkID());
+                    try {
+                        m_network.sendMessage(message);
+                    } catch (final NetworkException e) {
+                        // peer is not available anymore, ignore it
+                    }
+                }
+            }
         } else if (p_insertIDRequest.isBackup()) {
             m_metadata.putNameserviceEntry(id, p_insertIDRequest.getChunkID());
 
@@ -1677,13 +1790,32 @@ public class OverlaySuperpeer implements MessageReceiver {
         LOGGER.trace("Got request: GET_CHUNKID_FOR_NAMESERVICE_ENTRY_REQUEST from 0x%X, id %d", p_getChunkIDForNameserviceEntryRequest.getSource(), id);
         // #endif /* LOGGER == TRACE */
 
+        m_overlayLock.readLock().lock();
         if (OverlayHelper.isHashInSuperpeerRange(CRC16.hash(id), m_predecessor, m_nodeID)) {
             chunkID = m_metadata.getNameserviceEntry(id);
+            if (chunkID == 0 && p_getChunkIDForNameserviceEntryRequest.isWatch()) {
+                // Register (or renew) the watch and check again: Either the entry is inserted afterwards and the
+                // requester is notified or it was inserted concurrently and is returned now (a needless notification
+                // is harmless)
+                short source = p_getChunkIDForNameserviceEntryRequest.getSource();
+                long now = System.currentTimeMillis();
+                m_nameserviceWatchers.compute(id, (k, watchers) -> {
+                    if (watchers == null) {
+                        watchers = new HashMap<>();
+                    } else {
+                        watchers.values().removeIf(deadline -> deadline < now);
+                    }
+                    watchers.put(source, now + NAMESERVICE_WATCH_TIMEOUT_MS);
+                    return watchers;
+                });
+                chunkID = m_metadata.getNameserviceEntry(id);
+            }
 
             // #if LOGGER == TRACE
             LOGGER.trace("GET_CHUNKID_REQUEST from 0x%X, id %d, reply chunkID 0x%X", p_getChunkIDForNameserviceEntryRequest.getSource(), id, chunkID);
             // #endif /* LOGGER == TRACE */
         }
+        m_overlayLock.readLock().unlock();
 
         try {
             m_network.sendMessage(new GetChunkIDForNameserviceEntryResponse(p_getChunkIDForNameserviceEntryRequest, chunkID));
@@ -1692,6 +1824,98 @@ public class OverlaySuperpeer implements MessageReceiver {
         }
     }
 
+    /**
+     * Handles an incoming InsertNameserviceStringEntriesRequest
+     *
+     * @param p_request
+     *         the InsertNameserviceStringEntriesRequest
+     */
+    private void incomingInsertNameserviceStringEntriesRequest(final InsertNameserviceStringEntriesRequest p_request) {
+        byte[][] names;
+        long[] keys;
+        boolean[] responsible;
+        byte[] stored;
+        short[] backupSuperpeers = new short[0];
+
+        names = p_request.getNames();
+        // #if LOGGER == TRACE
+        LOGGER.trace("Got request: INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST from 0x%X, %d entries", p_request.getSource(), names.length);
+        // #endif /* LOGGER == TRACE */
+
+        keys = new long[names.length];
+        responsible = new boolean[names.length];
+        stored = new byte[names.length];
+
+        m_overlayLock.readLock().lock();
+        boolean any = false;
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = NameserviceStringTable.hash(names[i]);
+            // Backups are stored unconditionally, the responsible superpeer chose this superpeer
+            responsible[i] = p_request.isBackup() ||
+                    OverlayHelper.isHashInSuperpeerRange(NameserviceStringTable.getSuperpeerHash(keys[i]), m_predecessor, m_nodeID);
+            if (responsible[i]) {
+                stored[i] = 1;
+                any = true;
+            }
+        }
+
+        if (any) {
+            m_metadata.putNameserviceStringEntries(keys, names, p_request.getChunkIDs(), responsible);
+
+            if (!p_request.isBackup()) {
+                backupSuperpeers = OverlayHelper.getBackupSuperpeers(m_nodeID, m_superpeers);
+            }
+        }
+        m_overlayLock.readLock().unlock();
+
+        try {
+            m_network.sendMessage(new InsertNameserviceStringEntriesResponse(p_request, stored, backupSuperpeers));
+        } catch (final NetworkException e) {
+            // Requesting peer is not available anymore, ignore it
+        }
+    }
+
+    /**
+     * Handles an incoming GetChunkIDsForNameserviceStringEntriesRequest
+     *
+     * @param p_request
+     *         the GetChunkIDsForNameserviceStringEntriesRequest
+     */
+    private void incomingGetChunkIDsForNameserviceStringEntriesRequest(final GetChunkIDsForNameserviceStringEntriesRequest p_request) {
+        byte[][] names;
+        long[] keys;
+        long[] chunkIDs;
+        boolean[] responsible;
+        byte[] responsibleFlags;
+
+        names = p_request.getNames();
+        // #if LOGGER == TRACE
+        LOGGER.trace("Got request: GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST from 0x%X, %d entries", p_request.getSource(),
+                names.length);
+        // #endif /* LOGGER == TRACE */
+
+        keys = new long[names.length];
+        responsible = new boolean[names.length];
+        responsibleFlags = new byte[names.length];
+
+        m_overlayLock.readLock().lock();
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = NameserviceStringTable.hash(names[i]);
+            responsible[i] = OverlayHelper.isHashInSuperpeerRange(NameserviceStringTable.getSuperpeerHash(keys[i]), m_predecessor, m_nodeID);
+            if (responsible[i]) {
+                responsibleFlags[i] = 1;
+            }
+        }
+        chunkIDs = m_metadata.getNameserviceStringEntries(keys, names, responsible);
+        m_overlayLock.readLock().unlock();
+
+        try {
+            m_network.sendMessage(new GetChunkIDsForNameserviceStringEntriesResponse(p_request, chunkIDs, responsibleFlags));
+        } catch (final NetworkException e) {
+            // Requesting peer is not available anymore, ignore it
+        }
+    }
+
     /**
      * Handles an incoming GetNameserviceEntryCountRequest
      *
@@ -2659,6 +2883,8 @@ public class OverlaySuperpeer implements MessageReceiver {
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_FINISHED_STARTUP_MESSAGE, FinishedStartupMessage.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGE_REQUEST, GetLookupRangeRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGE_RESPONSE, GetLookupRangeResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_REQUEST, GetLookupRangesRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_RESPONSE, GetLookupRangesResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_REMOVE_CHUNKIDS_REQUEST, RemoveChunkIDsRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_REMOVE_CHUNKIDS_RESPONSE, RemoveChunkIDsResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_ENTRIES_REQUEST,
@@ -2669,6 +2895,14 @@ public class OverlaySuperpeer implements MessageReceiver {
                 GetChunkIDForNameserviceEntryRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKID_FOR_NAMESERVICE_ENTRY_RESPONSE,
                 GetChunkIDForNameserviceEntryResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST,
+                InsertNameserviceStringEntriesRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_RESPONSE,
+                InsertNameserviceStringEntriesResponse.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST,
+                GetChunkIDsForNameserviceStringEntriesRequest.class);
+        m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_RESPONSE,
+                GetChunkIDsForNameserviceStringEntriesResponse.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRY_COUNT_REQUEST,
                 GetNameserviceEntryCountRequest.class);
         m_network.registerMessageType(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRY_COUNT_RESPONSE,
@@ -2772,9 +3006,12 @@ public class OverlaySuperpeer implements MessageReceiver {
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_JOIN_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_FINISHED_STARTUP_MESSAGE, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGE_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_LOOKUP_RANGES_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_REMOVE_CHUNKIDS_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_ENTRIES_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKID_FOR_NAMESERVICE_ENTRY_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_INSERT_NAMESERVICE_STRING_ENTRIES_REQUEST, this);
+        m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_CHUNKIDS_FOR_NAMESERVICE_STRING_ENTRIES_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRY_COUNT_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_GET_NAMESERVICE_ENTRIES_REQUEST, this);
         m_network.register(DXRAMMessageTypes.LOOKUP_MESSAGES_TYPE, LookupMessages.SUBTYPE_MIGRATE_REQUEST, this);
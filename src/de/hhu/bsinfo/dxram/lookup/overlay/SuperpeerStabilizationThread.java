@@ -133,6 +133,10 @@ class SuperpeerStabilizationThread extends Thread implements MessageReceiver {
                 m_overlayLock.writeLock().unlock();
             }
 
+            m_overlayLock.readLock().lock();
+            m_superpeer.pruneNameserviceWatchers();
+            m_overlayLock.readLock().unlock();
+
             pingPeers();
 
             printOverlay();
@@ -17,6 +17,7 @@
 package de.hhu.bsinfo.dxram.lookup.overlay.storage;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 
 import de.hhu.bsinfo.dxram.data.ChunkID;
 import de.hhu.bsinfo.dxram.lookup.LookupRange;
@@ -181,6 +182,36 @@ public final class LookupTree implements Serializable, Importable, Exportable {
         }
     }
 
+    /**
+     * Walks down the btree in order and adds one range per entry. Every entry marks the end of a range which starts
+     * after the predecessor's LocalID.
+     *
+     * @param p_node
+     *         the current node
+     * @param p_ranges
+     *         the list to add the ranges to
+     */
+    private static void collectRanges(final Node p_node, final ArrayList<LookupRange> p_ranges) {
+        long start;
+
+        for (int i = 0; i < p_node.getNumberOfEntries(); i++) {
+            if (i < p_node.getNumberOfChildren()) {
+                collectRanges(p_node.getChild(i), p_ranges);
+            }
+
+            if (p_ranges.isEmpty()) {
+                start = 0;
+            } else {
+                start = p_ranges.get(p_ranges.size() - 1).getRange()[1] + 1;
+            }
+            p_ranges.add(new LookupRange(p_node.getNodeID(i), new long[] {start, p_node.getLocalID(i)}, LookupState.OK));
+        }
+
+        if (p_node.getNumberOfChildren() > p_node.getNumberOfEntries()) {
+            collectRanges(p_node.getChild(p_node.getNumberOfEntries()), p_ranges);
+        }
+    }
+
     /**
      * Returns the node in which the predecessor is
      *
@@ -554,6 +585,25 @@ public final class LookupTree implements Serializable, Importable, Exportable {
         return ret;
     }
 
+    /**
+     * Returns all ranges of the creator's ChunkID space in ascending order
+     *
+     * @return the ranges with their current locations
+     */
+    ArrayList<LookupRange> getAllMetadata() {
+        ArrayList<LookupRange> ret;
+
+        ret = new ArrayList<>();
+        if (m_root != null) {
+            collectRanges(m_root, ret);
+        } else {
+            // Lookup tree is empty -> no migrations
+            ret.add(new LookupRange(m_creator, new long[] {0, (long) (Math.pow(2, 48) - 1)}, LookupState.OK));
+        }
+
+        return ret;
+    }
+
     /**
      * Removes multiple chunks from btree
      *
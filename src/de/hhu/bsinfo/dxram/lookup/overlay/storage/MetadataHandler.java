@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -35,7 +36,10 @@ import de.hhu.bsinfo.dxram.lookup.overlay.storage.SuperpeerStorage.Status;
 import de.hhu.bsinfo.dxutils.NodeID;
 
 /**
- * Wrapper class for all data of one superpeer
+ * Wrapper class for all data of one superpeer.
+ * The lookup trees are partitioned per peer: Lookups do not take the data lock at all and modifications of a
+ * lookup tree only read-lock it, i.e. only contend for the lock of the affected peer handler. The data lock is
+ * write-locked for structural changes (adding/removing metadata of whole peers) only.
  *
  * @author Kevin Beineke, kevin.beineke@hhu.de, 06.10.2016
  */
@@ -44,8 +48,9 @@ public final class MetadataHandler {
     private static final Logger LOGGER = LogManager.getFormatterLogger(MetadataHandler.class.getSimpleName());
 
     // Attributes
-    private PeerHandler[] m_peerHandlers;
+    private AtomicReferenceArray<PeerHandler> m_peerHandlers;
     private NameserviceHashTable m_nameservice;
+    private NameserviceStringTable m_nameserviceStrings;
     private SuperpeerStorage m_storage;
     private BarriersTable m_barriers;
 
@@ -62,6 +67,8 @@ public final class MetadataHandler {
      *         the peer handlers
      * @param p_nameservice
      *         hash table for the nameservice
+     * @param p_nameserviceStrings
+     *         hash table for the nameservice entries with arbitrary names
      * @param p_storage
      *         the superpeer storage
      * @param p_barriers
@@ -69,10 +76,12 @@ public final class MetadataHandler {
      * @param p_assignedPeersIncludingBackups
      *         reference to all assigned peers including backups
      */
-    public MetadataHandler(final PeerHandler[] p_peerHandlers, final NameserviceHashTable p_nameservice, final SuperpeerStorage p_storage,
-            final BarriersTable p_barriers, final ArrayList<Short> p_assignedPeersIncludingBackups) {
-        m_peerHandlers = p_peerHandlers;
+    public MetadataHandler(final PeerHandler[] p_peerHandlers, final NameserviceHashTable p_nameservice,
+            final NameserviceStringTable p_nameserviceStrings, final SuperpeerStorage p_storage, final BarriersTable p_barriers,
+            final ArrayList<Short> p_assignedPeersIncludingBackups) {
+        m_peerHandlers = new AtomicReferenceArray<>(p_peerHandlers);
         m_nameservice = p_nameservice;
+        m_nameserviceStrings = p_nameserviceStrings;
         m_storage = p_storage;
         m_barriers = p_barriers;
 
@@ -88,7 +97,7 @@ public final class MetadataHandler {
      *         the peer's NodeID
      */
     public PeerState getState(final short p_nodeID) {
-        return m_peerHandlers[p_nodeID & 0xFFFF].getState();
+        return m_peerHandlers.get(p_nodeID & 0xFFFF).getState();
     }
 
     /**
@@ -100,8 +109,9 @@ public final class MetadataHandler {
      *         the new state
      */
     public void setState(final short p_nodeID, final PeerState p_state) {
-        if (m_peerHandlers[p_nodeID & 0xFFFF] != null) {
-            m_peerHandlers[p_nodeID & 0xFFFF].setState(p_state);
+        PeerHandler peerHandler = m_peerHandlers.get(p_nodeID & 0xFFFF);
+        if (peerHandler != null) {
+            peerHandler.setState(p_state);
         }
     }
 
@@ -147,7 +157,6 @@ public final class MetadataHandler {
      */
     public byte[] receiveMetadataInRange(final short p_beginOfArea, final short p_endOfArea) {
         int size;
-        int count = 0;
         int index;
         int startIndex;
         short currentPeer;
@@ -155,8 +164,11 @@ public final class MetadataHandler {
         byte[] nameserviceEntries;
         byte[] storages;
         byte[] barriers;
+        byte[] nameserviceStringEntries;
         ByteBuffer data;
         PeerHandler peerHandler;
+        ArrayList<byte[]> lookupTrees = new ArrayList<>();
+        byte[] lookupTree;
 
         m_dataLock.readLock().lock();
         // #if LOGGER == TRACE
@@ -169,9 +181,11 @@ public final class MetadataHandler {
         storages = m_storage.receiveMetadataInRange(p_beginOfArea, p_endOfArea);
         // Get all corresponding barriers
         barriers = m_barriers.receiveMetadataInRange(p_beginOfArea, p_endOfArea);
+        // Get all corresponding nameservice entries with arbitrary names
+        nameserviceStringEntries = m_nameserviceStrings.receiveMetadataInRange(p_beginOfArea, p_endOfArea);
 
         // Get all corresponding lookup trees
-        size = nameserviceEntries.length + storages.length + barriers.length + Integer.BYTES * 4;
+        size = nameserviceEntries.length + storages.length + barriers.length + nameserviceStringEntries.length + Integer.BYTES * 5;
         if (!m_assignedPeersIncludingBackups.isEmpty()) {
             // Find beginning
             index = Collections.binarySearch(m_assignedPeersIncludingBackups, p_beginOfArea);
@@ -182,15 +196,21 @@ public final class MetadataHandler {
                 }
             }
 
-            // Iterate over assigned peers and count lookup tree sizes
+            // Iterate over assigned peers and serialize lookup trees
             startIndex = index;
             currentPeer = m_assignedPeersIncludingBackups.get(index++);
             while (OverlayHelper.isPeerInSuperpeerRange(currentPeer, p_beginOfArea, p_endOfArea)) {
+                // #if LOGGER == TRACE
+                LOGGER.trace("Including LookupTree of 0x%X", currentPeer);
+                // #endif /* LOGGER == TRACE */
+
                 peerHandler = getPeerHandler(currentPeer);
                 // no tree available -> no chunks were created or backup system is deactivated
                 if (peerHandler != null) {
-                    size += peerHandler.getSize();
-                    count++;
+                    // serialize every tree once: the size can change until the tree would be written
+                    lookupTree = peerHandler.receiveMetadata(currentPeer);
+                    lookupTrees.add(lookupTree);
+                    size += lookupTree.length;
                 }
 
                 if (index == m_assignedPeersIncludingBackups.size()) {
@@ -211,30 +231,13 @@ public final class MetadataHandler {
             data.put(storages);
             data.putInt(barriers.length);
             data.put(barriers);
+            data.putInt(nameserviceStringEntries.length);
+            data.put(nameserviceStringEntries);
 
-            // Iterate over assigned peers and write lookup trees
-            data.putInt(count);
-            index = startIndex;
-            currentPeer = m_assignedPeersIncludingBackups.get(index++);
-            while (OverlayHelper.isPeerInSuperpeerRange(currentPeer, p_beginOfArea, p_endOfArea)) {
-                // #if LOGGER == TRACE
-                LOGGER.trace("Including LookupTree of 0x%X", currentPeer);
-                // #endif /* LOGGER == TRACE */
-
-                peerHandler = getPeerHandler(currentPeer);
-                // no tree available -> no chunks were created or backup system is deactivated
-                if (peerHandler != null) {
-                    data.putShort(currentPeer);
-                    peerHandler.receiveMetadata(data);
-                }
-
-                if (index == m_assignedPeersIncludingBackups.size()) {
-                    index = 0;
-                }
-                if (index == startIndex) {
-                    break;
-                }
-                currentPeer = m_assignedPeersIncludingBackups.get(index++);
+            // Write lookup trees
+            data.putInt(lookupTrees.size());
+            for (byte[] tree : lookupTrees) {
+                data.put(tree);
             }
         } else {
             // There might be data in given area even without any assigned peer
@@ -248,11 +251,13 @@ public final class MetadataHandler {
             data.put(storages);
             data.putInt(barriers.length);
             data.put(barriers);
+            data.putInt(nameserviceStringEntries.length);
+            data.put(nameserviceStringEntries);
         }
         m_dataLock.readLock().unlock();
 
         // If there is no metadata in given area, return an empty array
-        if (ret.length == Integer.BYTES * 4) {
+        if (ret.length == Integer.BYTES * 5) {
             ret = new byte[0];
         }
 
@@ -266,12 +271,14 @@ public final class MetadataHandler {
      */
     public byte[] receiveAllMetadata() {
         int size;
-        int count = 0;
         byte[] ret;
         byte[] nameserviceEntries;
         byte[] storages;
         byte[] barriers;
+        byte[] nameserviceStringEntries;
         PeerHandler peerHandler;
+        ArrayList<byte[]> lookupTrees = new ArrayList<>();
+        byte[] lookupTree;
         ByteBuffer data;
 
         m_dataLock.readLock().lock();
@@ -285,17 +292,25 @@ public final class MetadataHandler {
         storages = m_storage.receiveAllMetadata();
         // Get all barriers
         barriers = m_barriers.receiveAllMetadata();
+        // Get all nameservice entries with arbitrary names
+        nameserviceStringEntries = m_nameserviceStrings.receiveAllMetadata();
 
         // Get all nameservice entries
-        size = nameserviceEntries.length + storages.length + barriers.length + Integer.BYTES * 4;
+        size = nameserviceEntries.length + storages.length + barriers.length + nameserviceStringEntries.length + Integer.BYTES * 5;
 
-        // Iterate over all peers and count lookup tree sizes
+        // Iterate over all peers and serialize lookup trees
         for (int i = 0; i < Short.MAX_VALUE * 2; i++) {
             peerHandler = getPeerHandler((short) i);
             // no tree available -> no chunks were created or backup system is deactivated
             if (peerHandler != null) {
-                size += peerHandler.getSize();
-                count++;
+                // #if LOGGER == TRACE
+                LOGGER.trace("Including LookupTree of 0x%X", (short) i);
+                // #endif /* LOGGER == TRACE */
+
+                // serialize every tree once: the size can change until the tree would be written
+                lookupTree = peerHandler.receiveMetadata((short) i);
+                lookupTrees.add(lookupTree);
+                size += lookupTree.length;
             }
         }
 
@@ -308,25 +323,18 @@ public final class MetadataHandler {
         data.put(storages);
         data.putInt(barriers.length);
         data.put(barriers);
+        data.putInt(nameserviceStringEntries.length);
+        data.put(nameserviceStringEntries);
 
-        // Iterate over all peers and write lookup trees
-        data.putInt(count);
-        for (int i = 0; i < Short.MAX_VALUE * 2; i++) {
-            peerHandler = getPeerHandler((short) i);
-            // no tree available -> no chunks were created or backup system is deactivated
-            if (peerHandler != null) {
-                // #if LOGGER == TRACE
-                LOGGER.trace("Including LookupTree of 0x%X", (short) i);
-                // #endif /* LOGGER == TRACE */
-
-                data.putShort((short) i);
-                peerHandler.receiveMetadata(data);
-            }
+        // Write lookup trees
+        data.putInt(lookupTrees.size());
+        for (byte[] tree : lookupTrees) {
+            data.put(tree);
         }
         m_dataLock.readLock().unlock();
 
         // If there is no metadata, return an empty array
-        if (ret.length == Integer.BYTES * 4) {
+        if (ret.length == Integer.BYTES * 5) {
             ret = new byte[0];
         }
 
@@ -334,7 +342,7 @@ public final class MetadataHandler {
     }
 
     /**
-     * Returns the number of nameservice entries in given area
+     * Returns the number of nameservice entries (including the ones with arbitrary names) in given area
      *
      * @param p_responsibleArea
      *         the area
@@ -344,7 +352,8 @@ public final class MetadataHandler {
         int ret;
 
         m_dataLock.readLock().lock();
-        ret = m_nameservice.quantifyMetadata(p_responsibleArea[0], p_responsibleArea[1]);
+        ret = m_nameservice.quantifyMetadata(p_responsibleArea[0], p_responsibleArea[1]) +
+                m_nameserviceStrings.quantifyMetadata(p_responsibleArea[0], p_responsibleArea[1]);
         m_dataLock.readLock().unlock();
 
         return ret;
@@ -402,6 +411,9 @@ public final class MetadataHandler {
         ret += "Number of nameservice entries: " + m_nameservice.quantifyMetadata(p_nodeID, p_nodeID) + ", assigned: " +
                 m_nameservice.quantifyMetadata(p_predecessor, p_nodeID) + '\n';
 
+        ret += "Number of nameservice strings: \t " + m_nameserviceStrings.quantifyMetadata(p_nodeID, p_nodeID) + ", assigned: " +
+                m_nameserviceStrings.quantifyMetadata(p_predecessor, p_nodeID) + '\n';
+
         ret += "Number of storages: \t\t " + m_storage.quantifyMetadata(p_nodeID, p_nodeID) + ", assigned: " +
                 m_storage.quantifyMetadata(p_predecessor, p_nodeID) + '\n';
 
@@ -447,7 +459,6 @@ public final class MetadataHandler {
     public byte[] compareAndReturnBackups(final ArrayList<Short> p_peers, final int p_numberOfNameserviceEntries, final int p_numberOfStorages,
             final int p_numberOfBarriers, final short p_predecessor, final short p_nodeID) {
         int size;
-        int count = 0;
         int index;
         int startIndex;
         short currentPeer;
@@ -455,8 +466,11 @@ public final class MetadataHandler {
         byte[] nameserviceEntries = null;
         byte[] storages = null;
         byte[] barriers = null;
+        byte[] nameserviceStringEntries = null;
         ByteBuffer data;
         PeerHandler peerHandler;
+        ArrayList<byte[]> lookupTrees = new ArrayList<>();
+        byte[] lookupTree;
 
         m_dataLock.readLock().lock();
         // #if LOGGER == TRACE
@@ -464,12 +478,14 @@ public final class MetadataHandler {
         // #endif /* LOGGER == TRACE */
 
         // TODO: Inefficient to send all data (nameservice, storages, barriers) in corresponding area if quantity differs
-        size = 4 * Integer.BYTES;
-        // Compare number of actual nameservice entries with expected number
-        if (m_nameservice.quantifyMetadata(p_predecessor, p_nodeID) != p_numberOfNameserviceEntries) {
+        size = 5 * Integer.BYTES;
+        // Compare number of actual nameservice entries (both kinds) with expected number
+        if (m_nameservice.quantifyMetadata(p_predecessor, p_nodeID) + m_nameserviceStrings.quantifyMetadata(p_predecessor, p_nodeID) !=
+                p_numberOfNameserviceEntries) {
             // Get all corresponding nameservice entries
             nameserviceEntries = m_nameservice.receiveMetadataInRange(p_predecessor, p_nodeID);
-            size += nameserviceEntries.length;
+            nameserviceStringEntries = m_nameserviceStrings.receiveMetadataInRange(p_predecessor, p_nodeID);
+            size += nameserviceEntries.length + nameserviceStringEntries.length;
         }
         // Compare number of actual storages with expected number
         if (m_storage.quantifyMetadata(p_predecessor, p_nodeID) != p_numberOfStorages) {
@@ -495,16 +511,22 @@ public final class MetadataHandler {
                 }
             }
 
-            // Iterate over assigned peers and count lookup tree sizes
+            // Iterate over assigned peers and serialize lookup trees
             startIndex = index;
             currentPeer = m_assignedPeersIncludingBackups.get(index++);
             while (OverlayHelper.isPeerInSuperpeerRange(currentPeer, p_predecessor, p_nodeID)) {
                 if (Collections.binarySearch(p_peers, currentPeer) < 0) {
+                    // #if LOGGER == TRACE
+                    LOGGER.trace("Including LookupTree of 0x%X", currentPeer);
+                    // #endif /* LOGGER == TRACE */
+
                     peerHandler = getPeerHandler(currentPeer);
                     // no tree available -> no chunks were created or backup system is deactivated
                     if (peerHandler != null) {
-                        size += peerHandler.getSize();
-                        count++;
+                        // serialize every tree once: the size can change until the tree would be written
+                        lookupTree = peerHandler.receiveMetadata(currentPeer);
+                        lookupTrees.add(lookupTree);
+                        size += lookupTree.length;
                     }
                 }
 
@@ -538,32 +560,17 @@ public final class MetadataHandler {
             } else {
                 data.putInt(0);
             }
+            if (nameserviceStringEntries != null) {
+                data.putInt(nameserviceStringEntries.length);
+                data.put(nameserviceStringEntries);
+            } else {
+                data.putInt(0);
+            }
 
-            // Iterate over assigned peers and write lookup trees
-            data.putInt(count);
-            index = startIndex;
-            currentPeer = m_assignedPeersIncludingBackups.get(index++);
-            while (OverlayHelper.isPeerInSuperpeerRange(currentPeer, p_predecessor, p_nodeID)) {
-                if (Collections.binarySearch(p_peers, currentPeer) < 0) {
-                    // #if LOGGER == TRACE
-                    LOGGER.trace("Including LookupTree of 0x%X", currentPeer);
-                    // #endif /* LOGGER == TRACE */
-
-                    peerHandler = getPeerHandler(currentPeer);
-                    // no tree available -> no chunks were created or backup system is deactivated
-                    if (peerHandler != null) {
-                        data.putShort(currentPeer);
-                        peerHandler.receiveMetadata(data);
-                    }
-                }
-
-                if (index == m_assignedPeersIncludingBackups.size()) {
-                    index = 0;
-                }
-                if (index == startIndex) {
-                    break;
-                }
-                currentPeer = m_assignedPeersIncludingBackups.get(index++);
+            // Write lookup trees
+            data.putInt(lookupTrees.size());
+            for (byte[] tree : lookupTrees) {
+                data.put(tree);
             }
         } else {
             // There might be data in given area even without any assigned peer
@@ -589,11 +596,17 @@ public final class MetadataHandler {
             } else {
                 data.putInt(0);
             }
+            if (nameserviceStringEntries != null) {
+                data.putInt(nameserviceStringEntries.length);
+                data.put(nameserviceStringEntries);
+            } else {
+                data.putInt(0);
+            }
         }
         m_dataLock.readLock().unlock();
 
         // If there is no missing metadata, return an empty array
-        if (ret.length == Integer.BYTES * 4) {
+        if (ret.length == Integer.BYTES * 5) {
             ret = new byte[0];
         }
 
@@ -637,7 +650,7 @@ public final class MetadataHandler {
                 LOGGER.trace("Removing LookupTree of 0x%X", currentPeer);
                 // #endif /* LOGGER == TRACE */
 
-                m_peerHandlers[currentPeer & 0xFFFF] = null;
+                m_peerHandlers.set(currentPeer & 0xFFFF, null);
                 ret[count++] = currentPeer;
 
                 if (++index == m_assignedPeersIncludingBackups.size()) {
@@ -656,6 +669,8 @@ public final class MetadataHandler {
         m_storage.removeMetadataOutsideOfRange(p_responsibleArea[0], p_responsibleArea[1]);
         // Remove barriers
         m_barriers.removeMetadataOutsideOfRange(p_responsibleArea[0], p_responsibleArea[1]);
+        // Remove nameservice entries with arbitrary names
+        m_nameserviceStrings.removeMetadataOutsideOfRange(p_responsibleArea[0], p_responsibleArea[1]);
 
         m_dataLock.writeLock().unlock();
 
@@ -712,6 +727,15 @@ public final class MetadataHandler {
             m_barriers.storeMetadata(p_metadata, pos, size);
             data.position(pos + size);
 
+            // Put all nameservice entries with arbitrary names
+            size = data.getInt();
+            pos = data.position();
+            // #if LOGGER == TRACE
+            LOGGER.trace("Storing nameservice string entries. Length: %d", size);
+            // #endif /* LOGGER == TRACE */
+            m_nameserviceStrings.storeMetadata(p_metadata, pos, size);
+            data.position(pos + size);
+
             // Put all lookup trees
             size = data.getInt();
             ret = new short[size];
@@ -727,7 +751,7 @@ public final class MetadataHandler {
                 peerHandler = new PeerHandler(OverlayHelper.ORDER, nodeID);
                 peerHandler.storeMetadata(data);
 
-                m_peerHandlers[nodeID & 0xFFFF] = peerHandler;
+                m_peerHandlers.set(nodeID & 0xFFFF, peerHandler);
                 ret[i] = nodeID;
             }
             m_dataLock.writeLock().unlock();
@@ -750,12 +774,12 @@ public final class MetadataHandler {
      */
     public void updateMetadataAfterRecovery(final short p_rangeID, final short p_creator, final short p_recoveryPeer, final long[] p_chunkIDRanges) {
 
-        m_dataLock.writeLock().lock();
-        PeerHandler peerHandler = m_peerHandlers[p_creator & 0xFFFF];
+        m_dataLock.readLock().lock();
+        PeerHandler peerHandler = getPeerHandler(p_creator);
         if (peerHandler != null) {
             peerHandler.updateMetadataAfterRecovery(p_rangeID, p_recoveryPeer, p_chunkIDRanges);
         }
-        m_dataLock.writeLock().unlock();
+        m_dataLock.readLock().unlock();
     }
 
     /**
@@ -771,18 +795,22 @@ public final class MetadataHandler {
         boolean ret = false;
         PeerHandler peerHandler;
 
-        m_dataLock.writeLock().lock();
+        m_dataLock.readLock().lock();
         peerHandler = getPeerHandler(p_rangeOwner);
         // no tree available -> no chunks were created yet
         if (peerHandler == null) {
             // With backup activated this is the place to initialize a lookup tree
             peerHandler = new PeerHandler(OverlayHelper.ORDER, p_rangeOwner);
-            m_peerHandlers[p_rangeOwner & 0xFFFF] = peerHandler;
-            ret = true;
+            if (m_peerHandlers.compareAndSet(p_rangeOwner & 0xFFFF, null, peerHandler)) {
+                ret = true;
+            } else {
+                // Another thread was faster
+                peerHandler = getPeerHandler(p_rangeOwner);
+            }
         }
 
         peerHandler.initRange(p_backupRange);
-        m_dataLock.writeLock().unlock();
+        m_dataLock.readLock().unlock();
 
         return ret;
     }
@@ -798,12 +826,10 @@ public final class MetadataHandler {
         LookupTree ret = null;
         PeerHandler peerHandler;
 
-        m_dataLock.readLock().lock();
-        peerHandler = m_peerHandlers[p_nodeID & 0xFFFF];
+        peerHandler = getPeerHandler(p_nodeID);
         if (peerHandler != null) {
             ret = peerHandler.getLookupTree();
         }
-        m_dataLock.readLock().unlock();
 
         return ret;
     }
@@ -819,7 +845,7 @@ public final class MetadataHandler {
         LookupRange ret;
         PeerHandler peerHandler;
 
-        m_dataLock.readLock().lock();
+        // No data lock: the peer handler is read atomically and synchronizes accesses to its lookup tree itself
         peerHandler = getPeerHandler(ChunkID.getCreatorID(p_chunkID));
         // no tree available -> no chunks were created or backup system is deactivated
         if (peerHandler != null) {
@@ -832,7 +858,36 @@ public final class MetadataHandler {
                 ret = new LookupRange(LookupState.DOES_NOT_EXIST);
             }
         }
-        m_dataLock.readLock().unlock();
+
+        return ret;
+    }
+
+    /**
+     * Returns all ranges of a creator's ChunkID space
+     *
+     * @param p_creatorID
+     *         the creator
+     * @param p_backupActive
+     *         whether the backup is active or not
+     * @return the ranges in ascending order or a single range without borders if the creator's data is unavailable
+     */
+    public LookupRange[] getAllLookupRangesFromLookupTree(final short p_creatorID, boolean p_backupActive) {
+        LookupRange[] ret;
+        PeerHandler peerHandler;
+
+        peerHandler = getPeerHandler(p_creatorID);
+        // no tree available -> no chunks were created or backup system is deactivated
+        if (peerHandler != null) {
+            ArrayList<LookupRange> ranges = peerHandler.getAllMetadata(p_creatorID);
+            ret = ranges.toArray(new LookupRange[ranges.size()]);
+        } else {
+            if (!p_backupActive) {
+                // With backup deactivated a lookup tree is only created for migrations -> no migrations -> return complete range
+                ret = new LookupRange[] {new LookupRange(p_creatorID, new long[] {0, (long) Math.pow(2, 48) - 1}, LookupState.OK)};
+            } else {
+                ret = new LookupRange[] {new LookupRange(LookupState.DOES_NOT_EXIST)};
+            }
+        }
 
         return ret;
     }
@@ -850,27 +905,23 @@ public final class MetadataHandler {
         boolean ret;
         PeerHandler peerHandler;
 
-        m_dataLock.writeLock().lock();
+        m_dataLock.readLock().lock();
         peerHandler = getPeerHandler(ChunkID.getCreatorID(p_chunkID));
         // no tree available -> no chunks were created or backup system is deactivated
         if (peerHandler == null) {
             if (!p_backupActive) {
                 // With backup deactivated this is the place to initialize a peer handler
-                short creator = ChunkID.getCreatorID(p_chunkID);
-                peerHandler = new PeerHandler(OverlayHelper.ORDER, creator);
-
-                m_peerHandlers[creator & 0xFFFF] = peerHandler;
-                return peerHandler.migrate(p_chunkID, p_owner);
+                peerHandler = createPeerHandler(ChunkID.getCreatorID(p_chunkID));
+                ret = peerHandler.migrate(p_chunkID, p_owner);
+            } else {
+                ret = false;
             }
-            m_dataLock.writeLock().unlock();
-
-            return false;
         } else {
             ret = peerHandler.migrate(p_chunkID, p_owner);
-            m_dataLock.writeLock().unlock();
-
-            return ret;
         }
+        m_dataLock.readLock().unlock();
+
+        return ret;
     }
 
     /**
@@ -888,27 +939,23 @@ public final class MetadataHandler {
         boolean ret;
         PeerHandler peerHandler;
 
-        m_dataLock.writeLock().lock();
+        m_dataLock.readLock().lock();
         peerHandler = getPeerHandler(ChunkID.getCreatorID(p_firstChunkID));
         // no tree available -> no chunks were created or backup system is deactivated
         if (peerHandler == null) {
             if (!p_backupActive) {
                 // With backup deactivated this is the place to initialize a peer handler
-                short creator = ChunkID.getCreatorID(p_firstChunkID);
-                peerHandler = new PeerHandler(OverlayHelper.ORDER, creator);
-
-                m_peerHandlers[creator & 0xFFFF] = peerHandler;
-                return peerHandler.migrateRange(p_firstChunkID, p_lastChunkID, p_owner);
+                peerHandler = createPeerHandler(ChunkID.getCreatorID(p_firstChunkID));
+                ret = peerHandler.migrateRange(p_firstChunkID, p_lastChunkID, p_owner);
+            } else {
+                ret = false;
             }
-            m_dataLock.writeLock().unlock();
-
-            return false;
         } else {
             ret = peerHandler.migrateRange(p_firstChunkID, p_lastChunkID, p_owner);
-            m_dataLock.writeLock().unlock();
-
-            return ret;
         }
+        m_dataLock.readLock().unlock();
+
+        return ret;
     }
 
     /**
@@ -925,18 +972,18 @@ public final class MetadataHandler {
             return false;
         }
 
-        m_dataLock.writeLock().lock();
+        m_dataLock.readLock().lock();
         peerHandler = getPeerHandler(ChunkID.getCreatorID(p_chunkIDs[0]));
         // no tree available -> no chunks were created or backup system is deactivated
         if (peerHandler == null) {
-            m_dataLock.writeLock().unlock();
+            m_dataLock.readLock().unlock();
 
             // Backup activated and no tree -> error
             // Backup deactivated and no migrations (-> tree is null) -> no need to remove ChunkIDs
             return !p_backupActive;
         } else {
             peerHandler.removeObjects(p_chunkIDs);
-            m_dataLock.writeLock().unlock();
+            m_dataLock.readLock().unlock();
 
             return true;
         }
@@ -979,14 +1026,14 @@ public final class MetadataHandler {
     public void replaceFailedPeerInLookupTree(final short p_rangeID, final short p_nodeID, final short p_failedPeer, final short p_newBackupPeer) {
         PeerHandler peerHandler;
 
-        m_dataLock.writeLock().lock();
+        m_dataLock.readLock().lock();
         peerHandler = getPeerHandler(p_nodeID);
         // no tree available -> no chunks were created or backup system is deactivated
         if (peerHandler != null) {
             // Replace failedPeer from specific backup peer lists
             peerHandler.replaceBackupPeer(p_rangeID, p_failedPeer, p_newBackupPeer);
         }
-        m_dataLock.writeLock().unlock();
+        m_dataLock.readLock().unlock();
     }
 
     /**
@@ -1020,6 +1067,51 @@ public final class MetadataHandler {
         m_dataLock.writeLock().unlock();
     }
 
+    /**
+     * Gets the ChunkIDs of multiple nameservice entries with arbitrary names.
+     *
+     * @param p_keys
+     *         the keys of the names (see NameserviceStringTable.hash())
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @param p_mask
+     *         which names to look up (e.g. only the ones this superpeer is responsible for)
+     * @return the ChunkIDs (ChunkID.INVALID_ID if a name is not registered or was not looked up)
+     */
+    public long[] getNameserviceStringEntries(final long[] p_keys, final byte[][] p_names, final boolean[] p_mask) {
+        long[] ret = new long[p_names.length];
+
+        m_dataLock.readLock().lock();
+        for (int i = 0; i < p_names.length; i++) {
+            ret[i] = p_mask[i] ? m_nameserviceStrings.get(p_keys[i], p_names[i]) : ChunkID.INVALID_ID;
+        }
+        m_dataLock.readLock().unlock();
+
+        return ret;
+    }
+
+    /**
+     * Puts multiple nameservice entries with arbitrary names.
+     *
+     * @param p_keys
+     *         the keys of the names (see NameserviceStringTable.hash())
+     * @param p_names
+     *         the UTF-8 encoded names
+     * @param p_chunkIDs
+     *         the ChunkIDs
+     * @param p_mask
+     *         which entries to put (e.g. only the ones this superpeer is responsible for)
+     */
+    public void putNameserviceStringEntries(final long[] p_keys, final byte[][] p_names, final long[] p_chunkIDs, final boolean[] p_mask) {
+        m_dataLock.writeLock().lock();
+        for (int i = 0; i < p_names.length; i++) {
+            if (p_mask[i]) {
+                m_nameserviceStrings.put(p_keys[i], p_names[i], p_chunkIDs[i]);
+            }
+        }
+        m_dataLock.writeLock().unlock();
+    }
+
     /**
      * Counts nameservice entries within range.
      *
@@ -1243,7 +1335,26 @@ public final class MetadataHandler {
      * @return the peer handler
      */
     private PeerHandler getPeerHandler(final short p_nodeID) {
-        return m_peerHandlers[p_nodeID & 0xFFFF];
+        return m_peerHandlers.get(p_nodeID & 0xFFFF);
+    }
+
+    /**
+     * Creates the peer handler for given creator if there is none, yet.
+     *
+     * @param p_nodeID
+     *         the creator
+     * @return the (new or concurrently created) peer handler
+     * @lock data lock must be read-locked
+     */
+    private PeerHandler createPeerHandler(final short p_nodeID) {
+        PeerHandler peerHandler = new PeerHandler(OverlayHelper.ORDER, p_nodeID);
+
+        if (!m_peerHandlers.compareAndSet(p_nodeID & 0xFFFF, null, peerHandler)) {
+            // Another thread was faster
+            peerHandler = getPeerHandler(p_nodeID);
+        }
+
+        return peerHandler;
     }
 
 }
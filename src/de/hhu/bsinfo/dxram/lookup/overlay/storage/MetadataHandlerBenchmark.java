@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.overlay.storage;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.hhu.bsinfo.dxram.data.ChunkID;
+import de.hhu.bsinfo.dxram.lookup.LookupRange;
+import de.hhu.bsinfo.dxutils.NodeID;
+
+/**
+ * Micro benchmark for the lookup path of a superpeer without starting DXRAM (no network involved).
+ * Multiple reader threads resolve random ChunkIDs with MetadataHandler.getLookupRangeFromLookupTree while optional
+ * writer threads migrate chunks concurrently. Like JMH, the benchmark runs warmup iterations first (results are
+ * discarded) and reports the throughput of every measurement iteration.
+ * Example:
+ * java -cp lib/log4j-api-2.7.jar:lib/log4j-core-2.7.jar:dxram.jar
+ * de.hhu.bsinfo.dxram.lookup.overlay.storage.MetadataHandlerBenchmark
+ * 8 1 16 10000 1000 5 10
+ */
+public final class MetadataHandlerBenchmark {
+
+    private static final short OWNER = (short) 0xFFFE;
+
+    private static int ms_readers;
+    private static int ms_writers;
+    private static int ms_peers;
+    private static int ms_migratedRanges;
+    private static long ms_iterationTimeMs;
+    private static int ms_warmupIterations;
+    private static int ms_iterations;
+
+    private static MetadataHandler ms_metadataHandler;
+
+    private static volatile boolean ms_running;
+    private static final LongAdder ms_lookups = new LongAdder();
+    private static final LongAdder ms_migrations = new LongAdder();
+
+    /**
+     * Hidden constructor.
+     */
+    private MetadataHandlerBenchmark() {
+
+    }
+
+    /**
+     * Main method for initializing and starting the benchmark.
+     *
+     * @param p_arguments
+     *         the program arguments.
+     */
+    public static void main(final String[] p_arguments) {
+        Locale.setDefault(new Locale("en", "US"));
+
+        processArgs(p_arguments);
+
+        setup();
+
+        ms_running = true;
+        Thread[] threads = new Thread[ms_readers + ms_writers];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = i < ms_readers ? new Reader() : new Writer();
+            threads[i].setName((i < ms_readers ? "Reader-" : "Writer-") + i);
+            threads[i].start();
+        }
+
+        double[] results = new double[ms_iterations];
+        for (int i = 0; i < ms_warmupIterations + ms_iterations; i++) {
+            ms_lookups.reset();
+            ms_migrations.reset();
+
+            long timeStart = System.nanoTime();
+            try {
+                Thread.sleep(ms_iterationTimeMs);
+            } catch (final InterruptedException ignored) {
+            }
+            long lookups = ms_lookups.sum();
+            long migrations = ms_migrations.sum();
+            long timeDiff = System.nanoTime() - timeStart;
+
+            double throughput = (double) lookups / timeDiff * 1000 * 1000 * 1000;
+            if (i < ms_warmupIterations) {
+                System.out.printf("[WARMUP %d] %.0f lookups/s, %d migrations\n", i, throughput, migrations);
+            } else {
+                System.out.printf("[ITERATION %d] %.0f lookups/s, %d migrations\n", i - ms_warmupIterations, throughput,
+                        migrations);
+                results[i - ms_warmupIterations] = throughput;
+            }
+        }
+
+        ms_running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (final InterruptedException ignored) {
+            }
+        }
+
+        printResults(results);
+
+        System.exit(0);
+    }
+
+    /**
+     * Process the program arguments.
+     *
+     * @param p_arguments
+     *         the program arguments.
+     */
+    private static void processArgs(final String[] p_arguments) {
+        if (p_arguments.length != 7) {
+            System.out.println("To execute benchmark:");
+            System.out.println("Args: <reader threads> <writer threads> <peers> <migrated ranges per peer> " +
+                    "<iteration time in ms> <warmup iterations> <iterations>");
+            System.exit(-1);
+        }
+
+        ms_readers = Integer.parseInt(p_arguments[0]);
+        ms_writers = Integer.parseInt(p_arguments[1]);
+        ms_peers = Integer.parseInt(p_arguments[2]);
+        ms_migratedRanges = Integer.parseInt(p_arguments[3]);
+        ms_iterationTimeMs = Long.parseLong(p_arguments[4]);
+        ms_warmupIterations = Integer.parseInt(p_arguments[5]);
+        ms_iterations = Integer.parseInt(p_arguments[6]);
+
+        if (ms_readers < 1 || ms_writers < 0 || ms_peers < 1 || ms_peers >= OWNER || ms_migratedRanges < 0 ||
+                ms_iterationTimeMs < 1 || ms_warmupIterations < 0 || ms_iterations < 1) {
+            System.out.println("Invalid arguments!");
+            System.exit(-1);
+        }
+
+        System.out.printf("Parameters: readers %d, writers %d, peers %d, migrated ranges per peer %d, " +
+                        "iteration time %d ms, warmup iterations %d, iterations %d\n", ms_readers, ms_writers, ms_peers,
+                ms_migratedRanges, ms_iterationTimeMs, ms_warmupIterations, ms_iterations);
+    }
+
+    /**
+     * Create the metadata handler and fill the lookup trees. Every second range of 10 chunks is migrated to
+     * another peer so lookups have to traverse non-trivial trees.
+     */
+    private static void setup() {
+        ms_metadataHandler = new MetadataHandler(new PeerHandler[NodeID.MAX_ID], new NameserviceHashTable(1000, 0.9f),
+                new NameserviceStringTable(1024, 0.75f), new SuperpeerStorage(1000, 1024 * 1024), new BarriersTable(1000, OWNER),
+                new ArrayList<>());
+
+        for (int i = 0; i < ms_peers; i++) {
+            short creator = (short) (i + 1);
+            for (int j = 0; j < ms_migratedRanges; j++) {
+                long first = ChunkID.getChunkID(creator, j * 20L + 1);
+                ms_metadataHandler.putChunkIDRangeInLookupTree(first, first + 9, OWNER, false);
+            }
+        }
+    }
+
+    /**
+     * Get a random ChunkID within the migrated area of a random peer.
+     *
+     * @param p_random
+     *         the random generator of the calling thread
+     * @return the ChunkID
+     */
+    private static long randomChunkID(final ThreadLocalRandom p_random) {
+        short creator = (short) (p_random.nextInt(ms_peers) + 1);
+        return ChunkID.getChunkID(creator, p_random.nextLong(ms_migratedRanges * 20L + 1) + 1);
+    }
+
+    /**
+     * Print results.
+     *
+     * @param p_results
+     *         throughput of all measurement iterations
+     */
+    private static void printResults(final double[] p_results) {
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        double sum = 0;
+        for (double result : p_results) {
+            min = Math.min(min, result);
+            max = Math.max(max, result);
+            sum += result;
+        }
+        double avg = sum / p_results.length;
+
+        double variance = 0;
+        for (double result : p_results) {
+            variance += (result - avg) * (result - avg);
+        }
+        double stdDev = Math.sqrt(variance / p_results.length);
+
+        System.out.printf("[RESULTS]\n" + "[READERS] %d\n" + "[WRITERS] %d\n" + "[THROUGHPUT AVG] %.0f lookups/s\n" +
+                        "[THROUGHPUT STDDEV] %.0f lookups/s\n" + "[THROUGHPUT MIN] %.0f lookups/s\n" +
+                        "[THROUGHPUT MAX] %.0f lookups/s\n" + "[TIME PER LOOKUP] %.1f ns\n", ms_readers, ms_writers, avg,
+                stdDev, min, max, avg != 0 ? 1000.0 * 1000 * 1000 * ms_readers / avg : 0);
+    }
+
+    /**
+     * Thread resolving random ChunkIDs.
+     */
+    private static class Reader extends Thread {
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long lookups = 0;
+            LookupRange range;
+
+            while (ms_running) {
+                range = ms_metadataHandler.getLookupRangeFromLookupTree(randomChunkID(random), false);
+                if (range.getPrimaryPeer() == NodeID.INVALID_ID) {
+                    System.out.println("Lookup failed!");
+                }
+
+                // Publish in batches to keep the counter out of the measured path
+                if (++lookups == 1000) {
+                    ms_lookups.add(lookups);
+                    lookups = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread migrating random chunks back and forth between two owners.
+     */
+    private static class Writer extends Thread {
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            while (ms_running) {
+                long chunkID = randomChunkID(random);
+                short owner = random.nextBoolean() ? OWNER : ChunkID.getCreatorID(chunkID);
+                ms_metadataHandler.putChunkIDInLookupTree(chunkID, owner, false);
+                ms_migrations.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxram.lookup.overlay.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.hhu.bsinfo.dxram.data.ChunkID;
+import de.hhu.bsinfo.dxram.lookup.overlay.OverlayHelper;
+import de.hhu.bsinfo.dxutils.CRC16;
+
+/**
+ * HashTable to store mappings of arbitrary names (UTF-8 encoded) to ChunkIDs (Linear probing).
+ * Names are hashed to 64-bit keys which select the responsible superpeer and the slot. Different names with the same
+ * key end up in the same probe sequence (collision chain) and are told apart by comparing the full name.
+ * Serialized entry: key (8 bytes), ChunkID (8 bytes), name length (4 bytes), name
+ */
+public class NameserviceStringTable extends AbstractMetadata {
+
+    private static final Logger LOGGER = LogManager.getFormatterLogger(NameserviceStringTable.class.getSimpleName());
+
+    private static final int ENTRY_HEADER_SIZE = Long.BYTES * 2 + Integer.BYTES;
+
+    // Attributes
+    private long[] m_keys;
+    private long[] m_values;
+    private byte[][] m_names;
+    private int m_count;
+    private int m_size;
+    private int m_threshold;
+    private float m_loadFactor;
+
+    // Constructors
+
+    /**
+     * Creates an instance of NameserviceStringTable
+     *
+     * @param p_initialElementCapacity
+     *     the initial capacity of NameserviceStringTable
+     * @param p_loadFactor
+     *     the load factor of NameserviceStringTable
+     */
+    public NameserviceStringTable(final int p_initialElementCapacity, final float p_loadFactor) {
+        super();
+
+        int capacity = Integer.highestOneBit(Math.max(p_initialElementCapacity, 2) - 1) << 1;
+
+        m_keys = new long[capacity];
+        m_values = new long[capacity];
+        m_names = new byte[capacity][];
+        m_count = 0;
+        m_size = 0;
+        m_loadFactor = p_loadFactor;
+        m_threshold = (int) (capacity * m_loadFactor);
+    }
+
+    /**
+     * Hashes the given name to a 64-bit key (FNV-1a with a final avalanche step)
+     *
+     * @param p_name
+     *     the UTF-8 encoded name
+     * @return the key
+     */
+    public static long hash(final byte[] p_name) {
+        long hash = 0xCBF29CE484222325L;
+
+        for (byte b : p_name) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * Returns the hash to determine the responsible superpeer for given key
+     *
+     * @param p_key
+     *     the key of the name
+     * @return the hash (compare with the superpeer's NodeID range)
+     */
+    public static short getSuperpeerHash(final long p_key) {
+        return CRC16.hash((int) (p_key ^ p_key >>> 32));
+    }
+
+    @Override
+    public int storeMetadata(final byte[] p_data, final int p_offset, final int p_size) {
+        int ret = 0;
+        ByteBuffer data;
+
+        if (p_data != null) {
+            data = ByteBuffer.wrap(p_data, p_offset, p_size);
+
+            while (data.remaining() >= ENTRY_HEADER_SIZE) {
+                // #if LOGGER == TRACE
+                LOGGER.trace("Storing nameservice string entry");
+                // #endif /* LOGGER == TRACE */
+
+                long key = data.getLong();
+                long value = data.getLong();
+                byte[] name = new byte[data.getInt()];
+                data.get(name);
+
+                put(key, name, value);
+                ret++;
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public byte[] receiveAllMetadata() {
+        return receiveMetadata(false, (short) 0, (short) 0);
+    }
+
+    @Override
+    public byte[] receiveMetadataInRange(final short p_bound1, final short p_bound2) {
+        return receiveMetadata(true, p_bound1, p_bound2);
+    }
+
+    @Override
+    public int removeMetadataOutsideOfRange(final short p_bound1, final short p_bound2) {
+        int count = 0;
+
+        for (int i = 0; i < m_keys.length; i++) {
+            if (m_names[i] != null && !OverlayHelper.isHashInSuperpeerRange(getSuperpeerHash(m_keys[i]), p_bound1, p_bound2)) {
+                // #if LOGGER == TRACE
+                LOGGER.trace("Removing nameservice string entry: %s <-> %s", new String(m_names[i], StandardCharsets.UTF_8),
+                        ChunkID.toHexString(m_values[i]));
+                // #endif /* LOGGER == TRACE */
+
+                count++;
+                removeSlot(i);
+                // Try this index again as removing might have filled this slot with different data
+                i--;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public int quantifyMetadata(final short p_bound1, final short p_bound2) {
+        int count = 0;
+
+        for (int i = 0; i < m_keys.length; i++) {
+            if (m_names[i] != null && OverlayHelper.isHashInSuperpeerRange(getSuperpeerHash(m_keys[i]), p_bound1, p_bound2)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the ChunkID the given name is mapped to
+     *
+     * @param p_key
+     *     the key of the name (see hash())
+     * @param p_name
+     *     the UTF-8 encoded name
+     * @return the ChunkID or ChunkID.INVALID_ID if the name is not registered
+     */
+    public final long get(final long p_key, final byte[] p_name) {
+        int index = findSlot(p_key, p_name);
+
+        if (m_names[index] != null) {
+            return m_values[index];
+        }
+
+        return ChunkID.INVALID_ID;
+    }
+
+    /**
+     * Maps the given name to the given ChunkID
+     *
+     * @param p_key
+     *     the key of the name (see hash())
+     * @param p_name
+     *     the UTF-8 encoded name
+     * @param p_value
+     *     the ChunkID
+     * @return the old ChunkID or ChunkID.INVALID_ID if the name was not registered before
+     */
+    public final long put(final long p_key, final byte[] p_name, final long p_value) {
+        long ret = ChunkID.INVALID_ID;
+        int index = findSlot(p_key, p_name);
+
+        if (m_names[index] != null) {
+            ret = m_values[index];
+        } else {
+            m_keys[index] = p_key;
+            m_names[index] = p_name;
+            m_count++;
+            m_size += ENTRY_HEADER_SIZE + p_name.length;
+        }
+        m_values[index] = p_value;
+
+        if (m_count >= m_threshold) {
+            rehash();
+        }
+
+        return ret;
+    }
+
+    /**
+     * Removes the given name
+     *
+     * @param p_key
+     *     the key of the name (see hash())
+     * @param p_name
+     *     the UTF-8 encoded name
+     * @return the ChunkID or ChunkID.INVALID_ID if the name was not registered
+     */
+    public final long remove(final long p_key, final byte[] p_name) {
+        long ret = ChunkID.INVALID_ID;
+        int index = findSlot(p_key, p_name);
+
+        if (m_names[index] != null) {
+            ret = m_values[index];
+            removeSlot(index);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Serializes all entries (in given area)
+     *
+     * @param p_checkRange
+     *     whether to include entries in given area only or all entries
+     * @param p_bound1
+     *     the first bound
+     * @param p_bound2
+     *     the second bound
+     * @return the entries in a byte array
+     */
+    private byte[] receiveMetadata(final boolean p_checkRange, final short p_bound1, final short p_bound2) {
+        ByteBuffer data = ByteBuffer.allocate(m_size);
+
+        for (int i = 0; i < m_keys.length; i++) {
+            if (m_names[i] != null) {
+                if (!p_checkRange || OverlayHelper.isHashInSuperpeerRange(getSuperpeerHash(m_keys[i]), p_bound1, p_bound2)) {
+                    data.putLong(m_keys[i]);
+                    data.putLong(m_values[i]);
+                    data.putInt(m_names[i].length);
+                    data.put(m_names[i]);
+                }
+            }
+        }
+
+        return Arrays.copyOfRange(data.array(), 0, data.position());
+    }
+
+    /**
+     * Returns the slot of the given name or the free slot to insert the name into
+     *
+     * @param p_key
+     *     the key of the name
+     * @param p_name
+     *     the UTF-8 encoded name
+     * @return the slot
+     */
+    private int findSlot(final long p_key, final byte[] p_name) {
+        int mask = m_keys.length - 1;
+        int index = (int) p_key & mask;
+
+        // Walk the collision chain: same key does not necessarily mean same name
+        while (m_names[index] != null) {
+            if (m_keys[index] == p_key && Arrays.equals(m_names[index], p_name)) {
+                break;
+            }
+            index = index + 1 & mask;
+        }
+
+        return index;
+    }
+
+    /**
+     * Removes the entry at given slot and re-inserts the following entries of the probe sequence
+     *
+     * @param p_index
+     *     the slot
+     */
+    private void removeSlot(final int p_index) {
+        int mask = m_keys.length - 1;
+        int index;
+
+        m_size -= ENTRY_HEADER_SIZE + m_names[p_index].length;
+        m_names[p_index] = null;
+        m_count--;
+
+        index = p_index + 1 & mask;
+        while (m_names[index] != null) {
+            long key = m_keys[index];
+            long value = m_values[index];
+            byte[] name = m_names[index];
+
+            m_names[index] = null;
+            int slot = findSlot(key, name);
+            m_keys[slot] = key;
+            m_values[slot] = value;
+            m_names[slot] = name;
+
+            index = index + 1 & mask;
+        }
+    }
+
+    /**
+     * Doubles the capacity of and internally reorganizes NameserviceStringTable
+     */
+    private void rehash() {
+        long[] oldKeys = m_keys;
+        long[] oldValues = m_values;
+        byte[][] oldNames = m_names;
+
+        m_keys = new long[oldKeys.length * 2];
+        m_values = new long[oldKeys.length * 2];
+        m_names = new byte[oldKeys.length * 2][];
+        m_threshold = (int) (m_keys.length * m_loadFactor);
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Reached threshold -> Rehashing. New size: %d", m_keys.length);
+        // #endif /* LOGGER == TRACE */
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = findSlot(oldKeys[i], oldNames[i]);
+                m_keys[slot] = oldKeys[i];
+                m_values[slot] = oldValues[i];
+                m_names[slot] = oldNames[i];
+            }
+        }
+    }
+}
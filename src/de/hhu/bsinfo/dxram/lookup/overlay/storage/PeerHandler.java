@@ -17,6 +17,8 @@
 package de.hhu.bsinfo.dxram.lookup.overlay.storage;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.locks.StampedLock;
 
 import de.hhu.bsinfo.dxram.backup.BackupRange;
 import de.hhu.bsinfo.dxram.data.ChunkID;
@@ -27,6 +29,8 @@ import de.hhu.bsinfo.dxutils.serialization.ByteBufferImExporter;
 
 /**
  * Wrapper class for all data belonging to one peer: One Btree to store ranges, one to store backup range affiliation and an ArrayList for the backup ranges
+ * Every peer handler has its own lock, i.e. accesses to different peers do not contend. Lookups only take the
+ * read lock of the peer handler, i.e. concurrent lookups of the same peer do not contend either.
  *
  * @author Kevin Beineke, kevin.beineke@hhu.de, 14.02.2017
  */
@@ -38,6 +42,8 @@ public final class PeerHandler {
     private LookupTree m_lookupTree;
     private ArrayListLong m_backupRanges;
 
+    private final StampedLock m_lock;
+
     // Constructors
 
     /**
@@ -51,6 +57,8 @@ public final class PeerHandler {
 
         m_lookupTree = new LookupTree(p_order, p_creator);
         m_backupRanges = new ArrayListLong();
+
+        m_lock = new StampedLock();
     }
 
     // Methods
@@ -92,6 +100,8 @@ public final class PeerHandler {
      *         ChunkIDs of all recovered chunks arranged in ranges
      */
     void updateMetadataAfterRecovery(final short p_rangeID, final short p_recoveryPeer, final long[] p_chunkIDRanges) {
+        long stamp = m_lock.writeLock();
+
         // "Migrate" recovered ChunkIDs
         for (int i = 0; i < p_chunkIDRanges.length; i += 2) {
 
@@ -104,6 +114,8 @@ public final class PeerHandler {
 
         // Invalidate backup range
         m_backupRanges.set(p_rangeID, -1);
+
+        m_lock.unlockWrite(stamp);
     }
 
     /**
@@ -122,7 +134,7 @@ public final class PeerHandler {
             return new LookupRange(LookupState.DATA_TEMPORARY_UNAVAILABLE);
         }
 
-        LookupRange ret = m_lookupTree.getMetadata(p_chunkID);
+        LookupRange ret = getMetadataFromLookupTree(p_chunkID);
         if (m_state == PeerState.RECOVERED) {
             if (ret.getPrimaryPeer() == ChunkID.getCreatorID(p_chunkID)) {
                 // Backup range was not successfully recovered
@@ -133,6 +145,43 @@ public final class PeerHandler {
         return ret;
     }
 
+    /**
+     * Returns all ranges of the peer's ChunkID space
+     *
+     * @param p_creatorID
+     *         the peer this handler belongs to
+     * @return the ranges in ascending order or a single range without borders if the peer's data is unavailable
+     */
+    ArrayList<LookupRange> getAllMetadata(final short p_creatorID) {
+        ArrayList<LookupRange> ret;
+
+        if (m_state == PeerState.LOST) {
+            ret = new ArrayList<>(1);
+            ret.add(new LookupRange(LookupState.DATA_LOST));
+            return ret;
+        }
+
+        if (m_state == PeerState.IN_RECOVERY) {
+            ret = new ArrayList<>(1);
+            ret.add(new LookupRange(LookupState.DATA_TEMPORARY_UNAVAILABLE));
+            return ret;
+        }
+
+        long stamp = m_lock.readLock();
+        ret = m_lookupTree.getAllMetadata();
+        m_lock.unlockRead(stamp);
+        if (m_state == PeerState.RECOVERED) {
+            for (LookupRange range : ret) {
+                if (range.getPrimaryPeer() == p_creatorID) {
+                    // Backup range was not successfully recovered
+                    range.setState(LookupState.DATA_LOST);
+                }
+            }
+        }
+
+        return ret;
+    }
+
     /**
      * Stores the migration for a single chunk
      *
@@ -143,7 +192,13 @@ public final class PeerHandler {
      * @return true if insertion was successful
      */
     boolean migrate(final long p_chunkID, final short p_nodeID) {
-        return m_lookupTree.migrate(p_chunkID, p_nodeID);
+        boolean ret;
+
+        long stamp = m_lock.writeLock();
+        ret = m_lookupTree.migrate(p_chunkID, p_nodeID);
+        m_lock.unlockWrite(stamp);
+
+        return ret;
     }
 
     /**
@@ -158,7 +213,13 @@ public final class PeerHandler {
      * @return true if insertion was successful
      */
     boolean migrateRange(final long p_startCID, final long p_endCID, final short p_nodeID) {
-        return m_lookupTree.migrateRange(p_startCID, p_endCID, p_nodeID);
+        boolean ret;
+
+        long stamp = m_lock.writeLock();
+        ret = m_lookupTree.migrateRange(p_startCID, p_endCID, p_nodeID);
+        m_lock.unlockWrite(stamp);
+
+        return ret;
     }
 
     /**
@@ -169,7 +230,9 @@ public final class PeerHandler {
      * @note should always be called if an object is deleted
      */
     void remove(final long p_chunkID) {
+        long stamp = m_lock.writeLock();
         m_lookupTree.remove(p_chunkID);
+        m_lock.unlockWrite(stamp);
     }
 
     /**
@@ -181,7 +244,9 @@ public final class PeerHandler {
      */
 
     void removeObjects(final long... p_chunkIDs) {
+        long stamp = m_lock.writeLock();
         m_lookupTree.removeObjects(p_chunkIDs);
+        m_lock.unlockWrite(stamp);
     }
 
     /**
@@ -191,7 +256,9 @@ public final class PeerHandler {
      *         the backup range to initialize
      */
     void initRange(final BackupRange p_backupRange) {
+        long stamp = m_lock.writeLock();
         m_backupRanges.add(p_backupRange.getRangeID(), BackupRange.convert(p_backupRange.getBackupPeers()));
+        m_lock.unlockWrite(stamp);
     }
 
     /**
@@ -207,6 +274,7 @@ public final class PeerHandler {
     void replaceBackupPeer(final short p_rangeID, final short p_toBeReplacedPeer, final short p_replacement) {
         long backupPeers;
 
+        long stamp = m_lock.writeLock();
         if (p_toBeReplacedPeer == -1) {
             backupPeers = BackupRange.addBackupPeer(m_backupRanges.get(p_rangeID), p_replacement);
         } else {
@@ -214,6 +282,7 @@ public final class PeerHandler {
         }
 
         m_backupRanges.set(p_rangeID, backupPeers);
+        m_lock.unlockWrite(stamp);
     }
 
     /**
@@ -226,6 +295,7 @@ public final class PeerHandler {
         long[] backupRanges;
         int counter = 0;
 
+        long stamp = m_lock.readLock();
         backupRanges = m_backupRanges.getArray();
         ret = new BackupRange[backupRanges.length];
         for (int i = 0; i < backupRanges.length; i++) {
@@ -233,6 +303,7 @@ public final class PeerHandler {
                 ret[counter++] = new BackupRange((short) i, BackupRange.convert(backupRanges[i]));
             }
         }
+        m_lock.unlockRead(stamp);
 
         if (counter != ret.length) {
             BackupRange[] tmp = new BackupRange[counter];
@@ -244,31 +315,48 @@ public final class PeerHandler {
     }
 
     /**
-     * Writes all peer's data to given byte buffer
+     * Serializes all peer's data. The size is determined and the data is written under the same read lock, i.e.
+     * a concurrent migration growing the tree can't overflow the buffer.
      *
-     * @param p_data
-     *         the ByteBuffer
+     * @param p_creator
+     *         the peer this handler belongs to (written first)
+     * @return the serialized data
      */
-    void receiveMetadata(ByteBuffer p_data) {
+    byte[] receiveMetadata(final short p_creator) {
+        byte[] ret;
+        byte state;
+        ByteBuffer data;
         ByteBufferImExporter exporter;
 
         switch (m_state) {
-            case ONLINE:
-                p_data.put((byte) 0);
-                break;
             case LOST:
-                p_data.put((byte) 1);
+                state = 1;
                 break;
             case IN_RECOVERY: // Temporary state is ignored because it is relevant for recovery coordinator, only
             case RECOVERED:
-                p_data.put((byte) 3);
+                state = 3;
                 break;
+            case ONLINE:
             default:
+                state = 0;
                 break;
         }
-        exporter = new ByteBufferImExporter(p_data);
-        exporter.exportObject(m_lookupTree);
-        exporter.exportObject(m_backupRanges);
+
+        long stamp = m_lock.readLock();
+        try {
+            ret = new byte[Short.BYTES + Byte.BYTES + m_lookupTree.sizeofObject() + m_backupRanges.sizeofObject()];
+            data = ByteBuffer.wrap(ret);
+            data.putShort(p_creator);
+            data.put(state);
+
+            exporter = new ByteBufferImExporter(data);
+            exporter.exportObject(m_lookupTree);
+            exporter.exportObject(m_backupRanges);
+        } finally {
+            m_lock.unlockRead(stamp);
+        }
+
+        return ret;
     }
 
     /**
@@ -297,17 +385,31 @@ public final class PeerHandler {
         }
 
         importer = new ByteBufferImExporter(p_data);
+        long stamp = m_lock.writeLock();
         importer.importObject(m_lookupTree);
         importer.importObject(m_backupRanges);
+        m_lock.unlockWrite(stamp);
     }
 
     /**
-     * Returns the serialized metadata size for this peer
+     * Returns the range given ChunkID is in. The tree is read with the read lock: an optimistic (unlocked) walk
+     * over a node being split by a concurrent writer is not guaranteed to terminate.
      *
-     * @return the size
+     * @param p_chunkID
+     *         ChunkID of requested object
+     * @return the first and last ChunkID of the range
      */
-    int getSize() {
-        return Short.BYTES + Byte.BYTES + m_lookupTree.sizeofObject() + m_backupRanges.sizeofObject();
+    private LookupRange getMetadataFromLookupTree(final long p_chunkID) {
+        LookupRange ret;
+
+        long stamp = m_lock.readLock();
+        try {
+            ret = m_lookupTree.getMetadata(p_chunkID);
+        } finally {
+            m_lock.unlockRead(stamp);
+        }
+
+        return ret;
     }
 
 }
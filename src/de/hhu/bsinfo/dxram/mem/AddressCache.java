@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.mem;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Direct mapped cache for chunk ID to address translations shared by all threads. Every slot is protected by
+ * a sequence lock: lookups don't write to the slots, writers skip busy slots (puts) or wait for them
+ * (invalidations). Lookups do write shared state though: they count hits and misses in LongAdders (striped
+ * cells, concurrent lookups rarely contend for the same cell) and a miss in CIDTable.get() puts the
+ * translation afterwards.
+ * To not cache stale addresses, translations have to be put while holding the chunk's read lock (or the table
+ * lock) and invalidated while holding the chunk's write lock (and the table lock) when the entry is changed.
+ */
+final class AddressCache {
+    // sequence, chunk ID, address, padding: two slots per cache line
+    private static final int SLOT_SIZE = 4;
+    private static final int SEQUENCE = 0;
+    private static final int CHUNK_ID = 1;
+    private static final int ADDRESS = 2;
+
+    private static final long INVALID_CHUNK_ID = -1;
+
+    private final int m_slotMask;
+    private final AtomicLongArray m_slots;
+
+    private final LongAdder m_hits = new LongAdder();
+    private final LongAdder m_misses = new LongAdder();
+
+    /**
+     * Constructor
+     *
+     * @param p_entries
+     *         Number of entries (power of two)
+     */
+    AddressCache(final int p_entries) {
+        if (p_entries <= 0 || Integer.bitCount(p_entries) != 1) {
+            throw new IllegalArgumentException("Number of entries must be a power of two: " + p_entries);
+        }
+
+        m_slotMask = p_entries - 1;
+        m_slots = new AtomicLongArray(p_entries * SLOT_SIZE);
+
+        for (int i = 0; i < p_entries; i++) {
+            m_slots.set(i * SLOT_SIZE + CHUNK_ID, INVALID_CHUNK_ID);
+        }
+    }
+
+    /**
+     * Get the number of lookups served by the cache
+     *
+     * @return Number of hits
+     */
+    long getHits() {
+        return m_hits.sum();
+    }
+
+    /**
+     * Get the number of lookups not served by the cache
+     *
+     * @return Number of misses
+     */
+    long getMisses() {
+        return m_misses.sum();
+    }
+
+    /**
+     * Look up the address of a chunk
+     *
+     * @param p_chunkID
+     *         Chunk ID
+     * @return Address of the chunk or 0 if not cached
+     */
+    long get(final long p_chunkID) {
+        int slot = slot(p_chunkID);
+        long seq = m_slots.get(slot + SEQUENCE);
+
+        // odd: slot is being written
+        if ((seq & 1) == 0) {
+            long chunkID = m_slots.get(slot + CHUNK_ID);
+            long address = m_slots.get(slot + ADDRESS);
+
+            if (chunkID == p_chunkID && m_slots.get(slot + SEQUENCE) == seq) {
+                m_hits.increment();
+                return address;
+            }
+        }
+
+        m_misses.increment();
+        return 0;
+    }
+
+    /**
+     * Put the address of a chunk, replaces the translation of another chunk mapped to the same slot.
+     * Nothing is cached if the slot is written concurrently.
+     *
+     * @param p_chunkID
+     *         Chunk ID
+     * @param p_address
+     *         Address of the chunk
+     */
+    void put(final long p_chunkID, final long p_address) {
+        int slot = slot(p_chunkID);
+        long seq = m_slots.get(slot + SEQUENCE);
+
+        if ((seq & 1) == 0 && m_slots.compareAndSet(slot + SEQUENCE, seq, seq + 1)) {
+            m_slots.lazySet(slot + CHUNK_ID, p_chunkID);
+            m_slots.lazySet(slot + ADDRESS, p_address);
+            m_slots.set(slot + SEQUENCE, seq + 2);
+        }
+    }
+
+    /**
+     * Remove the translation of a chunk (if cached)
+     *
+     * @param p_chunkID
+     *         Chunk ID
+     */
+    void invalidate(final long p_chunkID) {
+        int slot = slot(p_chunkID);
+
+        while (true) {
+            long seq = m_slots.get(slot + SEQUENCE);
+
+            if ((seq & 1) == 0 && m_slots.compareAndSet(slot + SEQUENCE, seq, seq + 1)) {
+                if (m_slots.get(slot + CHUNK_ID) == p_chunkID) {
+                    m_slots.lazySet(slot + CHUNK_ID, INVALID_CHUNK_ID);
+                }
+
+                m_slots.set(slot + SEQUENCE, seq + 2);
+                return;
+            }
+
+            // a put is in progress, wait for it to finish
+        }
+    }
+
+    /**
+     * Map a chunk ID to the index of its slot
+     *
+     * @param p_chunkID
+     *         Chunk ID
+     * @return Index of the slot's first element
+     */
+    private int slot(final long p_chunkID) {
+        // mix node ID and upper LID bits into the index, sequential LIDs map to sequential slots
+        long hash = p_chunkID ^ p_chunkID >>> 32 ^ p_chunkID >>> 48;
+
+        return ((int) hash & m_slotMask) * SLOT_SIZE;
+    }
+}
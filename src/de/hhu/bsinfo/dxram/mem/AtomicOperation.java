@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.mem;
+
+/**
+ * Atomic operations on int/long fields of chunks (see MemoryManagerComponent.atomics())
+ */
+public enum AtomicOperation {
+    /**
+     * Set the int field to the operand if it equals the expected value
+     */
+    COMPARE_AND_SWAP_INT(Integer.BYTES),
+
+    /**
+     * Set the long field to the operand if it equals the expected value
+     */
+    COMPARE_AND_SWAP_LONG(Long.BYTES),
+
+    /**
+     * Add the operand to the int field
+     */
+    FETCH_AND_ADD_INT(Integer.BYTES),
+
+    /**
+     * Add the operand to the long field
+     */
+    FETCH_AND_ADD_LONG(Long.BYTES),
+
+    /**
+     * Set the int field to the operand
+     */
+    GET_AND_SET_INT(Integer.BYTES),
+
+    /**
+     * Set the long field to the operand
+     */
+    GET_AND_SET_LONG(Long.BYTES);
+
+    private static final AtomicOperation[] VALUES = values();
+
+    private final int m_size;
+
+    /**
+     * Constructor
+     *
+     * @param p_size
+     *         Size of the field accessed
+     */
+    AtomicOperation(final int p_size) {
+        m_size = p_size;
+    }
+
+    /**
+     * Get an operation by its ordinal (e.g. received with a message)
+     *
+     * @param p_ordinal
+     *         Ordinal of the operation
+     * @return Operation or null if the ordinal is invalid
+     */
+    public static AtomicOperation get(final byte p_ordinal) {
+        if (p_ordinal < 0 || p_ordinal >= VALUES.length) {
+            return null;
+        }
+
+        return VALUES[p_ordinal];
+    }
+
+    /**
+     * Get the size of the field accessed
+     *
+     * @return Size in bytes
+     */
+    public int getSize() {
+        return m_size;
+    }
+}
@@ -16,6 +16,14 @@
 
 package de.hhu.bsinfo.dxram.mem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -45,11 +53,13 @@ public final class CIDTable {
 
     private static final byte ENTRY_SIZE = 5;
     static final byte LID_TABLE_LEVELS = 4;
-    private static final long BITMASK_ADDRESS = 0x7FFFFFFFFFL;
+    static final long BITMASK_ADDRESS = 0x7FFFFFFFFFL;
     private static final long FULL_FLAG = 0x8000000000L;
     private static final long FREE_ENTRY = 0;
-    private static final long ZOMBIE_ENTRY = 0xFFFFFFFFFFL;
-    private static final byte BITS_PER_LID_LEVEL = 48 / LID_TABLE_LEVELS;
+    static final long ZOMBIE_ENTRY = 0xFFFFFFFFFFL;
+    static final byte BITS_PER_LID_LEVEL = 48 / LID_TABLE_LEVELS;
+    // number of LIDs reserved at once if the LID counter is persisted
+    private static final long LID_RESERVATION_SIZE = 1 << 20;
     static final int ENTRIES_PER_LID_LEVEL = (int) Math.pow(2.0, BITS_PER_LID_LEVEL);
     private static final int LID_TABLE_SIZE = ENTRY_SIZE * ENTRIES_PER_LID_LEVEL + 7;
     private static final long LID_LEVEL_BITMASK = (int) Math.pow(2.0, BITS_PER_LID_LEVEL) - 1;
@@ -65,8 +75,15 @@ public final class CIDTable {
 
     private LIDStore m_store;
     private long m_nextLocalID;
+    // end of the LIDs reserved in the reservation file, LIDs are not handed out beyond it
+    private long m_reservedLocalIDs = Long.MAX_VALUE;
+    private File m_lidReservationFile;
 
     private TranslationCache[] m_cache;
+    private AddressCache m_addressCache;
+
+    // level 0 table entries are guarded by stripes selected by the level 0 ID range
+    private StripedReadWriteLock m_lock;
 
     /**
      * Creates an instance of CIDTable
@@ -102,7 +119,7 @@ public final class CIDTable {
      * @return Number of cached free LIDs
      */
     int getNumCachedFreeLIDs() {
-        return m_store.m_count;
+        return (int) Math.min(m_store.m_count, Integer.MAX_VALUE);
     }
 
     /**
@@ -135,7 +152,7 @@ public final class CIDTable {
 
         // If no free ID exist, get next local ID
         if (ret == -1) {
-            ret = m_nextLocalID++;
+            ret = nextLocalID();
             // as 63-bit counter is enough for now and a while, so we don't check for overflows
         }
 
@@ -157,7 +174,7 @@ public final class CIDTable {
 
                 // If no free ID exist, get next local ID
                 if (ret[i] == -1) {
-                    ret[i] = m_nextLocalID++;
+                    ret[i] = nextLocalID();
                 }
 
                 // as 63-bit counter is enough for now and a while, so we don't check for overflows
@@ -168,7 +185,7 @@ public final class CIDTable {
                 // There are not enough consecutive entries in LIDStore
                 ret = new long[p_size];
                 for (int i = 0; i < p_size; i++) {
-                    ret[i] = m_nextLocalID++;
+                    ret[i] = nextLocalID();
 
                     // as 63-bit counter is enough for now and a while, so we don't check for overflows
                 }
@@ -178,6 +195,34 @@ public final class CIDTable {
         return ret;
     }
 
+    /**
+     * Get the next LID from the LID counter, reserve a new block of LIDs if the counter is persisted and the
+     * reserved LIDs are used up
+     *
+     * @return Next LID
+     */
+    private long nextLocalID() {
+        if (m_nextLocalID >= m_reservedLocalIDs) {
+            reserveLIDs();
+        }
+
+        return m_nextLocalID++;
+    }
+
+    /**
+     * Reserve the next block of LIDs in the reservation file
+     */
+    private void reserveLIDs() {
+        try {
+            MemorySnapshot.writeLIDReservation(m_lidReservationFile, m_nextLocalID + LID_RESERVATION_SIZE);
+        } catch (final IOException e) {
+            // handing out LIDs which are not reserved could reissue them after a restart
+            throw new UncheckedIOException("Reserving LIDs in " + m_lidReservationFile + " failed", e);
+        }
+
+        m_reservedLocalIDs = m_nextLocalID + LID_RESERVATION_SIZE;
+    }
+
     /**
      * Returns the ChunkID ranges of all locally stored Chunks
      *
@@ -229,8 +274,13 @@ public final class CIDTable {
      *
      * @param p_rawMemory
      *         The raw memory instance to use for allocation.
+     * @param p_lockStripes
+     *         Number of stripes (power of two) for the locks guarding the level 0 tables
+     * @param p_addressCacheEntries
+     *         Number of entries (power of two) of the chunk ID to address translation cache
      */
-    public void initialize(final SmallObjectHeap p_rawMemory) {
+    public void initialize(final SmallObjectHeap p_rawMemory, final int p_lockStripes,
+            final int p_addressCacheEntries) {
         m_rawMemory = p_rawMemory;
         m_tableCount = 0;
         m_totalMemoryTables = 0;
@@ -239,6 +289,113 @@ public final class CIDTable {
         m_store = new LIDStore();
         m_nextLocalID = 1;
 
+        initLocksAndCache(p_lockStripes, p_addressCacheEntries);
+
+        // #if LOGGER >= INFO
+        LOGGER.info("CIDTable: init success (page directory at: 0x%X)", m_addressTableDirectory);
+        // #endif /* LOGGER >= INFO */
+    }
+
+    /**
+     * Restores the CIDTable from a snapshot. The tables are part of the (restored) heap, only the metadata
+     * written by exportMetadata is read.
+     *
+     * @param p_rawMemory
+     *         The raw memory instance containing the tables
+     * @param p_lockStripes
+     *         Number of stripes (power of two) for the locks guarding the level 0 tables
+     * @param p_addressCacheEntries
+     *         Number of entries (power of two) of the chunk ID to address translation cache
+     * @param p_metadata
+     *         Input to read the metadata from
+     * @param p_discardFreeLIDs
+     *         True to discard the free LIDs of the snapshot. They might have been reused for chunks created after
+     *         the snapshot was taken
+     * @throws IOException
+     *         If reading the metadata failed
+     */
+    void restore(final SmallObjectHeap p_rawMemory, final int p_lockStripes, final int p_addressCacheEntries,
+            final DataInput p_metadata, final boolean p_discardFreeLIDs) throws IOException {
+        m_rawMemory = p_rawMemory;
+        m_addressTableDirectory = p_metadata.readLong();
+        m_tableCount = p_metadata.readInt();
+        m_totalMemoryTables = p_metadata.readLong();
+        m_nextLocalID = p_metadata.readLong();
+
+        m_store = new LIDStore();
+        m_store.importMetadata(p_metadata);
+
+        if (p_discardFreeLIDs) {
+            // the table entries of the discarded LIDs are never reused
+            m_store = new LIDStore();
+        }
+
+        initLocksAndCache(p_lockStripes, p_addressCacheEntries);
+
+        // #if LOGGER >= INFO
+        LOGGER.info("CIDTable: restore success (page directory at: 0x%X)", m_addressTableDirectory);
+        // #endif /* LOGGER >= INFO */
+    }
+
+    /**
+     * Write the metadata of the CIDTable for a snapshot. The tables themselves are part of the heap's memory image.
+     * The table must not be modified while writing the snapshot.
+     *
+     * @param p_out
+     *         Output to write the metadata to
+     * @throws IOException
+     *         If writing failed
+     */
+    void exportMetadata(final DataOutput p_out) throws IOException {
+        p_out.writeLong(m_addressTableDirectory);
+        p_out.writeInt(m_tableCount);
+        p_out.writeLong(m_totalMemoryTables);
+        p_out.writeLong(m_nextLocalID);
+
+        m_store.exportMetadata(p_out);
+    }
+
+    /**
+     * Persist the LID counter in a reservation file. LIDs are reserved in blocks, the end of a block is written
+     * to the file (and synced) before handing out any LID of it. If the file already exists, the counter continues
+     * after the LIDs reserved by the previous run. Thus, LIDs of chunks created after the last snapshot are not
+     * reissued after restoring it.
+     *
+     * @param p_file
+     *         Reservation file
+     * @throws IOException
+     *         If reading or writing the reservation file failed
+     */
+    void persistLIDCounter(final File p_file) throws IOException {
+        if (p_file.exists()) {
+            long reserved = MemorySnapshot.readLIDReservation(p_file);
+
+            if (reserved > m_nextLocalID) {
+                // #if LOGGER >= INFO
+                LOGGER.info("CIDTable: LIDs up to 0x%X reserved by previous run, skipping from 0x%X", reserved,
+                        m_nextLocalID);
+                // #endif /* LOGGER >= INFO */
+
+                m_nextLocalID = reserved;
+            }
+        }
+
+        m_lidReservationFile = p_file;
+        reserveLIDs();
+    }
+
+    /**
+     * Create the locks and the translation caches
+     *
+     * @param p_lockStripes
+     *         Number of stripes (power of two) for the locks guarding the level 0 tables
+     * @param p_addressCacheEntries
+     *         Number of entries (power of two) of the chunk ID to address translation cache
+     */
+    private void initLocksAndCache(final int p_lockStripes, final int p_addressCacheEntries) {
+        m_lock = new StripedReadWriteLock(p_lockStripes);
+        m_addressCache = new AddressCache(p_addressCacheEntries);
+
         // NOTE: 10 seems to be a good value because it doesn't add too much overhead when creating huge ranges of
         // chunks but still allows 10 * 4096 translations to be cached for fast lookup and gets/puts
         // (value determined by profiling the application)
@@ -246,14 +403,30 @@ public final class CIDTable {
         for (int i = 0; i < m_cache.length; i++) {
             m_cache[i] = new TranslationCache(10);
         }
+    }
 
-        // #if LOGGER >= INFO
-        LOGGER.info("CIDTable: init success (page directory at: 0x%X)", m_addressTableDirectory);
-        // #endif /* LOGGER >= INFO */
+    /**
+     * Get the number of translations served by the address cache
+     *
+     * @return Number of cache hits
+     */
+    long getAddressCacheHits() {
+        return m_addressCache.getHits();
     }
 
     /**
-     * Gets an entry of the level 0 table
+     * Get the number of translations which required walking the tables
+     *
+     * @return Number of cache misses
+     */
+    long getAddressCacheMisses() {
+        return m_addressCache.getMisses();
+    }
+
+    /**
+     * Gets an entry of the level 0 table.
+     * To keep the chunk from being removed while accessing its data, the caller has to
+     * hold the read lock of the chunk (lockChunkRead()).
      *
      * @param p_chunkID
      *         the ChunkID of the entry
@@ -267,6 +440,12 @@ public final class CIDTable {
         long addressTable;
         boolean putCache = false;
 
+        // hot chunks: skip walking the tables
+        entry = m_addressCache.get(p_chunkID);
+        if (entry != 0) {
+            return entry;
+        }
+
         // try to jump to table level 0 using the cache
         addressTable = m_cache[(int) Thread.currentThread().getId()].getTableLevel0(p_chunkID);
         if (addressTable == -1) {
@@ -298,7 +477,20 @@ public final class CIDTable {
                 }
 
                 // get address to chunk from table 0
-                return readEntry(addressTable, index) & BITMASK_ADDRESS;
+                entry = readEntry(addressTable, index);
+
+                // zombies are deleted chunks waiting for their LID to be reused
+                if (entry == ZOMBIE_ENTRY) {
+                    return 0;
+                }
+
+                entry &= BITMASK_ADDRESS;
+
+                if (entry != 0) {
+                    m_addressCache.put(p_chunkID, entry);
+                }
+
+                return entry;
             }
 
             level--;
@@ -308,7 +500,73 @@ public final class CIDTable {
     }
 
     /**
-     * Sets an entry of the level 0 table
+     * Gets the level 0 table of a chunk by walking the upper levels of the tables only. All chunks with the
+     * same level 0 range (p_chunkID >> BITS_PER_LID_LEVEL) share the same table, i.e. a batch of sorted
+     * chunk IDs walks the upper levels once per range only (see getInTableLevel0()).
+     * The caller has to hold the read lock of the level 0 range (lockChunkRead()).
+     *
+     * @param p_chunkID
+     *         ChunkID of any chunk in the level 0 range
+     * @return Address of the level 0 table or 0 if no chunk of the range exists
+     */
+    long getTableLevel0(final long p_chunkID) {
+        long index;
+        long entry;
+        long addressTable;
+
+        addressTable = m_cache[(int) Thread.currentThread().getId()].getTableLevel0(p_chunkID);
+        if (addressTable != -1) {
+            return addressTable;
+        }
+
+        addressTable = m_addressTableDirectory;
+
+        for (int level = LID_TABLE_LEVELS; level > 0; level--) {
+            if (level == LID_TABLE_LEVELS) {
+                index = p_chunkID >> BITS_PER_LID_LEVEL * level & NID_LEVEL_BITMASK;
+            } else {
+                index = p_chunkID >> BITS_PER_LID_LEVEL * level & LID_LEVEL_BITMASK;
+            }
+
+            entry = readEntry(addressTable, index) & BITMASK_ADDRESS;
+
+            if (entry <= 0) {
+                return 0;
+            }
+
+            addressTable = entry;
+        }
+
+        m_cache[(int) Thread.currentThread().getId()].putTableLevel0(p_chunkID, addressTable);
+
+        return addressTable;
+    }
+
+    /**
+     * Gets an entry of a level 0 table returned by getTableLevel0(). Does not use or fill the address cache
+     * because reading the entry of an already resolved table is as cheap as a cache lookup.
+     * The caller has to hold the read lock of the chunk (lockChunkRead()).
+     *
+     * @param p_addressTable
+     *         Address of the level 0 table of the chunk
+     * @param p_chunkID
+     *         the ChunkID of the entry
+     * @return the entry. 0 for invalid/unused.
+     */
+    long getInTableLevel0(final long p_addressTable, final long p_chunkID) {
+        long entry = readEntry(p_addressTable, p_chunkID & LID_LEVEL_BITMASK);
+
+        // zombies are deleted chunks waiting for their LID to be reused
+        if (entry == ZOMBIE_ENTRY) {
+            return 0;
+        }
+
+        return entry & BITMASK_ADDRESS;
+    }
+
+    /**
+     * Sets an entry of the level 0 table.
+     * Must not be called concurrently with other calls modifying the tables (see MemoryManagerComponent.lockManage()).
      *
      * @param p_chunkID
      *         the ChunkID of the entry
@@ -347,7 +605,11 @@ public final class CIDTable {
                     if (entry == -1) {
                         return false;
                     }
+
+                    // publish the new table: block all readers walking the tables while writing the entry
+                    m_lock.lockWriteAll();
                     writeEntry(addressTable, index, entry);
+                    m_lock.unlockWriteAll();
                 }
 
                 // move on to next table
@@ -355,7 +617,10 @@ public final class CIDTable {
             } else {
                 // Set the level 0 entry (address to active chunk)
                 // valid and active entry, delete flag 0
+                m_lock.lockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
                 writeEntry(addressTable, index, p_addressChunk & BITMASK_ADDRESS);
+                m_addressCache.invalidate(p_chunkID);
+                m_lock.unlockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
 
                 // add table address to table 0 to cache
                 if (putCache) {
@@ -372,7 +637,8 @@ public final class CIDTable {
     }
 
     /**
-     * Gets and deletes an entry of the level 0 table
+     * Gets and deletes an entry of the level 0 table.
+     * Must not be called concurrently with other calls modifying the tables (see MemoryManagerComponent.lockManage()).
      *
      * @param p_chunkID
      *         the ChunkID of the entry
@@ -418,10 +684,15 @@ public final class CIDTable {
                 // Delete entry in the following table
                 addressTable = entry & BITMASK_ADDRESS;
             } else {
+                // wait for all readers of this level 0 range. Once the entry is deleted, no reader can
+                // get hold of the chunk's address anymore and the caller can free the memory block safely
+                m_lock.lockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
+
                 ret = readEntry(addressTable, index) & BITMASK_ADDRESS;
 
                 // already deleted
                 if (ret == FREE_ENTRY || ret == ZOMBIE_ENTRY) {
+                    m_lock.unlockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
                     return 0;
                 }
 
@@ -433,6 +704,9 @@ public final class CIDTable {
                 } else {
                     writeEntry(addressTable, index, FREE_ENTRY);
                 }
+
+                m_addressCache.invalidate(p_chunkID);
+                m_lock.unlockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
             }
 
             level--;
@@ -470,10 +744,94 @@ public final class CIDTable {
      */
     void disengage() {
         m_store = null;
+        m_lock = null;
 
         m_addressTableDirectory = -1;
     }
 
+    /**
+     * Remove the cached translation of a chunk after its level 0 entry was modified directly (writeEntry).
+     * The caller has to hold the write lock of the chunk (lockChunkWrite()).
+     *
+     * @param p_chunkID
+     *         ChunkID of the modified entry
+     */
+    void invalidateAddress(final long p_chunkID) {
+        m_addressCache.invalidate(p_chunkID);
+    }
+
+    /**
+     * Lock the level 0 range of a chunk to read the chunk's table entry and access its data.
+     * This guarantees that the chunk is not removed/its memory block is not free'd while accessing it.
+     *
+     * @param p_chunkID
+     *         ChunkID of the chunk to access
+     */
+    void lockChunkRead(final long p_chunkID) {
+        m_lock.lockRead(p_chunkID >> BITS_PER_LID_LEVEL);
+    }
+
+    /**
+     * Unlock the level 0 range of a chunk after accessing it
+     *
+     * @param p_chunkID
+     *         ChunkID of the chunk accessed
+     */
+    void unlockChunkRead(final long p_chunkID) {
+        m_lock.unlockRead(p_chunkID >> BITS_PER_LID_LEVEL);
+    }
+
+    /**
+     * Lock the level 0 ranges of multiple chunks to access them at the same time. Every range is locked once
+     * only, even if multiple chunks share it.
+     *
+     * @param p_chunkIDs
+     *         ChunkIDs of the chunks to access
+     * @param p_count
+     *         Number of chunk IDs to use (starting at index 0)
+     * @return Handle of the locked ranges, pass to unlockChunksRead()
+     */
+    int[] lockChunksRead(final long[] p_chunkIDs, final int p_count) {
+        long[] ranges = new long[p_count];
+
+        for (int i = 0; i < p_count; i++) {
+            ranges[i] = p_chunkIDs[i] >> BITS_PER_LID_LEVEL;
+        }
+
+        return m_lock.lockReadMultiple(ranges, p_count);
+    }
+
+    /**
+     * Unlock the level 0 ranges locked with lockChunksRead()
+     *
+     * @param p_handle
+     *         Handle returned by lockChunksRead()
+     */
+    void unlockChunksRead(final int[] p_handle) {
+        m_lock.unlockReadStripes(p_handle);
+    }
+
+    /**
+     * Lock the level 0 range of a chunk exclusively, e.g. to relocate the chunk's data and update its table entry.
+     * Waits for all threads accessing chunks of that range.
+     *
+     * @param p_chunkID
+     *         ChunkID of the chunk to modify
+     */
+    void lockChunkWrite(final long p_chunkID) {
+        m_lock.lockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
+    }
+
+    /**
+     * Unlock the level 0 range of a chunk after modifying it
+     *
+     * @param p_chunkID
+     *         ChunkID of the chunk modified
+     */
+    void unlockChunkWrite(final long p_chunkID) {
+        m_lock.unlockWrite(p_chunkID >> BITS_PER_LID_LEVEL);
+    }
+
     // -----------------------------------------------------------------------------------------
 
     /**
@@ -708,17 +1066,21 @@ public final class CIDTable {
     private final class LIDStore {
 
         // Constants
-        private static final int STORE_CAPACITY = 100000;
+        // limits the memory used by the store if freed LIDs are highly fragmented, further LIDs are
+        // kept as zombies in the table and collected once the store runs empty
+        private static final int MAX_RANGES = 1 << 20;
 
         // Attributes
-        private final long[] m_localIDs;
-        private int m_getPosition;
-        private int m_putPosition;
-        // available free lid elements stored in our array
-        private int m_count;
-        // This counts the total available lids in the array
+        // free LIDs as ranges of consecutive LIDs: first LID -> last LID + 1, ranges are never adjacent
+        private final TreeMap<Long, Long> m_ranges;
+        // range taken from the map to serve single LIDs without touching the map
+        private long m_runStart;
+        private long m_runEnd;
+        // available free lid elements stored in our ranges
+        private long m_count;
+        // This counts the total available lids in the store
         // as well as elements that are still allocated
-        // (because they don't fit into the local array anymore)
+        // (because they don't fit into the store anymore)
         // but not valid -> zombies
         private long m_overallCount;
 
@@ -728,9 +1090,9 @@ public final class CIDTable {
          * Creates an instance of LIDStore
          */
         private LIDStore() {
-            m_localIDs = new long[STORE_CAPACITY];
-            m_getPosition = 0;
-            m_putPosition = 0;
+            m_ranges = new TreeMap<>();
+            m_runStart = 0;
+            m_runEnd = 0;
             m_count = 0;
 
             m_overallCount = 0;
@@ -752,9 +1114,14 @@ public final class CIDTable {
                 }
 
                 if (m_count > 0) {
-                    ret = m_localIDs[m_getPosition];
+                    if (m_runStart == m_runEnd) {
+                        Map.Entry<Long, Long> range = m_ranges.pollFirstEntry();
+
+                        m_runStart = range.getKey();
+                        m_runEnd = range.getValue();
+                    }
 
-                    m_getPosition = (m_getPosition + 1) % m_localIDs.length;
+                    ret = m_runStart++;
                     m_count--;
                     m_overallCount--;
                 }
@@ -764,45 +1131,53 @@ public final class CIDTable {
         }
 
         /**
-         * Gets a free LocalID
+         * Gets consecutive free LocalIDs (first fit). The LIDs are not removed from the store if there is
+         * no range large enough.
          *
-         * @return a free LocalID
+         * @param p_size
+         *         Number of LIDs
+         * @return the LIDs or null if there is no range of consecutive free LIDs with the requested size
          */
         long[] getConsecutiveLIDs(final int p_size) {
-            long[] ret;
-            int counter = 0;
-            int visited = 0;
-            long currentID;
-            long lastID = -1;
+            long start = -1;
 
-            ret = new long[p_size];
-            while (counter < p_size) {
-                if (m_overallCount - visited < p_size - counter) {
-                    ret = null;
-                    break;
-                }
+            if (m_count < p_size && m_count < m_overallCount) {
+                fill();
+            }
 
-                if (m_count == 0) {
-                    fill();
-                }
+            if (m_count < p_size) {
+                return null;
+            }
 
-                if (m_count > 0) {
-                    currentID = m_localIDs[m_getPosition];
+            if (m_runEnd - m_runStart >= p_size) {
+                start = m_runStart;
+                m_runStart += p_size;
+            } else {
+                for (Map.Entry<Long, Long> range : m_ranges.entrySet()) {
+                    if (range.getValue() - range.getKey() >= p_size) {
+                        start = range.getKey();
+                        break;
+                    }
+                }
 
-                    m_getPosition = (m_getPosition + 1) % m_localIDs.length;
-                    m_count--;
-                    m_overallCount--;
+                if (start == -1) {
+                    return null;
+                }
 
-                    if (currentID == lastID + 1 || lastID == -1) {
-                        counter++;
-                        lastID = currentID;
-                    } else {
-                        counter = 0;
-                    }
-                    visited++;
+                long end = m_ranges.remove(start);
+                if (end - start > p_size) {
+                    m_ranges.put(start + p_size, end);
                 }
             }
 
+            long[] ret = new long[p_size];
+            for (int i = 0; i < p_size; i++) {
+                ret[i] = start + i;
+            }
+
+            m_count -= p_size;
+            m_overallCount -= p_size;
+
             return ret;
         }
 
@@ -814,22 +1189,115 @@ public final class CIDTable {
          * @return True if adding an entry to our local ID store was successful, false otherwise.
          */
         public boolean put(final long p_localID) {
-            boolean ret;
+            boolean ret = add(p_localID);
 
-            if (m_count < m_localIDs.length) {
-                m_localIDs[m_putPosition] = p_localID;
+            m_overallCount++;
 
-                m_putPosition = (m_putPosition + 1) % m_localIDs.length;
-                m_count++;
+            return ret;
+        }
 
-                ret = true;
-            } else {
-                ret = false;
+        /**
+         * Write the stored LocalIDs for a snapshot
+         *
+         * @param p_out
+         *         Output to write to
+         * @throws IOException
+         *         If writing failed
+         */
+        void exportMetadata(final DataOutput p_out) throws IOException {
+            p_out.writeLong(m_overallCount);
+            p_out.writeLong(m_count);
+            p_out.writeLong(m_runStart);
+            p_out.writeLong(m_runEnd);
+            p_out.writeInt(m_ranges.size());
+
+            for (Map.Entry<Long, Long> range : m_ranges.entrySet()) {
+                p_out.writeLong(range.getKey());
+                p_out.writeLong(range.getValue());
             }
+        }
 
-            m_overallCount++;
+        /**
+         * Read the stored LocalIDs of a snapshot
+         *
+         * @param p_in
+         *         Input to read from
+         * @throws IOException
+         *         If reading failed
+         */
+        void importMetadata(final DataInput p_in) throws IOException {
+            m_overallCount = p_in.readLong();
+            m_count = p_in.readLong();
+            m_runStart = p_in.readLong();
+            m_runEnd = p_in.readLong();
 
-            return ret;
+            int ranges = p_in.readInt();
+            m_ranges.clear();
+
+            for (int i = 0; i < ranges; i++) {
+                m_ranges.put(p_in.readLong(), p_in.readLong());
+            }
+        }
+
+        /**
+         * Add a free LocalID to the ranges, merges it with adjacent ranges
+         *
+         * @param p_localID
+         *         a LocalID
+         * @return True if successful, false if a new range is required but the maximum number of ranges is reached
+         */
+        private boolean add(final long p_localID) {
+            long start = p_localID;
+            long end = p_localID + 1;
+
+            if (m_runStart != m_runEnd) {
+                if (p_localID == m_runEnd) {
+                    m_runEnd++;
+
+                    Long next = m_ranges.remove(m_runEnd);
+                    if (next != null) {
+                        m_runEnd = next;
+                    }
+
+                    m_count++;
+                    return true;
+                }
+
+                if (p_localID == m_runStart - 1) {
+                    m_runStart--;
+
+                    Map.Entry<Long, Long> previous = m_ranges.lowerEntry(m_runStart);
+                    if (previous != null && previous.getValue() == m_runStart) {
+                        m_ranges.remove(previous.getKey());
+                        m_runStart = previous.getKey();
+                    }
+
+                    m_count++;
+                    return true;
+                }
+            }
+
+            Map.Entry<Long, Long> previous = m_ranges.lowerEntry(p_localID);
+            boolean mergePrevious = previous != null && previous.getValue() == p_localID;
+            Long next = m_ranges.get(end);
+
+            if (!mergePrevious && next == null && m_ranges.size() >= MAX_RANGES) {
+                return false;
+            }
+
+            if (mergePrevious) {
+                start = previous.getKey();
+            }
+
+            if (next != null) {
+                m_ranges.remove(end);
+                end = next;
+            }
+
+            m_ranges.put(start, end);
+            m_count++;
+
+            return true;
         }
 
         /**
@@ -870,7 +1338,8 @@ public final class CIDTable {
                 if (p_level > 0) {
                     if (entry > 0) {
                         // Get free LocalID in the next table
-                        if (!findFreeLIDs(entry & BITMASK_ADDRESS, p_level - 1, i << BITS_PER_LID_LEVEL * p_level)) {
+                        if (!findFreeLIDs(entry & BITMASK_ADDRESS, p_level - 1,
+                                p_offset + ((long) i << BITS_PER_LID_LEVEL * p_level))) {
                             // Mark the table as full
                             entry |= FULL_FLAG;
                             writeEntry(p_addressTable, i, entry);
@@ -883,18 +1352,19 @@ public final class CIDTable {
                     if (entry == ZOMBIE_ENTRY) {
                         localID = p_offset + i;
 
+                        if (!add(localID)) {
+                            // store is full, keep the zombie for the next fill
+                            return true;
+                        }
+
                         // cleanup zombie in table
                         writeEntry(p_addressTable, i, FREE_ENTRY);
 
-                        m_localIDs[m_putPosition] = localID;
-                        m_putPosition = (m_putPosition + 1) % m_localIDs.length;
-                        m_count++;
-
                         ret = true;
                     }
                 }
 
-                if (m_count == m_localIDs.length || m_count == m_overallCount) {
+                if (m_count == m_overallCount || m_ranges.size() >= MAX_RANGES) {
                     break;
                 }
             }
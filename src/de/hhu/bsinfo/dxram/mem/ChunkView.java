@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.mem;
+
+import de.hhu.bsinfo.dxram.data.ChunkID;
+import de.hhu.bsinfo.soh.Storage;
+
+/**
+ * Flyweight to access the payload of a local chunk in place, i.e. without copying it to a data structure.
+ * A view is opened on a chunk using MemoryManagerComponent.openView() which keeps the chunk from being removed
+ * or relocated until the view is closed again (closeView()). Views are meant to be reused: open, access and close
+ * a single view instance for any number of chunks to scan them without allocating objects.
+ * All accesses are checked against the bounds of the chunk. Views are not thread safe, use one view per thread.
+ * Note: Like put, writing through a view does NOT take care of data races with other threads accessing the same
+ * chunk.
+ */
+public final class ChunkView {
+    private Storage m_storage;
+    private long m_chunkID = ChunkID.INVALID_ID;
+    private long m_address;
+    private int m_size;
+    private boolean m_modified;
+
+    /**
+     * Constructor
+     */
+    public ChunkView() {
+
+    }
+
+    /**
+     * Get the ID of the chunk the view is opened on
+     *
+     * @return Chunk ID or ChunkID.INVALID_ID if the view is not opened
+     */
+    public long getID() {
+        return m_chunkID;
+    }
+
+    /**
+     * Check if the view is opened on a chunk
+     *
+     * @return True if opened, false otherwise
+     */
+    public boolean isOpen() {
+        return m_chunkID != ChunkID.INVALID_ID;
+    }
+
+    /**
+     * Check if the chunk's payload was written through the view since the view was opened
+     *
+     * @return True if written, false otherwise
+     */
+    public boolean isModified() {
+        return m_modified;
+    }
+
+    /**
+     * Get the size of the chunk's payload
+     *
+     * @return Size in bytes (0 if not opened)
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Read a byte
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @return Value read
+     */
+    public byte readByte(final int p_offset) {
+        checkBounds(p_offset, Byte.BYTES);
+        return m_storage.readByte(m_address + p_offset);
+    }
+
+    /**
+     * Read a short
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @return Value read
+     */
+    public short readShort(final int p_offset) {
+        checkBounds(p_offset, Short.BYTES);
+        return m_storage.readShort(m_address + p_offset);
+    }
+
+    /**
+     * Read an int
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @return Value read
+     */
+    public int readInt(final int p_offset) {
+        checkBounds(p_offset, Integer.BYTES);
+        return m_storage.readInt(m_address + p_offset);
+    }
+
+    /**
+     * Read a long
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @return Value read
+     */
+    public long readLong(final int p_offset) {
+        checkBounds(p_offset, Long.BYTES);
+        return m_storage.readLong(m_address + p_offset);
+    }
+
+    /**
+     * Read a float
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @return Value read
+     */
+    public float readFloat(final int p_offset) {
+        return Float.intBitsToFloat(readInt(p_offset));
+    }
+
+    /**
+     * Read a double
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @return Value read
+     */
+    public double readDouble(final int p_offset) {
+        return Double.longBitsToDouble(readLong(p_offset));
+    }
+
+    /**
+     * Read multiple bytes
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_buffer
+     *         Buffer to read into
+     * @param p_bufferOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of bytes to read
+     * @return Number of bytes read
+     */
+    public int readBytes(final int p_offset, final byte[] p_buffer, final int p_bufferOffset, final int p_length) {
+        checkBounds(p_offset, p_length);
+        checkArrayBounds(p_buffer.length, p_bufferOffset, p_length);
+        return m_storage.readBytes(m_address + p_offset, p_buffer, p_bufferOffset, p_length);
+    }
+
+    /**
+     * Read multiple ints
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_buffer
+     *         Buffer to read into
+     * @param p_bufferOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of ints to read
+     * @return Number of ints read
+     */
+    public int readInts(final int p_offset, final int[] p_buffer, final int p_bufferOffset, final int p_length) {
+        checkBounds(p_offset, (long) p_length * Integer.BYTES);
+        checkArrayBounds(p_buffer.length, p_bufferOffset, p_length);
+        return m_storage.readInts(m_address + p_offset, p_buffer, p_bufferOffset, p_length);
+    }
+
+    /**
+     * Read multiple longs
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_buffer
+     *         Buffer to read into
+     * @param p_bufferOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of longs to read
+     * @return Number of longs read
+     */
+    public int readLongs(final int p_offset, final long[] p_buffer, final int p_bufferOffset, final int p_length) {
+        checkBounds(p_offset, (long) p_length * Long.BYTES);
+        checkArrayBounds(p_buffer.length, p_bufferOffset, p_length);
+        return m_storage.readLongs(m_address + p_offset, p_buffer, p_bufferOffset, p_length);
+    }
+
+    /**
+     * Write a byte
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_value
+     *         Value to write
+     */
+    public void writeByte(final int p_offset, final byte p_value) {
+        checkBounds(p_offset, Byte.BYTES);
+        m_modified = true;
+        m_storage.writeByte(m_address + p_offset, p_value);
+    }
+
+    /**
+     * Write a short
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_value
+     *         Value to write
+     */
+    public void writeShort(final int p_offset, final short p_value) {
+        checkBounds(p_offset, Short.BYTES);
+        m_modified = true;
+        m_storage.writeShort(m_address + p_offset, p_value);
+    }
+
+    /**
+     * Write an int
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_value
+     *         Value to write
+     */
+    public void writeInt(final int p_offset, final int p_value) {
+        checkBounds(p_offset, Integer.BYTES);
+        m_modified = true;
+        m_storage.writeInt(m_address + p_offset, p_value);
+    }
+
+    /**
+     * Write a long
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_value
+     *         Value to write
+     */
+    public void writeLong(final int p_offset, final long p_value) {
+        checkBounds(p_offset, Long.BYTES);
+        m_modified = true;
+        m_storage.writeLong(m_address + p_offset, p_value);
+    }
+
+    /**
+     * Write a float
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_value
+     *         Value to write
+     */
+    public void writeFloat(final int p_offset, final float p_value) {
+        writeInt(p_offset, Float.floatToRawIntBits(p_value));
+    }
+
+    /**
+     * Write a double
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_value
+     *         Value to write
+     */
+    public void writeDouble(final int p_offset, final double p_value) {
+        writeLong(p_offset, Double.doubleToRawLongBits(p_value));
+    }
+
+    /**
+     * Write multiple bytes
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_buffer
+     *         Buffer with the data to write
+     * @param p_bufferOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of bytes to write
+     * @return Number of bytes written
+     */
+    public int writeBytes(final int p_offset, final byte[] p_buffer, final int p_bufferOffset, final int p_length) {
+        checkBounds(p_offset, p_length);
+        checkArrayBounds(p_buffer.length, p_bufferOffset, p_length);
+        m_modified = true;
+        return m_storage.writeBytes(m_address + p_offset, p_buffer, p_bufferOffset, p_length);
+    }
+
+    /**
+     * Write multiple ints
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_buffer
+     *         Buffer with the data to write
+     * @param p_bufferOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of ints to write
+     * @return Number of ints written
+     */
+    public int writeInts(final int p_offset, final int[] p_buffer, final int p_bufferOffset, final int p_length) {
+        checkBounds(p_offset, (long) p_length * Integer.BYTES);
+        checkArrayBounds(p_buffer.length, p_bufferOffset, p_length);
+        m_modified = true;
+        return m_storage.writeInts(m_address + p_offset, p_buffer, p_bufferOffset, p_length);
+    }
+
+    /**
+     * Write multiple longs
+     *
+     * @param p_offset
+     *         Offset within the chunk
+     * @param p_buffer
+     *         Buffer with the data to write
+     * @param p_bufferOffset
+     *         Offset within the buffer
+     * @param p_length
+     *         Number of longs to write
+     * @return Number of longs written
+     */
+    public int writeLongs(final int p_offset, final long[] p_buffer, final int p_bufferOffset, final int p_length) {
+        checkBounds(p_offset, (long) p_length * Long.BYTES);
+        checkArrayBounds(p_buffer.length, p_bufferOffset, p_length);
+        m_modified = true;
+        return m_storage.writeLongs(m_address + p_offset, p_buffer, p_bufferOffset, p_length);
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkView[" + ChunkID.toHexString(m_chunkID) + ", size " + m_size + ']';
+    }
+
+    /**
+     * Open the view on a chunk (called by the memory manager holding the read lock of the chunk)
+     *
+     * @param p_storage
+     *         Storage of the heap
+     * @param p_chunkID
+     *         ID of the chunk
+     * @param p_payloadAddress
+     *         Address of the chunk's payload on the storage
+     * @param p_size
+     *         Size of the chunk's payload
+     */
+    void open(final Storage p_storage, final long p_chunkID, final long p_payloadAddress, final int p_size) {
+        m_storage = p_storage;
+        m_chunkID = p_chunkID;
+        m_address = p_payloadAddress;
+        m_size = p_size;
+        m_modified = false;
+    }
+
+    /**
+     * Close the view (called by the memory manager before releasing the read lock of the chunk)
+     */
+    void close() {
+        m_chunkID = ChunkID.INVALID_ID;
+        m_address = 0;
+        m_size = 0;
+        m_modified = false;
+    }
+
+    /**
+     * Check if an access is within the bounds of the chunk
+     *
+     * @param p_offset
+     *         Offset of the access within the chunk
+     * @param p_length
+     *         Number of bytes accessed (long to not overflow for multi-byte elements)
+     */
+    private void checkBounds(final int p_offset, final long p_length) {
+        // a closed view has size 0, i.e. any access fails
+        if (p_offset < 0 || p_length < 0 || p_offset > m_size - p_length) {
+            throw new IndexOutOfBoundsException("Access at offset " + p_offset + " with length " + p_length +
+                    " out of bounds of " + this);
+        }
+    }
+
+    /**
+     * Check if a range is within the bounds of the array to read into or write from
+     *
+     * @param p_arrayLength
+     *         Length of the array (elements)
+     * @param p_offset
+     *         Offset of the range within the array (elements)
+     * @param p_length
+     *         Number of elements of the range
+     */
+    private static void checkArrayBounds(final int p_arrayLength, final int p_offset, final int p_length) {
+        if (p_offset < 0 || p_length < 0 || p_offset > p_arrayLength - p_length) {
+            throw new IndexOutOfBoundsException("Range (offset " + p_offset + ", length " + p_length +
+                    ") out of bounds of buffer with length " + p_arrayLength);
+        }
+    }
+}
@@ -16,117 +16,295 @@
 
 package de.hhu.bsinfo.dxram.mem;
 
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import de.hhu.bsinfo.soh.SmallObjectHeap;
 
-// TODO draft of simple defragmenter (untested)
-// The defragmenter should be triggered when the fragmentation hits 75%.
-// It runs for a set number of entries (or time?) and re-allocates
-// objects on every malloc call until the fragmentation drops below 75%
-public final class Defragmenter {
+/**
+ * Incremental background defragmenter for the key value store. Once the fragmentation of the heap exceeds a
+ * threshold, the defragmenter walks the CIDTable in short time slices and moves chunks to free blocks located
+ * at lower addresses (compacting the heap towards its start). The free'd blocks merge with their free neighbors.
+ * A slice blocks creates and removes of chunks, gets and puts are only blocked while a chunk of the same
+ * level 0 table range is relocated.
+ */
+public final class Defragmenter extends Thread {
+    private static final Logger LOGGER = LogManager.getFormatterLogger(Defragmenter.class.getSimpleName());
 
-    private static final long SLEEP_TIME = 10000;
-    private static final double MAX_FRAGMENTATION = 0.75;
+    // check the time slice every n entries only
+    private static final int TIME_CHECK_INTERVAL = 64;
 
-    private CIDTable m_cidTable;
-    private SmallObjectHeap m_heap;
+    private final MemoryManagerComponent m_memory;
+    private final long m_intervalMs;
+    private final long m_timeSliceNs;
+    private final double m_fragmentationThreshold;
 
+    private volatile boolean m_running;
+
+    // position in the CIDTable, continued by the next time slice
+    private CIDTable m_cursorTable;
     private long[] m_curTables = new long[CIDTable.LID_TABLE_LEVELS + 1];
     private int[] m_curTableIndex = new int[CIDTable.LID_TABLE_LEVELS + 1];
+    private int m_curLevel;
+    private boolean m_passFinished;
+
+    private byte[] m_buffer = new byte[0];
 
-    private boolean m_initDefragPos;
+    private volatile long m_relocatedChunks;
+    private volatile long m_relocatedBytes;
+    private volatile long m_passes;
 
     /**
-     * Creates an instance of Defragmenter_old
+     * Constructor
+     *
+     * @param p_memory
+     *         Memory manager to defragment
+     * @param p_intervalMs
+     *         Interval in ms to check the fragmentation of the heap
+     * @param p_timeSliceMs
+     *         Max duration of a single time slice in ms
+     * @param p_fragmentationThreshold
+     *         Fragmentation (0.0 - 1.0) to start defragmenting at
      */
-    public Defragmenter(final CIDTable p_cidTable, final SmallObjectHeap p_heap) {
-        m_cidTable = p_cidTable;
-        m_heap = p_heap;
+    Defragmenter(final MemoryManagerComponent p_memory, final long p_intervalMs, final long p_timeSliceMs,
+            final double p_fragmentationThreshold) {
+        super("Defragmenter");
+        setDaemon(true);
 
-        for (int i = 0; i < CIDTable.LID_TABLE_LEVELS + 1; i++) {
-            m_curTables[i] = -1;
-            m_curTableIndex[i] = -1;
-        }
+        m_memory = p_memory;
+        m_intervalMs = p_intervalMs;
+        m_timeSliceNs = p_timeSliceMs * 1000 * 1000;
+        m_fragmentationThreshold = p_fragmentationThreshold;
+        m_running = true;
+    }
 
-        m_initDefragPos = false;
+    /**
+     * Get the number of chunks relocated so far
+     *
+     * @return Number of relocated chunks
+     */
+    public long getRelocatedChunks() {
+        return m_relocatedChunks;
     }
 
-    public void initDefragmentPosition() {
+    /**
+     * Get the amount of chunk data relocated so far
+     *
+     * @return Relocated bytes
+     */
+    public long getRelocatedBytes() {
+        return m_relocatedBytes;
+    }
 
-        m_curTables[0] = m_cidTable.getAddressTableDirectory();
+    /**
+     * Get the number of full passes over the CIDTable
+     *
+     * @return Number of passes
+     */
+    public long getPasses() {
+        return m_passes;
+    }
 
-        for (int i = 0; i < m_curTables.length; i++) {
-            m_curTableIndex[i] = 0;
-        }
+    /**
+     * Stop the defragmenter and wait for it to finish its current time slice
+     */
+    void shutdown() {
+        m_running = false;
+        interrupt();
 
-        for (int i = 0; i < m_curTables.length - 1; i++) {
-            m_curTables[i + 1] = m_cidTable.readEntry(m_curTables[i], m_curTableIndex[i]);
+        try {
+            join();
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    public long getAddressCurrentEntry() {
-        return m_cidTable.readEntry(m_curTables[m_curTables.length - 1], m_curTableIndex[m_curTables.length - 1]);
-    }
+    @Override
+    public void run() {
+        while (m_running) {
+            try {
+                Thread.sleep(m_intervalMs);
+            } catch (final InterruptedException ignored) {
+                continue;
+            }
+
+            m_passFinished = false;
 
-    public void replaceAddressCurrenEntry(final long p_newAddress) {
-        m_cidTable.writeEntry(m_curTables[m_curTables.length - 1], m_curTableIndex[m_curTables.length - 1], p_newAddress);
+            // keep going until the heap is compacted enough or a full pass did not help
+            while (m_running && !m_passFinished && m_memory.getFragmentation() >= m_fragmentationThreshold) {
+                if (!m_memory.defragment(this)) {
+                    // memory is locked exclusively (e.g. dump, recovery), try again later
+                    break;
+                }
+
+                // leave the same amount of time to creates and removes
+                LockSupport.parkNanos(m_timeSliceNs);
+            }
+        }
     }
 
-    public void moveNextEntry() {
+    /**
+     * Run a single time slice. Has to be called with the memory locked for access and the CIDTable (including
+     * the LID store and chunk counters) locked for modifications, see MemoryManagerComponent.defragment().
+     *
+     * @param p_cidTable
+     *         CIDTable to walk
+     * @param p_heap
+     *         Heap the chunks are stored in
+     */
+    void defragment(final CIDTable p_cidTable, final SmallObjectHeap p_heap) {
+        long start = System.nanoTime();
+        int entries = 0;
 
-        for (int i = m_curTables.length - 1; i >= 0; i--) {
-            m_curTableIndex[i]++;
+        // memory was reset, start over
+        if (m_cursorTable != p_cidTable) {
+            m_cursorTable = p_cidTable;
+            resetPosition();
+        }
 
-            if (i == 0) {
-                if (m_curTableIndex[i] > CIDTable.ENTRIES_FOR_NID_LEVEL) {
-                    m_curTableIndex[i] = 0;
-                }
-            } else {
-                if (m_curTableIndex[i] > CIDTable.ENTRIES_PER_LID_LEVEL) {
-                    m_curTableIndex[i] = 0;
-                } else {
-                    break;
-                }
+        while (true) {
+            if (!moveNextEntry()) {
+                m_passFinished = true;
+                m_passes++;
+
+                // #if LOGGER >= DEBUG
+                LOGGER.debug("Pass finished, relocated chunks %d, relocated bytes %d", m_relocatedChunks,
+                        m_relocatedBytes);
+                // #endif /* LOGGER >= DEBUG */
+
+                break;
+            }
+
+            relocateCurrentEntry(p_heap);
+
+            if (++entries % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - start >= m_timeSliceNs) {
+                break;
             }
         }
     }
 
-    public void defragment(final int p_entries) {
+    /**
+     * Move the chunk of the current entry to a free block with a lower address (if there is one)
+     *
+     * @param p_heap
+     *         Heap the chunks are stored in
+     */
+    private void relocateCurrentEntry(final SmallObjectHeap p_heap) {
+        long table = m_curTables[0];
+        int index = m_curTableIndex[0];
+        long entry = m_cursorTable.readEntry(table, index);
 
-        long address;
-        long newAddress;
-        byte[] data;
+        if (entry == 0 || entry == CIDTable.ZOMBIE_ENTRY) {
+            return;
+        }
 
-        if (!m_initDefragPos) {
-            initDefragmentPosition();
-            m_initDefragPos = true;
+        long address = entry & CIDTable.BITMASK_ADDRESS;
+
+        // slab slots are packed already and can't be merged with free blocks
+        if (p_heap.isSlabBlock(address)) {
+            return;
         }
 
-        for (int i = 0; i < p_entries; i++) {
+        int size = p_heap.getSizeBlock(address);
+        long newAddress = p_heap.mallocBelow(size, address);
 
-            while (true) {
-                address = getAddressCurrentEntry();
-                if (address != 0) {
-                    break;
+        if (newAddress == SmallObjectHeap.INVALID_ADDRESS) {
+            return;
+        }
+
+        if (m_buffer.length < size) {
+            m_buffer = new byte[size];
+        }
+
+        long chunkID = getCurrentChunkID();
+
+        // wait for all readers of the range, the entry can't change otherwise (table locked by caller)
+        m_cursorTable.lockChunkWrite(chunkID);
+
+        try {
+            p_heap.readBytes(address, 0, m_buffer, 0, size);
+            p_heap.writeBytes(newAddress, 0, m_buffer, 0, size);
+            m_cursorTable.writeEntry(table, index, newAddress & CIDTable.BITMASK_ADDRESS);
+            m_cursorTable.invalidateAddress(chunkID);
+        } finally {
+            m_cursorTable.unlockChunkWrite(chunkID);
+        }
+
+        p_heap.free(address);
+
+        m_relocatedChunks++;
+        m_relocatedBytes += size;
+    }
+
+    /**
+     * Reset the position to the start of the CIDTable
+     */
+    private void resetPosition() {
+        m_curLevel = CIDTable.LID_TABLE_LEVELS;
+        m_curTables[m_curLevel] = m_cursorTable.getAddressTableDirectory();
+        m_curTableIndex[m_curLevel] = -1;
+    }
+
+    /**
+     * Move the position to the next level 0 entry skipping non existing tables
+     *
+     * @return True if moved to the next entry, false if the end of the CIDTable was reached (position is reset)
+     */
+    private boolean moveNextEntry() {
+        int level = m_curLevel;
+
+        m_curTableIndex[level]++;
+
+        while (true) {
+            int entries = level == CIDTable.LID_TABLE_LEVELS ? CIDTable.ENTRIES_FOR_NID_LEVEL :
+                    CIDTable.ENTRIES_PER_LID_LEVEL;
+
+            if (m_curTableIndex[level] >= entries) {
+                if (level == CIDTable.LID_TABLE_LEVELS) {
+                    resetPosition();
+                    return false;
                 }
-                moveNextEntry();
-            }
 
-            data = new byte[m_heap.getSizeBlock(address)];
+                // continue with the next entry of the parent table
+                level++;
+                m_curTableIndex[level]++;
+                continue;
+            }
 
-            if (m_heap.readBytes(address, 0, data, 0, data.length) != data.length) {
-                // TODO error handling
+            if (level == 0) {
+                m_curLevel = 0;
+                return true;
             }
 
-            newAddress = m_heap.malloc(data.length);
-            if (m_heap.writeBytes(newAddress, 0, data, 0, data.length) != data.length) {
-                // TODO error handling
+            long entry = m_cursorTable.readEntry(m_curTables[level], m_curTableIndex[level]) &
+                    CIDTable.BITMASK_ADDRESS;
+
+            if (entry == 0) {
+                m_curTableIndex[level]++;
+                continue;
             }
 
-            replaceAddressCurrenEntry(newAddress);
+            // descend
+            level--;
+            m_curTables[level] = entry;
+            m_curTableIndex[level] = 0;
+        }
+    }
 
-            m_heap.free(address);
+    /**
+     * Get the chunk ID of the current position
+     *
+     * @return Chunk ID
+     */
+    private long getCurrentChunkID() {
+        long chunkID = (long) m_curTableIndex[CIDTable.LID_TABLE_LEVELS] << 48;
 
-            moveNextEntry();
+        for (int i = 0; i < CIDTable.LID_TABLE_LEVELS; i++) {
+            chunkID |= (long) m_curTableIndex[i] << CIDTable.BITS_PER_LID_LEVEL * i;
         }
+
+        return chunkID;
     }
 }
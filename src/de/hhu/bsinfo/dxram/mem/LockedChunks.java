@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.mem;
+
+import de.hhu.bsinfo.dxutils.serialization.Exporter;
+import de.hhu.bsinfo.soh.Storage;
+
+/**
+ * Set of local chunks locked for reading by MemoryManagerComponent.lockChunks(). As long as the chunks are locked,
+ * they can't be removed or relocated, which allows exporting their payloads directly from the heap without copying
+ * them to intermediate byte arrays first. Don't hold the locks while blocking (e.g. sending a network message),
+ * detach the chunks instead: their payloads are copied to a single buffer and exported from there after unlocking.
+ * Release the chunks with MemoryManagerComponent.unlockChunks() as soon as possible. Not thread safe.
+ */
+public final class LockedChunks {
+    // chunk data is exported in pieces of this size from the heap
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final ThreadLocal<byte[]> EXPORT_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[EXPORT_BUFFER_SIZE]);
+
+    private final Storage m_storage;
+    // payload addresses on the storage or offsets in m_data if detached
+    private final long[] m_addresses;
+    private final int[] m_sizes;
+    private final int m_count;
+    private int m_totalSuccessful;
+    // payloads of all chunks if detached
+    private byte[] m_data;
+
+    private int[] m_lockHandle;
+
+    /**
+     * Constructor
+     *
+     * @param p_storage
+     *         Storage of the heap
+     * @param p_count
+     *         Number of chunks
+     */
+    LockedChunks(final Storage p_storage, final int p_count) {
+        m_storage = p_storage;
+        m_addresses = new long[p_count];
+        m_sizes = new int[p_count];
+        m_count = p_count;
+    }
+
+    /**
+     * Get the number of chunks (including non existing ones)
+     *
+     * @return Number of chunks
+     */
+    public int getCount() {
+        return m_count;
+    }
+
+    /**
+     * Get the number of chunks that exist and were locked
+     *
+     * @return Number of existing chunks
+     */
+    public int getTotalSuccessful() {
+        return m_totalSuccessful;
+    }
+
+    /**
+     * Check if a chunk exists
+     *
+     * @param p_index
+     *         Index of the chunk (order of the chunk IDs passed to lockChunks())
+     * @return True if the chunk exists, false otherwise
+     */
+    public boolean exists(final int p_index) {
+        return m_sizes[p_index] >= 0;
+    }
+
+    /**
+     * Get the payload size of a chunk
+     *
+     * @param p_index
+     *         Index of the chunk (order of the chunk IDs passed to lockChunks())
+     * @return Size of the chunk's payload or -1 if the chunk does not exist
+     */
+    public int getSize(final int p_index) {
+        return m_sizes[p_index];
+    }
+
+    /**
+     * Copy the payloads of all chunks to a single buffer. Afterwards, the chunks can be unlocked and still be
+     * exported. The chunks must be locked.
+     */
+    public void detach() {
+        if (m_lockHandle == null) {
+            throw new IllegalStateException("Chunks are not locked");
+        }
+
+        int totalSize = 0;
+
+        for (int i = 0; i < m_count; i++) {
+            if (m_sizes[i] > 0) {
+                totalSize += m_sizes[i];
+            }
+        }
+
+        m_data = new byte[totalSize];
+        int offset = 0;
+
+        for (int i = 0; i < m_count; i++) {
+            if (m_sizes[i] > 0) {
+                m_storage.readBytes(m_addresses[i], m_data, offset, m_sizes[i]);
+                m_addresses[i] = offset;
+                offset += m_sizes[i];
+            }
+        }
+    }
+
+    /**
+     * Export the payload of a chunk straight from the heap (or the buffer if detached). The chunk must exist.
+     *
+     * @param p_index
+     *         Index of the chunk (order of the chunk IDs passed to lockChunks())
+     * @param p_exporter
+     *         Exporter to write the payload to
+     */
+    public void exportChunk(final int p_index, final Exporter p_exporter) {
+        if (m_data != null) {
+            p_exporter.writeBytes(m_data, (int) m_addresses[p_index], m_sizes[p_index]);
+            return;
+        }
+
+        if (m_lockHandle == null) {
+            throw new IllegalStateException("Chunks are not locked");
+        }
+
+        byte[] buffer = EXPORT_BUFFER.get();
+        long address = m_addresses[p_index];
+        int remaining = m_sizes[p_index];
+
+        while (remaining > 0) {
+            int length = Math.min(remaining, buffer.length);
+
+            m_storage.readBytes(address, buffer, 0, length);
+            p_exporter.writeBytes(buffer, 0, length);
+
+            address += length;
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Set a chunk (called by the memory manager holding the locks)
+     *
+     * @param p_index
+     *         Index of the chunk
+     * @param p_payloadAddress
+     *         Address of the chunk's payload on the storage
+     * @param p_size
+     *         Size of the payload or -1 if the chunk does not exist
+     */
+    void set(final int p_index, final long p_payloadAddress, final int p_size) {
+        m_addresses[p_index] = p_payloadAddress;
+        m_sizes[p_index] = p_size;
+
+        if (p_size >= 0) {
+            m_totalSuccessful++;
+        }
+    }
+
+    /**
+     * Set the handle of the locks held
+     *
+     * @param p_lockHandle
+     *         Handle returned by CIDTable.lockChunksRead() or null if released
+     */
+    void setLockHandle(final int[] p_lockHandle) {
+        m_lockHandle = p_lockHandle;
+    }
+
+    /**
+     * Get the handle of the locks held
+     *
+     * @return Handle returned by CIDTable.lockChunksRead() or null if not locked
+     */
+    int[] getLockHandle() {
+        return m_lockHandle;
+    }
+}
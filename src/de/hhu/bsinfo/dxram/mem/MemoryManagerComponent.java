@@ -16,7 +16,12 @@
 
 package de.hhu.bsinfo.dxram.mem;
 
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import de.hhu.bsinfo.dxram.DXRAMComponentOrder;
 import de.hhu.bsinfo.dxram.boot.AbstractBootComponent;
@@ -27,6 +32,7 @@ import de.hhu.bsinfo.dxram.data.DataStructure;
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMComponent;
 import de.hhu.bsinfo.dxram.engine.DXRAMComponentAccessor;
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
+import de.hhu.bsinfo.dxram.engine.DXRAMJNIManager;
 import de.hhu.bsinfo.dxram.engine.DXRAMRuntimeException;
 import de.hhu.bsinfo.dxutils.serialization.Exportable;
 import de.hhu.bsinfo.dxutils.serialization.Exporter;
@@ -38,6 +44,9 @@ import de.hhu.bsinfo.dxutils.stats.Value;
 import de.hhu.bsinfo.dxutils.unit.StorageUnit;
 import de.hhu.bsinfo.soh.MemoryRuntimeException;
 import de.hhu.bsinfo.soh.SmallObjectHeap;
+import de.hhu.bsinfo.soh.Storage;
+import de.hhu.bsinfo.soh.StorageCopyOnWrite;
+import de.hhu.bsinfo.soh.StorageMappedMemory;
 import de.hhu.bsinfo.soh.StorageUnsafeMemory;
 
 /**
@@ -47,6 +56,10 @@ import de.hhu.bsinfo.soh.StorageUnsafeMemory;
  * This depends on the type (access or manage). Check the documentation
  * of each call to figure how to handle them. Make use of this by combining
  * multiple calls within a single critical section to avoid locking overhead.
+ * Access calls (get, put) of different threads run in parallel and only
+ * synchronize on the level 0 CID table range of the chunk accessed. Management
+ * calls (create, remove) are serialized among each other but don't block
+ * access calls of other threads.
  *
  * @author Florian Klein, florian.klein@hhu.de, 13.02.2014
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 11.11.2015
@@ -88,11 +101,27 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
     private AbstractBootComponent m_boot;
     private SmallObjectHeap m_rawMemory;
     private CIDTable m_cidTable;
-    //private ReentrantReadWriteLock m_lock;
-    private AtomicInteger m_lock;
+    // shared by access and management calls, exclusive for calls blocking the whole memory (e.g. dump)
+    private StripedReadWriteLock m_lock;
+    private ReentrantLock m_manageLock;
+    // guards the CID table/LID store modifications and the chunk counters (short critical sections, allocating
+    // and freeing heap memory is done outside to let threads use their allocation arenas in parallel)
+    private ReentrantLock m_tableLock;
+    // serializes atomic operations on the same chunk (hashed by chunk ID)
+    private StripedReadWriteLock m_atomicsLock;
+    private Defragmenter m_defragmenter;
+    // storage of the heap if snapshots are enabled (captures the memory image while writing a snapshot)
+    private StorageCopyOnWrite m_snapshotStorage;
+    private Thread m_snapshotThread;
+    private volatile boolean m_snapshotThreadRunning;
     private long m_numActiveChunks;
     private long m_totalActiveChunkMemory;
     private SmallObjectHeapDataStructureImExporter[] m_imexporter = new SmallObjectHeapDataStructureImExporter[65536];
+    // view opened by the current thread: the thread holds a read lock of the view's table range and its access
+    // lock stripe, any other memory call of the thread could deadlock with a pending writer (see checkNoOpenView())
+    private final ThreadLocal<ChunkView> m_openView = new ThreadLocal<>();
+    // number of views open on this node, the thread local is only looked up by (un)lock calls if views are open
+    private final AtomicInteger m_openViews = new AtomicInteger();
 
     /**
      * Constructor
@@ -108,12 +137,13 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public Status getStatus() {
         Status status = new Status();
+        SmallObjectHeap.Status heapStatus = m_rawMemory.getStatus();
 
-        status.m_freeMemory = new StorageUnit(m_rawMemory.getStatus().getFree(), StorageUnit.BYTE);
-        status.m_maxChunkSize = new StorageUnit(m_rawMemory.getStatus().getMaxBlockSize(), StorageUnit.BYTE);
-        status.m_totalMemory = new StorageUnit(m_rawMemory.getStatus().getSize(), StorageUnit.BYTE);
-        status.m_totalPayloadMemory = new StorageUnit(m_rawMemory.getStatus().getAllocatedPayload(), StorageUnit.BYTE);
-        status.m_numberOfActiveMemoryBlocks = m_rawMemory.getStatus().getAllocatedBlocks();
+        status.m_freeMemory = new StorageUnit(heapStatus.getFree(), StorageUnit.BYTE);
+        status.m_maxChunkSize = new StorageUnit(heapStatus.getMaxBlockSize(), StorageUnit.BYTE);
+        status.m_totalMemory = new StorageUnit(heapStatus.getSize(), StorageUnit.BYTE);
+        status.m_totalPayloadMemory = new StorageUnit(heapStatus.getAllocatedPayload(), StorageUnit.BYTE);
+        status.m_numberOfActiveMemoryBlocks = heapStatus.getAllocatedBlocks();
         status.m_totalChunkPayloadMemory = new StorageUnit(m_totalActiveChunkMemory, StorageUnit.BYTE);
         status.m_numberOfActiveChunks = m_numActiveChunks;
         status.m_cidTableCount = m_cidTable.getTableCount();
@@ -121,10 +151,34 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
         status.m_cachedFreeLIDs = m_cidTable.getNumCachedFreeLIDs();
         status.m_availableFreeLIDs = m_cidTable.getNumAvailableFreeLIDs();
         status.m_newLIDCounter = m_cidTable.getNextLocalIDCounter();
+        status.m_numberOfFreeMemoryBlocks = heapStatus.getFreeBlocks();
+        status.m_largestFreeMemoryBlock = new StorageUnit(m_rawMemory.getLargestFreeBlock(), StorageUnit.BYTE);
+        status.m_fragmentation = calculateFragmentation(heapStatus.getFree(),
+                status.m_largestFreeMemoryBlock.getBytes());
+        status.m_addressCacheHits = m_cidTable.getAddressCacheHits();
+        status.m_addressCacheMisses = m_cidTable.getAddressCacheMisses();
+
+        if (m_defragmenter != null) {
+            status.m_defragmenterRelocatedChunks = m_defragmenter.getRelocatedChunks();
+            status.m_defragmenterRelocatedBytes = new StorageUnit(m_defragmenter.getRelocatedBytes(), StorageUnit.BYTE);
+            status.m_defragmenterPasses = m_defragmenter.getPasses();
+        } else {
+            status.m_defragmenterRelocatedBytes = new StorageUnit(0, StorageUnit.BYTE);
+        }
 
         return status;
     }
 
+    /**
+     * Get the current fragmentation of the key value store: share of the free memory which is not usable
+     * by the largest free block
+     *
+     * @return Fragmentation (0.0 - 1.0)
+     */
+    public double getFragmentation() {
+        return calculateFragmentation(m_rawMemory.getStatus().getFree(), m_rawMemory.getLargestFreeBlock());
+    }
+
     /**
      * Returns the highest LocalID currently in use
      *
@@ -136,64 +190,136 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
     /**
      * Returns the ChunkID ranges of all migrated Chunks
+     * This is an access call and has to be locked using lockAccess().
      *
      * @return the ChunkID ranges of all migrated Chunks
      */
     public ChunkIDRanges getCIDRangesOfAllMigratedChunks() {
-        return m_cidTable.getCIDRangesOfAllMigratedChunks();
+        // the walk must not see tables and entries half created or removed by concurrent creates/removes
+        m_tableLock.lock();
+
+        try {
+            return m_cidTable.getCIDRangesOfAllMigratedChunks();
+        } finally {
+            m_tableLock.unlock();
+        }
     }
 
     /**
      * Returns the ChunkID ranges of all locally stored Chunks
+     * This is an access call and has to be locked using lockAccess().
      *
      * @return the ChunkID ranges
      */
     public ChunkIDRanges getCIDRangesOfAllLocalChunks() {
-        return m_cidTable.getCIDRangesOfAllLocalChunks();
+        m_tableLock.lock();
+
+        try {
+            return m_cidTable.getCIDRangesOfAllLocalChunks();
+        } finally {
+            m_tableLock.unlock();
+        }
     }
 
     /**
-     * Lock the memory for a management task (create, put, remove).
+     * Lock the memory for a management task (create, remove).
+     * Management tasks are serialized but do not block access tasks of other threads.
+     * Single create and remove calls are thread safe with lockAccess() as well (and run in parallel), use this
+     * to serialize sequences of calls which have to be atomic (e.g. create and register chunks for backup).
      */
     public void lockManage() {
-        //m_lock.writeLock().lock();
+        checkNoOpenView();
 
-        do {
-            int v = m_lock.get();
-            m_lock.compareAndSet(v, v | 0x40000000);
-        } while (!m_lock.compareAndSet(0x40000000, 0x80000000));
+        // take the manage lock first: don't hold the shared lock while waiting
+        // (allows a management task to upgrade to exclusive on memory errors)
+        m_manageLock.lock();
+        lockAccess();
     }
 
     /**
-     * Lock the memory for an access task (get).
+     * Lock the memory for an access task (get, put).
      */
     public void lockAccess() {
-        //m_lock.readLock().lock();
+        checkNoOpenView();
 
-        while (true) {
-            int v = m_lock.get() & 0x3FFFFFFF;
-            if (m_lock.compareAndSet(v, v + 1)) {
-                break;
-            }
-        }
+        m_lock.lockRead(Thread.currentThread().getId());
+    }
+
+    /**
+     * Lock the memory exclusively blocking any access and management tasks (e.g. memory dump, reset, recovery).
+     */
+    public void lockExclusive() {
+        checkNoOpenView();
+
+        m_lock.lockWriteAll();
     }
 
     /**
-     * Unlock the memory after a management task (create, put, remove).
+     * Unlock the memory after a management task (create, remove).
      */
     public void unlockManage() {
-        //m_lock.writeLock().unlock();
+        checkNoOpenView();
 
-        m_lock.set(0);
+        unlockAccess();
+        m_manageLock.unlock();
     }
 
     /**
-     * Unlock the memory after an access task (get).
+     * Unlock the memory after an access task (get, put).
      */
     public void unlockAccess() {
-        //m_lock.readLock().unlock();
+        checkNoOpenView();
+
+        m_lock.unlockRead(Thread.currentThread().getId());
+    }
+
+    /**
+     * Unlock the memory after an exclusive task.
+     */
+    public void unlockExclusive() {
+        checkNoOpenView();
+
+        m_lock.unlockWriteAll();
+    }
+
+    /**
+     * Run a single time slice of the defragmenter. Blocks creates and removes for the duration of the slice, gets
+     * and puts only wait while a chunk of their level 0 table range is relocated.
+     *
+     * @param p_defragmenter
+     *         Defragmenter to run
+     * @return True if the slice was executed, false if the memory is locked exclusively
+     */
+    boolean defragment(final Defragmenter p_defragmenter) {
+        // get the locks once: reset() replaces them while locked exclusively
+        StripedReadWriteLock lock = m_lock;
+        ReentrantLock tableLock = m_tableLock;
+        long tid = Thread.currentThread().getId();
+
+        // don't wait for exclusive tasks, the memory may be reset meanwhile
+        if (lock == null || !lock.tryLockRead(tid)) {
+            return false;
+        }
+
+        try {
+            tableLock.lock();
+
+            try {
+                p_defragmenter.defragment(m_cidTable, m_rawMemory);
+            } finally {
+                tableLock.unlock();
+            }
+        } catch (final MemoryRuntimeException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Defragmenting failed", e);
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        } finally {
+            lock.unlockRead(tid);
+        }
 
-        m_lock.decrementAndGet();
+        return true;
     }
 
     // -----------------------------------------------------------------------------
@@ -218,32 +344,38 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
         // #endif /* LOGGER == TRACE */
 
         try {
-            if (m_cidTable.get(0) != 0) {
-                // delete old entry
-                address = m_cidTable.delete(0, false);
-                m_rawMemory.free(address);
-                m_totalActiveChunkMemory -= m_rawMemory.getSizeBlock(address);
-                m_numActiveChunks--;
-            }
+            m_tableLock.lock();
 
-            address = m_rawMemory.malloc(p_size);
-            if (address >= 0) {
-                chunkID = (long) m_boot.getNodeID() << 48;
-                // register new chunk in cid table
-                if (!m_cidTable.set(chunkID, address)) {
-                    // on demand allocation of new table failed
-                    // free previously created chunk for data to avoid memory leak
+            try {
+                if (m_cidTable.get(0) != 0) {
+                    // delete old entry
+                    address = m_cidTable.delete(0, false);
+                    m_totalActiveChunkMemory -= m_rawMemory.getSizeBlock(address);
+                    m_numActiveChunks--;
                     m_rawMemory.free(address);
-                    throw new OutOfKeyValueStoreMemoryException(getStatus());
+                }
+
+                address = m_rawMemory.malloc(p_size);
+                if (address > 0) {
+                    chunkID = (long) m_boot.getNodeID() << 48;
+                    // register new chunk in cid table
+                    if (!m_cidTable.set(chunkID, address)) {
+                        // on demand allocation of new table failed
+                        // free previously created chunk for data to avoid memory leak
+                        m_rawMemory.free(address);
+                        throw new OutOfKeyValueStoreMemoryException(getStatus());
+                    } else {
+                        m_numActiveChunks++;
+                        m_totalActiveChunkMemory += p_size;
+                    }
                 } else {
-                    m_numActiveChunks++;
-                    m_totalActiveChunkMemory += p_size;
+                    throw new OutOfKeyValueStoreMemoryException(getStatus());
                 }
-            } else {
-                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            } finally {
+                m_tableLock.unlock();
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -280,32 +412,38 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
             chunkID = p_chunkId;
 
-            // verify this id is not used
-            if (m_cidTable.get(p_chunkId) == 0) {
-                address = m_rawMemory.malloc(p_size);
-                if (address >= 0) {
-                    // register new chunk
-                    // register new chunk in cid table
-                    if (!m_cidTable.set(chunkID, address)) {
-                        // on demand allocation of new table failed
-                        // free previously created chunk for data to avoid memory leak
-                        m_rawMemory.free(address);
-                        throw new OutOfKeyValueStoreMemoryException(getStatus());
+            m_tableLock.lock();
+
+            try {
+                // verify this id is not used
+                if (m_cidTable.get(p_chunkId) == 0) {
+                    address = m_rawMemory.malloc(p_size);
+                    if (address > 0) {
+                        // register new chunk
+                        // register new chunk in cid table
+                        if (!m_cidTable.set(chunkID, address)) {
+                            // on demand allocation of new table failed
+                            // free previously created chunk for data to avoid memory leak
+                            m_rawMemory.free(address);
+                            throw new OutOfKeyValueStoreMemoryException(getStatus());
+                        } else {
+                            m_numActiveChunks++;
+                            m_totalActiveChunkMemory += p_size;
+                            chunkID = p_chunkId;
+                        }
                     } else {
-                        m_numActiveChunks++;
-                        m_totalActiveChunkMemory += p_size;
-                        chunkID = p_chunkId;
+                        throw new OutOfKeyValueStoreMemoryException(getStatus());
                     }
-                } else {
-                    throw new OutOfKeyValueStoreMemoryException(getStatus());
                 }
+            } finally {
+                m_tableLock.unlock();
             }
 
             // #ifdef STATISTICS
             SOP_CREATE.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -349,9 +487,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             SOP_MULTI_CREATE.start(p_sizes.length);
             // #endif /* STATISTICS */
 
-            // get new LIDs
-            lids = m_cidTable.getFreeLIDs(p_sizes.length, p_consecutive);
-
+            // first, try to allocate. maybe early return
             // #ifdef STATISTICS
             SOP_MULTI_MALLOC.start(p_sizes.length);
             // #endif /* STATISTICS */
@@ -359,7 +495,15 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             // #ifdef STATISTICS
             SOP_MULTI_MALLOC.stop();
             // #endif /* STATISTICS */
-            if (addresses != null) {
+            if (addresses == null) {
+                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            }
+
+            m_tableLock.lock();
+
+            try {
+                // get new LIDs
+                lids = m_cidTable.getFreeLIDs(p_sizes.length, p_consecutive);
 
                 for (int i = 0; i < lids.length; i++) {
                     lids[i] = ((long) m_boot.getNodeID() << 48) + lids[i];
@@ -379,21 +523,15 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                         m_totalActiveChunkMemory += p_sizes[i];
                     }
                 }
-
-            } else {
-                // put lids back
-                for (int i = 0; i < lids.length; i++) {
-                    m_cidTable.putChunkIDForReuse(lids[i]);
-                }
-
-                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            } finally {
+                m_tableLock.unlock();
             }
 
             // #ifdef STATISTICS
             SOP_MULTI_CREATE.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -473,9 +611,6 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             SOP_MULTI_CREATE.start(p_count);
             // #endif /* STATISTICS */
 
-            // get new LIDs
-            lids = m_cidTable.getFreeLIDs(p_count, p_consecutive);
-
             // first, try to allocate. maybe early return
             // #ifdef STATISTICS
             SOP_MULTI_MALLOC.start(p_count);
@@ -484,7 +619,15 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             // #ifdef STATISTICS
             SOP_MULTI_MALLOC.stop();
             // #endif /* STATISTICS */
-            if (addresses != null) {
+            if (addresses == null) {
+                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            }
+
+            m_tableLock.lock();
+
+            try {
+                // get new LIDs
+                lids = m_cidTable.getFreeLIDs(p_count, p_consecutive);
 
                 for (int i = 0; i < lids.length; i++) {
                     lids[i] = ((long) m_boot.getNodeID() << 48) + lids[i];
@@ -504,21 +647,15 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                         m_totalActiveChunkMemory += p_size;
                     }
                 }
-
-            } else {
-                // put lids back
-                for (int i = 0; i < lids.length; i++) {
-                    m_cidTable.putChunkIDForReuse(lids[i]);
-                }
-
-                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            } finally {
+                m_tableLock.unlock();
             }
 
             // #ifdef STATISTICS
             SOP_MULTI_CREATE.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -531,7 +668,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
     /**
      * Create a new chunk.
-     * This is a management call and has to be locked using lockManage().
+     * This is a management call and has to be locked using lockManage() or lockAccess().
      *
      * @param p_size
      *         Size in bytes of the payload the chunk contains.
@@ -553,10 +690,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             SOP_CREATE.start(1);
             // #endif /* STATISTICS */
 
-            // get new LID from CIDTable
-            lid = m_cidTable.getFreeLID();
-
-            // first, try to allocate. maybe early return
+            // first, try to allocate (from the thread's arena without locking). maybe early return
             // #ifdef STATISTICS
             SOP_MALLOC.start(1);
             // #endif /* STATISTICS */
@@ -564,7 +698,16 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             // #ifdef STATISTICS
             SOP_MALLOC.stop();
             // #endif /* STATISTICS */
-            if (address >= 0) {
+            if (address == SmallObjectHeap.INVALID_ADDRESS) {
+                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            }
+
+            m_tableLock.lock();
+
+            try {
+                // get new LID from CIDTable
+                lid = m_cidTable.getFreeLID();
+
                 chunkID = ((long) m_boot.getNodeID() << 48) + lid;
                 // register new chunk in cid table
                 if (!m_cidTable.set(chunkID, address)) {
@@ -577,18 +720,15 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                     m_numActiveChunks++;
                     m_totalActiveChunkMemory += p_size;
                 }
-            } else {
-                // put lid back
-                m_cidTable.putChunkIDForReuse(lid);
-
-                throw new OutOfKeyValueStoreMemoryException(getStatus());
+            } finally {
+                m_tableLock.unlock();
             }
 
             // #ifdef STATISTICS
             SOP_CREATE.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -624,18 +764,23 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 SOP_GET.start(1);
                 // #endif /* STATISTICS */
 
-                address = m_cidTable.get(p_dataStructure.getID());
-                if (address > 0) {
-                    assert m_rawMemory.getSizeBlock(address) == p_dataStructure.sizeofObject();
+                m_cidTable.lockChunkRead(p_dataStructure.getID());
+                try {
+                    address = m_cidTable.get(p_dataStructure.getID());
+                    if (address > 0) {
+                        assert m_rawMemory.getSizeBlock(address) == p_dataStructure.sizeofObject();
 
-                    // pool the im/exporters
-                    SmallObjectHeapDataStructureImExporter importer = getImExporter(address);
-                    importer.importObject(p_dataStructure);
+                        // pool the im/exporters
+                        SmallObjectHeapDataStructureImExporter importer = getImExporter(address);
+                        importer.importObject(p_dataStructure);
 
-                    p_dataStructure.setState(ChunkState.OK);
-                } else {
-                    ret = false;
-                    p_dataStructure.setState(ChunkState.DOES_NOT_EXIST);
+                        p_dataStructure.setState(ChunkState.OK);
+                    } else {
+                        ret = false;
+                        p_dataStructure.setState(ChunkState.DOES_NOT_EXIST);
+                    }
+                } finally {
+                    m_cidTable.unlockChunkRead(p_dataStructure.getID());
                 }
 
                 // #ifdef STATISTICS
@@ -643,7 +788,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 // #endif /* STATISTICS */
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -679,20 +824,25 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 SOP_GET.start(1);
                 // #endif /* STATISTICS */
 
-                address = m_cidTable.get(p_chunkID);
-                if (address > 0) {
-                    int chunkSize = m_rawMemory.getSizeBlock(address);
-                    ret = new byte[chunkSize];
-
-                    // pool the im/exporters
-                    SmallObjectHeapDataStructureImExporter importer = getImExporter(address);
-                    int retSize = importer.readBytes(ret);
-                    if (retSize != chunkSize) {
-                        throw new DXRAMRuntimeException("Unknown error, importer size " + retSize + " != chunk size " +
-                                chunkSize);
+                m_cidTable.lockChunkRead(p_chunkID);
+                try {
+                    address = m_cidTable.get(p_chunkID);
+                    if (address > 0) {
+                        int chunkSize = m_rawMemory.getSizeBlock(address);
+                        ret = new byte[chunkSize];
+
+                        // pool the im/exporters
+                        SmallObjectHeapDataStructureImExporter importer = getImExporter(address);
+                        int retSize = importer.readBytes(ret);
+                        if (retSize != chunkSize) {
+                            throw new DXRAMRuntimeException("Unknown error, importer size " + retSize +
+                                    " != chunk size " + chunkSize);
+                        }
+                    } else {
+                        ret = null;
                     }
-                } else {
-                    ret = null;
+                } finally {
+                    m_cidTable.unlockChunkRead(p_chunkID);
                 }
 
                 // #ifdef STATISTICS
@@ -700,7 +850,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 // #endif /* STATISTICS */
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -732,30 +882,35 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             SOP_GET.start(1);
             // #endif /* STATISTICS */
 
-            address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                int chunkSize = m_rawMemory.getSizeBlock(address);
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    int chunkSize = m_rawMemory.getSizeBlock(address);
 
-                if (p_offset + chunkSize > p_bufferSize) {
-                    ret = 0;
-                } else {
-                    // pool the im/exporters
-                    SmallObjectHeapDataStructureImExporter importer = getImExporter(address);
-                    ret = importer.readBytes(p_buffer, p_offset, chunkSize);
-                    if (ret != chunkSize) {
-                        throw new DXRAMRuntimeException("Unknown error, importer size " + ret + " != chunk size " +
-                                chunkSize);
+                    if (p_offset + chunkSize > p_bufferSize) {
+                        ret = 0;
+                    } else {
+                        // pool the im/exporters
+                        SmallObjectHeapDataStructureImExporter importer = getImExporter(address);
+                        ret = importer.readBytes(p_buffer, p_offset, chunkSize);
+                        if (ret != chunkSize) {
+                            throw new DXRAMRuntimeException("Unknown error, importer size " + ret +
+                                    " != chunk size " + chunkSize);
+                        }
                     }
+                } else {
+                    ret = -1;
                 }
-            } else {
-                ret = -1;
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
 
             // #ifdef STATISTICS
             SOP_GET.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -789,18 +944,23 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 SOP_PUT.start(1);
                 // #endif /* STATISTICS */
 
-                address = m_cidTable.get(p_dataStructure.getID());
-                if (address > 0) {
-                    assert m_rawMemory.getSizeBlock(address) == p_dataStructure.sizeofObject();
+                m_cidTable.lockChunkRead(p_dataStructure.getID());
+                try {
+                    address = m_cidTable.get(p_dataStructure.getID());
+                    if (address > 0) {
+                        assert m_rawMemory.getSizeBlock(address) == p_dataStructure.sizeofObject();
 
-                    // pool the im/exporters
-                    SmallObjectHeapDataStructureImExporter exporter = getImExporter(address);
-                    exporter.exportObject(p_dataStructure);
+                        // pool the im/exporters
+                        SmallObjectHeapDataStructureImExporter exporter = getImExporter(address);
+                        exporter.exportObject(p_dataStructure);
 
-                    p_dataStructure.setState(ChunkState.OK);
-                } else {
-                    ret = false;
-                    p_dataStructure.setState(ChunkState.DOES_NOT_EXIST);
+                        p_dataStructure.setState(ChunkState.OK);
+                    } else {
+                        ret = false;
+                        p_dataStructure.setState(ChunkState.DOES_NOT_EXIST);
+                    }
+                } finally {
+                    m_cidTable.unlockChunkRead(p_dataStructure.getID());
                 }
 
                 // #ifdef STATISTICS
@@ -808,7 +968,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 // #endif /* STATISTICS */
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -819,6 +979,86 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
         return ret;
     }
 
+    /**
+     * Get the payloads of multiple chunks/data structures. The chunks are sorted by their IDs and resolved
+     * with a single walk of the upper CIDTable levels per level 0 range (instead of one walk per chunk). The
+     * read lock of each range is acquired once for all chunks of that range.
+     * This is an access call and has to be locked using lockAccess().
+     *
+     * @param p_dataStructures
+     *         Array with data structures to read specified by their IDs. Null values are ignored.
+     * @param p_offset
+     *         Start offset within the array.
+     * @param p_count
+     *         Number of elements to read.
+     * @return Number of successfully read data structures. The state of each data structure is set
+     * (OK, INVALID_ID or DOES_NOT_EXIST)
+     */
+    public int get(final DataStructure[] p_dataStructures, final int p_offset, final int p_count) {
+        int ret;
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("ENTER get p_dataStructures(%d)", p_count);
+        // #endif /* LOGGER == TRACE */
+
+        // #ifdef STATISTICS
+        SOP_GET.start(p_count);
+        // #endif /* STATISTICS */
+
+        ret = accessMulti(p_dataStructures, p_offset, p_count, false);
+
+        // #ifdef STATISTICS
+        SOP_GET.stop();
+        // #endif /* STATISTICS */
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("EXIT get p_dataStructures(%d) -> %d", p_count, ret);
+        // #endif /* LOGGER == TRACE */
+
+        return ret;
+    }
+
+    /**
+     * Put the data of multiple chunks/data structures. The chunks are sorted by their IDs and resolved
+     * with a single walk of the upper CIDTable levels per level 0 range (instead of one walk per chunk). The
+     * read lock of each range is acquired once for all chunks of that range.
+     * This is an access call and has to be locked using lockAccess().
+     * Note: lockAccess() does NOT take care of data races of the data to write.
+     * The caller has to take care of proper locking to avoid consistency issue with his data.
+     *
+     * @param p_dataStructures
+     *         Array with data structures to put. Null values are ignored.
+     * @param p_offset
+     *         Start offset within the array.
+     * @param p_count
+     *         Number of elements to put.
+     * @return Number of successfully written data structures. The state of each data structure is set
+     * (OK, INVALID_ID or DOES_NOT_EXIST)
+     */
+    public int put(final DataStructure[] p_dataStructures, final int p_offset, final int p_count) {
+        int ret;
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("ENTER put p_dataStructures(%d)", p_count);
+        // #endif /* LOGGER == TRACE */
+
+        // #ifdef STATISTICS
+        SOP_PUT.start(p_count);
+        // #endif /* STATISTICS */
+
+        ret = accessMulti(p_dataStructures, p_offset, p_count, true);
+
+        // #ifdef STATISTICS
+        SOP_PUT.stop();
+        // #endif /* STATISTICS */
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("EXIT put p_dataStructures(%d) -> %d", p_count, ret);
+        // #endif /* LOGGER == TRACE */
+
+        return ret;
+    }
+
     /**
      * Put some data into a chunk.
      * This is an access call and has to be locked using lockAccess().
@@ -848,8 +1088,9 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      * @param p_offset
      *         Offset for p_data array
      * @param p_length
-     *         Number of bytes to put
-     * @return True if putting the data was successful, false if no chunk with the specified id exists
+     *         Number of bytes to put (must not exceed the size of the chunk)
+     * @return True if putting the data was successful, false if no chunk with the specified id exists or the
+     * data does not fit the chunk
      */
     public boolean put(final long p_chunkID, final byte[] p_data, final int p_offset, final int p_length) {
         long address;
@@ -867,13 +1108,23 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 SOP_PUT.start(1);
                 // #endif /* STATISTICS */
 
-                address = m_cidTable.get(p_chunkID);
-                if (address > 0) {
-                    assert p_offset + p_length <= m_rawMemory.getSizeBlock(address);
-
-                    m_rawMemory.writeBytes(address, 0, p_data, p_offset, p_length);
-                } else {
-                    ret = false;
+                m_cidTable.lockChunkRead(p_chunkID);
+                try {
+                    address = m_cidTable.get(p_chunkID);
+                    if (address <= 0) {
+                        ret = false;
+                    } else if (!isInBounds(address, 0, p_length)) {
+                        // data does not fit the chunk, writing it would corrupt the next block on the heap
+                        // #if LOGGER >= ERROR
+                        LOGGER.error("Put of %d bytes exceeds size of chunk 0x%X", p_length, p_chunkID);
+                        // #endif /* LOGGER >= ERROR */
+
+                        ret = false;
+                    } else {
+                        m_rawMemory.writeBytes(address, 0, p_data, p_offset, p_length);
+                    }
+                } finally {
+                    m_cidTable.unlockChunkRead(p_chunkID);
                 }
 
                 // #ifdef STATISTICS
@@ -881,7 +1132,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 // #endif /* STATISTICS */
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -894,7 +1145,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
     /**
      * Removes a Chunk from the memory
-     * This is a management call and has to be locked using lockManage().
+     * This is a management call and has to be locked using lockManage() or lockAccess().
      *
      * @param p_chunkID
      *         the ChunkID of the Chunk
@@ -920,23 +1171,37 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 SOP_REMOVE.start(1);
                 // #endif /* STATISTICS */
 
-                // Get and delete the address from the CIDTable, mark as zombie first
-                addressDeletedChunk = m_cidTable.delete(p_chunkID, true);
-                if (addressDeletedChunk > 0) {
+                m_tableLock.lock();
 
-                    if (p_wasMigrated) {
-                        // deleted and previously migrated chunks don't end up in the LID store
-                        m_cidTable.delete(p_chunkID, false);
-                    } else {
-                        // more space for another zombie for reuse in LID store?
-                        if (m_cidTable.putChunkIDForReuse(ChunkID.getLocalID(p_chunkID))) {
-                            // kill zombie entry
+                try {
+                    // Get and delete the address from the CIDTable, mark as zombie first
+                    // (waits for all threads accessing the chunk, free'ing the block afterwards is safe)
+                    addressDeletedChunk = m_cidTable.delete(p_chunkID, true);
+                    if (addressDeletedChunk > 0) {
+
+                        if (p_wasMigrated) {
+                            // deleted and previously migrated chunks don't end up in the LID store
                             m_cidTable.delete(p_chunkID, false);
                         } else {
-                            // no space for zombie in LID store, keep him "alive" in table
+                            // more space for another zombie for reuse in LID store?
+                            if (m_cidTable.putChunkIDForReuse(ChunkID.getLocalID(p_chunkID))) {
+                                // kill zombie entry
+                                m_cidTable.delete(p_chunkID, false);
+                            } else {
+                                // no space for zombie in LID store, keep him "alive" in table
+                            }
                         }
+
+                        ret = m_rawMemory.getSizeBlock(addressDeletedChunk);
+                        m_numActiveChunks--;
+                        m_totalActiveChunkMemory -= ret;
                     }
-                    ret = m_rawMemory.getSizeBlock(addressDeletedChunk);
+                } finally {
+                    m_tableLock.unlock();
+                }
+
+                // the block is not reachable through the table anymore, free it without holding the table lock
+                if (addressDeletedChunk > 0) {
                     // #ifdef STATISTICS
                     SOP_FREE.start(1);
                     // #endif /* STATISTICS */
@@ -944,8 +1209,6 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                     // #ifdef STATISTICS
                     SOP_FREE.stop();
                     // #endif /* STATISTICS */
-                    m_numActiveChunks--;
-                    m_totalActiveChunkMemory -= ret;
                 }
 
                 // #ifdef STATISTICS
@@ -953,7 +1216,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 // #endif /* STATISTICS */
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1003,13 +1266,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
                 for (int i = 0; i < addresses.length; i++) {
                     m_rawMemory.writeBytes(addresses[i], 0, p_dataAddress, p_offsets[i], p_lengths[i]);
-                    m_totalActiveChunkMemory += p_lengths[i];
                 }
 
-                m_numActiveChunks += addresses.length;
+                m_tableLock.lock();
 
-                for (int i = 0; i < addresses.length; i++) {
-                    m_cidTable.set(p_chunkIDs[i], addresses[i]);
+                try {
+                    for (int i = 0; i < addresses.length; i++) {
+                        m_totalActiveChunkMemory += p_lengths[i];
+                        m_cidTable.set(p_chunkIDs[i], addresses[i]);
+                    }
+
+                    m_numActiveChunks += addresses.length;
+                } finally {
+                    m_tableLock.unlock();
                 }
             } else {
                 throw new OutOfKeyValueStoreMemoryException(getStatus());
@@ -1019,7 +1288,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             SOP_CREATE_PUT_RECOVERED.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1063,13 +1332,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                     SmallObjectHeapDataStructureImExporter exporter = getImExporter(addresses[i]);
                     exporter.exportObject(p_dataStructures[i]);
                     ret += sizes[i];
-                    m_totalActiveChunkMemory += sizes[i];
                 }
 
-                m_numActiveChunks += addresses.length;
+                m_tableLock.lock();
 
-                for (int i = 0; i < addresses.length; i++) {
-                    m_cidTable.set(p_dataStructures[i].getID(), addresses[i]);
+                try {
+                    for (int i = 0; i < addresses.length; i++) {
+                        m_totalActiveChunkMemory += sizes[i];
+                        m_cidTable.set(p_dataStructures[i].getID(), addresses[i]);
+                    }
+
+                    m_numActiveChunks += addresses.length;
+                } finally {
+                    m_tableLock.unlock();
                 }
             } else {
                 throw new OutOfKeyValueStoreMemoryException(getStatus());
@@ -1079,7 +1354,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             SOP_CREATE_PUT_RECOVERED.stop();
             // #endif /* STATISTICS */
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, false);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1088,7 +1363,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
     /**
      * Create a full heap dump
-     * This is a management call and has to be locked using lockManage().
+     * This call has to be locked using lockExclusive().
      *
      * @param p_fileName
      *         Name of the file to write the dump to
@@ -1097,8 +1372,87 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
         m_rawMemory.dump(p_fileName);
     }
 
+    /**
+     * Write a snapshot of the key value store (heap and CIDTable) which is used on the next start to restore
+     * the memory (warm restart). A previous snapshot is replaced atomically once the new one is complete.
+     * The memory is locked exclusively while capturing the metadata only, don't call this with the memory locked.
+     * While the snapshot is written, parts of the memory modified before they are written are copied.
+     * Requires a snapshot file to be configured.
+     *
+     * @param p_fileName
+     *         Name of the file to write the snapshot to
+     * @return True if successful, false on error
+     */
+    public boolean writeSnapshot(final String p_fileName) {
+        return writeSnapshot(p_fileName, false);
+    }
+
+    /**
+     * Write a snapshot of the key value store
+     *
+     * @param p_fileName
+     *         Name of the file to write the snapshot to
+     * @param p_final
+     *         True if the snapshot is written on shutdown
+     * @return True if successful, false on error
+     */
+    private boolean writeSnapshot(final String p_fileName, final boolean p_final) {
+        MemorySnapshot snapshot;
+
+        if (getConfig().getSnapshotFile().isEmpty()) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Writing memory snapshot to %s failed: snapshots are disabled (no snapshot file)",
+                    p_fileName);
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        }
+
+        // #if LOGGER >= INFO
+        LOGGER.info("Writing memory snapshot to %s...", p_fileName);
+        // #endif /* LOGGER >= INFO */
+
+        lockExclusive();
+
+        try {
+            snapshot = MemorySnapshot.capture(m_boot.getNodeID(), m_rawMemory, m_snapshotStorage, m_cidTable,
+                    m_numActiveChunks, m_totalActiveChunkMemory, p_final);
+        } catch (final IOException | MemoryRuntimeException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Capturing memory snapshot failed: %s", e);
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        } finally {
+            unlockExclusive();
+        }
+
+        long copiedBytes;
+
+        try {
+            snapshot.write(new File(p_fileName));
+            copiedBytes = snapshot.getCopiedBytes();
+        } catch (final IOException | MemoryRuntimeException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Writing memory snapshot to %s failed: %s", p_fileName, e);
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        } finally {
+            snapshot.release();
+        }
+
+        // #if LOGGER >= INFO
+        LOGGER.info("Writing memory snapshot to %s finished, %d bytes copied on write", p_fileName, copiedBytes);
+        // #endif /* LOGGER >= INFO */
+
+        return true;
+    }
+
     /**
      * Reset the whole memory, i.e. wipe it (all chunks and IDs gone) and re-init
+     * This call has to be locked using lockExclusive(). The locks are re-initialized as well, i.e. don't unlock
+     * after resetting.
      */
     public void reset() {
         // #if LOGGER == ERROR
@@ -1107,6 +1461,10 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
         shutdownMemory();
         initMemory();
+
+        if (!getConfig().getSnapshotFile().isEmpty()) {
+            persistLIDCounter();
+        }
     }
 
     // -----------------------------------------------------------------------------
@@ -1123,14 +1481,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public byte readByte(final long p_chunkID, final int p_offset) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                return m_rawMemory.readByte(address, p_offset);
-            } else {
-                return -1;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    return m_rawMemory.readByte(address, p_offset);
+                } else {
+                    return -1;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
     }
@@ -1147,14 +1510,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public short readShort(final long p_chunkID, final int p_offset) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                return m_rawMemory.readShort(address, p_offset);
-            } else {
-                return -1;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    return m_rawMemory.readShort(address, p_offset);
+                } else {
+                    return -1;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
     }
@@ -1171,14 +1539,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public int readInt(final long p_chunkID, final int p_offset) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                return m_rawMemory.readInt(address, p_offset);
-            } else {
-                return -1;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    return m_rawMemory.readInt(address, p_offset);
+                } else {
+                    return -1;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
     }
@@ -1195,14 +1568,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public long readLong(final long p_chunkID, final int p_offset) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                return m_rawMemory.readLong(address, p_offset);
-            } else {
-                return -1;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    return m_rawMemory.readLong(address, p_offset);
+                } else {
+                    return -1;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
     }
@@ -1221,14 +1599,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public boolean writeByte(final long p_chunkID, final int p_offset, final byte p_value) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                m_rawMemory.writeByte(address, p_offset, p_value);
-            } else {
-                return false;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    m_rawMemory.writeByte(address, p_offset, p_value);
+                } else {
+                    return false;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1249,14 +1632,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public boolean writeShort(final long p_chunkID, final int p_offset, final short p_value) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                m_rawMemory.writeShort(address, p_offset, p_value);
-            } else {
-                return false;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    m_rawMemory.writeShort(address, p_offset, p_value);
+                } else {
+                    return false;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1277,14 +1665,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public boolean writeInt(final long p_chunkID, final int p_offset, final int p_value) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                m_rawMemory.writeInt(address, p_offset, p_value);
-            } else {
-                return false;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    m_rawMemory.writeInt(address, p_offset, p_value);
+                } else {
+                    return false;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1305,20 +1698,357 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      */
     public boolean writeLong(final long p_chunkID, final int p_offset, final long p_value) {
         try {
-            long address = m_cidTable.get(p_chunkID);
-            if (address > 0) {
-                m_rawMemory.writeLong(address, p_offset, p_value);
-            } else {
-                return false;
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    m_rawMemory.writeLong(address, p_offset, p_value);
+                } else {
+                    return false;
+                }
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
             }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
         return true;
     }
 
+    /**
+     * Read a range of a chunk's payload. Use this to read a part of a huge chunk without reading the
+     * whole chunk. Other than readLong() etc., the range is checked against the bounds of the chunk.
+     * This is an access call and has to be locked using lockAccess().
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to read.
+     * @param p_offset
+     *         Offset within the chunk to start reading at.
+     * @param p_buffer
+     *         Buffer to read into.
+     * @param p_bufferOffset
+     *         Offset within the buffer.
+     * @param p_length
+     *         Number of bytes to read.
+     * @return ChunkState.OK if successful, DOES_NOT_EXIST or OUT_OF_BOUNDS otherwise.
+     */
+    public ChunkState getRange(final long p_chunkID, final int p_offset, final byte[] p_buffer,
+            final int p_bufferOffset, final int p_length) {
+        if (p_chunkID == ChunkID.INVALID_ID) {
+            return ChunkState.INVALID_ID;
+        }
+
+        try {
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address <= 0) {
+                    return ChunkState.DOES_NOT_EXIST;
+                }
+
+                if (!isInBounds(address, p_offset, p_length)) {
+                    return ChunkState.OUT_OF_BOUNDS;
+                }
+
+                m_rawMemory.readBytes(address, p_offset, p_buffer, p_bufferOffset, p_length);
+
+                return ChunkState.OK;
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
+            }
+        } catch (final MemoryRuntimeException e) {
+            handleMemDumpOnError(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Write a range of a chunk's payload. Use this to update a part of a huge chunk without writing the
+     * whole chunk. Other than writeLong() etc., the range is checked against the bounds of the chunk.
+     * This is an access call and has to be locked using lockAccess().
+     * Note: Like put, this does NOT take care of data races with other threads writing the same chunk.
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to write.
+     * @param p_offset
+     *         Offset within the chunk to start writing at.
+     * @param p_data
+     *         Buffer with the data to write.
+     * @param p_dataOffset
+     *         Offset within the buffer.
+     * @param p_length
+     *         Number of bytes to write.
+     * @return ChunkState.OK if successful, DOES_NOT_EXIST or OUT_OF_BOUNDS otherwise.
+     */
+    public ChunkState putRange(final long p_chunkID, final int p_offset, final byte[] p_data,
+            final int p_dataOffset, final int p_length) {
+        if (p_chunkID == ChunkID.INVALID_ID) {
+            return ChunkState.INVALID_ID;
+        }
+
+        try {
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address <= 0) {
+                    return ChunkState.DOES_NOT_EXIST;
+                }
+
+                if (!isInBounds(address, p_offset, p_length)) {
+                    return ChunkState.OUT_OF_BOUNDS;
+                }
+
+                m_rawMemory.writeBytes(address, p_offset, p_data, p_dataOffset, p_length);
+
+                return ChunkState.OK;
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
+            }
+        } catch (final MemoryRuntimeException e) {
+            handleMemDumpOnError(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Execute atomic operations on int/long fields of chunks. Atomic operations on the same chunk are serialized,
+     * i.e. they are atomic with respect to each other but not with respect to concurrent puts or writes of the
+     * same field.
+     * This is an access call and has to be locked using lockAccess().
+     *
+     * @param p_operations
+     *         Operations (ordinals of AtomicOperation)
+     * @param p_chunkIDs
+     *         Chunk ids of the chunks to access
+     * @param p_offsets
+     *         Offsets of the fields within the chunks
+     * @param p_operands
+     *         Operands of the operations (value to set or to add)
+     * @param p_expected
+     *         Expected values for compare and swap operations (ignored for other operations)
+     * @param p_count
+     *         Number of operations to execute (starting at index 0)
+     * @param p_states
+     *         Array to write the ChunkState (ordinal) of every operation to
+     * @param p_results
+     *         Array to write the previous value of every field accessed to
+     * @return Number of operations executed successfully
+     */
+    public int atomics(final byte[] p_operations, final long[] p_chunkIDs, final int[] p_offsets,
+            final long[] p_operands, final long[] p_expected, final int p_count, final byte[] p_states,
+            final long[] p_results) {
+        int successful = 0;
+
+        for (int i = 0; i < p_count; i++) {
+            AtomicOperation operation = AtomicOperation.get(p_operations[i]);
+            long chunkID = p_chunkIDs[i];
+
+            if (operation == null) {
+                p_states[i] = (byte) ChunkState.INVALID_OPERATION.ordinal();
+                continue;
+            }
+
+            if (chunkID == ChunkID.INVALID_ID) {
+                p_states[i] = (byte) ChunkState.INVALID_ID.ordinal();
+                continue;
+            }
+
+            try {
+                m_cidTable.lockChunkRead(chunkID);
+                try {
+                    long address = m_cidTable.get(chunkID);
+                    if (address <= 0) {
+                        p_states[i] = (byte) ChunkState.DOES_NOT_EXIST.ordinal();
+                        continue;
+                    }
+
+                    if (!isInBounds(address, p_offsets[i], operation.getSize())) {
+                        p_states[i] = (byte) ChunkState.OUT_OF_BOUNDS.ordinal();
+                        continue;
+                    }
+
+                    m_atomicsLock.lockWrite(chunkID);
+                    try {
+                        p_results[i] = executeAtomic(operation, address, p_offsets[i], p_operands[i],
+                                p_expected[i]);
+                    } finally {
+                        m_atomicsLock.unlockWrite(chunkID);
+                    }
+
+                    p_states[i] = (byte) ChunkState.OK.ordinal();
+                    successful++;
+                } finally {
+                    m_cidTable.unlockChunkRead(chunkID);
+                }
+            } catch (final MemoryRuntimeException e) {
+                handleMemDumpOnError(e);
+                throw e;
+            }
+        }
+
+        return successful;
+    }
+
+    /**
+     * Open a view on a chunk to read/write its payload in place (see ChunkView). Until the view is closed,
+     * the chunk (and all chunks of the same level 0 CIDTable range) can't be removed or relocated.
+     * This is an access call and has to be locked using lockAccess() until the view is closed.
+     * While the view is open, the thread must not call the memory manager other than closing the view: nested
+     * views, gets, creates, removes etc. could deadlock with a pending writer and throw an IllegalStateException
+     * instead.
+     *
+     * @param p_chunkID
+     *         Chunk id of the chunk to open the view on
+     * @param p_view
+     *         View to open (must be closed)
+     * @return True if the view was opened, false if no chunk with the specified id exists
+     */
+    public boolean openView(final long p_chunkID, final ChunkView p_view) {
+        boolean opened = false;
+
+        if (p_view.isOpen()) {
+            throw new IllegalStateException("View is still open: " + p_view);
+        }
+
+        if (m_openView.get() != null) {
+            throw new IllegalStateException("Another view is still open in this thread: " + m_openView.get());
+        }
+
+        if (p_chunkID == ChunkID.INVALID_ID) {
+            return false;
+        }
+
+        try {
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                long address = m_cidTable.get(p_chunkID);
+                if (address > 0) {
+                    p_view.open(m_rawMemory.getStorage(), p_chunkID, m_rawMemory.getPayloadAddress(address),
+                            m_rawMemory.getSizeBlock(address));
+                    m_openView.set(p_view);
+                    m_openViews.incrementAndGet();
+                    opened = true;
+                }
+            } finally {
+                if (!opened) {
+                    m_cidTable.unlockChunkRead(p_chunkID);
+                }
+            }
+        } catch (final MemoryRuntimeException e) {
+            handleMemDumpOnError(e);
+            throw e;
+        }
+
+        return opened;
+    }
+
+    /**
+     * Close a view opened with openView(). Nothing happens if the view is not open.
+     * This is an access call and has to be locked using lockAccess().
+     *
+     * @param p_view
+     *         View to close (must have been opened by the current thread)
+     */
+    public void closeView(final ChunkView p_view) {
+        if (p_view.isOpen()) {
+            long chunkID = p_view.getID();
+
+            // the chunk lock is held by the thread which opened the view
+            if (m_openView.get() != p_view) {
+                throw new IllegalStateException("View was not opened by this thread: " + p_view);
+            }
+
+            p_view.close();
+            m_openView.remove();
+            m_openViews.decrementAndGet();
+            m_cidTable.unlockChunkRead(chunkID);
+        }
+    }
+
+    /**
+     * Check that the current thread has no view open. A thread holding a view must not lock the memory again or
+     * open another view: the locks are not reentrant and waiting for a pending writer (e.g. a remove or
+     * lockExclusive() of another thread) blocks forever because the writer waits for the view to be closed.
+     * Unlocking is rejected as well: the caller has to close the view before releasing the lock it was opened
+     * with. The thread local is only looked up if any view is open on this node.
+     */
+    private void checkNoOpenView() {
+        if (m_openViews.get() == 0) {
+            return;
+        }
+
+        ChunkView view = m_openView.get();
+
+        if (view != null) {
+            throw new IllegalStateException("Memory access not allowed while a chunk view is open in this thread: " + view);
+        }
+    }
+
+    /**
+     * Lock multiple chunks for reading to export their payloads directly from the heap (see LockedChunks).
+     * Until the chunks are unlocked, none of them (and no other chunk of the same level 0 CIDTable ranges)
+     * can be removed or relocated.
+     * This is an access call and has to be locked using lockAccess() until the chunks are unlocked.
+     * Don't lock chunks multiple times and don't remove chunks within the same thread while chunks are locked.
+     *
+     * @param p_chunkIDs
+     *         Chunk ids of the chunks to lock. Non existing chunks are marked as such in the result
+     * @return Locked chunks, release with unlockChunks()
+     */
+    public LockedChunks lockChunks(final long[] p_chunkIDs) {
+        LockedChunks chunks = new LockedChunks(m_rawMemory.getStorage(), p_chunkIDs.length);
+
+        try {
+            // #ifdef STATISTICS
+            SOP_GET.start(p_chunkIDs.length);
+            // #endif /* STATISTICS */
+
+            chunks.setLockHandle(m_cidTable.lockChunksRead(p_chunkIDs, p_chunkIDs.length));
+            try {
+                for (int i = 0; i < p_chunkIDs.length; i++) {
+                    long address = p_chunkIDs[i] == ChunkID.INVALID_ID ? 0 : m_cidTable.get(p_chunkIDs[i]);
+
+                    if (address > 0) {
+                        chunks.set(i, m_rawMemory.getPayloadAddress(address), m_rawMemory.getSizeBlock(address));
+                    } else {
+                        chunks.set(i, 0, -1);
+                    }
+                }
+            } catch (final MemoryRuntimeException e) {
+                m_cidTable.unlockChunksRead(chunks.getLockHandle());
+                chunks.setLockHandle(null);
+                throw e;
+            }
+
+            // #ifdef STATISTICS
+            SOP_GET.stop();
+            // #endif /* STATISTICS */
+        } catch (final MemoryRuntimeException e) {
+            handleMemDumpOnError(e);
+            throw e;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Unlock chunks locked with lockChunks(). Nothing happens if the chunks are unlocked already.
+     * This is an access call and has to be locked using lockAccess().
+     *
+     * @param p_chunks
+     *         Chunks to unlock
+     */
+    public void unlockChunks(final LockedChunks p_chunks) {
+        int[] handle = p_chunks.getLockHandle();
+
+        if (handle != null) {
+            p_chunks.setLockHandle(null);
+            m_cidTable.unlockChunksRead(handle);
+        }
+    }
+
     // -----------------------------------------------------------------------------
 
     /**
@@ -1334,9 +2064,14 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
         try {
             // Get the address from the CIDTable
-            address = m_cidTable.get(p_chunkID);
+            m_cidTable.lockChunkRead(p_chunkID);
+            try {
+                address = m_cidTable.get(p_chunkID);
+            } finally {
+                m_cidTable.unlockChunkRead(p_chunkID);
+            }
         } catch (final MemoryRuntimeException e) {
-            handleMemDumpOnError(e, true);
+            handleMemDumpOnError(e);
             throw e;
         }
 
@@ -1363,13 +2098,19 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      *         the ChunkID
      */
     public void prepareChunkIDForReuse(final long p_chunkID) {
-        // more space for another zombie for reuse in LID store?
-        if (m_cidTable.putChunkIDForReuse(ChunkID.getLocalID(p_chunkID))) {
-            // kill zombie entry
-            m_cidTable.delete(p_chunkID, false);
-        } else {
-            // no space for zombie in LID store, keep him "alive" in table
-            m_cidTable.delete(p_chunkID, true);
+        m_tableLock.lock();
+
+        try {
+            // more space for another zombie for reuse in LID store?
+            if (m_cidTable.putChunkIDForReuse(ChunkID.getLocalID(p_chunkID))) {
+                // kill zombie entry
+                m_cidTable.delete(p_chunkID, false);
+            } else {
+                // no space for zombie in LID store, keep him "alive" in table
+                m_cidTable.delete(p_chunkID, true);
+            }
+        } finally {
+            m_tableLock.unlock();
         }
     }
 
@@ -1390,13 +2131,81 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
     @Override
     protected boolean initComponent(final DXRAMContext.Config p_config) {
-        initMemory();
+        String snapshotFile = getConfig().getSnapshotFile();
+
+        // fail instead of falling back to empty memory (and overwriting the snapshot later)
+        if (!snapshotFile.isEmpty() || !getConfig().getKeyValueStoreMappedDirectory().isEmpty()) {
+            try {
+                DXRAMJNIManager.loadJNIModule("JNIMemoryMap");
+                StorageMappedMemory.checkSupported();
+            } catch (final UnsatisfiedLinkError | MemoryRuntimeException e) {
+                // #if LOGGER >= ERROR
+                LOGGER.error("Mapping memory not available: %s", e.getMessage());
+                // #endif /* LOGGER >= ERROR */
+
+                return false;
+            }
+        }
+
+        if (snapshotFile.isEmpty() || !new File(snapshotFile).exists() || !restoreMemory(new File(snapshotFile))) {
+            initMemory();
+        }
+
+        if (!snapshotFile.isEmpty() && !persistLIDCounter()) {
+            shutdownMemory();
+            return false;
+        }
+
+        if (getConfig().isDefragmenterEnabled()) {
+            m_defragmenter = new Defragmenter(this, getConfig().getDefragmenterInterval().getMs(),
+                    getConfig().getDefragmenterTimeSlice().getMs(), getConfig().getDefragmenterThreshold());
+            m_defragmenter.start();
+        }
+
+        if (!snapshotFile.isEmpty() && getConfig().getSnapshotInterval().getMs() > 0) {
+            m_snapshotThreadRunning = true;
+            m_snapshotThread = new Thread(() -> {
+                while (m_snapshotThreadRunning) {
+                    try {
+                        Thread.sleep(getConfig().getSnapshotInterval().getMs());
+                    } catch (final InterruptedException ignored) {
+                        continue;
+                    }
+
+                    writeSnapshot(snapshotFile, false);
+                }
+            }, "MemorySnapshot");
+            m_snapshotThread.setDaemon(true);
+            m_snapshotThread.start();
+        }
 
         return true;
     }
 
     @Override
     protected boolean shutdownComponent() {
+        if (m_snapshotThread != null) {
+            m_snapshotThreadRunning = false;
+            m_snapshotThread.interrupt();
+
+            try {
+                m_snapshotThread.join();
+            } catch (final InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+
+            m_snapshotThread = null;
+        }
+
+        if (m_defragmenter != null) {
+            m_defragmenter.shutdown();
+            m_defragmenter = null;
+        }
+
+        if (!getConfig().getSnapshotFile().isEmpty()) {
+            writeSnapshot(getConfig().getSnapshotFile(), true);
+        }
+
         shutdownMemory();
 
         return true;
@@ -1411,18 +2220,152 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                 getConfig().getKeyValueStoreSize().getMB());
         // #endif /* LOGGER == INFO */
         // Runtime.getRuntime().load("/home/nothaas/dxram/jni/libJNINativeMemory.so");
-        m_rawMemory = new SmallObjectHeap(new StorageUnsafeMemory(), getConfig().getKeyValueStoreSize().getBytes(),
-                (int) getConfig().getKeyValueStoreMaxBlockSize().getBytes());
+        Storage storage;
+
+        if (getConfig().getKeyValueStoreMappedDirectory().isEmpty()) {
+            storage = new StorageUnsafeMemory();
+        } else {
+            storage = new StorageMappedMemory(getConfig().getKeyValueStoreMappedDirectory(),
+                    getConfig().getKeyValueStoreMappedPageSize().getBytes(), getConfig().getKeyValueStoreNumaNode());
+        }
+
+        storage = wrapSnapshotStorage(storage);
+
+        m_rawMemory = new SmallObjectHeap(storage, getConfig().getKeyValueStoreSize().getBytes(),
+                (int) getConfig().getKeyValueStoreMaxBlockSize().getBytes(), getConfig().getSlabChunkSizes());
         m_cidTable = new CIDTable(m_boot.getNodeID());
-        m_cidTable.initialize(m_rawMemory);
+        m_cidTable.initialize(m_rawMemory, getConfig().getLockStripes(), getConfig().getAddressCacheEntries());
 
-        m_lock = new AtomicInteger(0);
-        //m_lock = new ReentrantReadWriteLock(false);
+        m_lock = new StripedReadWriteLock(getConfig().getLockStripes());
+        m_manageLock = new ReentrantLock(false);
+        m_tableLock = new ReentrantLock(false);
+        m_atomicsLock = new StripedReadWriteLock(getConfig().getLockStripes());
 
         m_numActiveChunks = 0;
         m_totalActiveChunkMemory = 0;
     }
 
+    /**
+     * Initialize the memory manager from a snapshot. The memory image is mapped (copy on write), chunks are not
+     * deserialized.
+     *
+     * @param p_file
+     *         Snapshot file
+     * @return True if successful, false if the snapshot is invalid or can't be used on this peer
+     */
+    private boolean restoreMemory(final File p_file) {
+        MemorySnapshot snapshot;
+
+        // #if LOGGER >= INFO
+        LOGGER.info("Restoring memory from snapshot %s...", p_file);
+        // #endif /* LOGGER >= INFO */
+
+        try {
+            snapshot = MemorySnapshot.read(p_file);
+        } catch (final IOException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Reading memory snapshot %s failed, starting with empty memory: %s", p_file, e);
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        }
+
+        // chunk ids contain the node id
+        if (snapshot.getNodeID() != m_boot.getNodeID()) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Memory snapshot %s was taken on node 0x%X, current node 0x%X, starting with empty memory",
+                    p_file, snapshot.getNodeID(), m_boot.getNodeID());
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        }
+
+        if (snapshot.getImageSize() != getConfig().getKeyValueStoreSize().getBytes()) {
+            // #if LOGGER >= WARN
+            LOGGER.warn("Size of memory snapshot (%d bytes) differs from configured key value store size, using " +
+                    "snapshot size", snapshot.getImageSize());
+            // #endif /* LOGGER >= WARN */
+        }
+
+        DataInputStream metadata = snapshot.getMetadata();
+
+        try {
+            m_rawMemory = new SmallObjectHeap(wrapSnapshotStorage(new StorageMappedMemory(p_file,
+                    snapshot.getImageOffset(), getConfig().getKeyValueStoreNumaNode())), metadata);
+            m_cidTable = new CIDTable(m_boot.getNodeID());
+            // free LIDs of a periodic snapshot might have been reused for chunks created after taking it
+            m_cidTable.restore(m_rawMemory, getConfig().getLockStripes(), getConfig().getAddressCacheEntries(),
+                    metadata, !snapshot.isFinal());
+
+            m_numActiveChunks = metadata.readLong();
+            m_totalActiveChunkMemory = metadata.readLong();
+        } catch (final IOException | MemoryRuntimeException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Restoring memory snapshot %s failed, starting with empty memory: %s", p_file, e);
+            // #endif /* LOGGER >= ERROR */
+
+            if (m_rawMemory != null) {
+                m_rawMemory.destroy();
+                m_rawMemory = null;
+            }
+
+            m_cidTable = null;
+
+            return false;
+        }
+
+        m_lock = new StripedReadWriteLock(getConfig().getLockStripes());
+        m_manageLock = new ReentrantLock(false);
+        m_tableLock = new ReentrantLock(false);
+        m_atomicsLock = new StripedReadWriteLock(getConfig().getLockStripes());
+
+        // #if LOGGER >= INFO
+        LOGGER.info("Restored memory from snapshot %s, active chunks %d", p_file, m_numActiveChunks);
+        // #endif /* LOGGER >= INFO */
+
+        return true;
+    }
+
+    /**
+     * Persist the LID counter next to the snapshot file. LIDs handed out after the last snapshot are not reissued
+     * after restoring it
+     *
+     * @return True if successful, false on error
+     */
+    private boolean persistLIDCounter() {
+        File file = new File(getConfig().getSnapshotFile() + ".lid");
+
+        try {
+            m_cidTable.persistLIDCounter(file);
+        } catch (final IOException e) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Persisting LID counter to %s failed: %s", file, e);
+            // #endif /* LOGGER >= ERROR */
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Wrap the storage of the heap to capture snapshots if snapshots are enabled
+     *
+     * @param p_storage
+     *         Storage of the heap
+     * @return Storage to use for the heap
+     */
+    private Storage wrapSnapshotStorage(final Storage p_storage) {
+        if (getConfig().getSnapshotFile().isEmpty()) {
+            m_snapshotStorage = null;
+            return p_storage;
+        }
+
+        m_snapshotStorage = new StorageCopyOnWrite(p_storage);
+
+        return m_snapshotStorage;
+    }
+
     /**
      * Shut down the memory manager
      */
@@ -1432,7 +2375,132 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
 
         m_cidTable = null;
         m_rawMemory = null;
+        m_snapshotStorage = null;
         m_lock = null;
+        m_manageLock = null;
+        m_tableLock = null;
+        m_atomicsLock = null;
+    }
+
+    /**
+     * Calculate the fragmentation of the free memory
+     *
+     * @param p_free
+     *         Total amount of free memory
+     * @param p_largestFreeBlock
+     *         Size of the largest free block
+     * @return Fragmentation (0.0 - 1.0)
+     */
+    private static double calculateFragmentation(final long p_free, final long p_largestFreeBlock) {
+        if (p_free <= 0) {
+            return 0.0;
+        }
+
+        return 1.0 - (double) p_largestFreeBlock / p_free;
+    }
+
+    /**
+     * Read or write multiple chunks walking the CIDTable in chunk ID order
+     *
+     * @param p_dataStructures
+     *         Array with data structures to read or write. Null values are ignored.
+     * @param p_offset
+     *         Start offset within the array
+     * @param p_count
+     *         Number of elements to access
+     * @param p_put
+     *         True to write the data structures to the memory, false to read them
+     * @return Number of successfully accessed data structures
+     */
+    private int accessMulti(final DataStructure[] p_dataStructures, final int p_offset, final int p_count,
+            final boolean p_put) {
+        DataStructure[] sorted;
+        int count = 0;
+        int successful = 0;
+        boolean isSorted = true;
+
+        assert p_offset >= 0 && p_count >= 0;
+
+        // filter invalid entries, don't reorder the array of the caller
+        sorted = new DataStructure[p_count];
+        for (int i = 0; i < p_count; i++) {
+            DataStructure dataStructure = p_dataStructures[p_offset + i];
+
+            if (dataStructure == null) {
+                continue;
+            }
+
+            if (dataStructure.getID() == ChunkID.INVALID_ID) {
+                dataStructure.setState(ChunkState.INVALID_ID);
+                continue;
+            }
+
+            if (count > 0 && Long.compareUnsigned(sorted[count - 1].getID(), dataStructure.getID()) > 0) {
+                isSorted = false;
+            }
+
+            sorted[count++] = dataStructure;
+        }
+
+        // batches are commonly created in ID order already
+        if (!isSorted) {
+            Arrays.sort(sorted, 0, count, (p_a, p_b) -> Long.compareUnsigned(p_a.getID(), p_b.getID()));
+        }
+
+        try {
+            int i = 0;
+
+            while (i < count) {
+                long range = sorted[i].getID() >> CIDTable.BITS_PER_LID_LEVEL;
+
+                m_cidTable.lockChunkRead(sorted[i].getID());
+                try {
+                    // one walk of the upper levels for all chunks of the level 0 range
+                    long table = m_cidTable.getTableLevel0(sorted[i].getID());
+                    SmallObjectHeapDataStructureImExporter imExporter = null;
+
+                    do {
+                        DataStructure dataStructure = sorted[i];
+                        long address = 0;
+
+                        if (table != 0) {
+                            address = m_cidTable.getInTableLevel0(table, dataStructure.getID());
+                        }
+
+                        if (address > 0) {
+                            assert m_rawMemory.getSizeBlock(address) == dataStructure.sizeofObject();
+
+                            if (imExporter == null) {
+                                imExporter = getImExporter(address);
+                            } else {
+                                imExporter.setAllocatedMemoryStartAddress(address);
+                                imExporter.setOffset(0);
+                            }
+
+                            if (p_put) {
+                                imExporter.exportObject(dataStructure);
+                            } else {
+                                imExporter.importObject(dataStructure);
+                            }
+
+                            dataStructure.setState(ChunkState.OK);
+                            successful++;
+                        } else {
+                            dataStructure.setState(ChunkState.DOES_NOT_EXIST);
+                        }
+
+                        i++;
+                    } while (i < count && sorted[i].getID() >> CIDTable.BITS_PER_LID_LEVEL == range);
+                } finally {
+                    m_cidTable.unlockChunkRead(sorted[i - 1].getID());
+                }
+            }
+        } catch (final MemoryRuntimeException e) {
+            handleMemDumpOnError(e);
+            throw e;
+        }
+
+        return successful;
     }
 
     /**
@@ -1461,6 +2529,76 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
         return importer;
     }
 
+    /**
+     * Execute a single atomic operation, the caller has to hold the chunk's atomics lock
+     *
+     * @param p_operation
+     *         Operation to execute
+     * @param p_address
+     *         Address of the chunk
+     * @param p_offset
+     *         Offset of the field within the chunk
+     * @param p_operand
+     *         Operand of the operation
+     * @param p_expected
+     *         Expected value (compare and swap only)
+     * @return Previous value of the field
+     */
+    private long executeAtomic(final AtomicOperation p_operation, final long p_address, final int p_offset,
+            final long p_operand, final long p_expected) {
+        long previous;
+
+        switch (p_operation) {
+            case COMPARE_AND_SWAP_INT:
+                previous = m_rawMemory.readInt(p_address, p_offset);
+                if (previous == (int) p_expected) {
+                    m_rawMemory.writeInt(p_address, p_offset, (int) p_operand);
+                }
+                break;
+            case COMPARE_AND_SWAP_LONG:
+                previous = m_rawMemory.readLong(p_address, p_offset);
+                if (previous == p_expected) {
+                    m_rawMemory.writeLong(p_address, p_offset, p_operand);
+                }
+                break;
+            case FETCH_AND_ADD_INT:
+                previous = m_rawMemory.readInt(p_address, p_offset);
+                m_rawMemory.writeInt(p_address, p_offset, (int) (previous + p_operand));
+                break;
+            case FETCH_AND_ADD_LONG:
+                previous = m_rawMemory.readLong(p_address, p_offset);
+                m_rawMemory.writeLong(p_address, p_offset, previous + p_operand);
+                break;
+            case GET_AND_SET_INT:
+                previous = m_rawMemory.readInt(p_address, p_offset);
+                m_rawMemory.writeInt(p_address, p_offset, (int) p_operand);
+                break;
+            case GET_AND_SET_LONG:
+                previous = m_rawMemory.readLong(p_address, p_offset);
+                m_rawMemory.writeLong(p_address, p_offset, p_operand);
+                break;
+            default:
+                throw new IllegalStateException("Unhandled atomic operation " + p_operation);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Check if a range is within the bounds of a chunk's payload
+     *
+     * @param p_address
+     *         Address of the chunk
+     * @param p_offset
+     *         Offset of the range within the payload
+     * @param p_length
+     *         Length of the range
+     * @return True if the range is within the bounds, false otherwise
+     */
+    private boolean isInBounds(final long p_address, final int p_offset, final int p_length) {
+        return p_offset >= 0 && p_length >= 0 && p_offset <= m_rawMemory.getSizeBlock(p_address) - p_length;
+    }
+
     /**
      * Execute a memory dump (if enabled) on a memory error (corruption)
      * Note: MemoryRuntimeException is only thrown if assertions are enabled (disabled for performance)
@@ -1469,7 +2607,7 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
      * @param p_e
      *         Exception thrown on memory error
      */
-    private void handleMemDumpOnError(final MemoryRuntimeException p_e, final boolean p_acquireManageLock) {
+    private void handleMemDumpOnError(final MemoryRuntimeException p_e) {
         // #if LOGGER == ERROR
         LOGGER.fatal("Encountered memory error (most likely corruption)", p_e);
         // #endif /* LOGGER == ERROR */
@@ -1489,22 +2627,18 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             LOGGER.fatal("Full memory dump to file: %s...", fileName);
             // #endif /* LOGGER == ERROR */
 
-            // ugly: we entered this with a access lock, acquire the managed lock to ensure full blocking of the memory
-            // before dumping
-            if (p_acquireManageLock) {
-                unlockAccess();
-                lockManage();
-            }
+            // ugly: we entered this with a access or manage lock (both hold the shared lock), acquire the exclusive
+            // lock to ensure full blocking of the memory before dumping
+            unlockAccess();
+            lockExclusive();
 
             // #if LOGGER == ERROR
             LOGGER.fatal("Dumping...");
             // #endif /* LOGGER == ERROR */
             m_rawMemory.dump(fileName);
 
-            if (p_acquireManageLock) {
-                unlockManage();
-                lockAccess();
-            }
+            unlockExclusive();
+            lockAccess();
 
             // #if LOGGER == ERROR
             LOGGER.fatal("Memory dump to file finished: %s", fileName);
@@ -1535,6 +2669,14 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
         private int m_cachedFreeLIDs = -1;
         private long m_availableFreeLIDs = -1;
         private long m_newLIDCounter = -1;
+        private long m_numberOfFreeMemoryBlocks = -1;
+        private StorageUnit m_largestFreeMemoryBlock;
+        private double m_fragmentation = -1.0;
+        private long m_defragmenterRelocatedChunks;
+        private StorageUnit m_defragmenterRelocatedBytes;
+        private long m_defragmenterPasses;
+        private long m_addressCacheHits;
+        private long m_addressCacheMisses;
 
         /**
          * Default constructor
@@ -1651,11 +2793,100 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             return m_newLIDCounter;
         }
 
+        /**
+         * Get the number of free memory blocks
+         *
+         * @return Number of free memory blocks
+         */
+        public long getNumberOfFreeMemoryBlocks() {
+            return m_numberOfFreeMemoryBlocks;
+        }
+
+        /**
+         * Get the size of the largest free memory block
+         *
+         * @return Size of the largest free memory block
+         */
+        public StorageUnit getLargestFreeMemoryBlock() {
+            return m_largestFreeMemoryBlock;
+        }
+
+        /**
+         * Get the fragmentation of the free memory (share of the free memory not usable by the largest free block)
+         *
+         * @return Fragmentation (0.0 - 1.0)
+         */
+        public double getFragmentation() {
+            return m_fragmentation;
+        }
+
+        /**
+         * Get the number of chunks relocated by the defragmenter
+         *
+         * @return Number of relocated chunks
+         */
+        public long getDefragmenterRelocatedChunks() {
+            return m_defragmenterRelocatedChunks;
+        }
+
+        /**
+         * Get the amount of chunk data relocated by the defragmenter
+         *
+         * @return Relocated chunk data
+         */
+        public StorageUnit getDefragmenterRelocatedBytes() {
+            return m_defragmenterRelocatedBytes;
+        }
+
+        /**
+         * Get the number of full passes of the defragmenter over all chunks
+         *
+         * @return Number of defragmenter passes
+         */
+        public long getDefragmenterPasses() {
+            return m_defragmenterPasses;
+        }
+
+        /**
+         * Get the number of chunk ID translations served by the address cache
+         *
+         * @return Number of address cache hits
+         */
+        public long getAddressCacheHits() {
+            return m_addressCacheHits;
+        }
+
+        /**
+         * Get the number of chunk ID translations which required walking the CID tables
+         *
+         * @return Number of address cache misses
+         */
+        public long getAddressCacheMisses() {
+            return m_addressCacheMisses;
+        }
+
+        /**
+         * Get the hit rate of the address cache
+         *
+         * @return Hit rate (0.0 - 1.0)
+         */
+        public double getAddressCacheHitRate() {
+            long lookups = m_addressCacheHits + m_addressCacheMisses;
+
+            if (lookups == 0) {
+                return 0.0;
+            }
+
+            return (double) m_addressCacheHits / lookups;
+        }
+
         @Override
         public int sizeofObject() {
             return Long.BYTES * 3 + m_freeMemory.sizeofObject() + m_totalMemory.sizeofObject() +
                     m_totalPayloadMemory.sizeofObject() + m_totalChunkPayloadMemory.sizeofObject() +
-                    m_totalMemoryCIDTables.sizeofObject() + Integer.BYTES + Long.BYTES * 2;
+                    m_totalMemoryCIDTables.sizeofObject() + Integer.BYTES + Long.BYTES * 2 + Long.BYTES +
+                    m_largestFreeMemoryBlock.sizeofObject() + Double.BYTES + Long.BYTES +
+                    m_defragmenterRelocatedBytes.sizeofObject() + Long.BYTES + Long.BYTES * 2;
         }
 
         @Override
@@ -1671,6 +2902,14 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             p_exporter.writeInt(m_cachedFreeLIDs);
             p_exporter.writeLong(m_availableFreeLIDs);
             p_exporter.writeLong(m_newLIDCounter);
+            p_exporter.writeLong(m_numberOfFreeMemoryBlocks);
+            p_exporter.exportObject(m_largestFreeMemoryBlock);
+            p_exporter.writeDouble(m_fragmentation);
+            p_exporter.writeLong(m_defragmenterRelocatedChunks);
+            p_exporter.exportObject(m_defragmenterRelocatedBytes);
+            p_exporter.writeLong(m_defragmenterPasses);
+            p_exporter.writeLong(m_addressCacheHits);
+            p_exporter.writeLong(m_addressCacheMisses);
         }
 
         @Override
@@ -1708,6 +2947,24 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
             m_cachedFreeLIDs = p_importer.readInt(m_cachedFreeLIDs);
             m_availableFreeLIDs = p_importer.readLong(m_availableFreeLIDs);
             m_newLIDCounter = p_importer.readLong(m_newLIDCounter);
+            m_numberOfFreeMemoryBlocks = p_importer.readLong(m_numberOfFreeMemoryBlocks);
+
+            if (m_largestFreeMemoryBlock == null) {
+                m_largestFreeMemoryBlock = new StorageUnit();
+            }
+            p_importer.importObject(m_largestFreeMemoryBlock);
+
+            m_fragmentation = p_importer.readDouble(m_fragmentation);
+            m_defragmenterRelocatedChunks = p_importer.readLong(m_defragmenterRelocatedChunks);
+
+            if (m_defragmenterRelocatedBytes == null) {
+                m_defragmenterRelocatedBytes = new StorageUnit();
+            }
+            p_importer.importObject(m_defragmenterRelocatedBytes);
+
+            m_defragmenterPasses = p_importer.readLong(m_defragmenterPasses);
+            m_addressCacheHits = p_importer.readLong(m_addressCacheHits);
+            m_addressCacheMisses = p_importer.readLong(m_addressCacheMisses);
         }
 
         @Override
@@ -1727,7 +2984,18 @@ public final class MemoryManagerComponent extends AbstractDXRAMComponent<MemoryM
                     m_totalChunkPayloadMemory.getBytes() + ")\n";
             str += "Num of free LIDs cached in LIDStore: " + m_cachedFreeLIDs + '\n';
             str += "Num of total available free LIDs in LIDStore: " + m_availableFreeLIDs + '\n';
-            str += "New LID counter state: " + m_newLIDCounter;
+            str += "New LID counter state: " + m_newLIDCounter + '\n';
+            str += "Num free memory blocks: " + m_numberOfFreeMemoryBlocks + '\n';
+            str += "Largest free memory block: " + m_largestFreeMemoryBlock.getHumanReadable() + " (" +
+                    m_largestFreeMemoryBlock.getBytes() + ")\n";
+            str += "Fragmentation: " + String.format("%.2f", m_fragmentation) + '\n';
+            str += "Defragmenter relocated chunks: " + m_defragmenterRelocatedChunks + '\n';
+            str += "Defragmenter relocated memory: " + m_defragmenterRelocatedBytes.getHumanReadable() + " (" +
+                    m_defragmenterRelocatedBytes.getBytes() + ")\n";
+            str += "Defragmenter passes: " + m_defragmenterPasses + '\n';
+            str += "Address cache hits: " + m_addressCacheHits + '\n';
+            str += "Address cache misses: " + m_addressCacheMisses + '\n';
+            str += "Address cache hit rate: " + String.format("%.2f", getAddressCacheHitRate());
             return str;
         }
     }
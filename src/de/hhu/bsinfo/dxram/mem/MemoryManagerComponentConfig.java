@@ -1,10 +1,14 @@
 package de.hhu.bsinfo.dxram.mem;
 
+import java.util.ArrayList;
+
 import com.google.gson.annotations.Expose;
 
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMComponentConfig;
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
 import de.hhu.bsinfo.dxutils.unit.StorageUnit;
+import de.hhu.bsinfo.dxutils.unit.TimeUnit;
+import de.hhu.bsinfo.soh.SmallObjectHeap;
 
 /**
  * Config for the MemoryManagerComponent
@@ -21,9 +25,45 @@ public class MemoryManagerComponentConfig extends AbstractDXRAMComponentConfig {
     @Expose
     private StorageUnit m_keyValueStoreMaxBlockSize = new StorageUnit(8, StorageUnit.MB);
 
+    @Expose
+    private String m_keyValueStoreMappedDirectory = "";
+
+    @Expose
+    private StorageUnit m_keyValueStoreMappedPageSize = new StorageUnit(2, StorageUnit.MB);
+
+    @Expose
+    private int m_keyValueStoreNumaNode = -1;
+
     @Expose
     private String m_memDumpFolderOnError = "";
 
+    @Expose
+    private String m_snapshotFile = "";
+
+    @Expose
+    private TimeUnit m_snapshotInterval = new TimeUnit(0, TimeUnit.SEC);
+
+    @Expose
+    private int m_lockStripes = 64;
+
+    @Expose
+    private int m_addressCacheEntries = 64 * 1024;
+
+    @Expose
+    private boolean m_defragmenterEnabled = false;
+
+    @Expose
+    private TimeUnit m_defragmenterInterval = new TimeUnit(1, TimeUnit.SEC);
+
+    @Expose
+    private TimeUnit m_defragmenterTimeSlice = new TimeUnit(1, TimeUnit.MS);
+
+    @Expose
+    private double m_defragmenterThreshold = 0.5;
+
+    @Expose
+    private ArrayList<Integer> m_slabChunkSizes = new ArrayList<>();
+
     /**
      * Constructor
      */
@@ -45,6 +85,31 @@ public class MemoryManagerComponentConfig extends AbstractDXRAMComponentConfig {
         return m_keyValueStoreMaxBlockSize;
     }
 
+    /**
+     * Directory to create the memory mapping backing the key-value store in (e.g. /dev/shm or a hugetlbfs mount).
+     * Memory is zeroed lazily and placed on the NUMA node of the first accessing thread (see
+     * getKeyValueStoreNumaNode()). Empty to allocate the key-value store on the native heap. Mapping memory (also
+     * used to restore snapshots) requires the JNI library JNIMemoryMap (jni/memorymap)
+     */
+    public String getKeyValueStoreMappedDirectory() {
+        return m_keyValueStoreMappedDirectory;
+    }
+
+    /**
+     * Page size of the memory mapping backing the key-value store (e.g. 2 mb or 1 gb for hugetlbfs)
+     */
+    public StorageUnit getKeyValueStoreMappedPageSize() {
+        return m_keyValueStoreMappedPageSize;
+    }
+
+    /**
+     * NUMA node to bind the memory mapping backing the key-value store to (mapped directory or restored snapshot),
+     * -1 to place pages on the node of the first accessing thread
+     */
+    public int getKeyValueStoreNumaNode() {
+        return m_keyValueStoreNumaNode;
+    }
+
     /**
      * To enable mem dumps on critical errors (memory corruption), enter a path to a file to dump _ALL_ key value store memory to
      * (file size approx. key value store size)
@@ -53,6 +118,81 @@ public class MemoryManagerComponentConfig extends AbstractDXRAMComponentConfig {
         return m_memDumpFolderOnError;
     }
 
+    /**
+     * File to write snapshots of the key value store to (on shutdown and periodically) and to restore the memory
+     * from on startup (warm restart). The LID counter is persisted in <file>.lid. While a snapshot is written,
+     * parts of the key value store modified before they are written are copied. Empty to disable
+     */
+    public String getSnapshotFile() {
+        return m_snapshotFile;
+    }
+
+    /**
+     * Interval for periodic snapshots (blocking the memory while capturing the metadata only), 0 for snapshots on
+     * shutdown only
+     */
+    public TimeUnit getSnapshotInterval() {
+        return m_snapshotInterval;
+    }
+
+    /**
+     * Number of stripes (power of two) for the locks guarding chunk accesses. More stripes reduce contention
+     * of threads accessing different chunks but make exclusive locking (e.g. memory dumps) more expensive
+     */
+    public int getLockStripes() {
+        return m_lockStripes;
+    }
+
+    /**
+     * Number of entries (power of two) of the cache for chunk ID to address translations shared by all threads
+     * (32 bytes per entry)
+     */
+    public int getAddressCacheEntries() {
+        return m_addressCacheEntries;
+    }
+
+    /**
+     * Enable the background defragmenter compacting the key value store (disabled by default)
+     */
+    public boolean isDefragmenterEnabled() {
+        return m_defragmenterEnabled;
+    }
+
+    /**
+     * Interval to check the fragmentation of the key value store
+     */
+    public TimeUnit getDefragmenterInterval() {
+        return m_defragmenterInterval;
+    }
+
+    /**
+     * Max duration of a single defragmenter time slice (creates and removes of chunks are blocked meanwhile)
+     */
+    public TimeUnit getDefragmenterTimeSlice() {
+        return m_defragmenterTimeSlice;
+    }
+
+    /**
+     * Fragmentation (0.0 - 1.0, share of free memory not usable by the largest free block) to start defragmenting at
+     */
+    public double getDefragmenterThreshold() {
+        return m_defragmenterThreshold;
+    }
+
+    /**
+     * Chunk sizes to allocate from slabs (slots without length field, O(1) allocation). Use for fixed size
+     * chunk workloads, empty to disable
+     */
+    public int[] getSlabChunkSizes() {
+        int[] sizes = new int[m_slabChunkSizes.size()];
+
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = m_slabChunkSizes.get(i);
+        }
+
+        return sizes;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
         if (m_keyValueStoreSize.getBytes() < KEY_VALUE_STORE_SIZE_MIN.getBytes()) {
@@ -69,6 +209,66 @@ public class MemoryManagerComponentConfig extends AbstractDXRAMComponentConfig {
             return false;
         }
 
+        if (!m_keyValueStoreMappedDirectory.isEmpty() && (m_keyValueStoreMappedPageSize.getBytes() <= 0 ||
+                Long.bitCount(m_keyValueStoreMappedPageSize.getBytes()) != 1)) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("m_keyValueStoreMappedPageSize must be a power of two: %s", m_keyValueStoreMappedPageSize);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_keyValueStoreNumaNode < -1) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("m_keyValueStoreNumaNode must be a NUMA node or -1: %d", m_keyValueStoreNumaNode);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_lockStripes <= 0 || Integer.bitCount(m_lockStripes) != 1) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("m_lockStripes must be a power of two: %d", m_lockStripes);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_addressCacheEntries <= 0 || Integer.bitCount(m_addressCacheEntries) != 1) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("m_addressCacheEntries must be a power of two: %d", m_addressCacheEntries);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_defragmenterThreshold < 0.0 || m_defragmenterThreshold > 1.0) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("m_defragmenterThreshold must be in range 0.0 - 1.0: %f", m_defragmenterThreshold);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_defragmenterTimeSlice.getMs() <= 0) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("m_defragmenterTimeSlice must be at least 1 ms");
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_slabChunkSizes.size() > SmallObjectHeap.SLAB_MAX_SIZE_CLASSES) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Max number of m_slabChunkSizes: %d", SmallObjectHeap.SLAB_MAX_SIZE_CLASSES);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        for (int size : m_slabChunkSizes) {
+            if (size < SmallObjectHeap.SLAB_MIN_SIZE || size > m_keyValueStoreMaxBlockSize.getBytes()) {
+                // #if LOGGER >= ERROR
+                LOGGER.error("Invalid slab chunk size %d, must be in range %d - %d", size,
+                        SmallObjectHeap.SLAB_MIN_SIZE, m_keyValueStoreMaxBlockSize.getBytes());
+                // #endif /* LOGGER >= ERROR */
+                return false;
+            }
+        }
+
         return true;
     }
 }
@@ -12,15 +12,18 @@ public class MemoryOverheadCalculator
     public static void main(final String[] p_args) {
         if (p_args.length < 3) {
             System.out.println("Calculate the required space and overhead of the memory manager");
-            System.out.println("Usage: <ptrSize> <chunkPayloadSize> <totalChunkCount>");
+            System.out.println("Usage: <ptrSize> <chunkPayloadSize> <totalChunkCount> [slab]");
         }
 
         int ptrSize = Integer.parseInt(p_args[0]);
         int chunkPayloadSize = Integer.parseInt(p_args[1]);
         long totalChunkCount = Long.parseLong(p_args[2]);
+        // chunk size allocated from slabs (no length field)
+        boolean slab = p_args.length > 3 && Boolean.parseBoolean(p_args[3]);
 
         StorageUnit totalPayloadMem = new StorageUnit(totalChunkCount * chunkPayloadSize, "b");
-        StorageUnit chunkSizeMemory = new StorageUnit(calcTotalChunkSizeMemory(chunkPayloadSize, totalChunkCount), "b");
+        StorageUnit chunkSizeMemory = new StorageUnit(calcTotalChunkSizeMemory(chunkPayloadSize, totalChunkCount, slab),
+                "b");
         StorageUnit nidTableSize = new StorageUnit(calcSizeNIDTable(ptrSize), "b");
         StorageUnit[] lidTableSizes = new StorageUnit[LID_TABLE_LEVEL_COUNT];
 
@@ -45,6 +48,7 @@ public class MemoryOverheadCalculator
         System.out.printf("Ptr size: %d\n", ptrSize);
         System.out.printf("Chunk payload size: %s\n", new StorageUnit(chunkPayloadSize, "b"));
         System.out.printf("Total chunk count: %d\n", totalChunkCount);
+        System.out.printf("Slab: %b\n", slab);
         System.out.print("-------------------\n");
         System.out.printf("Total chunks size: %s\n", chunkSizeMemory);
         System.out.printf("Nid table size: %s\n", nidTableSize);
@@ -69,11 +73,16 @@ public class MemoryOverheadCalculator
         return (long) NID_TABLE_ENTRY_COUNT * p_ptrSize;
     }
 
-    private static long calcTotalChunkSizeMemory(final int p_chunkPayloadSize, final long p_totalChunkCount) {
-        return calcTotalChunkSizeMemory(p_chunkPayloadSize) * p_totalChunkCount;
+    private static long calcTotalChunkSizeMemory(final int p_chunkPayloadSize, final long p_totalChunkCount,
+            final boolean p_slab) {
+        return calcTotalChunkSizeMemory(p_chunkPayloadSize, p_slab) * p_totalChunkCount;
     }
 
-    private static long calcTotalChunkSizeMemory(final int p_chunkPayloadSize) {
+    private static long calcTotalChunkSizeMemory(final int p_chunkPayloadSize, final boolean p_slab) {
+        if (p_slab) {
+            return SIZE_MARKER_BYTE + p_chunkPayloadSize;
+        }
+
         return SIZE_MARKER_BYTE + calcSizeLengthFieldChunk(p_chunkPayloadSize) + p_chunkPayloadSize;
     }
 
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.mem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import de.hhu.bsinfo.soh.SmallObjectHeap;
+import de.hhu.bsinfo.soh.StorageCopyOnWrite;
+
+/**
+ * Snapshot of the key value store (heap and CIDTable) stored in a single file:
+ * header with the metadata of the heap, CIDTable and memory manager followed by the raw memory image of the heap
+ * (the CIDTable is part of it). The image starts at an aligned offset and is mapped (copy on write) on restore,
+ * i.e. chunks are not deserialized and pages are loaded on first access.
+ * Snapshots are captured (metadata and start of a copy on write capture of the heap's storage) while the memory is
+ * locked and written to disk afterwards while the memory is accessed again. Only windows of the heap modified
+ * before they are written are copied. The metadata and the image are protected by checksums.
+ * Snapshots are written to a temporary file which replaces the previous snapshot atomically once it is complete and
+ * synced to disk. A crash while writing a snapshot always leaves the previous snapshot intact.
+ */
+final class MemorySnapshot {
+    private static final long MAGIC = 0x44585241534E4150L;
+    private static final int VERSION = 4;
+
+    // image offset alignment, fits page sizes up to 2 MB
+    private static final long IMAGE_ALIGNMENT = 2 * 1024 * 1024;
+    // size of the buffer to write and verify the image with
+    private static final int IMAGE_BUFFER_SIZE = 16 * StorageCopyOnWrite.WINDOW_SIZE;
+    // magic, version, node id, final flag, image offset, image size, metadata length, metadata crc, image crc
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES + Short.BYTES + Byte.BYTES + Long.BYTES * 2 +
+            Integer.BYTES + Long.BYTES * 2;
+
+    private final short m_nodeID;
+    private final boolean m_final;
+    private final long m_imageOffset;
+    private final long m_imageSize;
+    private final byte[] m_metadata;
+    // storage of the heap of a captured snapshot
+    private StorageCopyOnWrite m_storage;
+
+    /**
+     * Constructor
+     *
+     * @param p_nodeID
+     *         Node id of the peer the snapshot was taken on
+     * @param p_final
+     *         True if the snapshot was taken on shutdown
+     * @param p_imageOffset
+     *         Offset of the memory image in the file
+     * @param p_imageSize
+     *         Size of the memory image
+     * @param p_metadata
+     *         Metadata of the heap, CIDTable and memory manager
+     */
+    private MemorySnapshot(final short p_nodeID, final boolean p_final, final long p_imageOffset,
+            final long p_imageSize, final byte[] p_metadata) {
+        m_nodeID = p_nodeID;
+        m_final = p_final;
+        m_imageOffset = p_imageOffset;
+        m_imageSize = p_imageSize;
+        m_metadata = p_metadata;
+    }
+
+    /**
+     * Get the node id of the peer the snapshot was taken on
+     *
+     * @return Node id
+     */
+    short getNodeID() {
+        return m_nodeID;
+    }
+
+    /**
+     * Check if the snapshot was taken on shutdown, i.e. the memory was not modified after taking it
+     *
+     * @return True if taken on shutdown
+     */
+    boolean isFinal() {
+        return m_final;
+    }
+
+    /**
+     * Get the offset of the memory image in the file
+     *
+     * @return Offset in bytes
+     */
+    long getImageOffset() {
+        return m_imageOffset;
+    }
+
+    /**
+     * Get the size of the memory image
+     *
+     * @return Size in bytes
+     */
+    long getImageSize() {
+        return m_imageSize;
+    }
+
+    /**
+     * Get an input to read the metadata (heap, CIDTable, memory manager in that order)
+     *
+     * @return Input for the metadata
+     */
+    DataInputStream getMetadata() {
+        return new DataInputStream(new ByteArrayInputStream(m_metadata));
+    }
+
+    /**
+     * Capture a snapshot: the metadata and the memory image (copy on write). The memory must not be modified while
+     * capturing it (lock the memory exclusively), the captured snapshot can be written without holding the lock.
+     * Release the snapshot once written.
+     *
+     * @param p_nodeID
+     *         Node id of the current peer
+     * @param p_heap
+     *         Heap to capture
+     * @param p_storage
+     *         Storage of the heap
+     * @param p_cidTable
+     *         CIDTable to capture
+     * @param p_numActiveChunks
+     *         Number of active chunks of the memory manager
+     * @param p_totalActiveChunkMemory
+     *         Total memory used by active chunks of the memory manager
+     * @param p_final
+     *         True if the snapshot is taken on shutdown
+     * @return Captured snapshot
+     * @throws IOException
+     *         If exporting the metadata failed
+     */
+    static MemorySnapshot capture(final short p_nodeID, final SmallObjectHeap p_heap,
+            final StorageCopyOnWrite p_storage, final CIDTable p_cidTable, final long p_numActiveChunks,
+            final long p_totalActiveChunkMemory, final boolean p_final) throws IOException {
+        ByteArrayOutputStream metadataBuffer = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(metadataBuffer);
+
+        // blocks cached by the arenas are allocated for the heap but not used by any chunk
+        p_heap.flushArenas();
+
+        p_heap.exportMetadata(metadata);
+        p_cidTable.exportMetadata(metadata);
+        metadata.writeLong(p_numActiveChunks);
+        metadata.writeLong(p_totalActiveChunkMemory);
+        metadata.flush();
+
+        byte[] metadataBytes = metadataBuffer.toByteArray();
+        long imageOffset = HEADER_SIZE + metadataBytes.length + IMAGE_ALIGNMENT - 1 & ~(IMAGE_ALIGNMENT - 1);
+        MemorySnapshot snapshot = new MemorySnapshot(p_nodeID, p_final, imageOffset, p_heap.getStatus().getSize(),
+                metadataBytes);
+
+        p_storage.startCapture();
+        snapshot.m_storage = p_storage;
+
+        return snapshot;
+    }
+
+    /**
+     * Write a captured snapshot
+     *
+     * @param p_file
+     *         File to write the snapshot to, a previous snapshot is replaced once the new one is complete
+     * @throws IOException
+     *         If writing the snapshot failed
+     */
+    void write(final File p_file) throws IOException {
+        CRC32 metadataCrc = new CRC32();
+        metadataCrc.update(m_metadata, 0, m_metadata.length);
+
+        CRC32 imageCrc = new CRC32();
+        File tmpFile = new File(p_file.getPath() + ".tmp");
+
+        try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+            raf.setLength(0);
+            raf.seek(m_imageOffset);
+
+            // the windows are read in order and the buffer holds whole windows, the image size is the storage size
+            byte[] buffer = new byte[IMAGE_BUFFER_SIZE];
+            int windows = m_storage.getCaptureWindowCount();
+            int window = 0;
+
+            while (window < windows) {
+                int length = 0;
+
+                while (window < windows && length + StorageCopyOnWrite.WINDOW_SIZE <= buffer.length) {
+                    length += m_storage.readCaptureWindow(window++, buffer, length);
+                }
+
+                imageCrc.update(buffer, 0, length);
+                raf.write(buffer, 0, length);
+            }
+
+            if (raf.getFilePointer() != m_imageOffset + m_imageSize) {
+                throw new IOException("Size of captured image differs from heap size " + m_imageSize);
+            }
+
+            // header last: the image checksum is known after writing the image only
+            raf.seek(0);
+            raf.writeLong(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeShort(m_nodeID);
+            raf.writeBoolean(m_final);
+            raf.writeLong(m_imageOffset);
+            raf.writeLong(m_imageSize);
+            raf.writeInt(m_metadata.length);
+            raf.writeLong(metadataCrc.getValue());
+            raf.writeLong(imageCrc.getValue());
+            raf.write(m_metadata);
+
+            raf.getFD().sync();
+        }
+
+        Files.move(tmpFile.toPath(), p_file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        syncDirectory(p_file);
+    }
+
+    /**
+     * Get the number of bytes of the image copied on write while writing a captured snapshot
+     *
+     * @return Number of bytes
+     */
+    long getCopiedBytes() {
+        return m_storage.getCaptureCopiedBytes();
+    }
+
+    /**
+     * Release a captured snapshot, i.e. stop copying the memory on write
+     */
+    void release() {
+        if (m_storage != null) {
+            m_storage.stopCapture();
+            m_storage = null;
+        }
+    }
+
+    /**
+     * Read the end of the LIDs reserved by the CIDTable
+     *
+     * @param p_file
+     *         Reservation file
+     * @return End of the reserved LIDs (exclusive)
+     * @throws IOException
+     *         If reading failed
+     */
+    static long readLIDReservation(final File p_file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(p_file, "r")) {
+            return raf.readLong();
+        }
+    }
+
+    /**
+     * Write the end of the LIDs reserved by the CIDTable. The value is synced to disk before returning.
+     *
+     * @param p_file
+     *         Reservation file
+     * @param p_reservedLIDs
+     *         End of the reserved LIDs (exclusive)
+     * @throws IOException
+     *         If writing failed
+     */
+    static void writeLIDReservation(final File p_file, final long p_reservedLIDs) throws IOException {
+        boolean created = !p_file.exists();
+
+        // rwd: content is written synchronously, a single long doesn't cross a sector
+        try (RandomAccessFile raf = new RandomAccessFile(p_file, "rwd")) {
+            raf.writeLong(p_reservedLIDs);
+        }
+
+        if (created) {
+            syncDirectory(p_file);
+        }
+    }
+
+    /**
+     * Read the header of a snapshot and verify it (including the checksum of the image)
+     *
+     * @param p_file
+     *         Snapshot file
+     * @return Snapshot with metadata
+     * @throws IOException
+     *         If reading failed or the snapshot is invalid
+     */
+    static MemorySnapshot read(final File p_file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(p_file, "r")) {
+            if (raf.readLong() != MAGIC) {
+                throw new IOException("Not a memory snapshot: " + p_file);
+            }
+
+            int version = raf.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported memory snapshot version " + version);
+            }
+
+            short nodeID = raf.readShort();
+            boolean isFinal = raf.readBoolean();
+            long imageOffset = raf.readLong();
+            long imageSize = raf.readLong();
+            byte[] metadata = new byte[raf.readInt()];
+            long checksum = raf.readLong();
+            long imageChecksum = raf.readLong();
+
+            raf.readFully(metadata);
+
+            CRC32 crc = new CRC32();
+            crc.update(metadata, 0, metadata.length);
+
+            if (crc.getValue() != checksum) {
+                throw new IOException("Corrupted memory snapshot metadata: " + p_file);
+            }
+
+            if (raf.length() < imageOffset + imageSize) {
+                throw new IOException("Truncated memory snapshot image: " + p_file);
+            }
+
+            // reading the image sequentially loads it into the page cache for the mapping as well
+            byte[] buffer = new byte[IMAGE_BUFFER_SIZE];
+            long ptr = 0;
+
+            crc.reset();
+            raf.seek(imageOffset);
+
+            while (ptr < imageSize) {
+                int length = (int) Math.min(buffer.length, imageSize - ptr);
+
+                raf.readFully(buffer, 0, length);
+                crc.update(buffer, 0, length);
+
+                ptr += length;
+            }
+
+            if (crc.getValue() != imageChecksum) {
+                throw new IOException("Corrupted memory snapshot image: " + p_file);
+            }
+
+            return new MemorySnapshot(nodeID, isFinal, imageOffset, imageSize, metadata);
+        }
+    }
+
+    /**
+     * Sync the directory of a file to persist creating or renaming the file
+     *
+     * @param p_file
+     *         File in the directory
+     */
+    private static void syncDirectory(final File p_file) {
+        File dir = p_file.getAbsoluteFile().getParentFile();
+
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException ignored) {
+            // not supported on all platforms
+        }
+    }
+}
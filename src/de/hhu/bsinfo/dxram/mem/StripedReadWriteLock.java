@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxram.mem;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Set of spinning read-write locks selected by a key (e.g. a chunk ID range or a thread ID).
+ * Every stripe uses the same lock word layout as the former single memory manager lock
+ * (write locked flag, write pending flag, reader count) but is placed on its own cache line
+ * to avoid false sharing between threads working on different stripes.
+ */
+final class StripedReadWriteLock {
+    private static final int WRITE_LOCKED = 0x80000000;
+    private static final int WRITE_PENDING = 0x40000000;
+    private static final int READER_MASK = 0x3FFFFFFF;
+
+    // 16 ints = 64 bytes, one lock word per cache line
+    private static final int STRIPE_PADDING = 16;
+
+    private final int m_stripeMask;
+    private final AtomicIntegerArray m_stripes;
+
+    /**
+     * Constructor
+     *
+     * @param p_stripeCount
+     *         Number of stripes (power of two)
+     */
+    StripedReadWriteLock(final int p_stripeCount) {
+        if (p_stripeCount <= 0 || Integer.bitCount(p_stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two: " + p_stripeCount);
+        }
+
+        m_stripeMask = p_stripeCount - 1;
+        // +1: leading padding, don't share the first stripe's cache line with the array header
+        m_stripes = new AtomicIntegerArray((p_stripeCount + 1) * STRIPE_PADDING);
+    }
+
+    /**
+     * Get the number of stripes
+     *
+     * @return Number of stripes
+     */
+    int getStripeCount() {
+        return m_stripeMask + 1;
+    }
+
+    /**
+     * Acquire the stripe selected by the key for reading
+     *
+     * @param p_key
+     *         Key to select the stripe
+     */
+    void lockRead(final long p_key) {
+        lockReadStripe(index(p_key));
+    }
+
+    /**
+     * Acquire the stripes selected by multiple keys for reading. Every stripe is acquired once only
+     * and stripes are taken in ascending order, i.e. keys sharing a stripe don't lock it twice which
+     * could deadlock with a pending writer.
+     *
+     * @param p_keys
+     *         Keys to select the stripes
+     * @param p_count
+     *         Number of keys to use (starting at index 0)
+     * @return Indices of the lock words acquired, pass to unlockReadStripes()
+     */
+    int[] lockReadMultiple(final long[] p_keys, final int p_count) {
+        int[] indices = new int[p_count];
+
+        for (int i = 0; i < p_count; i++) {
+            indices[i] = index(p_keys[i]);
+        }
+
+        Arrays.sort(indices);
+
+        int count = 0;
+        for (int i = 0; i < p_count; i++) {
+            if (count == 0 || indices[count - 1] != indices[i]) {
+                indices[count++] = indices[i];
+            }
+        }
+
+        if (count != indices.length) {
+            indices = Arrays.copyOf(indices, count);
+        }
+
+        for (int index : indices) {
+            lockReadStripe(index);
+        }
+
+        return indices;
+    }
+
+    /**
+     * Release stripes acquired with lockReadMultiple()
+     *
+     * @param p_indices
+     *         Indices of the lock words returned by lockReadMultiple()
+     */
+    void unlockReadStripes(final int[] p_indices) {
+        for (int i = p_indices.length - 1; i >= 0; i--) {
+            m_stripes.decrementAndGet(p_indices[i]);
+        }
+    }
+
+    /**
+     * Try to acquire the stripe selected by the key for reading without waiting for writers
+     *
+     * @param p_key
+     *         Key to select the stripe
+     * @return True if acquired, false if the stripe is write locked or a writer is pending
+     */
+    boolean tryLockRead(final long p_key) {
+        int index = index(p_key);
+        int v = m_stripes.get(index);
+
+        while ((v & ~READER_MASK) == 0) {
+            if (m_stripes.compareAndSet(index, v, v + 1)) {
+                return true;
+            }
+
+            v = m_stripes.get(index);
+        }
+
+        return false;
+    }
+
+    /**
+     * Release the stripe selected by the key after reading
+     *
+     * @param p_key
+     *         Key to select the stripe
+     */
+    void unlockRead(final long p_key) {
+        m_stripes.decrementAndGet(index(p_key));
+    }
+
+    /**
+     * Acquire the stripe selected by the key for writing
+     *
+     * @param p_key
+     *         Key to select the stripe
+     */
+    void lockWrite(final long p_key) {
+        lockWriteStripe(index(p_key));
+    }
+
+    /**
+     * Release the stripe selected by the key after writing
+     *
+     * @param p_key
+     *         Key to select the stripe
+     */
+    void unlockWrite(final long p_key) {
+        m_stripes.set(index(p_key), 0);
+    }
+
+    /**
+     * Acquire all stripes for writing. Stripes are always taken in ascending order, the caller
+     * must not hold any stripe of this lock already.
+     */
+    void lockWriteAll() {
+        for (int i = 0; i <= m_stripeMask; i++) {
+            lockWriteStripe((i + 1) * STRIPE_PADDING);
+        }
+    }
+
+    /**
+     * Release all stripes after writing
+     */
+    void unlockWriteAll() {
+        for (int i = m_stripeMask; i >= 0; i--) {
+            m_stripes.set((i + 1) * STRIPE_PADDING, 0);
+        }
+    }
+
+    /**
+     * Acquire a single stripe for reading
+     *
+     * @param p_index
+     *         Index of the lock word in the array
+     */
+    private void lockReadStripe(final int p_index) {
+        while (true) {
+            int v = m_stripes.get(p_index) & READER_MASK;
+            if (m_stripes.compareAndSet(p_index, v, v + 1)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Acquire a single stripe for writing
+     *
+     * @param p_index
+     *         Index of the lock word in the array
+     */
+    private void lockWriteStripe(final int p_index) {
+        do {
+            int v = m_stripes.get(p_index);
+            m_stripes.compareAndSet(p_index, v, v | WRITE_PENDING);
+        } while (!m_stripes.compareAndSet(p_index, WRITE_PENDING, WRITE_LOCKED));
+    }
+
+    /**
+     * Map a key to the index of its lock word
+     *
+     * @param p_key
+     *         Key to map
+     * @return Index of the lock word in the array
+     */
+    private int index(final long p_key) {
+        return (((int) (p_key ^ p_key >>> 32) & m_stripeMask) + 1) * STRIPE_PADDING;
+    }
+}
@@ -16,6 +16,7 @@
 
 package de.hhu.bsinfo.dxram.nameservice;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -34,7 +35,8 @@ import de.hhu.bsinfo.dxram.lookup.overlay.storage.NameserviceEntry;
 /**
  * Nameservice component providing mappings of string identifiers to chunkIDs.
  * Note: The character set and length of the string are limited. Refer to
- * the convert class for details.
+ * the convert class for details. The batched methods (register/getChunkIDs with arrays) accept arbitrary names and
+ * use a separate namespace which is not limited by the converter.
  *
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 26.01.2016
  */
@@ -124,6 +126,44 @@ public class NameserviceComponent extends AbstractDXRAMComponent<NameserviceComp
         return ret;
     }
 
+    /**
+     * Register multiple chunk ids for arbitrary names (any length and characters).
+     *
+     * @param p_chunkIds
+     *         Chunk ids to register.
+     * @param p_names
+     *         Names to associate with the chunk ids (same order).
+     */
+    public void register(final long[] p_chunkIds, final String[] p_names) {
+        if (p_chunkIds.length != p_names.length) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Registering names failed: %d chunk ids for %d names", p_chunkIds.length, p_names.length);
+            // #endif /* LOGGER >= ERROR */
+            return;
+        }
+
+        // #if LOGGER == TRACE
+        LOGGER.trace("Registering %d names", p_names.length);
+        // #endif /* LOGGER == TRACE */
+
+        m_lookup.insertNameserviceStringEntries(encodeNames(p_names), p_chunkIds);
+    }
+
+    /**
+     * Get the chunk IDs of multiple names registered with register(long[], String[]).
+     *
+     * @param p_names
+     *         Registered names to get the chunk IDs for.
+     * @return The chunk IDs (same order), -1 for names not registered.
+     */
+    public long[] getChunkIDs(final String[] p_names) {
+        // #if LOGGER == TRACE
+        LOGGER.trace("Lookup %d names", p_names.length);
+        // #endif /* LOGGER == TRACE */
+
+        return m_lookup.getChunkIDsForNameserviceStringEntries(encodeNames(p_names));
+    }
+
     public void reinit() {
         // #if LOGGER == WARN
         LOGGER.warn("Re-initializing");
@@ -187,6 +227,23 @@ public class NameserviceComponent extends AbstractDXRAMComponent<NameserviceComp
         return list;
     }
 
+    /**
+     * Encode names as UTF-8
+     *
+     * @param p_names
+     *         the names
+     * @return the encoded names
+     */
+    private static byte[][] encodeNames(final String[] p_names) {
+        byte[][] ret = new byte[p_names.length][];
+
+        for (int i = 0; i < p_names.length; i++) {
+            ret[i] = p_names[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        return ret;
+    }
+
     /**
      * Initialize the nameservice
      *
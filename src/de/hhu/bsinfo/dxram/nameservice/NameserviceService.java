@@ -26,7 +26,8 @@ import de.hhu.bsinfo.dxram.engine.DXRAMContext;
 /**
  * Nameservice service providing mappings of string identifiers to chunkIDs.
  * Note: The character set and length of the string are limited. Refer to
- * the convert class for details.
+ * the convert class for details. The batched methods (register/getChunkIDs with arrays) accept arbitrary names and
+ * use a separate namespace which is not limited by the converter.
  *
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 26.01.2016
  */
@@ -106,6 +107,30 @@ public class NameserviceService extends AbstractDXRAMService<NameserviceServiceC
         return m_nameservice.getChunkID(p_name, p_timeoutMs);
     }
 
+    /**
+     * Register multiple chunk ids for arbitrary names (any length and characters) with one request per
+     * responsible superpeer.
+     *
+     * @param p_chunkIds
+     *         Chunk ids to register.
+     * @param p_names
+     *         Names to associate with the chunk ids (same order).
+     */
+    public void register(final long[] p_chunkIds, final String[] p_names) {
+        m_nameservice.register(p_chunkIds, p_names);
+    }
+
+    /**
+     * Get the chunk IDs of multiple names registered with register(long[], String[]).
+     *
+     * @param p_names
+     *         Registered names to get the chunk IDs for.
+     * @return The chunk IDs (same order), -1 for names not registered.
+     */
+    public long[] getChunkIDs(final String[] p_names) {
+        return m_nameservice.getChunkIDs(p_names);
+    }
+
     @Override
     protected boolean supportsSuperpeer() {
         return false;
@@ -19,7 +19,19 @@ package de.hhu.bsinfo.dxram.net;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import de.hhu.bsinfo.dxnet.ConnectionManagerListener;
 import de.hhu.bsinfo.dxnet.DXNet;
@@ -29,6 +41,7 @@ import de.hhu.bsinfo.dxnet.NetworkResponseDelayedException;
 import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
 import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxnet.core.Response;
 import de.hhu.bsinfo.dxnet.core.messages.Messages;
 import de.hhu.bsinfo.dxram.DXRAMComponentOrder;
 import de.hhu.bsinfo.dxram.boot.AbstractBootComponent;
@@ -41,6 +54,7 @@ import de.hhu.bsinfo.dxram.event.EventListener;
 import de.hhu.bsinfo.dxram.failure.events.NodeFailureEvent;
 import de.hhu.bsinfo.dxram.net.events.ConnectionLostEvent;
 import de.hhu.bsinfo.dxram.net.events.ResponseDelayedEvent;
+import de.hhu.bsinfo.dxutils.NodeID;
 
 /**
  * Access to the network interface to send messages or requests
@@ -56,6 +70,16 @@ public class NetworkComponent extends AbstractDXRAMComponent<NetworkComponentCon
     // Attributes
     private DXNet m_dxnet;
 
+    // sends requests of batches to multiple peers concurrently
+    private ExecutorService m_fanOutExecutor;
+    // limits the number of requests of batches sent to a single peer concurrently
+    private final ConcurrentHashMap<Short, Semaphore> m_outstandingRequestsPerPeer = new ConcurrentHashMap<>();
+
+    // async requests sent, waiting to be picked up by the completion thread
+    private final ConcurrentLinkedQueue<PendingRequest<?>> m_newAsyncRequests = new ConcurrentLinkedQueue<>();
+    private AsyncRequestCompletion m_asyncCompletion;
+    private ExecutorService m_asyncCallbackExecutor;
+
     /**
      * Constructor
      */
@@ -217,6 +241,108 @@ public class NetworkComponent extends AbstractDXRAMComponent<NetworkComponentCon
         }
     }
 
+    /**
+     * Send multiple requests (e.g. one per peer of a batch) concurrently and wait for fulfillment of all requests.
+     * Instead of one round trip per request, sending requests to multiple peers takes roughly one round trip.
+     * The number of requests sent to the same peer concurrently is limited (see config).
+     *
+     * @param p_requests
+     *         The requests to send.
+     * @return Exceptions of the requests that failed (same index as the request), null for successful requests.
+     * Requests not sent because the component shut down fail as well
+     */
+    public NetworkException[] sendSyncAll(final Request[] p_requests) {
+        NetworkException[] errors = new NetworkException[p_requests.length];
+        ExecutorService executor = m_fanOutExecutor;
+
+        if (p_requests.length <= 1 || executor == null) {
+            for (int i = 0; i < p_requests.length; i++) {
+                try {
+                    sendSync(p_requests[i]);
+                } catch (final NetworkException e) {
+                    errors[i] = e;
+                }
+            }
+
+            return errors;
+        }
+
+        RuntimeException[] failures = new RuntimeException[1];
+        CountDownLatch pending = new CountDownLatch(p_requests.length - 1);
+
+        for (int i = 1; i < p_requests.length; i++) {
+            FanOutTask task = new FanOutTask(p_requests, i, errors, failures, pending);
+
+            try {
+                executor.execute(task);
+            } catch (final RejectedExecutionException ignored) {
+                // shut down concurrently
+                task.abort();
+            }
+        }
+
+        // use the calling thread for the first request instead of idling
+        sendSyncLimited(p_requests, 0, errors);
+
+        boolean interrupted = false;
+
+        while (true) {
+            try {
+                pending.await();
+                break;
+            } catch (final InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failures[0] != null) {
+            throw failures[0];
+        }
+
+        return errors;
+    }
+
+    /**
+     * Send the Request without waiting for the response. A single thread watches all pending async requests
+     * for their responses, i.e. any number of requests can be in flight without blocking a thread per request.
+     *
+     * @param p_request
+     *         The request to send.
+     * @param p_responseClass
+     *         Class of the expected response
+     * @return Future which is completed with the response, or exceptionally if sending failed or the response did
+     * not arrive in time (TimeoutException). The future is completed on a callback thread (see config), keep
+     * callbacks short or hand them over to another executor
+     */
+    public <T extends Response> CompletableFuture<T> sendAsync(final Request p_request,
+            final Class<T> p_responseClass) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            sendSync(p_request, false);
+        } catch (final NetworkException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        PendingRequest<T> pending = new PendingRequest<>(p_request, p_responseClass, future,
+                System.nanoTime() + getConfig().getAsyncRequestTimeout().getNs());
+
+        m_newAsyncRequests.add(pending);
+        m_asyncCompletion.wakeUp();
+
+        // shut down concurrently: the completion thread might have failed the pending requests already
+        if (!m_asyncCompletion.isRunning() && m_newAsyncRequests.remove(pending)) {
+            pending.abort();
+        }
+
+        return future;
+    }
+
     /**
      * Registers a message receiver
      *
@@ -245,6 +371,31 @@ public class NetworkComponent extends AbstractDXRAMComponent<NetworkComponentCon
         m_dxnet.unregister(p_type, p_subtype, p_receiver);
     }
 
+    /**
+     * Send a request of a batch, waits if the max number of outstanding requests for the destination is reached
+     *
+     * @param p_requests
+     *         Requests of the batch
+     * @param p_index
+     *         Index of the request to send
+     * @param p_errors
+     *         Array to store the exception at the request's index if sending fails
+     */
+    private void sendSyncLimited(final Request[] p_requests, final int p_index, final NetworkException[] p_errors) {
+        Semaphore outstanding = m_outstandingRequestsPerPeer.computeIfAbsent(p_requests[p_index].getDestination(),
+                p_peer -> new Semaphore(getConfig().getMaxOutstandingRequestsPerPeer()));
+
+        outstanding.acquireUninterruptibly();
+
+        try {
+            sendSync(p_requests[p_index]);
+        } catch (final NetworkException e) {
+            p_errors[p_index] = e;
+        } finally {
+            outstanding.release();
+        }
+    }
+
     // --------------------------------------------------------------------------------------
 
     @Override
@@ -336,15 +487,311 @@ public class NetworkComponent extends AbstractDXRAMComponent<NetworkComponentCon
 
         m_event.registerListener(this, NodeFailureEvent.class);
 
+        AtomicInteger callbackThreadCounter = new AtomicInteger();
+        m_asyncCallbackExecutor = Executors.newFixedThreadPool(getConfig().getAsyncCallbackThreads(), p_runnable -> {
+            Thread thread = new Thread(p_runnable, "AsyncCallback-" + callbackThreadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        m_asyncCompletion = new AsyncRequestCompletion();
+        m_asyncCompletion.start();
+
+        if (getConfig().getRequestFanOutThreads() > 0) {
+            AtomicInteger threadCounter = new AtomicInteger();
+
+            m_fanOutExecutor = Executors.newFixedThreadPool(getConfig().getRequestFanOutThreads(), p_runnable -> {
+                Thread thread = new Thread(p_runnable, "RequestFanOut-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
         return true;
     }
 
     @Override
     protected boolean shutdownComponent() {
+        // fails the requests still waiting for a response
+        m_asyncCompletion.shutdown();
+
+        try {
+            m_asyncCompletion.join();
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+
+        // complete the futures already handed over to the callback threads
+        m_asyncCallbackExecutor.shutdown();
+
+        if (m_fanOutExecutor != null) {
+            // release the callers of sendSyncAll() waiting for requests which were not sent yet
+            for (Runnable task : m_fanOutExecutor.shutdownNow()) {
+                ((FanOutTask) task).abort();
+            }
+
+            m_fanOutExecutor = null;
+        }
+
         m_dxnet.close();
 
         m_dxnet = null;
 
         return true;
     }
+
+    /**
+     * Request of a batch sent on a fan out thread (see sendSyncAll())
+     */
+    private final class FanOutTask implements Runnable {
+        private final Request[] m_requests;
+        private final int m_index;
+        private final NetworkException[] m_errors;
+        private final RuntimeException[] m_failures;
+        private final CountDownLatch m_pending;
+
+        /**
+         * Constructor
+         *
+         * @param p_requests
+         *         Requests of the batch
+         * @param p_index
+         *         Index of the request to send
+         * @param p_errors
+         *         Array to store the exception at the request's index if sending fails
+         * @param p_failures
+         *         Array to store an unexpected exception at index 0
+         * @param p_pending
+         *         Latch counted down once the request is done
+         */
+        private FanOutTask(final Request[] p_requests, final int p_index, final NetworkException[] p_errors,
+                final RuntimeException[] p_failures, final CountDownLatch p_pending) {
+            m_requests = p_requests;
+            m_index = p_index;
+            m_errors = p_errors;
+            m_failures = p_failures;
+            m_pending = p_pending;
+        }
+
+        @Override
+        public void run() {
+            try {
+                sendSyncLimited(m_requests, m_index, m_errors);
+            } catch (final RuntimeException e) {
+                m_failures[0] = e;
+            } finally {
+                m_pending.countDown();
+            }
+        }
+
+        /**
+         * Fail the request without sending it (the executor shut down before running the task)
+         */
+        private void abort() {
+            m_errors[m_index] = new NetworkException("Network component shut down, request not sent: " + m_requests[m_index]);
+            m_pending.countDown();
+        }
+    }
+
+    /**
+     * Async request waiting for its response
+     *
+     * @param <T>
+     *         Type of the response
+     */
+    private static final class PendingRequest<T extends Response> {
+        private final Request m_request;
+        private final Class<T> m_responseClass;
+        private final CompletableFuture<T> m_future;
+        private final long m_deadline;
+
+        /**
+         * Constructor
+         *
+         * @param p_request
+         *         Request sent
+         * @param p_responseClass
+         *         Class of the expected response
+         * @param p_future
+         *         Future to complete
+         * @param p_deadline
+         *         Point in time (System.nanoTime()) to give up waiting for the response
+         */
+        private PendingRequest(final Request p_request, final Class<T> p_responseClass,
+                final CompletableFuture<T> p_future, final long p_deadline) {
+            m_request = p_request;
+            m_responseClass = p_responseClass;
+            m_future = p_future;
+            m_deadline = p_deadline;
+        }
+
+        /**
+         * Complete the future if the response arrived or the request timed out
+         *
+         * @param p_executor
+         *         Executor to complete the future on
+         * @param p_now
+         *         Current time (System.nanoTime())
+         * @return True if completed, false if still pending
+         */
+        private boolean tryComplete(final ExecutorService p_executor, final long p_now) {
+            T response = m_request.getResponse(m_responseClass);
+
+            if (response != null) {
+                execute(p_executor, () -> m_future.complete(response));
+                return true;
+            }
+
+            if (p_now - m_deadline > 0) {
+                execute(p_executor, () -> m_future.completeExceptionally(new TimeoutException(
+                        "No response for request " + m_request + " from " + NodeID.toHexString(
+                                m_request.getDestination()))));
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Fail the future because the network component shuts down
+         */
+        private void abort() {
+            m_future.completeExceptionally(new NetworkException(
+                    "Network component shut down, no response for request " + m_request));
+        }
+
+        /**
+         * Run a completion on the executor or on the current thread if the executor is shut down already
+         *
+         * @param p_executor
+         *         Executor to run the completion on
+         * @param p_completion
+         *         Completion to run
+         */
+        private static void execute(final ExecutorService p_executor, final Runnable p_completion) {
+            try {
+                p_executor.execute(p_completion);
+            } catch (final RejectedExecutionException ignored) {
+                p_completion.run();
+            }
+        }
+    }
+
+    /**
+     * Thread checking the pending async requests for responses. DXNet fulfills requests internally without notifying
+     * anyone, so the pending requests are polled. The poll interval backs off while no responses arrive to
+     * not burn a core on slow or idle requests.
+     */
+    private final class AsyncRequestCompletion extends Thread {
+        // interval to check pending requests for responses, doubled on every check without responses
+        private static final long POLL_INTERVAL_MIN_NS = 20000;
+        private static final long POLL_INTERVAL_MAX_NS = 1000000;
+
+        private final ArrayList<PendingRequest<?>> m_pending = new ArrayList<>();
+        private volatile boolean m_idle;
+        private volatile boolean m_running = true;
+
+        /**
+         * Constructor
+         */
+        private AsyncRequestCompletion() {
+            super("AsyncRequestCompletion");
+            setDaemon(true);
+        }
+
+        /**
+         * Wake up the thread if it is waiting for new requests or backing off
+         */
+        private void wakeUp() {
+            if (m_idle) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        /**
+         * Check if the thread still accepts new requests
+         *
+         * @return True if running, false if shut down
+         */
+        private boolean isRunning() {
+            return m_running;
+        }
+
+        /**
+         * Stop the thread. All requests still pending are failed
+         */
+        private void shutdown() {
+            m_running = false;
+            LockSupport.unpark(this);
+        }
+
+        @Override
+        public void run() {
+            long pollInterval = POLL_INTERVAL_MIN_NS;
+
+            while (m_running) {
+                PendingRequest<?> request;
+                boolean active = false;
+
+                while ((request = m_newAsyncRequests.poll()) != null) {
+                    m_pending.add(request);
+                    active = true;
+                }
+
+                long now = System.nanoTime();
+                long nextDeadline = Long.MAX_VALUE;
+
+                for (int i = m_pending.size() - 1; i >= 0; i--) {
+                    PendingRequest<?> pending = m_pending.get(i);
+
+                    // completed with the response or expired
+                    if (pending.tryComplete(m_asyncCallbackExecutor, now)) {
+                        // order does not matter, avoid shifting the list
+                        m_pending.set(i, m_pending.get(m_pending.size() - 1));
+                        m_pending.remove(m_pending.size() - 1);
+                        active = true;
+                    } else {
+                        nextDeadline = Math.min(nextDeadline, pending.m_deadline - now);
+                    }
+                }
+
+                if (m_pending.isEmpty()) {
+                    pollInterval = POLL_INTERVAL_MIN_NS;
+
+                    m_idle = true;
+                    // re-check, a request might have been added before setting the flag
+                    if (m_newAsyncRequests.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    m_idle = false;
+                } else {
+                    if (active) {
+                        pollInterval = POLL_INTERVAL_MIN_NS;
+                    } else {
+                        pollInterval = Math.min(pollInterval * 2, POLL_INTERVAL_MAX_NS);
+                    }
+
+                    // new requests reset the interval (wake up)
+                    m_idle = true;
+                    if (m_newAsyncRequests.isEmpty()) {
+                        // don't oversleep the next timeout
+                        LockSupport.parkNanos(this, Math.max(0, Math.min(pollInterval, nextDeadline)));
+                    }
+                    m_idle = false;
+                }
+            }
+
+            PendingRequest<?> request;
+
+            while ((request = m_newAsyncRequests.poll()) != null) {
+                m_pending.add(request);
+            }
+
+            for (PendingRequest<?> pending : m_pending) {
+                pending.abort();
+            }
+
+            m_pending.clear();
+        }
+    }
 }
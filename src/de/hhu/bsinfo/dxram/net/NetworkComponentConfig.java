@@ -7,6 +7,7 @@ import de.hhu.bsinfo.dxnet.ib.IBConfig;
 import de.hhu.bsinfo.dxnet.nio.NIOConfig;
 import de.hhu.bsinfo.dxram.engine.AbstractDXRAMComponentConfig;
 import de.hhu.bsinfo.dxram.engine.DXRAMContext;
+import de.hhu.bsinfo.dxutils.unit.TimeUnit;
 
 /**
  * Config for the NetworkComponent
@@ -23,6 +24,20 @@ public class NetworkComponentConfig extends AbstractDXRAMComponentConfig {
     @Expose
     private IBConfig m_ib = new IBConfig();
 
+    // number of threads sending requests of a batch to multiple peers concurrently (0 to send sequentially)
+    @Expose
+    private int m_requestFanOutThreads = 16;
+
+    @Expose
+    private int m_maxOutstandingRequestsPerPeer = 4;
+
+    // number of threads completing the futures of async requests (i.e. running the callbacks)
+    @Expose
+    private int m_asyncCallbackThreads = 2;
+
+    @Expose
+    private TimeUnit m_asyncRequestTimeout = new TimeUnit(1, TimeUnit.SEC);
+
     /**
      * Constructor
      */
@@ -51,8 +66,50 @@ public class NetworkComponentConfig extends AbstractDXRAMComponentConfig {
         return m_ib;
     }
 
+    /**
+     * Number of threads used to send the requests of a batch to multiple peers concurrently (0 to disable)
+     */
+    public int getRequestFanOutThreads() {
+        return m_requestFanOutThreads;
+    }
+
+    /**
+     * Max number of requests of batches sent to a single peer concurrently
+     */
+    public int getMaxOutstandingRequestsPerPeer() {
+        return m_maxOutstandingRequestsPerPeer;
+    }
+
+    public int getAsyncCallbackThreads() {
+        return m_asyncCallbackThreads;
+    }
+
+    public TimeUnit getAsyncRequestTimeout() {
+        return m_asyncRequestTimeout;
+    }
+
     @Override
     protected boolean verify(final DXRAMContext.Config p_config) {
+        if (m_requestFanOutThreads < 0) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%d) for m_requestFanOutThreads", m_requestFanOutThreads);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_maxOutstandingRequestsPerPeer < 1) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%d) for m_maxOutstandingRequestsPerPeer", m_maxOutstandingRequestsPerPeer);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
+
+        if (m_asyncCallbackThreads < 1) {
+            // #if LOGGER >= ERROR
+            LOGGER.error("Invalid value (%d) for m_asyncCallbackThreads", m_asyncCallbackThreads);
+            // #endif /* LOGGER >= ERROR */
+            return false;
+        }
 
         if ("Ethernet".equals(m_core.getDevice())) {
             if (m_nio.getFlowControlWindow().getBytes() > m_nio.getOugoingRingBufferSize().getBytes()) {
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.soh;
+
+/**
+ * Native memory mapping (mmap) without the size limit of FileChannel.map() (2 GB per buffer) and with NUMA
+ * placement (mbind). Requires the library libJNIMemoryMap (jni/memorymap) to be loaded.
+ */
+final class JNIMemoryMap {
+    /**
+     * Static class
+     */
+    private JNIMemoryMap() {
+
+    }
+
+    /**
+     * Get the page size of the OS
+     *
+     * @return Page size in bytes
+     */
+    static native long getPageSize();
+
+    /**
+     * Map a file into memory. The file is closed after mapping, the mapping remains valid
+     *
+     * @param p_path
+     *         Path of the file to map
+     * @param p_offset
+     *         Offset within the file (multiple of the page size)
+     * @param p_size
+     *         Size of the mapping
+     * @param p_private
+     *         True to map privately (copy on write, file is opened read only), false to map shared
+     * @return Address of the mapping if successful, -errno otherwise
+     */
+    static native long map(String p_path, long p_offset, long p_size, boolean p_private);
+
+    /**
+     * Unmap a mapping created with map()
+     *
+     * @param p_address
+     *         Address of the mapping
+     * @param p_size
+     *         Size of the mapping
+     * @return 0 if successful, -errno otherwise
+     */
+    static native int unmap(long p_address, long p_size);
+
+    /**
+     * Bind the pages of a mapping to a NUMA node. Pages allocated afterwards are placed on the node only
+     *
+     * @param p_address
+     *         Address of the mapping (multiple of the page size)
+     * @param p_size
+     *         Size of the mapping
+     * @param p_node
+     *         NUMA node to bind the pages to
+     * @return 0 if successful, -errno otherwise
+     */
+    static native int bindToNode(long p_address, long p_size, int p_node);
+}
@@ -16,9 +16,13 @@
 
 package de.hhu.bsinfo.soh;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -44,16 +48,49 @@ public final class SmallObjectHeap implements Importable, Exportable {
     private static final long MAX_SET_SIZE = (long) Math.pow(2, 30);
     private static final byte SMALL_BLOCK_SIZE = 64;
     private static final byte SINGLE_BYTE_MARKER = 0xF;
+    // max payload size of blocks served by the thread arenas
+    private static final int ARENA_MAX_BLOCK_SIZE = 1024;
+    // number of distinct block sizes cached by a single arena
+    private static final int ARENA_SLOTS = 8;
+    // max number of blocks cached per size
+    private static final int ARENA_SLOT_CAPACITY = 128;
+    // amount of memory to reserve from the free block lists on a single refill
+    private static final int ARENA_REFILL_SIZE = 16 * 1024;
+    // max supported thread id for arenas, threads with higher ids use the free block lists only
+    private static final int ARENA_MAX_THREADS = 65536;
+    // max number of free blocks to check per list when looking for a free block below an address
+    private static final int FREE_BLOCK_SCAN_LIMIT = 32;
+    // marker of slab slots: no length field, size is defined by the size class (marker - offset)
+    static final byte SLAB_MARKER_OFFSET = 0xA;
+    // marker values 0xA - 0xE are available for slab size classes
+    public static final int SLAB_MAX_SIZE_CLASSES = 5;
+    // free slots are linked through their payload
+    public static final int SLAB_MIN_SIZE = POINTER_SIZE;
+    // amount of memory to reserve for a size class at once
+    private static final int SLAB_SIZE = 64 * 1024;
     // Attributes, have them accessible by the package to enable walking and analyzing the heap
     // don't modify or access them otherwise
     long m_baseFreeBlockList;
     int m_freeBlocksListSize = -1;
     long[] m_freeBlockListSizes;
+    // payload sizes of the slab size classes
+    int[] m_slabSizes = new int[0];
     Storage m_memory;
     private int m_maxBlockSize;
     private int m_freeBlocksListCount = -1;
     private Status m_status;
 
+    // guards the free block lists, marker bytes of free blocks and the status
+    // (allocated blocks are accessed without locking)
+    private final AtomicInteger m_allocatorLock = new AtomicInteger(0);
+
+    // allocation arenas indexed by thread id, list of all arenas is guarded by the allocator lock
+    private final Arena[] m_arenas = new Arena[ARENA_MAX_THREADS];
+    private final ArrayList<Arena> m_arenaList = new ArrayList<>();
+
+    // head of the list of free slots of the slab size classes (linked through the slots' payload)
+    private long[] m_slabFreeSlots = new long[0];
+
     /**
      * Creates an instance of the object heap
      *
@@ -63,6 +100,38 @@ public final class SmallObjectHeap implements Importable, Exportable {
      *         The size of the memory in bytes.
      */
     public SmallObjectHeap(final Storage p_memory, final long p_size, final int p_maxBlockSize) {
+        this(p_memory, p_size, p_maxBlockSize, new int[0]);
+    }
+
+    /**
+     * Creates an instance of the object heap with slab size classes. Blocks with the size of a size class are
+     * allocated from slabs: slots of a single size without length field, reserved in batches from the free
+     * block lists. Allocating and freeing slots is O(1). Memory of slabs is not returned to the free block lists.
+     *
+     * @param p_memory
+     *         The underlying storage to use for this memory.
+     * @param p_size
+     *         The size of the memory in bytes.
+     * @param p_maxBlockSize
+     *         Max size of a single block
+     * @param p_slabSizes
+     *         Block (payload) sizes to use slabs for (max SLAB_MAX_SIZE_CLASSES, each at least SLAB_MIN_SIZE)
+     */
+    public SmallObjectHeap(final Storage p_memory, final long p_size, final int p_maxBlockSize,
+            final int[] p_slabSizes) {
+        if (p_slabSizes.length > SLAB_MAX_SIZE_CLASSES) {
+            throw new MemoryRuntimeException("Number of slab size classes exceeds max " + SLAB_MAX_SIZE_CLASSES);
+        }
+
+        for (int size : p_slabSizes) {
+            if (size < SLAB_MIN_SIZE || size > p_maxBlockSize) {
+                throw new MemoryRuntimeException("Invalid slab size class " + size);
+            }
+        }
+
+        m_slabSizes = p_slabSizes.clone();
+        m_slabFreeSlots = new long[p_slabSizes.length];
+
         m_memory = p_memory;
         m_status = new Status();
         m_status.m_size = p_size;
@@ -75,12 +144,15 @@ public final class SmallObjectHeap implements Importable, Exportable {
         m_memory.allocate(p_size);
 
         // Reset the memory block to zero. Do it in rather small sets to avoid ZooKeeper time-out
-        int sets = (int) (p_size / MAX_SET_SIZE);
-        for (int i = 0; i < sets; i++) {
-            m_memory.set(MAX_SET_SIZE * i, MAX_SET_SIZE, (byte) 0);
-        }
-        if (p_size % MAX_SET_SIZE != 0) {
-            m_memory.set(MAX_SET_SIZE * sets, (int) (p_size - sets * MAX_SET_SIZE), (byte) 0);
+        // Skipped if the storage is zeroed lazily on first access (avoids touching all pages on startup)
+        if (!m_memory.isZeroedOnAllocation()) {
+            int sets = (int) (p_size / MAX_SET_SIZE);
+            for (int i = 0; i < sets; i++) {
+                m_memory.set(MAX_SET_SIZE * i, MAX_SET_SIZE, (byte) 0);
+            }
+            if (p_size % MAX_SET_SIZE != 0) {
+                m_memory.set(MAX_SET_SIZE * sets, (int) (p_size - sets * MAX_SET_SIZE), (byte) 0);
+            }
         }
 
         // according to memory size, have a proper amount of
@@ -138,6 +210,55 @@ public final class SmallObjectHeap implements Importable, Exportable {
         importer.importObject(this);
     }
 
+    /**
+     * Creates an instance of the object heap from a snapshot (see exportMetadata).
+     * The storage is expected to provide the memory image of the snapshot on allocation (e.g. a private mapping
+     * of the image), the memory is not copied or reset.
+     *
+     * @param p_memory
+     *         The underlying storage providing the memory image.
+     * @param p_metadata
+     *         Input to read the metadata written by exportMetadata from
+     * @throws IOException
+     *         If reading the metadata failed
+     */
+    public SmallObjectHeap(final Storage p_memory, final DataInput p_metadata) throws IOException {
+        m_memory = p_memory;
+        m_maxBlockSize = p_metadata.readInt();
+        m_baseFreeBlockList = p_metadata.readLong();
+        m_freeBlocksListSize = p_metadata.readInt();
+        m_freeBlocksListCount = p_metadata.readInt();
+        m_freeBlockListSizes = new long[m_freeBlocksListCount];
+
+        for (int i = 0; i < m_freeBlockListSizes.length; i++) {
+            m_freeBlockListSizes[i] = p_metadata.readLong();
+        }
+
+        m_status = new Status();
+        m_status.m_size = p_metadata.readLong();
+        m_status.m_maxBlockSize = p_metadata.readInt();
+        m_status.m_free = p_metadata.readLong();
+        m_status.m_allocatedPayload = p_metadata.readLong();
+        m_status.m_allocatedBlocks = p_metadata.readLong();
+        m_status.m_freeBlocks = p_metadata.readLong();
+        m_status.m_freeSmall64ByteBlocks = p_metadata.readLong();
+
+        m_slabSizes = new int[p_metadata.readInt()];
+        m_slabFreeSlots = new long[m_slabSizes.length];
+
+        for (int i = 0; i < m_slabSizes.length; i++) {
+            m_slabSizes[i] = p_metadata.readInt();
+            m_slabFreeSlots[i] = p_metadata.readLong();
+        }
+
+        // #if LOGGER >= INFO
+        LOGGER.info("Restoring SmallObjectHeap from snapshot, size %d bytes, max block size %d bytes", m_status.m_size,
+                m_status.m_maxBlockSize);
+        // #endif /* LOGGER >= INFO */
+
+        m_memory.allocate(m_status.m_size);
+    }
+
     /**
      * Extract the size of the length field of the allocated or free area
      * from the marker byte.
@@ -149,7 +270,10 @@ public final class SmallObjectHeap implements Importable, Exportable {
     private static int getSizeFromMarker(final int p_marker) {
         int ret;
 
-        if (p_marker <= ALLOC_BLOCK_FLAGS_OFFSET) {
+        if (p_marker >= SLAB_MARKER_OFFSET && p_marker < SLAB_MARKER_OFFSET + SLAB_MAX_SIZE_CLASSES) {
+            // slab slots don't have a length field
+            ret = 0;
+        } else if (p_marker <= ALLOC_BLOCK_FLAGS_OFFSET) {
             // free block size
             ret = p_marker;
         } else {
@@ -206,12 +330,59 @@ public final class SmallObjectHeap implements Importable, Exportable {
     }
 
     /**
-     * Gets the status
+     * Gets the status. Blocks cached by the thread arenas are reported as free.
      *
-     * @return the status
+     * @return the status (copy)
      */
     public Status getStatus() {
-        return m_status;
+        Status status = new Status();
+        Arena[] arenas;
+
+        lockAllocator();
+
+        try {
+            status.m_size = m_status.m_size;
+            status.m_maxBlockSize = m_status.m_maxBlockSize;
+            status.m_free = m_status.m_free;
+            status.m_allocatedPayload = m_status.m_allocatedPayload;
+            status.m_allocatedBlocks = m_status.m_allocatedBlocks;
+            status.m_freeBlocks = m_status.m_freeBlocks;
+            status.m_freeSmall64ByteBlocks = m_status.m_freeSmall64ByteBlocks;
+
+            arenas = m_arenaList.toArray(new Arena[0]);
+        } finally {
+            unlockAllocator();
+        }
+
+        for (Arena arena : arenas) {
+            synchronized (arena) {
+                for (int slot = 0; slot < ARENA_SLOTS; slot++) {
+                    int size = arena.m_sizes[slot];
+                    int count = arena.m_counts[slot];
+
+                    if (count == 0) {
+                        continue;
+                    }
+
+                    status.m_allocatedPayload -= (long) size * count;
+                    status.m_allocatedBlocks -= count;
+
+                    // free slab slots are not part of the free memory (slabs are never released)
+                    if (getSlabSizeClass(size) == -1) {
+                        int blockSize = calculateLengthFieldSizeAllocBlock(size) + size;
+
+                        status.m_free += (long) blockSize * count;
+                        status.m_freeBlocks += count;
+
+                        if (blockSize < SMALL_BLOCK_SIZE) {
+                            status.m_freeSmall64ByteBlocks += count;
+                        }
+                    }
+                }
+            }
+        }
+
+        return status;
     }
 
     /**
@@ -258,14 +429,122 @@ public final class SmallObjectHeap implements Importable, Exportable {
     }
 
     /**
-     * Allocate a memory block
+     * Return all blocks cached in the allocation arenas of all threads to the free block lists, e.g. before
+     * taking a snapshot of the heap. To get all blocks back, the caller has to ensure that no other thread
+     * allocates or frees memory concurrently.
+     */
+    public void flushArenas() {
+        stealArenaBlocks();
+    }
+
+    /**
+     * Write the metadata of the heap (free block lists, slabs, status) for a snapshot. Together with the memory
+     * image (content of the storage, e.g. captured using StorageCopyOnWrite), the heap can be restored using the
+     * snapshot constructor. Flush the arenas before taking a snapshot, the heap must not be modified while writing
+     * the metadata.
+     *
+     * @param p_out
+     *         Output to write the metadata to
+     * @throws IOException
+     *         If writing failed
+     */
+    public void exportMetadata(final DataOutput p_out) throws IOException {
+        p_out.writeInt(m_maxBlockSize);
+        p_out.writeLong(m_baseFreeBlockList);
+        p_out.writeInt(m_freeBlocksListSize);
+        p_out.writeInt(m_freeBlocksListCount);
+
+        for (long size : m_freeBlockListSizes) {
+            p_out.writeLong(size);
+        }
+
+        p_out.writeLong(m_status.m_size);
+        p_out.writeInt(m_status.m_maxBlockSize);
+        p_out.writeLong(m_status.m_free);
+        p_out.writeLong(m_status.m_allocatedPayload);
+        p_out.writeLong(m_status.m_allocatedBlocks);
+        p_out.writeLong(m_status.m_freeBlocks);
+        p_out.writeLong(m_status.m_freeSmall64ByteBlocks);
+
+        p_out.writeInt(m_slabSizes.length);
+
+        for (int i = 0; i < m_slabSizes.length; i++) {
+            p_out.writeInt(m_slabSizes[i]);
+            p_out.writeLong(m_slabFreeSlots[i]);
+        }
+    }
+
+    /**
+     * Allocate a memory block located below the specified address. Used to compact the heap by moving allocated
+     * blocks towards the start of the memory. Only the first blocks of every free block list are considered.
+     *
+     * @param p_size
+     *         the size of the block in bytes.
+     * @param p_limit
+     *         the new block's address has to be lower than this address
+     * @return the address of the block or 0 if no free block below the limit was found
+     */
+    public long mallocBelow(final int p_size, final long p_limit) {
+        lockAllocator();
+
+        try {
+            return reserveBlockBelow(p_size, p_limit);
+        } finally {
+            unlockAllocator();
+        }
+    }
+
+    /**
+     * Get the size of the largest free block. Together with the total amount of free memory,
+     * this determines the (external) fragmentation of the heap.
+     *
+     * @return Size of the largest free block in bytes
+     */
+    public long getLargestFreeBlock() {
+        long ret = 0;
+
+        lockAllocator();
+
+        try {
+            // the largest block is in the highest non empty list
+            for (int list = m_freeBlocksListCount - 1; list >= 0 && ret == 0; list--) {
+                long address = readPointer(m_baseFreeBlockList + list * POINTER_SIZE);
+
+                while (address != INVALID_ADDRESS) {
+                    int freeLengthFieldSize = readRightPartOfMarker(address - SIZE_MARKER_BYTE);
+                    long freeSize = read(address, freeLengthFieldSize);
+
+                    if (freeSize > ret) {
+                        ret = freeSize;
+                    }
+
+                    address = readPointer(address + freeLengthFieldSize + POINTER_SIZE);
+                }
+            }
+        } finally {
+            unlockAllocator();
+        }
+
+        return ret;
+    }
+
+    /**
+     * Allocate a memory block. Small blocks are served from the calling thread's arena, i.e. from blocks
+     * reserved in batches from the free block lists, without acquiring the allocator lock.
      *
      * @param p_size
      *         the size of the block in bytes.
      * @return the address of the block or 0 if no free blocks available for the specified size
      */
     public long malloc(final int p_size) {
-        return reserveBlock(p_size);
+        long address = mallocNoSteal(p_size);
+
+        // the blocks cached by the arenas count as allocated, get them back before giving up
+        if (address == INVALID_ADDRESS && stealArenaBlocks() > 0) {
+            address = mallocNoSteal(p_size);
+        }
+
+        return address;
     }
 
     /**
@@ -293,9 +572,46 @@ public final class SmallObjectHeap implements Importable, Exportable {
     public long[] multiMallocSizesUsedEntries(final int p_usedEntries, final int... p_sizes) {
         long[] ret;
 
+        lockAllocator();
+
+        try {
+            ret = multiMallocSizesUsedEntriesLocked(p_usedEntries, p_sizes);
+        } finally {
+            unlockAllocator();
+        }
+
+        // the blocks cached by the arenas count as allocated, get them back before giving up
+        if (ret == null && stealArenaBlocks() > 0) {
+            lockAllocator();
+
+            try {
+                ret = multiMallocSizesUsedEntriesLocked(p_usedEntries, p_sizes);
+            } finally {
+                unlockAllocator();
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Allocate multiple blocks in a single call. This falls back to normal malloc if the
+     * allocator cannot find a single free block that fits all the sizes.
+     * The allocator lock must be held by the caller.
+     *
+     * @param p_sizes
+     *         Sizes for the blocks to allocate
+     * @param p_usedEntries
+     *         First n elements to be used of size array
+     * @return List of addresses for the sizes on success, null on failure
+     */
+    private long[] multiMallocSizesUsedEntriesLocked(final int p_usedEntries, final int... p_sizes) {
+        long[] ret;
+
         // number of marker bytes to separate blocks
         // -1: one marker byte is already part of the free block
         int bigChunkSize = p_usedEntries - 1;
+        boolean slabSizes = false;
 
         for (int i = 0; i < p_usedEntries; i++) {
             if (p_sizes[i] > m_status.m_maxBlockSize) {
@@ -308,21 +624,27 @@ public final class SmallObjectHeap implements Importable, Exportable {
 
             bigChunkSize += p_sizes[i];
             bigChunkSize += calculateLengthFieldSizeAllocBlock(p_sizes[i]);
+            slabSizes |= getSlabSizeClass(p_sizes[i]) != -1;
         }
 
-        ret = multiReserveBlocks(bigChunkSize, p_sizes, p_usedEntries);
+        if (!slabSizes) {
+            ret = multiReserveBlocks(bigChunkSize, p_sizes, p_usedEntries);
+        } else {
+            // slots are taken from the size classes' slabs
+            ret = null;
+        }
 
         if (ret == null) {
-            // fallback to single malloc calls on failure
+            // fallback to single malloc calls on failure (or slab size classes)
             ret = new long[p_usedEntries];
 
             for (int i = 0; i < p_usedEntries; i++) {
-                long addr = malloc(p_sizes[i]);
+                long addr = reserveBlock(p_sizes[i]);
 
                 if (addr == INVALID_ADDRESS) {
                     // roll back
                     for (int j = 0; j < i; j++) {
-                        free(ret[j]);
+                        freeBlock(ret[j]);
                     }
 
                     return null;
@@ -348,6 +670,42 @@ public final class SmallObjectHeap implements Importable, Exportable {
     public long[] multiMalloc(final int p_size, final int p_count) {
         long[] ret;
 
+        lockAllocator();
+
+        try {
+            ret = multiMallocLocked(p_size, p_count);
+        } finally {
+            unlockAllocator();
+        }
+
+        // the blocks cached by the arenas count as allocated, get them back before giving up
+        if (ret == null && stealArenaBlocks() > 0) {
+            lockAllocator();
+
+            try {
+                ret = multiMallocLocked(p_size, p_count);
+            } finally {
+                unlockAllocator();
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Allocate multiple blocks in a single call. This falls back to normal malloc if the
+     * allocator cannot find a single free block that fits all the sizes.
+     * The allocator lock must be held by the caller.
+     *
+     * @param p_size
+     *         Size of one block to allocate
+     * @param p_count
+     *         Number of blocks of p_size each to allocate
+     * @return List of addresses for the sizes on success, null on failure
+     */
+    private long[] multiMallocLocked(final int p_size, final int p_count) {
+        long[] ret;
+
         if (p_size > m_status.m_maxBlockSize) {
             throw new MemoryRuntimeException("Req allocation size " + p_size + " is exceeding max memory block size " + m_status.m_maxBlockSize);
         }
@@ -363,20 +721,25 @@ public final class SmallObjectHeap implements Importable, Exportable {
         bigChunkSize += p_size * p_count;
         bigChunkSize += calculateLengthFieldSizeAllocBlock(p_size) * p_count;
 
-        ret = multiReserveBlocks(bigChunkSize, p_size, p_count);
+        if (getSlabSizeClass(p_size) == -1) {
+            ret = multiReserveBlocks(bigChunkSize, p_size, p_count);
+        } else {
+            // slots are taken from the size class' slabs
+            ret = null;
+        }
 
         if (ret == null) {
-            // fallback to single malloc calls on failure
+            // fallback to single malloc calls on failure (or slab size class)
 
             ret = new long[p_count];
 
             for (int i = 0; i < p_count; i++) {
-                long addr = malloc(p_size);
+                long addr = reserveBlock(p_size);
 
                 if (addr == INVALID_ADDRESS) {
                     // roll back
                     for (int j = 0; j < i; j++) {
-                        free(ret[j]);
+                        freeBlock(ret[j]);
                     }
 
                     return null;
@@ -395,12 +758,30 @@ public final class SmallObjectHeap implements Importable, Exportable {
      * @param p_address
      *         the address of the block
      */
-
     public void free(final long p_address) {
-        int lengthFieldSize;
+        Arena arena = getArena(false);
 
-        lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
-        freeReservedBlock(p_address, lengthFieldSize, getSizeMemoryBlock(p_address));
+        // keep the block in the arena if the thread is caching blocks of that size
+        if (arena != null) {
+            int size = (int) getSizeMemoryBlock(p_address);
+
+            synchronized (arena) {
+                int slot = arena.getSlot(size);
+
+                if (slot != -1 && arena.m_counts[slot] < ARENA_SLOT_CAPACITY) {
+                    arena.m_blocks[slot][arena.m_counts[slot]++] = p_address;
+                    return;
+                }
+            }
+        }
+
+        lockAllocator();
+
+        try {
+            freeBlock(p_address);
+        } finally {
+            unlockAllocator();
+        }
     }
 
     /**
@@ -411,13 +792,41 @@ public final class SmallObjectHeap implements Importable, Exportable {
      * @return Size of the block in bytes (payload only).
      */
     public int getSizeBlock(final long p_address) {
-        int lengthFieldSize;
+        return (int) getSizeMemoryBlock(p_address);
+    }
+
+    /**
+     * Check if a block was allocated from a slab
+     *
+     * @param p_address
+     *         Address of the block.
+     * @return True if the block is a slab slot, false otherwise
+     */
+    public boolean isSlabBlock(final long p_address) {
+        return getSlabSizeClassFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE)) != -1;
+    }
 
+    /**
+     * Get the address of the payload of an allocated block (skipping the length field). The payload can be
+     * accessed directly on the storage (see getStorage()) without resolving the length field on every access.
+     *
+     * @param p_address
+     *         Address of the block.
+     * @return Address of the payload on the storage
+     */
+    public long getPayloadAddress(final long p_address) {
         assert assertMemoryBounds(p_address);
 
-        // skip length byte(s)
-        lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
-        return (int) read(p_address, lengthFieldSize);
+        return p_address + getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
+    }
+
+    /**
+     * Get the storage the heap is allocated on
+     *
+     * @return Storage of the heap
+     */
+    public Storage getStorage() {
+        return m_memory;
     }
 
     /**
@@ -456,7 +865,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Byte.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Byte.BYTES);
 
         return m_memory.readByte(p_address + lengthFieldSize + p_offset);
     }
@@ -477,7 +886,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Short.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Short.BYTES);
 
         return m_memory.readShort(p_address + lengthFieldSize + p_offset);
     }
@@ -498,7 +907,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Integer.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Integer.BYTES);
 
         return m_memory.readInt(p_address + lengthFieldSize + p_offset);
     }
@@ -519,7 +928,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Long.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Long.BYTES);
 
         return m_memory.readLong(p_address + lengthFieldSize + p_offset);
     }
@@ -546,7 +955,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, p_length * Byte.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, p_length * Byte.BYTES);
 
         return m_memory.readBytes(p_address + lengthFieldSize + p_offset, p_buffer, p_offsetArray, p_length);
     }
@@ -573,7 +982,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, p_length * Short.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, p_length * Short.BYTES);
 
         return m_memory.readShorts(p_address + lengthFieldSize + p_offset, p_buffer, p_offsetArray, p_length);
     }
@@ -600,7 +1009,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, p_length * Integer.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, p_length * Integer.BYTES);
 
         return m_memory.readInts(p_address + lengthFieldSize + p_offset, p_buffer, p_offsetArray, p_length);
     }
@@ -627,7 +1036,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, p_length * Long.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, p_length * Long.BYTES);
 
         return m_memory.readLongs(p_address + lengthFieldSize + p_offset, p_buffer, p_offsetArray, p_length);
     }
@@ -649,7 +1058,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Byte.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Byte.BYTES);
 
         m_memory.writeByte(p_address + lengthFieldSize + p_offset, p_value);
     }
@@ -671,7 +1080,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Short.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Short.BYTES);
 
         m_memory.writeShort(p_address + lengthFieldSize + p_offset, p_value);
     }
@@ -693,7 +1102,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Integer.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Integer.BYTES);
 
         m_memory.writeInt(p_address + lengthFieldSize + p_offset, p_value);
     }
@@ -715,7 +1124,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Long.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Long.BYTES);
 
         m_memory.writeLong(p_address + lengthFieldSize + p_offset, p_value);
     }
@@ -742,7 +1151,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Byte.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Byte.BYTES);
 
         return m_memory.writeBytes(p_address + lengthFieldSize + p_offset, p_value, p_offsetArray, p_length);
     }
@@ -769,7 +1178,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Byte.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Byte.BYTES);
 
         return m_memory.writeBytes(p_address + lengthFieldSize + p_offset, p_valueAddress, p_valueOffset, p_length);
     }
@@ -796,7 +1205,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Short.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Short.BYTES);
 
         return m_memory.writeShorts(p_address + lengthFieldSize + p_offset, p_value, p_offsetArray, p_length);
     }
@@ -825,7 +1234,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Integer.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Integer.BYTES);
 
         return m_memory.writeInts(p_address + lengthFieldSize + p_offset, p_value, p_offsetArray, p_length);
     }
@@ -852,7 +1261,7 @@ public final class SmallObjectHeap implements Importable, Exportable {
         // skip length byte(s)
         lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
 
-        assert assertMemoryBlockBounds(p_address, lengthFieldSize, read(p_address, lengthFieldSize), p_offset, Long.BYTES);
+        assert assertMemoryBlockBounds(p_address, lengthFieldSize, getSizeMemoryBlock(p_address), p_offset, Long.BYTES);
 
         return m_memory.writeLongs(p_address + lengthFieldSize + p_offset, p_value, p_offsetArray, p_length);
     }
@@ -870,6 +1279,13 @@ public final class SmallObjectHeap implements Importable, Exportable {
         p_exporter.writeLongArray(m_freeBlockListSizes);
         p_exporter.writeInt(m_freeBlocksListCount);
         p_exporter.exportObject(m_status);
+        p_exporter.writeInt(m_slabSizes.length);
+
+        for (int i = 0; i < m_slabSizes.length; i++) {
+            p_exporter.writeInt(m_slabSizes[i]);
+            p_exporter.writeLong(m_slabFreeSlots[i]);
+        }
+
         // separate metadata from VMB with padding
         p_exporter.writeLong(0xFFFFEEDDDDEEFFFFL);
 
@@ -900,6 +1316,14 @@ public final class SmallObjectHeap implements Importable, Exportable {
         m_freeBlocksListCount = p_importer.readInt(m_freeBlocksListCount);
         m_status = new Status();
         p_importer.importObject(m_status);
+        m_slabSizes = new int[p_importer.readInt(0)];
+        m_slabFreeSlots = new long[m_slabSizes.length];
+
+        for (int i = 0; i < m_slabSizes.length; i++) {
+            m_slabSizes[i] = p_importer.readInt(0);
+            m_slabFreeSlots[i] = p_importer.readLong(0);
+        }
+
         // get rid of padding separating metadata from VMB
         p_importer.readLong(0);
 
@@ -979,6 +1403,293 @@ public final class SmallObjectHeap implements Importable, Exportable {
         return read(p_address, POINTER_SIZE);
     }
 
+    /**
+     * Acquire the allocator lock
+     */
+    private void lockAllocator() {
+        while (!m_allocatorLock.compareAndSet(0, 1)) {
+            // spin
+        }
+    }
+
+    /**
+     * Release the allocator lock
+     */
+    private void unlockAllocator() {
+        m_allocatorLock.set(0);
+    }
+
+    /**
+     * Get the arena of the current thread
+     *
+     * @param p_create
+     *         True to create the arena if the thread doesn't have one, yet
+     * @return Arena of the current thread or null if the thread does not have one (or the thread id is not supported)
+     */
+    private Arena getArena(final boolean p_create) {
+        long tid = Thread.currentThread().getId();
+
+        if (tid >= ARENA_MAX_THREADS) {
+            return null;
+        }
+
+        Arena arena = m_arenas[(int) tid];
+
+        if (arena == null && p_create) {
+            arena = new Arena(Thread.currentThread());
+
+            lockAllocator();
+
+            try {
+                // good opportunity to get back blocks cached by threads which are gone
+                reclaimDeadArenas();
+                m_arenaList.add(arena);
+            } finally {
+                unlockAllocator();
+            }
+
+            m_arenas[(int) tid] = arena;
+        }
+
+        return arena;
+    }
+
+    /**
+     * Allocate a memory block from the arena of the calling thread or the free block lists without taking the
+     * blocks cached by the arenas into account
+     *
+     * @param p_size
+     *         the size of the block in bytes.
+     * @return the address of the block or 0 if no free blocks available for the specified size
+     */
+    private long mallocNoSteal(final int p_size) {
+        if (p_size > 0 && p_size <= ARENA_MAX_BLOCK_SIZE && p_size <= m_status.m_maxBlockSize) {
+            Arena arena = getArena(true);
+
+            if (arena != null) {
+                synchronized (arena) {
+                    return arenaMalloc(arena, p_size);
+                }
+            }
+        }
+
+        lockAllocator();
+
+        try {
+            return reserveBlock(p_size);
+        } finally {
+            unlockAllocator();
+        }
+    }
+
+    /**
+     * Allocate a block from an arena, refill the arena if it does not have any blocks of the requested size cached.
+     * The caller must hold the arena's monitor.
+     *
+     * @param p_arena
+     *         Arena of the current thread
+     * @param p_size
+     *         Size of the block (payload)
+     * @return Address of the allocated block or INVALID_ADDRESS if out of memory
+     */
+    private long arenaMalloc(final Arena p_arena, final int p_size) {
+        int slot = p_arena.getSlot(p_size);
+
+        if (slot == -1) {
+            slot = p_arena.getFreeSlot();
+
+            if (slot == -1) {
+                // replace the sizes in round robin order
+                slot = p_arena.m_nextEvict;
+                p_arena.m_nextEvict = (slot + 1) % ARENA_SLOTS;
+
+                flushArenaSlot(p_arena, slot);
+            }
+
+            p_arena.m_sizes[slot] = p_size;
+            p_arena.m_refills[slot] = 0;
+        }
+
+        if (p_arena.m_counts[slot] == 0) {
+            refillArenaSlot(p_arena, slot);
+
+            if (p_arena.m_counts[slot] == 0) {
+                return INVALID_ADDRESS;
+            }
+        }
+
+        return p_arena.m_blocks[slot][--p_arena.m_counts[slot]];
+    }
+
+    /**
+     * Reserve a batch of blocks from the free block lists and cache them in an arena slot
+     *
+     * @param p_arena
+     *         Arena to refill
+     * @param p_slot
+     *         Slot of the arena to refill
+     */
+    private void refillArenaSlot(final Arena p_arena, final int p_slot) {
+        int size = p_arena.m_sizes[p_slot];
+        // length field + payload + right marker byte
+        int blockSize = calculateLengthFieldSizeAllocBlock(size) + size + SIZE_MARKER_BYTE;
+        int count;
+        long[] addresses;
+
+        // reserve a batch only if the size recurs, otherwise threads allocating many different sizes evict
+        // the slots constantly and waste most of each batch (fragmenting the heap)
+        if (p_arena.m_refills[p_slot]++ == 0) {
+            count = 1;
+        } else {
+            count = Math.max(1, Math.min(ARENA_SLOT_CAPACITY / 2, ARENA_REFILL_SIZE / blockSize));
+        }
+
+        lockAllocator();
+
+        try {
+            if (count > 1 && getSlabSizeClass(size) == -1) {
+                // -1: one marker byte is already part of the free block
+                addresses = multiReserveBlocks(blockSize * count - 1, size, count);
+
+                if (addresses == null) {
+                    reclaimDeadArenas();
+                }
+            } else {
+                // single block requested or slab slot (O(1), no need to batch)
+                addresses = null;
+            }
+
+            if (addresses == null) {
+                // no batch or no free block fitting the whole batch, serve a single block only
+                long address = reserveBlock(size);
+
+                if (address != INVALID_ADDRESS) {
+                    addresses = new long[] {address};
+                }
+            }
+        } finally {
+            unlockAllocator();
+        }
+
+        if (addresses != null) {
+            // reverse order: hand out the blocks with ascending addresses
+            for (int i = addresses.length - 1; i >= 0; i--) {
+                p_arena.m_blocks[p_slot][p_arena.m_counts[p_slot]++] = addresses[i];
+            }
+        }
+    }
+
+    /**
+     * Return all blocks cached in an arena slot to the free block lists
+     *
+     * @param p_arena
+     *         Arena to flush
+     * @param p_slot
+     *         Slot of the arena to flush
+     */
+    private void flushArenaSlot(final Arena p_arena, final int p_slot) {
+        if (p_arena.m_counts[p_slot] > 0) {
+            lockAllocator();
+
+            try {
+                for (int i = 0; i < p_arena.m_counts[p_slot]; i++) {
+                    freeBlock(p_arena.m_blocks[p_slot][i]);
+                }
+            } finally {
+                unlockAllocator();
+            }
+
+            p_arena.m_counts[p_slot] = 0;
+        }
+
+        p_arena.m_sizes[p_slot] = 0;
+    }
+
+    /**
+     * Return the blocks cached in the arenas of all threads to the free block lists, e.g. if an allocation failed.
+     * The allocator lock must not be held by the caller (lock order: arena monitor, then allocator lock).
+     *
+     * @return Number of blocks returned
+     */
+    private int stealArenaBlocks() {
+        Arena[] arenas;
+        int blocks = 0;
+
+        lockAllocator();
+
+        try {
+            arenas = m_arenaList.toArray(new Arena[0]);
+        } finally {
+            unlockAllocator();
+        }
+
+        for (Arena arena : arenas) {
+            synchronized (arena) {
+                lockAllocator();
+
+                try {
+                    // read the counts with the allocator lock held: reclaimDeadArenas might have emptied the arena
+                    for (int slot = 0; slot < ARENA_SLOTS; slot++) {
+                        for (int i = 0; i < arena.m_counts[slot]; i++) {
+                            freeBlock(arena.m_blocks[slot][i]);
+                        }
+
+                        blocks += arena.m_counts[slot];
+                        arena.m_counts[slot] = 0;
+                    }
+                } finally {
+                    unlockAllocator();
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Return the blocks cached in arenas of terminated threads to the free block lists.
+     * The allocator lock must be held by the caller.
+     */
+    private void reclaimDeadArenas() {
+        for (int i = m_arenaList.size() - 1; i >= 0; i--) {
+            Arena arena = m_arenaList.get(i);
+
+            // detecting the termination guarantees visibility of the thread's last modifications of its arena
+            if (!arena.m_owner.isAlive()) {
+                for (int slot = 0; slot < ARENA_SLOTS; slot++) {
+                    for (int j = 0; j < arena.m_counts[slot]; j++) {
+                        freeBlock(arena.m_blocks[slot][j]);
+                    }
+
+                    arena.m_counts[slot] = 0;
+                }
+
+                m_arenaList.remove(i);
+                m_arenas[(int) arena.m_owner.getId()] = null;
+            }
+        }
+    }
+
+    /**
+     * Frees a memory block. The allocator lock must be held by the caller.
+     *
+     * @param p_address
+     *         the address of the block
+     */
+    private void freeBlock(final long p_address) {
+        int marker;
+        int sizeClass;
+
+        marker = readRightPartOfMarker(p_address - SIZE_MARKER_BYTE);
+        sizeClass = getSlabSizeClassFromMarker(marker);
+
+        if (sizeClass != -1) {
+            freeSlabSlot(p_address, sizeClass);
+        } else {
+            freeReservedBlock(p_address, getSizeFromMarker(marker), getSizeMemoryBlock(p_address));
+        }
+    }
+
     /**
      * Get the size of the allocated or free'd block of memory specified
      * by the given address.
@@ -988,12 +1699,138 @@ public final class SmallObjectHeap implements Importable, Exportable {
      * @return Size of memory block at specified address.
      */
     private long getSizeMemoryBlock(final long p_address) {
-        int lengthFieldSize;
+        int marker;
+        int sizeClass;
 
         assert assertMemoryBounds(p_address);
 
-        lengthFieldSize = getSizeFromMarker(readRightPartOfMarker(p_address - SIZE_MARKER_BYTE));
-        return read(p_address, lengthFieldSize);
+        marker = readRightPartOfMarker(p_address - SIZE_MARKER_BYTE);
+        sizeClass = getSlabSizeClassFromMarker(marker);
+
+        if (sizeClass != -1) {
+            return m_slabSizes[sizeClass];
+        }
+
+        return read(p_address, getSizeFromMarker(marker));
+    }
+
+    /**
+     * Get the slab size class of a block from its marker
+     *
+     * @param p_marker
+     *         Marker (right part of the marker byte left to the block)
+     * @return Size class or -1 if the block is not a slab slot
+     */
+    private int getSlabSizeClassFromMarker(final int p_marker) {
+        int sizeClass = p_marker - SLAB_MARKER_OFFSET;
+
+        if (sizeClass >= 0 && sizeClass < m_slabSizes.length) {
+            return sizeClass;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the slab size class for a block size
+     *
+     * @param p_size
+     *         Size of the block (payload)
+     * @return Size class or -1 if there is no size class for that size
+     */
+    private int getSlabSizeClass(final int p_size) {
+        for (int i = 0; i < m_slabSizes.length; i++) {
+            if (m_slabSizes[i] == p_size) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Take a slot from the free list of a slab size class, reserve a new slab if the list is empty.
+     * The allocator lock must be held by the caller.
+     *
+     * @param p_sizeClass
+     *         Size class
+     * @return Address of the slot or INVALID_ADDRESS if out of memory
+     */
+    private long reserveSlabSlot(final int p_sizeClass) {
+        long address;
+
+        if (m_slabFreeSlots[p_sizeClass] == INVALID_ADDRESS) {
+            reserveSlab(p_sizeClass);
+        }
+
+        address = m_slabFreeSlots[p_sizeClass];
+
+        if (address != INVALID_ADDRESS) {
+            m_slabFreeSlots[p_sizeClass] = readPointer(address);
+
+            m_status.m_allocatedPayload += m_slabSizes[p_sizeClass];
+            m_status.m_allocatedBlocks++;
+        }
+
+        return address;
+    }
+
+    /**
+     * Put a slot back to the free list of its slab size class. The allocator lock must be held by the caller.
+     *
+     * @param p_address
+     *         Address of the slot
+     * @param p_sizeClass
+     *         Size class of the slot
+     */
+    private void freeSlabSlot(final long p_address, final int p_sizeClass) {
+        writePointer(p_address, m_slabFreeSlots[p_sizeClass]);
+        m_slabFreeSlots[p_sizeClass] = p_address;
+
+        m_status.m_allocatedPayload -= m_slabSizes[p_sizeClass];
+        m_status.m_allocatedBlocks--;
+    }
+
+    /**
+     * Reserve a slab from the free block lists and split it into slots of the size class.
+     * The allocator lock must be held by the caller.
+     *
+     * @param p_sizeClass
+     *         Size class to reserve a slab for
+     */
+    private void reserveSlab(final int p_sizeClass) {
+        int size = m_slabSizes[p_sizeClass];
+        // payload + right marker byte
+        int slotSize = size + SIZE_MARKER_BYTE;
+        int count = Math.max(1, SLAB_SIZE / slotSize);
+        byte marker = (byte) (SLAB_MARKER_OFFSET + p_sizeClass);
+        long address;
+
+        // -1: one marker byte is already part of the free block
+        address = findFreeBlock(count * slotSize - 1);
+
+        if (address == INVALID_ADDRESS) {
+            // no space for a full slab, get a single slot
+            count = 1;
+            address = findFreeBlock(size);
+
+            if (address == INVALID_ADDRESS) {
+                return;
+            }
+        }
+
+        unhookFreeBlock(address);
+        trimFreeBlockToSize(address, count * slotSize - 1);
+
+        // reverse order: hand out the slots with ascending addresses
+        for (int i = count - 1; i >= 0; i--) {
+            long slot = address + (long) i * slotSize;
+
+            writeRightPartOfMarker(slot - SIZE_MARKER_BYTE, marker);
+            writeLeftPartOfMarker(slot + size, marker);
+            writePointer(slot, m_slabFreeSlots[p_sizeClass]);
+            m_slabFreeSlots[p_sizeClass] = slot;
+        }
     }
 
     /**
@@ -1009,33 +1846,91 @@ public final class SmallObjectHeap implements Importable, Exportable {
         long address;
         int blockSize;
         int lengthFieldSize;
-        byte blockMarker;
+        int sizeClass;
 
         if (p_size > m_status.m_maxBlockSize) {
             throw new MemoryRuntimeException("Req allocation size " + p_size + " is exceeding max memory block size " + m_status.m_maxBlockSize);
         }
 
+        sizeClass = getSlabSizeClass(p_size);
+
+        if (sizeClass != -1) {
+            return reserveSlabSlot(sizeClass);
+        }
+
         lengthFieldSize = calculateLengthFieldSizeAllocBlock(p_size);
 
-        blockMarker = (byte) (ALLOC_BLOCK_FLAGS_OFFSET + lengthFieldSize);
         blockSize = p_size + lengthFieldSize;
         address = findFreeBlock(blockSize);
 
         if (address != INVALID_ADDRESS) {
-            unhookFreeBlock(address);
-            trimFreeBlockToSize(address, blockSize);
+            allocateFreeBlock(address, p_size, lengthFieldSize);
+        }
 
-            // Write marker
-            writeLeftPartOfMarker(address + blockSize, blockMarker);
-            writeRightPartOfMarker(address - SIZE_MARKER_BYTE, blockMarker);
+        return address;
+    }
 
-            write(address, p_size, lengthFieldSize);
+    /**
+     * Reserve a free block of memory located below the specified address.
+     *
+     * @param p_size
+     *         Size of the block (payload size).
+     * @param p_limit
+     *         The block's address has to be lower than this address
+     * @return Address of the reserved block or INVALID_ADDRESS if no block was found.
+     */
+    private long reserveBlockBelow(final int p_size, final long p_limit) {
+        assert p_size > 0;
 
-            m_status.m_allocatedPayload += p_size;
-            m_status.m_allocatedBlocks++;
+        int lengthFieldSize = calculateLengthFieldSizeAllocBlock(p_size);
+        int blockSize = p_size + lengthFieldSize;
+
+        for (int list = getList(blockSize); list < m_freeBlocksListCount; list++) {
+            long address = readPointer(m_baseFreeBlockList + list * POINTER_SIZE);
+            int scanned = 0;
+
+            while (address != INVALID_ADDRESS && scanned < FREE_BLOCK_SCAN_LIMIT) {
+                int freeLengthFieldSize = readRightPartOfMarker(address - SIZE_MARKER_BYTE);
+
+                if (address < p_limit && read(address, freeLengthFieldSize) >= blockSize) {
+                    allocateFreeBlock(address, p_size, lengthFieldSize);
+                    return address;
+                }
+
+                address = readPointer(address + freeLengthFieldSize + POINTER_SIZE);
+                scanned++;
+            }
         }
 
-        return address;
+        return INVALID_ADDRESS;
+    }
+
+    /**
+     * Turn a (still hooked) free block into an allocated block of the specified size. The unused space is hooked
+     * back as free space.
+     *
+     * @param p_address
+     *         Address of the free block
+     * @param p_size
+     *         Size of the block (payload size)
+     * @param p_lengthFieldSize
+     *         Size of the length field of the allocated block
+     */
+    private void allocateFreeBlock(final long p_address, final int p_size, final int p_lengthFieldSize) {
+        byte blockMarker = (byte) (ALLOC_BLOCK_FLAGS_OFFSET + p_lengthFieldSize);
+        int blockSize = p_size + p_lengthFieldSize;
+
+        unhookFreeBlock(p_address);
+        trimFreeBlockToSize(p_address, blockSize);
+
+        // Write marker
+        writeLeftPartOfMarker(p_address + blockSize, blockMarker);
+        writeRightPartOfMarker(p_address - SIZE_MARKER_BYTE, blockMarker);
+
+        write(p_address, p_size, p_lengthFieldSize);
+
+        m_status.m_allocatedPayload += p_size;
+        m_status.m_allocatedBlocks++;
     }
 
     /**
@@ -1312,7 +2207,8 @@ public final class SmallObjectHeap implements Importable, Exportable {
         freeSize += leftSize;
 
         // Only merge if right neighbor within valid area (not inside or past free blocks list)
-        if (address + blockSize + SIZE_MARKER_BYTE != m_baseFreeBlockList) {
+        // (use the block's own address, the start address was moved by the left merge already)
+        if (p_address + lengthFieldSize + blockSize + SIZE_MARKER_BYTE != m_baseFreeBlockList) {
 
             // Read right part of the marker on the right
             rightMarker = readRightPartOfMarker(p_address + lengthFieldSize + blockSize);
@@ -1591,6 +2487,59 @@ public final class SmallObjectHeap implements Importable, Exportable {
 
     // Classes
 
+    /**
+     * Allocation arena of a single thread: caches allocated blocks of a few distinct sizes. The blocks are
+     * reserved in batches from the free block lists (with a single lock acquisition) and free'd blocks of cached
+     * sizes are put back to the arena. Thus, malloc and free of small blocks don't contend on the allocator lock
+     * if threads allocate blocks of recurring sizes (e.g. loading a graph). Cached blocks are allocated blocks
+     * for the free block lists, but are reported as free by getStatus() and are taken back from all arenas if an
+     * allocation fails. The arena's monitor guards its slots (uncontended unless blocks are taken back).
+     */
+    private static final class Arena {
+        private final Thread m_owner;
+        private final int[] m_sizes = new int[ARENA_SLOTS];
+        private final int[] m_counts = new int[ARENA_SLOTS];
+        private final int[] m_refills = new int[ARENA_SLOTS];
+        private final long[][] m_blocks = new long[ARENA_SLOTS][ARENA_SLOT_CAPACITY];
+        private int m_nextEvict;
+
+        /**
+         * Constructor
+         *
+         * @param p_owner
+         *         Thread owning the arena
+         */
+        private Arena(final Thread p_owner) {
+            m_owner = p_owner;
+        }
+
+        /**
+         * Get the slot caching blocks of the specified size
+         *
+         * @param p_size
+         *         Size of the blocks (payload)
+         * @return Index of the slot or -1 if no slot caches blocks of that size
+         */
+        private int getSlot(final int p_size) {
+            for (int i = 0; i < ARENA_SLOTS; i++) {
+                if (m_sizes[i] == p_size) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Get an unused slot
+         *
+         * @return Index of an unused slot or -1 if all slots are in use
+         */
+        private int getFreeSlot() {
+            return getSlot(0);
+        }
+    }
+
     /**
      * Holds fragmentation information of the memory
      *
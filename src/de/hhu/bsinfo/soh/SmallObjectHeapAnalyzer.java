@@ -44,10 +44,16 @@ public final class SmallObjectHeapAnalyzer {
 
     /**
      * Analyze heap and output only errors to stdout
+     *
+     * @return True if the heap is corrupted, false if ok.
      */
-    public void analyzeErrorsOnly() {
-        walkMemoryBlocks(null);
-        walkMemoryFreeBlockList(null);
+    public boolean analyzeErrorsOnly() {
+        boolean corrupted;
+
+        corrupted = walkMemoryBlocks(null);
+        corrupted |= walkMemoryFreeBlockList(null);
+
+        return corrupted;
     }
 
     /**
@@ -70,8 +76,10 @@ public final class SmallObjectHeapAnalyzer {
      *
      * @param p_heap
      *     Heap information
+     * @return True if a corrupted block was found, false otherwise
      */
-    private void walkMemoryBlocks(final Heap p_heap) {
+    private boolean walkMemoryBlocks(final Heap p_heap) {
+        boolean corrupted = false;
         long baseAddress;
         long blockAreaSize;
 
@@ -99,7 +107,7 @@ public final class SmallObjectHeapAnalyzer {
                     sizeBlock = (int) m_memory.read(baseAddress + SmallObjectHeap.SIZE_MARKER_BYTE, lengthFieldSize);
 
                     // check actual size in range
-                    if (sizeBlock >= 12 || sizeBlock <= 1) {
+                    if (sizeBlock >= 12 || sizeBlock < 1) {
                         block.m_error = MemoryBlock.ERROR.INVALID_LENGTH_FIELD_CONTENTS;
                         block.m_errorText = Integer.toString(sizeBlock);
                     }
@@ -112,14 +120,14 @@ public final class SmallObjectHeapAnalyzer {
                     block.m_blockPayloadSize = -1;
 
                     // check end marker byte
-                    if (block.m_markerByte != m_memory.readLeftPartOfMarker(block.m_endAddress)) {
-                        block.m_error = MemoryBlock.ERROR.MARKER_BYTES_NOT_MATCHING;
-                        block.m_errorText = "0x" + Integer.toHexString(block.m_markerByte) + " != 0x" +
-                            Integer.toHexString(m_memory.readLeftPartOfMarker(block.m_endAddress - 1));
+                    if (!checkEndMarker(block, blockAreaSize)) {
+                        // length field corrupted, can't proceed
+                        baseAddress = blockAreaSize;
+                        break;
                     }
 
                     // proceed
-                    baseAddress += SmallObjectHeap.SIZE_MARKER_BYTE + lengthFieldSize;
+                    baseAddress += SmallObjectHeap.SIZE_MARKER_BYTE + sizeBlock;
                     break;
                 }
 
@@ -149,17 +157,18 @@ public final class SmallObjectHeapAnalyzer {
                         }
                     }
 
-                    block.m_nextFreeBlock = m_memory.readPointer(baseAddress + lengthFieldSize + SmallObjectHeap.POINTER_SIZE);
+                    block.m_nextFreeBlock =
+                        m_memory.readPointer(baseAddress + SmallObjectHeap.SIZE_MARKER_BYTE + lengthFieldSize + SmallObjectHeap.POINTER_SIZE);
                     if (block.m_nextFreeBlock < 0 || block.m_nextFreeBlock >= blockAreaSize) {
                         block.m_error = MemoryBlock.ERROR.INVALID_POINTERS;
                         block.m_errorText = "0x" + Long.toHexString(block.m_nextFreeBlock);
                     }
 
                     // check end marker byte
-                    if (block.m_markerByte != m_memory.readLeftPartOfMarker(block.m_endAddress)) {
-                        block.m_error = MemoryBlock.ERROR.MARKER_BYTES_NOT_MATCHING;
-                        block.m_errorText = "0x" + Integer.toHexString(block.m_markerByte) + " != 0x" +
-                            Integer.toHexString(m_memory.readLeftPartOfMarker(block.m_endAddress - 1));
+                    if (!checkEndMarker(block, blockAreaSize)) {
+                        // length field corrupted, can't proceed
+                        baseAddress = blockAreaSize;
+                        break;
                     }
 
                     // check actual size in range
@@ -223,7 +232,8 @@ public final class SmallObjectHeapAnalyzer {
                     // check actual size in range
                     switch (lengthFieldSize) {
                         case 1:
-                            if (!(blockPayloadSize >= 12 && blockPayloadSize <= 0xFF)) {
+                            // small chunks are allocated with their exact size (no minimum unlike free blocks)
+                            if (!(blockPayloadSize >= 1 && blockPayloadSize <= 0xFF)) {
                                 block.m_error = MemoryBlock.ERROR.INVALID_LENGTH_FIELD_CONTENTS;
                                 block.m_errorText = Long.toString(blockPayloadSize);
                             }
@@ -262,10 +272,10 @@ public final class SmallObjectHeapAnalyzer {
                     block.m_blockPayloadSize = blockPayloadSize;
 
                     // check end marker byte
-                    if (block.m_markerByte != m_memory.readLeftPartOfMarker(block.m_endAddress)) {
-                        block.m_error = MemoryBlock.ERROR.MARKER_BYTES_NOT_MATCHING;
-                        block.m_errorText = "0x" + Integer.toHexString(block.m_markerByte) + " != 0x" +
-                            Integer.toHexString(m_memory.readLeftPartOfMarker(block.m_endAddress - 1));
+                    if (!checkEndMarker(block, blockAreaSize)) {
+                        // length field corrupted, can't proceed
+                        baseAddress = blockAreaSize;
+                        break;
                     }
 
                     // proceed
@@ -288,9 +298,54 @@ public final class SmallObjectHeapAnalyzer {
                     break;
                 }
 
+                // slab slot of size class 0 - 4, no length field
+                case 10:
+                case 11:
+                case 12:
+                case 13:
+                case 14: {
+                    int sizeClass;
+                    long blockPayloadSize;
+
+                    sizeClass = block.m_markerByte - SmallObjectHeap.SLAB_MARKER_OFFSET;
+                    if (sizeClass >= m_memory.m_slabSizes.length) {
+                        block.m_error = MemoryBlock.ERROR.INVALID_MARKER_BYTE;
+                        block.m_errorText = Integer.toHexString(block.m_markerByte);
+
+                        // size unknown, can't proceed
+                        baseAddress = blockAreaSize;
+                        break;
+                    }
+
+                    // size is defined by the size class (allocated and free slots)
+                    blockPayloadSize = m_memory.m_slabSizes[sizeClass];
+
+                    // + 2 half marker bytes
+                    block.m_endAddress = baseAddress + blockPayloadSize + SmallObjectHeap.SIZE_MARKER_BYTE;
+                    block.m_rawBlockSize = blockPayloadSize;
+                    block.m_prevFreeBlock = -1;
+                    block.m_nextFreeBlock = -1;
+                    block.m_blockPayloadSize = blockPayloadSize;
+
+                    // check end marker byte
+                    if (!checkEndMarker(block, blockAreaSize)) {
+                        // length field corrupted, can't proceed
+                        baseAddress = blockAreaSize;
+                        break;
+                    }
+
+                    // proceed
+                    baseAddress += SmallObjectHeap.SIZE_MARKER_BYTE + blockPayloadSize;
+
+                    break;
+                }
+
                 default: {
                     block.m_error = MemoryBlock.ERROR.INVALID_MARKER_BYTE;
                     block.m_errorText = Integer.toHexString(block.m_markerByte);
+
+                    // size unknown, can't proceed
+                    baseAddress = blockAreaSize;
                     break;
                 }
             }
@@ -304,9 +359,38 @@ public final class SmallObjectHeapAnalyzer {
                     p_heap.m_isCorrupted = true;
                 }
 
+                corrupted = true;
                 System.out.println(block);
             }
         }
+
+        return corrupted;
+    }
+
+    /**
+     * Check the end marker of a block. The end marker is not read if the block exceeds the block area (e.g.
+     * because of a corrupted length field), reading outside of the storage would crash the JVM.
+     *
+     * @param p_block
+     *     Block to check, the end address must be set
+     * @param p_blockAreaSize
+     *     Size of the block area
+     * @return False if the block exceeds the block area, true otherwise
+     */
+    private boolean checkEndMarker(final MemoryBlock p_block, final long p_blockAreaSize) {
+        if (p_block.m_endAddress <= p_block.m_startAddress || p_block.m_endAddress >= p_blockAreaSize) {
+            p_block.m_error = MemoryBlock.ERROR.INVALID_LENGTH_FIELD_CONTENTS;
+            p_block.m_errorText = "block exceeds block area, end 0x" + Long.toHexString(p_block.m_endAddress);
+            return false;
+        }
+
+        int endMarker = m_memory.readLeftPartOfMarker(p_block.m_endAddress);
+        if (p_block.m_markerByte != endMarker) {
+            p_block.m_error = MemoryBlock.ERROR.MARKER_BYTES_NOT_MATCHING;
+            p_block.m_errorText = "0x" + Integer.toHexString(p_block.m_markerByte) + " != 0x" + Integer.toHexString(endMarker);
+        }
+
+        return true;
     }
 
     /**
@@ -314,8 +398,10 @@ public final class SmallObjectHeapAnalyzer {
      *
      * @param p_heap
      *     Heap information
+     * @return True if a corrupted block was found, false otherwise
      */
-    private void walkMemoryFreeBlockList(final Heap p_heap) {
+    private boolean walkMemoryFreeBlockList(final Heap p_heap) {
+        boolean corrupted = false;
         long baseAddress;
         long freeBlockListAreaSize;
         long freeBlockListEnd;
@@ -341,10 +427,27 @@ public final class SmallObjectHeapAnalyzer {
                 long ptr = m_memory.readPointer(baseAddress);
 
                 if (ptr != SmallObjectHeap.INVALID_ADDRESS) {
+                    // a list can't have more blocks than fit into the block area (detects cycles)
+                    long maxBlocks = m_memory.m_baseFreeBlockList / 12 + 1;
 
                     do {
                         FreeBlockListElement block = new FreeBlockListElement();
 
+                        // don't follow pointers outside of the block area, reading there would crash the JVM
+                        if (ptr < 1 || ptr >= m_memory.m_baseFreeBlockList || maxBlocks-- == 0) {
+                            block.m_error = FreeBlockListElement.ERROR.INVALID_POINTERS;
+                            block.m_errorText = "0x" + Long.toHexString(ptr);
+
+                            if (list != null) {
+                                list.m_blocks.add(block);
+                                list.m_isCorrupted = true;
+                            }
+
+                            corrupted = true;
+                            System.out.println(block);
+                            break;
+                        }
+
                         int marker;
                         marker = m_memory.readRightPartOfMarker(ptr - 1);
 
@@ -383,6 +486,8 @@ public final class SmallObjectHeapAnalyzer {
                                 if (ptrNext < 0 || ptrNext >= m_memory.m_baseFreeBlockList) {
                                     block.m_error = FreeBlockListElement.ERROR.INVALID_POINTERS;
                                     block.m_errorText = "0x" + Long.toHexString(ptrNext);
+                                    // can't proceed with this list
+                                    ptrNext = SmallObjectHeap.INVALID_ADDRESS;
                                 }
 
                                 // have block position before the marker byte for the walker
@@ -406,6 +511,9 @@ public final class SmallObjectHeapAnalyzer {
                             default: {
                                 block.m_error = FreeBlockListElement.ERROR.INVALID_MARKER_BYTE;
                                 block.m_errorText = "0x" + Integer.toHexString(marker);
+
+                                // pointers unknown, can't proceed with this list
+                                ptr = SmallObjectHeap.INVALID_ADDRESS;
                                 break;
                             }
                         }
@@ -419,6 +527,8 @@ public final class SmallObjectHeapAnalyzer {
                                 list.m_isCorrupted = true;
                             }
 
+                            corrupted = true;
+
                             System.out.println(block);
                         }
 
@@ -434,6 +544,8 @@ public final class SmallObjectHeapAnalyzer {
                 }
             }
         }
+
+        return corrupted;
     }
 
     /**
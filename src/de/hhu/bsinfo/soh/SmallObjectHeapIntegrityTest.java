@@ -61,12 +61,14 @@ public final class SmallObjectHeapIntegrityTest {
      *     Minimum memory block size to alloc.
      * @param p_blockSizeMax
      *     Maximum memory block size to alloc.
+     * @param p_slabSizes
+     *     Slab size classes of the heap (empty for none)
      * @param p_debugPrint
      *     Enable debug prints
      */
     private SmallObjectHeapIntegrityTest(final int p_testId, final long p_memorySize, final int p_maxBlockSize, final int p_numThreads,
         final int p_numOperations, final float p_mallocFreeRatio, final int p_blockSizeMin, final int p_blockSizeMax, final int p_multiMallocCount,
-        final boolean p_debugPrint) {
+        final int[] p_slabSizes, final boolean p_debugPrint) {
         assert p_memorySize > 0;
         assert p_numThreads > 0;
         assert p_mallocFreeRatio >= 0.5;
@@ -74,7 +76,7 @@ public final class SmallObjectHeapIntegrityTest {
         assert p_blockSizeMax > 0;
         assert p_blockSizeMax >= p_blockSizeMin;
 
-        m_memory = new SmallObjectHeap(new StorageUnsafeMemory(), p_memorySize, p_maxBlockSize);
+        m_memory = new SmallObjectHeap(new StorageUnsafeMemory(), p_memorySize, p_maxBlockSize, p_slabSizes);
 
         m_testId = p_testId;
         m_numThreads = p_numThreads;
@@ -129,6 +131,18 @@ public final class SmallObjectHeapIntegrityTest {
 
         executor.shutdown();
 
+        // walk all blocks (including slab slots) and free block lists
+        System.out.println("Analyzing heap...");
+        if (new SmallObjectHeapAnalyzer(m_memory).analyzeErrorsOnly()) {
+            System.out.println("!!! ERROR: Heap corrupted");
+            String fileName = "SohInTest-" + m_testId + ".dump";
+
+            System.out.println("Dumping memory to " + fileName);
+            m_memory.dump(fileName);
+
+            System.exit(-1);
+        }
+
         m_memory.destroy();
     }
 
@@ -159,7 +173,8 @@ public final class SmallObjectHeapIntegrityTest {
             int multiMallocCount = Integer.parseInt(p_args[7]);
             boolean debugPrint = Boolean.parseBoolean(p_args[8]);
 
-            runTest(0, memorySize, maxBlockSize, numThreads, numOperations, mallocFreeRatio, blockSizeMin, blockSizeMax, multiMallocCount, debugPrint);
+            runTest(0, memorySize, maxBlockSize, numThreads, numOperations, mallocFreeRatio, blockSizeMin, blockSizeMax, multiMallocCount, new int[0],
+                debugPrint);
         }
     }
 
@@ -217,6 +232,13 @@ public final class SmallObjectHeapIntegrityTest {
         runTest(28, 1024 * 1024 * 1024, maxBlockSizeHuge, 1, 100, 0.5f, 1024 * 1024 * 9, 1024 * 1024 * 16, 0, false);
 
         runTest(29, 1024 * 1024 * 1024, maxBlockSizeHuge, 1, 100, 0.5f, 1024 * 1024 * 9, 1024 * 1024 * 16, 10, false);
+
+        // slab size classes, blocks of other sizes in between
+        final int[] slabSizes = {16, 24, 32, 48, 64};
+        runTest(30, 1024 * 1024, maxBlockSize, 1, 100, 1.0f, 16, 16, 0, slabSizes, false);
+        runTest(31, 1024 * 1024 * 128, maxBlockSize, 1, 100000, 0.5f, 16, 64, 0, slabSizes, false);
+        runTest(32, 1024 * 1024 * 128, maxBlockSize, 1, 100000, 0.5f, 16, 128, 10, slabSizes, false);
+        runTest(33, 1024 * 1024 * 1024, maxBlockSize, 4, 100000, 0.5f, 16, 128, 0, slabSizes, false);
     }
 
     /**
@@ -243,12 +265,43 @@ public final class SmallObjectHeapIntegrityTest {
      */
     private static void runTest(final int p_testId, final long p_memorySize, final int p_maxBlockSize, final int p_numThreads, final int p_numOperations,
         final float p_mallocFreeRatio, final int p_blockSizeMin, final int p_blockSizeMax, final int p_multiMallocCount, final boolean p_debugPrint) {
+        runTest(p_testId, p_memorySize, p_maxBlockSize, p_numThreads, p_numOperations, p_mallocFreeRatio, p_blockSizeMin, p_blockSizeMax,
+            p_multiMallocCount, new int[0], p_debugPrint);
+    }
+
+    /**
+     * Run the test on a heap with slab size classes
+     *
+     * @param p_testId
+     *     Id of the test run
+     * @param p_memorySize
+     *     Size of the memory
+     * @param p_maxBlockSize
+     *     Maximum size of a single block in memory
+     * @param p_numThreads
+     *     Number of threads to run
+     * @param p_numOperations
+     *     Number of operations to execute
+     * @param p_mallocFreeRatio
+     *     Ratio of malloc and frees
+     * @param p_blockSizeMin
+     *     Minimal block size on allocation
+     * @param p_blockSizeMax
+     *     Maximum block size on allocation
+     * @param p_slabSizes
+     *     Slab size classes of the heap (empty for none)
+     * @param p_debugPrint
+     *     Print debug information
+     */
+    private static void runTest(final int p_testId, final long p_memorySize, final int p_maxBlockSize, final int p_numThreads, final int p_numOperations,
+        final float p_mallocFreeRatio, final int p_blockSizeMin, final int p_blockSizeMax, final int p_multiMallocCount, final int[] p_slabSizes,
+        final boolean p_debugPrint) {
 
         System.out.println("===============================================================");
         System.out.println("Initializing RawMemory test (" + p_testId + ")...");
         SmallObjectHeapIntegrityTest test =
             new SmallObjectHeapIntegrityTest(p_testId, p_memorySize, p_maxBlockSize, p_numThreads, p_numOperations, p_mallocFreeRatio, p_blockSizeMin,
-                p_blockSizeMax, p_multiMallocCount, p_debugPrint);
+                p_blockSizeMax, p_multiMallocCount, p_slabSizes, p_debugPrint);
         System.out.println("Running test (" + p_testId + ")...");
         long timeStart = System.nanoTime();
         test.run();
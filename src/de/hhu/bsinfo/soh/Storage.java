@@ -32,6 +32,14 @@ public interface Storage {
      */
     void allocate(long p_size);
 
+    /**
+     * Check if the memory of the storage is zeroed by allocate() already (e.g. pages of a fresh memory
+     * mapping are zeroed lazily by the OS on first access) and does not have to be reset by the caller.
+     *
+     * @return True if the memory is zeroed on allocation, false otherwise
+     */
+    boolean isZeroedOnAllocation();
+
     /**
      * Free/Cleanup the storage.
      * Make sure to call this before object destruction.
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.soh;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Storage wrapping another storage to capture a consistent image of it while it is modified (e.g. for snapshots).
+ * A capture is started while the storage is not modified. Afterwards, the image is read window by window while
+ * the storage is modified again: the first write to a window which was not read yet copies the window's contents
+ * before writing. Thus, only windows modified while capturing are copied.
+ * Without a running capture, every write costs one additional volatile read.
+ */
+public class StorageCopyOnWrite implements Storage {
+    public static final int WINDOW_SIZE = 64 * 1024;
+
+    private static final int WINDOW_SHIFT = 16;
+    private static final int LOCK_STRIPES = 256;
+
+    private static final int WINDOW_PENDING = 0;
+    private static final int WINDOW_COPIED = 1;
+    private static final int WINDOW_READ = 2;
+
+    private final Storage m_storage;
+    private volatile Capture m_capture;
+
+    /**
+     * Constructor
+     *
+     * @param p_storage
+     *         Storage to wrap
+     */
+    public StorageCopyOnWrite(final Storage p_storage) {
+        m_storage = p_storage;
+    }
+
+    /**
+     * Start capturing the image of the storage. The storage must not be modified concurrently while starting.
+     *
+     * @throws MemoryRuntimeException
+     *         If a capture is running already
+     */
+    public void startCapture() {
+        if (m_capture != null) {
+            throw new MemoryRuntimeException("Capture of storage image is running already");
+        }
+
+        m_capture = new Capture(m_storage.getSize());
+    }
+
+    /**
+     * Get the number of windows of the captured image
+     *
+     * @return Number of windows
+     */
+    public int getCaptureWindowCount() {
+        return m_capture.m_states.length();
+    }
+
+    /**
+     * Read a window of the captured image. Every window can be read once only.
+     *
+     * @param p_window
+     *         Index of the window
+     * @param p_buffer
+     *         Buffer to read into
+     * @param p_bufferOffset
+     *         Offset within the buffer (at least WINDOW_SIZE bytes are available)
+     * @return Number of bytes read (WINDOW_SIZE, less for the last window)
+     * @throws MemoryRuntimeException
+     *         If the storage was freed while capturing
+     */
+    public int readCaptureWindow(final int p_window, final byte[] p_buffer, final int p_bufferOffset) {
+        return m_capture.readWindow(p_window, p_buffer, p_bufferOffset);
+    }
+
+    /**
+     * Get the number of bytes copied on write by the current capture
+     *
+     * @return Number of bytes
+     */
+    public long getCaptureCopiedBytes() {
+        return m_capture.m_copiedBytes.get();
+    }
+
+    /**
+     * Stop the capture and release the copied windows
+     */
+    public void stopCapture() {
+        m_capture = null;
+    }
+
+    @Override
+    public void allocate(final long p_size) {
+        m_storage.allocate(p_size);
+    }
+
+    @Override
+    public boolean isZeroedOnAllocation() {
+        return m_storage.isZeroedOnAllocation();
+    }
+
+    @Override
+    public void free() {
+        Capture capture = m_capture;
+
+        // don't pull the memory away from a window read in progress
+        if (capture != null) {
+            capture.abort();
+        }
+
+        m_storage.free();
+    }
+
+    @Override
+    public long getSize() {
+        return m_storage.getSize();
+    }
+
+    @Override
+    public String toString() {
+        return "copy on write, " + m_storage;
+    }
+
+    @Override
+    public void set(final long p_ptr, final long p_size, final byte p_value) {
+        beforeWrite(p_ptr, p_size);
+        m_storage.set(p_ptr, p_size, p_value);
+    }
+
+    @Override
+    public int readBytes(final long p_ptr, final byte[] p_array, final int p_arrayOffset, final int p_length) {
+        return m_storage.readBytes(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public int readShorts(final long p_ptr, final short[] p_array, final int p_arrayOffset, final int p_length) {
+        return m_storage.readShorts(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public int readInts(final long p_ptr, final int[] p_array, final int p_arrayOffset, final int p_length) {
+        return m_storage.readInts(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public int readLongs(final long p_ptr, final long[] p_array, final int p_arrayOffset, final int p_length) {
+        return m_storage.readLongs(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public byte readByte(final long p_ptr) {
+        return m_storage.readByte(p_ptr);
+    }
+
+    @Override
+    public short readShort(final long p_ptr) {
+        return m_storage.readShort(p_ptr);
+    }
+
+    @Override
+    public int readInt(final long p_ptr) {
+        return m_storage.readInt(p_ptr);
+    }
+
+    @Override
+    public long readLong(final long p_ptr) {
+        return m_storage.readLong(p_ptr);
+    }
+
+    @Override
+    public int writeBytes(final long p_ptr, final byte[] p_array, final int p_arrayOffset, final int p_length) {
+        beforeWrite(p_ptr, p_length);
+        return m_storage.writeBytes(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public int writeBytes(final long p_ptr, final long p_valueAddress, final int p_valueOffset, final int p_length) {
+        beforeWrite(p_ptr, p_length);
+        return m_storage.writeBytes(p_ptr, p_valueAddress, p_valueOffset, p_length);
+    }
+
+    @Override
+    public int writeShorts(final long p_ptr, final short[] p_array, final int p_arrayOffset, final int p_length) {
+        beforeWrite(p_ptr, (long) p_length * Short.BYTES);
+        return m_storage.writeShorts(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public int writeInts(final long p_ptr, final int[] p_array, final int p_arrayOffset, final int p_length) {
+        beforeWrite(p_ptr, (long) p_length * Integer.BYTES);
+        return m_storage.writeInts(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public int writeLongs(final long p_ptr, final long[] p_array, final int p_arrayOffset, final int p_length) {
+        beforeWrite(p_ptr, (long) p_length * Long.BYTES);
+        return m_storage.writeLongs(p_ptr, p_array, p_arrayOffset, p_length);
+    }
+
+    @Override
+    public void writeByte(final long p_ptr, final byte p_value) {
+        beforeWrite(p_ptr, Byte.BYTES);
+        m_storage.writeByte(p_ptr, p_value);
+    }
+
+    @Override
+    public void writeShort(final long p_ptr, final short p_value) {
+        beforeWrite(p_ptr, Short.BYTES);
+        m_storage.writeShort(p_ptr, p_value);
+    }
+
+    @Override
+    public void writeInt(final long p_ptr, final int p_value) {
+        beforeWrite(p_ptr, Integer.BYTES);
+        m_storage.writeInt(p_ptr, p_value);
+    }
+
+    @Override
+    public void writeLong(final long p_ptr, final long p_value) {
+        beforeWrite(p_ptr, Long.BYTES);
+        m_storage.writeLong(p_ptr, p_value);
+    }
+
+    @Override
+    public long readVal(final long p_ptr, final int p_count) {
+        return m_storage.readVal(p_ptr, p_count);
+    }
+
+    @Override
+    public void writeVal(final long p_ptr, final long p_val, final int p_count) {
+        beforeWrite(p_ptr, p_count);
+        m_storage.writeVal(p_ptr, p_val, p_count);
+    }
+
+    /**
+     * Copy the windows of a range which are about to be written if they are part of a running capture
+     *
+     * @param p_ptr
+     *         Start of the range
+     * @param p_length
+     *         Length of the range
+     */
+    private void beforeWrite(final long p_ptr, final long p_length) {
+        Capture capture = m_capture;
+
+        if (capture != null && p_length > 0) {
+            capture.copyBeforeWrite(p_ptr, p_length);
+        }
+    }
+
+    /**
+     * State of a running capture
+     */
+    private final class Capture {
+        private final long m_size;
+        private final AtomicIntegerArray m_states;
+        private final AtomicReferenceArray<byte[]> m_copies;
+        private final Object[] m_locks = new Object[LOCK_STRIPES];
+        private final AtomicLong m_copiedBytes = new AtomicLong();
+        // read lock: window read in progress, write lock: storage is freed
+        private final ReentrantReadWriteLock m_freeLock = new ReentrantReadWriteLock(false);
+        private boolean m_aborted;
+
+        /**
+         * Constructor
+         *
+         * @param p_size
+         *         Size of the storage
+         */
+        private Capture(final long p_size) {
+            int windows = (int) ((p_size + WINDOW_SIZE - 1) >>> WINDOW_SHIFT);
+
+            m_size = p_size;
+            m_states = new AtomicIntegerArray(windows);
+            m_copies = new AtomicReferenceArray<>(windows);
+
+            for (int i = 0; i < m_locks.length; i++) {
+                m_locks[i] = new Object();
+            }
+        }
+
+        /**
+         * Copy the windows of a range which were not read yet
+         *
+         * @param p_ptr
+         *         Start of the range
+         * @param p_length
+         *         Length of the range
+         */
+        private void copyBeforeWrite(final long p_ptr, final long p_length) {
+            int last = (int) ((p_ptr + p_length - 1) >>> WINDOW_SHIFT);
+
+            for (int window = (int) (p_ptr >>> WINDOW_SHIFT); window <= last; window++) {
+                if (m_states.get(window) != WINDOW_PENDING) {
+                    continue;
+                }
+
+                synchronized (m_locks[window % LOCK_STRIPES]) {
+                    if (m_states.get(window) == WINDOW_PENDING) {
+                        byte[] copy = new byte[getWindowLength(window)];
+
+                        m_storage.readBytes((long) window << WINDOW_SHIFT, copy, 0, copy.length);
+                        m_copies.set(window, copy);
+                        m_states.set(window, WINDOW_COPIED);
+                        m_copiedBytes.addAndGet(copy.length);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Read a window of the captured image
+         *
+         * @param p_window
+         *         Index of the window
+         * @param p_buffer
+         *         Buffer to read into
+         * @param p_bufferOffset
+         *         Offset within the buffer
+         * @return Number of bytes read
+         */
+        private int readWindow(final int p_window, final byte[] p_buffer, final int p_bufferOffset) {
+            int length = getWindowLength(p_window);
+
+            m_freeLock.readLock().lock();
+
+            try {
+                if (m_aborted) {
+                    throw new MemoryRuntimeException("Storage was freed while capturing its image");
+                }
+
+                synchronized (m_locks[p_window % LOCK_STRIPES]) {
+                    byte[] copy = m_copies.get(p_window);
+
+                    if (copy != null) {
+                        System.arraycopy(copy, 0, p_buffer, p_bufferOffset, length);
+                        m_copies.set(p_window, null);
+                    } else {
+                        m_storage.readBytes((long) p_window << WINDOW_SHIFT, p_buffer, p_bufferOffset, length);
+                    }
+
+                    m_states.set(p_window, WINDOW_READ);
+                }
+            } finally {
+                m_freeLock.readLock().unlock();
+            }
+
+            return length;
+        }
+
+        /**
+         * Abort the capture because the storage is freed. Waits for a window read in progress
+         */
+        private void abort() {
+            m_freeLock.writeLock().lock();
+            m_aborted = true;
+            m_freeLock.writeLock().unlock();
+        }
+
+        /**
+         * Get the length of a window (the last window might be shorter)
+         *
+         * @param p_window
+         *         Index of the window
+         * @return Length in bytes
+         */
+        private int getWindowLength(final int p_window) {
+            return (int) Math.min(WINDOW_SIZE, m_size - ((long) p_window << WINDOW_SHIFT));
+        }
+    }
+}
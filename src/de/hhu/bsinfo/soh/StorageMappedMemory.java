@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2018 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science,
+ * Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.soh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Implementation of a storage based on a shared memory mapping of a (sparse) file. The file is created in the
+ * specified directory and removed right after mapping it.
+ * Compared to StorageUnsafeMemory:
+ * - Allocation is near instant, the OS zeroes the pages lazily on first access (no memset of the full storage)
+ * - Pages are placed on the NUMA node of the thread touching them first (instead of the node of the thread
+ * zeroing the storage) or bound to a specified node (effective for anonymous and shmem/hugetlbfs backed pages,
+ * e.g. not for page cache pages of a file on disk)
+ * - Use a directory on a hugetlbfs mount (e.g. /dev/hugepages) to back the storage with huge pages or a tmpfs
+ * mount (e.g. /dev/shm) with transparent huge pages enabled for shmem
+ * Alternatively, an existing memory image (e.g. of a snapshot) is mapped privately (copy on write): pages are
+ * read from the file on first access, modifications are not written back to the file.
+ * The storage is a single contiguous mapping created with mmap through the JNI library libJNIMemoryMap
+ * (jni/memorymap) which has to be loaded before (FileChannel.map() is limited to 2 GB per buffer).
+ */
+public class StorageMappedMemory extends StorageUnsafeMemory {
+    private final String m_directory;
+    private final long m_pageSize;
+    private final int m_numaNode;
+
+    private final File m_image;
+    private final long m_imageOffset;
+
+    private long m_mappingSize;
+
+    /**
+     * Constructor
+     *
+     * @param p_directory
+     *         Directory to create the file to map in (e.g. /dev/shm or a hugetlbfs mount)
+     * @param p_pageSize
+     *         Page size of the mapping in bytes, the size of the mapping is rounded up to a multiple of it
+     *         (required for hugetlbfs)
+     * @param p_numaNode
+     *         NUMA node to bind the memory to or -1 to place pages on the node of the thread touching them first
+     */
+    public StorageMappedMemory(final String p_directory, final long p_pageSize, final int p_numaNode) {
+        if (p_pageSize <= 0 || Long.bitCount(p_pageSize) != 1) {
+            throw new MemoryRuntimeException("Page size must be a power of two: " + p_pageSize);
+        }
+
+        checkSupported();
+
+        m_directory = p_directory;
+        m_pageSize = p_pageSize;
+        m_numaNode = p_numaNode;
+        m_image = null;
+        m_imageOffset = 0;
+    }
+
+    /**
+     * Constructor for a private mapping of an existing memory image
+     *
+     * @param p_image
+     *         File containing the memory image
+     * @param p_imageOffset
+     *         Offset of the memory image in the file (multiple of the OS page size)
+     * @param p_numaNode
+     *         NUMA node to bind modified pages to or -1 to place them on the node of the thread touching them first
+     */
+    public StorageMappedMemory(final File p_image, final long p_imageOffset, final int p_numaNode) {
+        checkSupported();
+
+        m_directory = p_image.getParent();
+        m_pageSize = 1;
+        m_numaNode = p_numaNode;
+        m_image = p_image;
+        m_imageOffset = p_imageOffset;
+    }
+
+    @Override
+    public boolean isZeroedOnAllocation() {
+        return m_image == null;
+    }
+
+    @Override
+    protected long allocateMemory(final long p_size) {
+        File file;
+        long address;
+
+        if (m_image != null) {
+            return mapImage(p_size);
+        }
+
+        m_mappingSize = p_size + m_pageSize - 1 & ~(m_pageSize - 1);
+
+        try {
+            file = File.createTempFile("soh", ".mem", new File(m_directory));
+        } catch (final IOException e) {
+            throw new MemoryRuntimeException("Creating file to map in " + m_directory + " failed", e);
+        }
+
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // sparse file, no pages are allocated until accessed
+                raf.setLength(m_mappingSize);
+            } catch (final IOException e) {
+                throw new MemoryRuntimeException("Creating file to map " + file + " failed", e);
+            }
+
+            // the mapping remains valid after removing the file
+            address = map(file, 0, m_mappingSize, false);
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+
+        bindToNumaNode(address);
+
+        return address;
+    }
+
+    @Override
+    protected void freeMemory(final long p_address, final long p_size) {
+        int ret = JNIMemoryMap.unmap(p_address, m_mappingSize);
+
+        if (ret != 0) {
+            throw new MemoryRuntimeException("Unmapping memory failed, errno " + -ret);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (m_image != null) {
+            return super.toString() + ", m_image: " + m_image + ", m_imageOffset: " + m_imageOffset +
+                    ", m_numaNode: " + m_numaNode;
+        }
+
+        return super.toString() + ", m_directory: " + m_directory + ", m_pageSize: " + m_pageSize + ", m_numaNode: " +
+                m_numaNode;
+    }
+
+    /**
+     * Map the memory image privately
+     *
+     * @param p_size
+     *         Size of the memory image
+     * @return Address of the mapping
+     */
+    private long mapImage(final long p_size) {
+        long address;
+
+        m_mappingSize = p_size;
+
+        if (m_image.length() < m_imageOffset + p_size) {
+            throw new MemoryRuntimeException("Memory image " + m_image + " is truncated, expected size " +
+                    (m_imageOffset + p_size) + ", actual size " + m_image.length());
+        }
+
+        address = map(m_image, m_imageOffset, p_size, true);
+        bindToNumaNode(address);
+
+        return address;
+    }
+
+    /**
+     * Map a file
+     *
+     * @param p_file
+     *         File to map
+     * @param p_offset
+     *         Offset within the file to start the mapping at
+     * @param p_size
+     *         Size of the mapping
+     * @param p_private
+     *         True to map privately (copy on write), false to map shared
+     * @return Address of the mapping
+     */
+    private static long map(final File p_file, final long p_offset, final long p_size, final boolean p_private) {
+        long address = JNIMemoryMap.map(p_file.getAbsolutePath(), p_offset, p_size, p_private);
+
+        if (address < 0) {
+            throw new MemoryRuntimeException("Mapping file " + p_file + " failed, errno " + -address);
+        }
+
+        return address;
+    }
+
+    /**
+     * Bind the mapping to the configured NUMA node before any page is touched
+     *
+     * @param p_address
+     *         Address of the mapping
+     */
+    private void bindToNumaNode(final long p_address) {
+        if (m_numaNode < 0) {
+            return;
+        }
+
+        int ret = JNIMemoryMap.bindToNode(p_address, m_mappingSize, m_numaNode);
+
+        if (ret != 0) {
+            JNIMemoryMap.unmap(p_address, m_mappingSize);
+            throw new MemoryRuntimeException("Binding memory to NUMA node " + m_numaNode + " failed, errno " + -ret);
+        }
+    }
+
+    /**
+     * Check if mapping memory is available, i.e. the JNI library libJNIMemoryMap is loaded.
+     * Called on construction, call it on startup to fail before any memory is allocated.
+     *
+     * @throws MemoryRuntimeException
+     *         If the library is not loaded
+     */
+    public static void checkSupported() {
+        try {
+            JNIMemoryMap.getPageSize();
+        } catch (final UnsatisfiedLinkError e) {
+            throw new MemoryRuntimeException("Mapping memory requires the JNI library libJNIMemoryMap " +
+                    "(build it from jni/memorymap)", e);
+        }
+    }
+}
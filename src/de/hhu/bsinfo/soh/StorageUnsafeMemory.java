@@ -45,7 +45,9 @@ public class StorageUnsafeMemory implements Storage {
         assert p_size > 0;
 
         try {
-            m_memoryBase = UnsafeMemory.allocate(p_size);
+            m_memoryBase = allocateMemory(p_size);
+        } catch (final MemoryRuntimeException e) {
+            throw e;
         } catch (final Throwable e) {
             throw new MemoryRuntimeException("Could not initialize memory", e);
         }
@@ -53,6 +55,11 @@ public class StorageUnsafeMemory implements Storage {
         m_memorySize = p_size;
     }
 
+    @Override
+    public boolean isZeroedOnAllocation() {
+        return false;
+    }
+
     @Override
     public void free() {
         if (m_memoryBase == -1) {
@@ -60,7 +67,9 @@ public class StorageUnsafeMemory implements Storage {
         }
 
         try {
-            UnsafeMemory.free(m_memoryBase);
+            freeMemory(m_memoryBase, m_memorySize);
+        } catch (final MemoryRuntimeException e) {
+            throw e;
         } catch (final Throwable e) {
             throw new MemoryRuntimeException("Could not free memory", e);
         }
@@ -68,6 +77,29 @@ public class StorageUnsafeMemory implements Storage {
         m_memorySize = 0;
     }
 
+    /**
+     * Allocate the native memory backing the storage
+     *
+     * @param p_size
+     *         Size in bytes
+     * @return Address of the memory
+     */
+    protected long allocateMemory(final long p_size) {
+        return UnsafeMemory.allocate(p_size);
+    }
+
+    /**
+     * Free the native memory backing the storage
+     *
+     * @param p_address
+     *         Address of the memory
+     * @param p_size
+     *         Size in bytes
+     */
+    protected void freeMemory(final long p_address, final long p_size) {
+        UnsafeMemory.free(p_address);
+    }
+
     @Override
     public String toString() {
         return "m_memoryBase=0x" + Long.toHexString(m_memoryBase) + ", m_memorySize: " + m_memorySize;